@@ -21,11 +21,19 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TODO: this whole class would benefit from more refactoring.
@@ -39,6 +47,17 @@ public final class RefinedResourceSchemaImpl implements RefinedResourceSchema {
     private static final String USER_DATA_KEY_PARSED_RESOURCE_SCHEMA = RefinedResourceSchema.class.getName()+".parsedResourceSchema";
     private static final String USER_DATA_KEY_REFINED_SCHEMA = RefinedResourceSchema.class.getName()+".refinedSchema";
 
+    /**
+     * Parsed (and refined) schemas shared among all copies and versions of a resource object, indexed by resource OID.
+     * The parsed schema is reused only if the XSD schema has the same serial number (from caching metadata), the same
+     * namespace and the same content (fingerprint). The refined schema is reused only if also the schemaHandling is the same.
+     * So e.g. changes of operational state or connector configuration do not cause the schemas to be parsed again.
+     *
+     * Entries are evicted by the resource cache (in provisioning) when a resource is deleted or otherwise invalidated
+     * in a way other than local modification, and all of them are evicted when all resources are invalidated.
+     */
+    private static final Map<String, SharedSchemas> SHARED_SCHEMAS = new ConcurrentHashMap<>();
+
     // Original resource schema is there to make parsing easier.
     // But it is also useful in some cases, e.g. we do not need to pass both refined schema and
     // original schema as a method parameter.
@@ -317,12 +336,29 @@ public final class RefinedResourceSchemaImpl implements RefinedResourceSchema {
             if (resource.isImmutable()) {
                 throw new IllegalStateException("Trying to set parsed schema on immutable resource: " + resource);
             }
-            RefinedResourceSchema refinedSchema = parse(resource, prismContext);
+            RefinedResourceSchema refinedSchema = getSharedOrParseRefinedSchema(resource, prismContext);
             resource.setUserData(USER_DATA_KEY_REFINED_SCHEMA, refinedSchema);
             return refinedSchema;
         }
     }
 
+    private static RefinedResourceSchema getSharedOrParseRefinedSchema(PrismObject<ResourceType> resource,
+            PrismContext prismContext) throws SchemaException {
+        ResourceSchema resourceSchema = getResourceSchema(resource, prismContext);
+        SharedSchemas shared = resource.getOid() != null ? SHARED_SCHEMAS.get(resource.getOid()) : null;
+        if (resourceSchema == null || shared == null || shared.resourceSchema != resourceSchema) {
+            return parse(resource, prismContext);
+        }
+        SchemaHandlingType schemaHandling = resource.asObjectable().getSchemaHandling();
+        RefinedResourceSchema sharedRefinedSchema = shared.getRefinedSchema(schemaHandling);
+        if (sharedRefinedSchema != null) {
+            return sharedRefinedSchema;
+        }
+        RefinedResourceSchema refinedSchema = parse(resource, prismContext);
+        shared.setRefinedSchema(schemaHandling, refinedSchema);
+        return refinedSchema;
+    }
+
     public static LayerRefinedResourceSchema getRefinedSchema(PrismObject<ResourceType> resource, LayerType layer, PrismContext prismContext) throws SchemaException {
         RefinedResourceSchema refinedSchema = getRefinedSchema(resource, prismContext);
         if (refinedSchema == null) {
@@ -371,19 +407,114 @@ public final class RefinedResourceSchemaImpl implements RefinedResourceSchema {
                 if (resource.isImmutable()) {
                     throw new IllegalStateException("Trying to set parsed schema on immutable resource: " + resource);
                 }
-                InternalMonitor.recordCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT);
                 String namespace = ResourceTypeUtil.getResourceNamespace(resource);
+                String serialNumber = getSchemaSerialNumber(resource);
+                byte[] fingerprint = resource.getOid() != null && serialNumber != null ?
+                        computeFingerprint(resourceXsdSchema) : null;
+                SharedSchemas shared = findSharedSchemas(resource.getOid(), serialNumber, namespace, fingerprint);
+                if (shared != null) {
+                    resource.setUserData(USER_DATA_KEY_PARSED_RESOURCE_SCHEMA, shared.resourceSchema);
+                    return shared.resourceSchema;
+                }
+                InternalMonitor.recordCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT);
                 ResourceSchemaImpl parsedSchema = ResourceSchemaImpl
                         .parse(resourceXsdSchema, namespace, "resource schema of " + resource, prismContext);
                 if (parsedSchema == null) {
                     throw new IllegalStateException("Parsed schema is null: most likely an internal error");
                 }
+                if (fingerprint != null) {
+                    SHARED_SCHEMAS.put(resource.getOid(), new SharedSchemas(serialNumber, namespace, fingerprint, parsedSchema));
+                }
                 resource.setUserData(USER_DATA_KEY_PARSED_RESOURCE_SCHEMA, parsedSchema);
                 return parsedSchema;
             }
         }
     }
 
+    /**
+     * Forgets the schemas shared by the versions of given resource.
+     */
+    public static void evictSharedSchemas(@NotNull String resourceOid) {
+        SHARED_SCHEMAS.remove(resourceOid);
+    }
+
+    /**
+     * Forgets the schemas shared by the versions of all resources.
+     */
+    public static void evictAllSharedSchemas() {
+        SHARED_SCHEMAS.clear();
+    }
+
+    private static String getSchemaSerialNumber(PrismObject<ResourceType> resource) {
+        XmlSchemaType schema = resource.asObjectable().getSchema();
+        CachingMetadataType cachingMetadata = schema != null ? schema.getCachingMetadata() : null;
+        return cachingMetadata != null ? cachingMetadata.getSerialNumber() : null;
+    }
+
+    private static SharedSchemas findSharedSchemas(String resourceOid, String serialNumber, String namespace,
+            byte[] fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        SharedSchemas shared = SHARED_SCHEMAS.get(resourceOid);
+        return shared != null && shared.matches(serialNumber, namespace, fingerprint) ? shared : null;
+    }
+
+    /**
+     * Computes a digest of the XSD schema content. Namespace declarations, attribute ordering and whitespace
+     * are ignored, as they differ between the schema freshly generated from the connector and the schema
+     * read from the repository. (Any other difference only causes the schema to be parsed again.)
+     *
+     * Must be called with the schema element locked, like the parsing itself.
+     */
+    private static byte[] computeFingerprint(Element resourceXsdSchema) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Couldn't compute resource schema fingerprint: " + e.getMessage(), e);
+        }
+        updateFingerprint(digest, resourceXsdSchema);
+        return digest.digest();
+    }
+
+    private static void updateFingerprint(MessageDigest digest, Element element) {
+        updateFingerprint(digest, "<" + element.getNamespaceURI() + " " + getLocalName(element));
+        NamedNodeMap attributes = element.getAttributes();
+        List<String> attributeStrings = new ArrayList<>(attributes.getLength());
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())
+                    && !attribute.getName().startsWith(XMLConstants.XMLNS_ATTRIBUTE)) {
+                attributeStrings.add("@" + attribute.getNamespaceURI() + " " + getLocalName(attribute) + "=" + attribute.getValue());
+            }
+        }
+        Collections.sort(attributeStrings);
+        for (String attributeString : attributeStrings) {
+            updateFingerprint(digest, attributeString);
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                updateFingerprint(digest, (Element) child);
+            } else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                String text = child.getNodeValue().trim();
+                if (!text.isEmpty()) {
+                    updateFingerprint(digest, "#" + text);
+                }
+            }
+        }
+        updateFingerprint(digest, ">");
+    }
+
+    private static void updateFingerprint(MessageDigest digest, String token) {
+        digest.update(token.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String getLocalName(Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+
     public static boolean hasParsedSchema(ResourceType resourceType) {
         PrismObject<ResourceType> resource = resourceType.asPrismObject();
         return resource.getUserData(USER_DATA_KEY_PARSED_RESOURCE_SCHEMA) != null;
@@ -639,4 +770,51 @@ public final class RefinedResourceSchemaImpl implements RefinedResourceSchema {
         originalResourceSchema.freeze();
         resourceSchema.freeze();
     }
+
+    /**
+     * Schemas parsed from given XSD content, shared by all resource objects having the same content.
+     */
+    private static final class SharedSchemas {
+
+        @NotNull private final String serialNumber;
+        private final String namespace;
+        @NotNull private final byte[] fingerprint;
+        @NotNull private final ResourceSchema resourceSchema;
+
+        private volatile SharedRefinedSchema refinedSchema;
+
+        private SharedSchemas(@NotNull String serialNumber, String namespace, @NotNull byte[] fingerprint,
+                @NotNull ResourceSchema resourceSchema) {
+            this.serialNumber = serialNumber;
+            this.namespace = namespace;
+            this.fingerprint = fingerprint;
+            this.resourceSchema = resourceSchema;
+        }
+
+        private boolean matches(String serialNumber, String namespace, byte[] fingerprint) {
+            return this.serialNumber.equals(serialNumber)
+                    && Objects.equals(this.namespace, namespace)
+                    && Arrays.equals(this.fingerprint, fingerprint);
+        }
+
+        private RefinedResourceSchema getRefinedSchema(SchemaHandlingType schemaHandling) {
+            SharedRefinedSchema current = refinedSchema;
+            return current != null && Objects.equals(current.schemaHandling, schemaHandling) ? current.refinedSchema : null;
+        }
+
+        private void setRefinedSchema(SchemaHandlingType schemaHandling, RefinedResourceSchema refinedSchema) {
+            this.refinedSchema = new SharedRefinedSchema(schemaHandling != null ? schemaHandling.clone() : null, refinedSchema);
+        }
+    }
+
+    private static final class SharedRefinedSchema {
+
+        private final SchemaHandlingType schemaHandling;
+        private final RefinedResourceSchema refinedSchema;
+
+        private SharedRefinedSchema(SchemaHandlingType schemaHandling, RefinedResourceSchema refinedSchema) {
+            this.schemaHandling = schemaHandling;
+            this.refinedSchema = refinedSchema;
+        }
+    }
 }
@@ -684,4 +684,58 @@ public class TestRefinedSchema extends AbstractUnitTest {
         assertEquals("Wrong # of errors", 0, errors.get());
         // TODO some asserts on correct parsing maybe
     }
+
+    /**
+     * Parsed schema is shared by copies of the resource as long as the schema serial number and content (fingerprint)
+     * are the same. Refined schema is shared if also schemaHandling is the same.
+     */
+    @Test
+    public void test300SharedSchemas() throws Exception {
+        given();
+        PrismContext prismContext = createInitializedPrismContext();
+        PrismObject<ResourceType> resource = prismContext.parseObject(RESOURCE_POSIX_FILE);
+        RefinedResourceSchemaImpl.evictSharedSchemas(resource.getOid());
+        ResourceSchema resourceSchema = RefinedResourceSchemaImpl.getResourceSchema(resource, prismContext);
+        RefinedResourceSchema refinedSchema = RefinedResourceSchemaImpl.getRefinedSchema(resource, prismContext);
+
+        when("same schema");
+        PrismObject<ResourceType> sameSchemaResource = prismContext.parseObject(RESOURCE_POSIX_FILE);
+        sameSchemaResource.asObjectable().setDescription("Changed description");
+
+        then("same schema");
+        assertSame("Parsed schema was not shared", resourceSchema,
+                RefinedResourceSchemaImpl.getResourceSchema(sameSchemaResource, prismContext));
+        assertSame("Refined schema was not shared", refinedSchema,
+                RefinedResourceSchemaImpl.getRefinedSchema(sameSchemaResource, prismContext));
+
+        when("different schemaHandling");
+        PrismObject<ResourceType> differentHandlingResource = prismContext.parseObject(RESOURCE_POSIX_FILE);
+        differentHandlingResource.asObjectable().getSchemaHandling().getObjectType().get(0).setDisplayName("Changed");
+
+        then("different schemaHandling");
+        assertSame("Parsed schema was not shared", resourceSchema,
+                RefinedResourceSchemaImpl.getResourceSchema(differentHandlingResource, prismContext));
+        assertNotSame("Refined schema was shared", refinedSchema,
+                RefinedResourceSchemaImpl.getRefinedSchema(differentHandlingResource, prismContext));
+
+        when("different content");
+        PrismObject<ResourceType> differentContentResource = prismContext.parseObject(RESOURCE_POSIX_FILE);
+        ResourceTypeUtil.getResourceXsdSchema(differentContentResource).setAttribute("version", "changed");
+
+        then("different content");
+        ResourceSchema differentContentSchema =
+                RefinedResourceSchemaImpl.getResourceSchema(differentContentResource, prismContext);
+        assertNotSame("Parsed schema was shared", resourceSchema, differentContentSchema);
+
+        when("evicted");
+        ResourceSchema sharedSchema = RefinedResourceSchemaImpl.getResourceSchema(
+                prismContext.parseObject(RESOURCE_POSIX_FILE), prismContext);
+        assertSame("Parsed schema was not shared", sharedSchema,
+                RefinedResourceSchemaImpl.getResourceSchema(prismContext.parseObject(RESOURCE_POSIX_FILE), prismContext));
+        RefinedResourceSchemaImpl.evictSharedSchemas(resource.getOid());
+
+        then("evicted");
+        assertNotSame("Parsed schema was shared after eviction", sharedSchema,
+                RefinedResourceSchemaImpl.getResourceSchema(prismContext.parseObject(RESOURCE_POSIX_FILE), prismContext));
+    }
 }
@@ -131,6 +131,22 @@ public interface PrismContext extends ProtectorCreator {
     @NotNull
     PrismParserNoIO parserFor(@NotNull Element element);
 
+    /**
+     * Creates a parser ready to process data from the given byte array.
+     * Data in the binary format (see {@link #binarySerializer()}) are recognized automatically;
+     * anything else is treated as UTF-8 encoded text with the format/language auto-detected.
+     *
+     * @param data Bytes with the data to be parsed.
+     * @return Parser that can be invoked to retrieve the (parsed) content.
+     */
+    @NotNull
+    PrismParserNoIO parserFor(@NotNull byte[] data);
+
+    /**
+     * Returns true if the data are in the binary format (see {@link #binarySerializer()}).
+     */
+    boolean isBinaryFormat(byte[] data);
+
     @NotNull
     String detectLanguage(@NotNull File file) throws IOException;
 
@@ -222,6 +238,15 @@ public interface PrismContext extends ProtectorCreator {
     @NotNull
     PrismSerializer<RootXNode> xnodeSerializer();
 
+    /**
+     * Creates a serializer for the compact binary format. It is meant for storing data that are read back
+     * by midPoint itself (e.g. in the repository), not for data interchange.
+     *
+     * @return The serializer.
+     */
+    @NotNull
+    PrismSerializer<byte[]> binarySerializer();
+
     //endregion
 
     /**
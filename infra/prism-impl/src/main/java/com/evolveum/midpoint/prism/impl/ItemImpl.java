@@ -17,10 +17,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -67,9 +69,15 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     protected ItemName elementName;
     protected PrismContainerValue<?> parent;
     protected D definition;
-    @NotNull protected final List<V> values = new ArrayList<>();
+    @NotNull protected final List<V> values = new ItemValueIndex.ValueList<>();
     private transient Map<String,Object> userData = new HashMap<>();
 
+    /**
+     * Lazily built index of values; used for large multi-valued properties and references.
+     * Volatile because immutable items (with lazily built index) can be shared among threads.
+     */
+    private transient volatile ItemValueIndex<V> valueIndex;
+
     protected boolean immutable;
     protected boolean incomplete;
 
@@ -387,21 +395,22 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
 
         if (checkEquivalents) {
             boolean exactEquivalentFound = false;
-            boolean somethingRemoved = false;
-            Iterator<V> iterator = values.iterator();
-            while (iterator.hasNext()) {
-                V currentValue = iterator.next();
+            List<V> toRemove = new ArrayList<>();
+            for (V currentValue : getEquivalenceCandidates(newValue, equivalenceStrategy)) {
                 if (equivalenceStrategy.equals(currentValue, newValue)) {
                     if (!exactEquivalentFound &&
                             (DEFAULT_FOR_EQUALS.equals(equivalenceStrategy) || DEFAULT_FOR_EQUALS.equals(currentValue, newValue))) {
                         exactEquivalentFound = true;
                     } else {
-                        iterator.remove();
-                        currentValue.setParent(null);
-                        somethingRemoved = true;
+                        toRemove.add(currentValue);
                     }
                 }
             }
+            boolean somethingRemoved = !toRemove.isEmpty();
+            for (V valueToRemove : toRemove) {
+                removeValueInternal(valueToRemove);
+                valueToRemove.setParent(null);
+            }
 
             if (exactEquivalentFound && !somethingRemoved) {
                 newValue.setParent(originalParent);
@@ -416,7 +425,12 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
             }
             newValue.applyDefinition(definition, false);
         }
-        return addInternalExecution(newValue);
+        ItemValueIndex<V> index = getUpToDateValueIndex();
+        boolean added = addInternalExecution(newValue);
+        if (index != null && added) {
+            index.valueAdded(newValue, values);
+        }
+        return added;
     }
 
     protected boolean addInternalExecution(@NotNull V newValue) {
@@ -501,26 +515,127 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     @Override
     public boolean remove(V value, @NotNull EquivalenceStrategy strategy) {
         checkMutable();
-        boolean changed = false;
-        Iterator<V> iterator = values.iterator();
-        while (iterator.hasNext()) {
-            V val = iterator.next();
-            if (val.representsSameValue(value, false) || val.equals(value, strategy)) {
-                iterator.remove();
+        List<V> candidates = getEquivalenceCandidates(value, strategy);
+        if (candidates == values) {
+            boolean changed = false;
+            Iterator<V> iterator = values.iterator();
+            while (iterator.hasNext()) {
+                V val = iterator.next();
+                if (val.representsSameValue(value, false) || val.equals(value, strategy)) {
+                    iterator.remove();
+                    val.setParent(null);
+                    changed = true;
+                }
+            }
+            return changed;
+        } else {
+            // Indexed values are never "the same" in the representsSameValue sense (it is applicable to containers only).
+            List<V> toRemove = new ArrayList<>();
+            for (V val : candidates) {
+                if (val.equals(value, strategy)) {
+                    toRemove.add(val);
+                }
+            }
+            for (V val : toRemove) {
+                removeValueInternal(val);
                 val.setParent(null);
-                changed = true;
             }
+            return !toRemove.isEmpty();
         }
-        return changed;
     }
 
     public V remove(int index) {
         checkMutable();
+        ItemValueIndex<V> upToDateIndex = getUpToDateValueIndex();
         V removed = values.remove(index);
+        if (upToDateIndex != null) {
+            upToDateIndex.valueRemoved(removed, values);
+        }
         removed.setParent(null);
         return removed;
     }
 
+    /**
+     * Removes given value (matched by identity) from the list of values, keeping the value index up to date.
+     * Does not touch the value parent.
+     */
+    protected void removeValueInternal(V value) {
+        ItemValueIndex<V> index = getUpToDateValueIndex();
+        if (ItemValueIndex.removeByIdentity(values, value) && index != null) {
+            index.valueRemoved(value, values);
+        }
+    }
+
+    /**
+     * Adds given value to the list of values, keeping the value index up to date. No checks are done.
+     */
+    protected void addValueInternal(V value) {
+        ItemValueIndex<V> index = getUpToDateValueIndex();
+        values.add(value);
+        if (index != null) {
+            index.valueAdded(value, values);
+        }
+    }
+
+    @Override
+    public V findValue(@NotNull V value, @NotNull EquivalenceStrategy strategy) {
+        return MiscUtil.find(getEquivalenceCandidates(value, strategy), value, strategy.prismValueComparator());
+    }
+
+    /**
+     * Returns values that are candidates for being equal to the given one under given strategy, in the original order.
+     * Without an applicable index these are simply all the values. The returned list must not be modified.
+     */
+    @NotNull
+    protected List<V> getEquivalenceCandidates(@NotNull V value, @NotNull EquivalenceStrategy strategy) {
+        if (!(strategy instanceof ParameterizedEquivalenceStrategy)) {
+            return values;      // custom strategies can have any notion of equality
+        }
+        ItemValueIndex<V> index = getValueIndex();
+        if (index == null) {
+            return values;
+        }
+        List<V> candidates = index.getCandidates(value);
+        return candidates != null ? candidates : values;
+    }
+
+    /**
+     * Returns the value index (building it if needed), or null if the index is not applicable for this item.
+     */
+    @Nullable
+    private ItemValueIndex<V> getValueIndex() {
+        if (!isValueIndexApplicable() || values.size() < ItemValueIndex.THRESHOLD) {
+            return null;
+        }
+        ItemValueIndex<V> index = valueIndex;
+        if (index == null || !index.isUpToDate(values)) {
+            index = ItemValueIndex.build(values);
+            valueIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the value index only if it exists and is up to date. It is not (re)built here.
+     */
+    @Nullable
+    private ItemValueIndex<V> getUpToDateValueIndex() {
+        ItemValueIndex<V> index = valueIndex;
+        return index != null && index.isUpToDate(values) ? index : null;
+    }
+
+    void invalidateValueIndex() {
+        valueIndex = null;
+    }
+
+    /**
+     * Can values of this item be indexed? Only values that cannot "represent the same value" as other values
+     * (i.e. property and reference values) can.
+     */
+    protected boolean isValueIndexApplicable() {
+        return false;
+    }
+
     @Override
     public void replaceAll(Collection<V> newValues, @NotNull EquivalenceStrategy strategy) throws SchemaException {
         checkMutable();
@@ -542,6 +657,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
             value.setParent(null);
         }
         values.clear();
+        invalidateValueIndex();
     }
 
     @Override
@@ -550,6 +666,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         for (V value : values) {
             value.normalize();
         }
+        invalidateValueIndex();
     }
 
     /**
@@ -587,32 +704,11 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
                 delta.setDefinition(other.getDefinition().clone());
             }
             // the other exists, this means that we need to compare the values one by one
-            Collection<PrismValue> outstandingOtherValues = new ArrayList<>(other.getValues().size());
-            outstandingOtherValues.addAll(other.getValues());
-            for (PrismValue thisValue : getValues()) {
-                Iterator<PrismValue> iterator = outstandingOtherValues.iterator();
-                boolean found = false;
-                while (iterator.hasNext()) {
-                    PrismValueImpl otherValue = (PrismValueImpl) iterator.next();
-                    if (!rootValuesOnly && thisValue.representsSameValue(otherValue, true)) {
-                        found = true;
-                        // Matching IDs, look inside to figure out internal deltas
-                        ((PrismValueImpl) thisValue).diffMatchingRepresentation(otherValue, deltas, strategy);
-                        // No need to process this value again
-                        iterator.remove();
-                        break;
-                    } else if (thisValue.equals(otherValue, strategy)) {
-                        found = true;
-                        // same values. No delta
-                        // No need to process this value again
-                        iterator.remove();
-                        break;
-                    }
-                }
-                if (!found) {
-                    // We have the value and the other does not, this is delete of the entire value
-                    delta.addValueToDelete(thisValue.clone());
-                }
+            Collection<? extends PrismValue> outstandingOtherValues;
+            if (isValueIndexApplicable() && other.getValues().size() >= ItemValueIndex.THRESHOLD) {
+                outstandingOtherValues = diffValuesUsingIndex(other, delta, strategy);
+            } else {
+                outstandingOtherValues = diffValuesByScanning(other, delta, deltas, rootValuesOnly, strategy);
             }
             // outstandingOtherValues are those values that the other has and we could not
             // match them to any of our values. These must be new values to add
@@ -628,6 +724,67 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         }
     }
 
+    private Collection<PrismValue> diffValuesByScanning(Item<V, D> other, ItemDelta delta, Collection<? extends ItemDelta> deltas,
+            boolean rootValuesOnly, ParameterizedEquivalenceStrategy strategy) {
+        Collection<PrismValue> outstandingOtherValues = new ArrayList<>(other.getValues().size());
+        outstandingOtherValues.addAll(other.getValues());
+        for (PrismValue thisValue : getValues()) {
+            Iterator<PrismValue> iterator = outstandingOtherValues.iterator();
+            boolean found = false;
+            while (iterator.hasNext()) {
+                PrismValueImpl otherValue = (PrismValueImpl) iterator.next();
+                if (!rootValuesOnly && thisValue.representsSameValue(otherValue, true)) {
+                    found = true;
+                    // Matching IDs, look inside to figure out internal deltas
+                    ((PrismValueImpl) thisValue).diffMatchingRepresentation(otherValue, deltas, strategy);
+                    // No need to process this value again
+                    iterator.remove();
+                    break;
+                } else if (thisValue.equals(otherValue, strategy)) {
+                    found = true;
+                    // same values. No delta
+                    // No need to process this value again
+                    iterator.remove();
+                    break;
+                }
+            }
+            if (!found) {
+                // We have the value and the other does not, this is delete of the entire value
+                delta.addValueToDelete(thisValue.clone());
+            }
+        }
+        return outstandingOtherValues;
+    }
+
+    /**
+     * The same as {@link #diffValuesByScanning(Item, ItemDelta, Collection, boolean, ParameterizedEquivalenceStrategy)}
+     * but using a temporary index over the other item values. Applicable only to values that are never
+     * "the same" in the representsSameValue sense.
+     */
+    private List<V> diffValuesUsingIndex(Item<V, D> other, ItemDelta delta, ParameterizedEquivalenceStrategy strategy) {
+        List<V> otherValues = other.getValues();
+        ItemValueIndex<V> otherIndex = ItemValueIndex.build(otherValues);
+        Set<V> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (V thisValue : getValues()) {
+            List<V> candidates = otherIndex.getCandidates(thisValue);
+            boolean found = false;
+            for (V otherValue : candidates != null ? candidates : otherValues) {
+                if (!matched.contains(otherValue) && thisValue.equals(otherValue, strategy)) {
+                    found = true;
+                    matched.add(otherValue);
+                    break;
+                }
+            }
+            if (!found) {
+                // We have the value and the other does not, this is delete of the entire value
+                delta.addValueToDelete(thisValue.clone());
+            }
+        }
+        return otherValues.stream()
+                .filter(value -> !matched.contains(value))
+                .collect(Collectors.toList());
+    }
+
     protected ItemDelta<V,D> fixupDelta(ItemDelta<V, D> delta, Item<V, D> other) {
         return delta;
     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismValue;
+
+/**
+ * Secondary hash index over values of a (large) multi-valued item.
+ *
+ * Values are indexed by their "index key" (see {@link PrismValueImpl#getValueIndexKey()}). The key is chosen
+ * so that values that are equal under any {@link com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy}
+ * always have the same key. Values without a key (raw values, references without OID, complex real values, ...)
+ * are kept in a separate list and they are always considered candidates for equality.
+ *
+ * The index does not replace the value list: the list remains the authoritative storage (and keeps the ordering).
+ * The index is bound to a specific state of the list (see {@link ValueList}); any modification of the list that
+ * does not go through the index makes the index stale. Stale index is simply thrown away and rebuilt when needed.
+ *
+ * Buckets keep the values in the list order, so the candidates returned can be processed exactly as the
+ * original list would be (just with non-matching values skipped).
+ *
+ * The index is not thread safe. It is safe to share it among threads when the item is immutable,
+ * because it is not modified after being built in such a case.
+ */
+class ItemValueIndex<V extends PrismValue> {
+
+    /**
+     * Minimal number of values for the index to be built. For smaller items the linear scan is good enough.
+     */
+    static final int THRESHOLD = 50;
+
+    @NotNull private final Map<Object, List<V>> buckets = new HashMap<>();
+    @NotNull private final List<V> unkeyed = new ArrayList<>();
+
+    private int expectedModCount;
+    private int expectedSetCount;
+
+    private ItemValueIndex() {
+    }
+
+    @NotNull
+    static <V extends PrismValue> ItemValueIndex<V> build(@NotNull List<V> values) {
+        ItemValueIndex<V> index = new ItemValueIndex<>();
+        for (V value : values) {
+            index.put(value);
+        }
+        index.markUpToDate(values);
+        return index;
+    }
+
+    /**
+     * Is this index consistent with the current state of the value list?
+     */
+    boolean isUpToDate(@NotNull List<V> values) {
+        if (!(values instanceof ValueList)) {
+            return false;
+        }
+        ValueList<V> valueList = (ValueList<V>) values;
+        return valueList.getModCount() == expectedModCount && valueList.getSetCount() == expectedSetCount;
+    }
+
+    /**
+     * Returns values that can be equal to the given one, in the list order; or null if the whole list
+     * has to be scanned.
+     */
+    @Nullable
+    List<V> getCandidates(@NotNull V value) {
+        Object key = getKey(value);
+        if (key == null) {
+            return null;
+        }
+        List<V> bucket = buckets.get(key);
+        if (unkeyed.isEmpty()) {
+            return bucket != null ? bucket : Collections.emptyList();
+        } else if (bucket == null) {
+            return unkeyed;
+        } else {
+            // We do not know the mutual ordering of bucket and unkeyed values.
+            return null;
+        }
+    }
+
+    /**
+     * Records the value that was just added to the (up-to-date) list.
+     */
+    void valueAdded(@NotNull V value, @NotNull List<V> values) {
+        put(value);
+        markUpToDate(values);
+    }
+
+    /**
+     * Records the value that was just removed from the (up-to-date) list.
+     */
+    void valueRemoved(@NotNull V value, @NotNull List<V> values) {
+        Object key = getKey(value);
+        List<V> list = key != null ? buckets.get(key) : unkeyed;
+        if (list != null) {
+            removeByIdentity(list, value);
+            if (list.isEmpty() && key != null) {
+                buckets.remove(key);
+            }
+        }
+        markUpToDate(values);
+    }
+
+    private void put(V value) {
+        Object key = getKey(value);
+        if (key != null) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+        } else {
+            unkeyed.add(value);
+        }
+    }
+
+    private void markUpToDate(List<V> values) {
+        if (values instanceof ValueList) {
+            ValueList<V> valueList = (ValueList<V>) values;
+            expectedModCount = valueList.getModCount();
+            expectedSetCount = valueList.getSetCount();
+        }
+    }
+
+    @Nullable
+    static Object getKey(@NotNull PrismValue value) {
+        return value instanceof PrismValueImpl ? ((PrismValueImpl) value).getValueIndexKey() : null;
+    }
+
+    static <V> boolean removeByIdentity(@NotNull List<V> list, @NotNull V value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Value list that allows the index to detect modifications done directly on the list,
+     * i.e. bypassing item methods (e.g. via {@link ItemImpl#getValues()}).
+     *
+     * Structural modifications are tracked by standard modCount. Replacements by set(..) do not
+     * change modCount (and must not, otherwise they would break list iterators), so they are counted separately.
+     */
+    static class ValueList<V> extends ArrayList<V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient int setCount;
+
+        @Override
+        public V set(int index, V element) {
+            V previous = super.set(index, element);
+            setCount++;
+            return previous;
+        }
+
+        int getModCount() {
+            return modCount;
+        }
+
+        int getSetCount() {
+            return setCount;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.ParserSource;
+
+/**
+ * Data in the binary format (see BinaryLexicalProcessor).
+ */
+public class ParserBinarySource implements ParserSource {
+
+    @NotNull private final byte[] data;
+
+    public ParserBinarySource(@NotNull byte[] data) {
+        this.data = data;
+    }
+
+    @NotNull
+    public byte[] getData() {
+        return data;
+    }
+
+    @NotNull
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public boolean closeStreamAfterParsing() {
+        return true;
+    }
+
+    @Override
+    public boolean throwsIOException() {
+        return false;
+    }
+}
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import javax.xml.namespace.QName;
 
@@ -32,6 +33,7 @@ import com.evolveum.midpoint.prism.impl.delta.DeltaFactoryImpl;
 import com.evolveum.midpoint.prism.impl.delta.builder.DeltaBuilder;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessorRegistry;
+import com.evolveum.midpoint.prism.impl.lex.binary.BinaryLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.marshaller.*;
 import com.evolveum.midpoint.prism.impl.path.CanonicalItemPathImpl;
@@ -375,6 +377,21 @@ public final class PrismContextImpl implements PrismContext {
         return new PrismParserImplNoIO(new ParserElementSource(data), null, getDefaultParsingContext(), this, null, null, null, null);
     }
 
+    @NotNull
+    @Override
+    public PrismParserNoIO parserFor(@NotNull byte[] data) {
+        if (isBinaryFormat(data)) {
+            return new PrismParserImplNoIO(new ParserBinarySource(data), null, getDefaultParsingContext(), this, null, null, null, null);
+        } else {
+            return parserFor(new String(data, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public boolean isBinaryFormat(byte[] data) {
+        return BinaryLexicalProcessor.isBinary(data);
+    }
+
     @NotNull
     @Override
     public String detectLanguage(@NotNull File file) throws IOException {
@@ -486,6 +503,12 @@ public final class PrismContextImpl implements PrismContext {
         return new PrismSerializerImpl<>(new SerializerXNodeTarget(this), null, null, null, this, null);
     }
 
+    @NotNull
+    @Override
+    public PrismSerializer<byte[]> binarySerializer() {
+        return new PrismSerializerImpl<>(new SerializerBinaryTarget(this), null, null, null, this, null);
+    }
+
     //endregion
 
     @NotNull
@@ -205,19 +205,19 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
         checkMutable();
         ((PrismPropertyValueImpl<T>) pValueToAdd).checkValue();
         if (checkUniqueness) {
-            Iterator<PrismPropertyValue<T>> iterator = getValues().iterator();
-            while (iterator.hasNext()) {
-                PrismPropertyValue<T> pValue = iterator.next();
+            List<PrismPropertyValue<T>> toRemove = new ArrayList<>();
+            for (PrismPropertyValue<T> pValue : getEquivalenceCandidates(pValueToAdd, EquivalenceStrategy.REAL_VALUE)) {
                 if (pValue.equals(pValueToAdd, EquivalenceStrategy.REAL_VALUE)) {
                     LOGGER.warn("Adding value to property " + getElementName() + " that already exists (overwriting), value: "
                             + pValueToAdd);
-                    iterator.remove();
+                    toRemove.add(pValue);
                 }
             }
+            toRemove.forEach(this::removeValueInternal);
         }
         pValueToAdd.setParent(this);
         pValueToAdd.recompute();
-        getValues().add(pValueToAdd);
+        addValueInternal(pValueToAdd);
     }
 
     public void addRealValue(T valueToAdd) {
@@ -337,6 +337,11 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
         return (PropertyDelta<T>) super.diff(other, strategy);
     }
 
+    @Override
+    protected boolean isValueIndexApplicable() {
+        return true;
+    }
+
     @Override
     protected void checkDefinition(PrismPropertyDefinition<T> def) {
         if (def == null) {
@@ -98,6 +98,7 @@ public class PrismPropertyValueImpl<T> extends PrismValueImpl
         this.value = value;
         this.rawElement = null;
         checkValue();
+        valueIndexKeyChanged();
     }
 
     public T getValue() {
@@ -149,6 +150,25 @@ public class PrismPropertyValueImpl<T> extends PrismValueImpl
 
     public void setRawElement(XNode rawElement) {
         this.rawElement = (XNodeImpl) rawElement;
+        valueIndexKeyChanged();
+    }
+
+    /**
+     * Only simple immutable real values are indexed. Their equals() is the last word in the comparison, so equal values
+     * have always equal keys. (PolyStrings are not indexed because they can be re-normalized in place.)
+     */
+    @Override
+    Object getValueIndexKey() {
+        if (rawElement == null && isIndexable(value)) {
+            return value;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isIndexable(Object realValue) {
+        return realValue instanceof String || realValue instanceof QName || realValue instanceof Enum
+                || realValue instanceof Integer || realValue instanceof Long || realValue instanceof Boolean;
     }
 
     @Override
@@ -206,6 +206,11 @@ public class PrismReferenceImpl extends ItemImpl<PrismReferenceValue, PrismRefer
         return new ReferenceDeltaImpl(path, getDefinition(), prismContext);
     }
 
+    @Override
+    protected boolean isValueIndexApplicable() {
+        return true;
+    }
+
     @Override
     protected void checkDefinition(PrismReferenceDefinition def) {
         if (def == null) {
@@ -93,6 +93,13 @@ public class PrismReferenceValueImpl extends PrismValueImpl implements PrismRefe
     public void setOid(String oid) {
         checkMutable();
         this.oid = oid;
+        valueIndexKeyChanged();
+    }
+
+    @Override
+    Object getValueIndexKey() {
+        // References with the same OID can still differ in other aspects; but references with different OIDs never match.
+        return oid;
     }
 
     /**
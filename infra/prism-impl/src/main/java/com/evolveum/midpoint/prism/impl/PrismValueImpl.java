@@ -117,6 +117,23 @@ public abstract class PrismValueImpl extends AbstractFreezable implements PrismV
         this.parent = parent;
     }
 
+    /**
+     * Key under which this value is stored in {@link ItemValueIndex}; null if the value cannot be indexed.
+     * Values that are equal under any parameterized equivalence strategy must have equal keys.
+     */
+    Object getValueIndexKey() {
+        return null;
+    }
+
+    /**
+     * Must be called whenever the value index key of this value (potentially) changes.
+     */
+    void valueIndexKeyChanged() {
+        if (parent instanceof ItemImpl) {
+            ((ItemImpl<?, ?>) parent).invalidateValueIndex();
+        }
+    }
+
     @NotNull
     @Override
     public ItemPath getPath() {
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+public class SerializerBinaryTarget extends SerializerTarget<byte[]> {
+
+    SerializerBinaryTarget(@NotNull PrismContextImpl prismContext) {
+        super(prismContext);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull RootXNodeImpl xroot, SerializationContext context) throws SchemaException {
+        return prismContext.getLexicalProcessorRegistry().binaryProcessor().write(xroot, context);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context)
+            throws SchemaException {
+        return prismContext.getLexicalProcessorRegistry().binaryProcessor().write(roots, context);
+    }
+}
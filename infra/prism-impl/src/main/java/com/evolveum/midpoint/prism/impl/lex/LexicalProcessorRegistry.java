@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.evolveum.midpoint.prism.impl.ParserBinarySource;
+import com.evolveum.midpoint.prism.impl.lex.binary.BinaryLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.json.*;
 
 import com.evolveum.midpoint.prism.impl.lex.json.reader.JsonReader;
@@ -38,10 +40,12 @@ public class LexicalProcessorRegistry {
 
     private final DomLexicalProcessor domLexicalProcessor;
     private final NullLexicalProcessor nullLexicalProcessor;
+    private final BinaryLexicalProcessor binaryLexicalProcessor;
 
     public LexicalProcessorRegistry(@NotNull SchemaRegistry schemaRegistry) {
         domLexicalProcessor = new DomLexicalProcessor(schemaRegistry);
         nullLexicalProcessor = new NullLexicalProcessor();
+        binaryLexicalProcessor = new BinaryLexicalProcessor();
 
         parserMap = new HashMap<>();
         parserMap.put(LANG_XML, domLexicalProcessor);
@@ -85,6 +89,11 @@ public class LexicalProcessorRegistry {
         return domLexicalProcessor;
     }
 
+    @NotNull
+    public BinaryLexicalProcessor binaryProcessor() {
+        return binaryLexicalProcessor;
+    }
+
     @NotNull
     public <T> LexicalProcessor<T> processorFor(String language) {
         LexicalProcessor<?> lexicalProcessor = parserMap.get(language);
@@ -99,6 +108,8 @@ public class LexicalProcessorRegistry {
     public LexicalProcessor<?> findProcessor(@NotNull ParserSource source) throws IOException {
         if (source instanceof ParserXNodeSource) {
             return nullLexicalProcessor;
+        } else if (source instanceof ParserBinarySource) {
+            return binaryLexicalProcessor;
         } else if (source instanceof ParserElementSource) {
             return processorFor(LANG_XML);
         } else if (source instanceof ParserFileSource) {
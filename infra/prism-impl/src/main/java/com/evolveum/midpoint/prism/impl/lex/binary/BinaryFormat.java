@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+/**
+ * Constants describing the compact binary format of XNode trees.
+ *
+ * Layout:
+ *
+ * - header: {@link #MAGIC} bytes followed by {@link #VERSION} byte,
+ * - content kind: {@link #CONTENT_SINGLE} followed by one root, or {@link #CONTENT_MULTIPLE} followed by
+ *   the number of roots and the roots themselves,
+ * - root: root element name (QName) followed by a node,
+ * - node: node tag, flags, optional element name, type name and metadata, followed by tag-specific content.
+ *
+ * All integers (counts, lengths, dictionary references) are written as unsigned variable-length integers.
+ * Structural strings (namespaces, local names, prefixes) and QNames are written using dictionaries:
+ * the first occurrence is written in full and gets the next free number, subsequent occurrences are written
+ * as references to that number. Value strings are written in full as UTF-8.
+ *
+ * The format is meant to be stored and read by the same midPoint version (or by newer versions that know
+ * the version it was written with). It is not meant to be a data interchange format.
+ */
+final class BinaryFormat {
+
+    /**
+     * The first byte is zero, so the data cannot be mistaken for XML/JSON/YAML text nor for gzipped data.
+     */
+    static final byte[] MAGIC = { 0x00, 'M', 'P', 'B' };
+
+    static final int VERSION = 1;
+
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    static final int CONTENT_SINGLE = 1;
+    static final int CONTENT_MULTIPLE = 2;
+
+    // Node tags
+    static final int TAG_NULL = 0;
+    static final int TAG_MAP = 1;
+    static final int TAG_LIST = 2;
+    static final int TAG_PRIMITIVE = 3;
+    static final int TAG_SCHEMA = 4;
+    static final int TAG_INCOMPLETE = 5;
+
+    // Node flags
+    static final int FLAG_ELEMENT_NAME = 0x01;
+    static final int FLAG_TYPE_NAME = 0x02;
+    static final int FLAG_EXPLICIT_TYPE = 0x04;
+    static final int FLAG_METADATA = 0x08;
+    static final int FLAG_ATTRIBUTE = 0x10;
+
+    // Primitive value kinds
+    static final int VALUE_EMPTY = 0;
+    static final int VALUE_TEXT = 1;
+    static final int VALUE_QNAME = 2;
+
+    // Dictionary references: 0 = null, 1 = new entry follows, n >= 2 = entry number (n - 2)
+    static final int REF_NULL = 0;
+    static final int REF_NEW = 1;
+    static final int REF_FIRST_ENTRY = 2;
+
+    private BinaryFormat() {
+    }
+
+    static boolean hasMagic(byte[] data) {
+        if (data == null || data.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import java.io.File;
+import java.util.List;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ParserSource;
+import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.ParserBinarySource;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
+import com.evolveum.midpoint.prism.xnode.XNode;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Processor for the compact binary format (see {@link BinaryFormat}). It is meant for machine-to-machine storage,
+ * e.g. for the fullObject column in the repository: it skips all the lexical analysis of XML/JSON text and
+ * stores element and type names using dictionaries.
+ *
+ * The format cannot be auto-detected from strings or files; it is selected explicitly by using binary
+ * parser source or binary serializer.
+ */
+public class BinaryLexicalProcessor implements LexicalProcessor<byte[]> {
+
+    /**
+     * Does the data look like being in the binary format?
+     */
+    public static boolean isBinary(byte[] data) {
+        return BinaryFormat.hasMagic(data);
+    }
+
+    @NotNull
+    @Override
+    public RootXNodeImpl read(@NotNull ParserSource source, @NotNull ParsingContext parsingContext) throws SchemaException {
+        return new BinaryReader(getData(source)).read();
+    }
+
+    @NotNull
+    @Override
+    public List<RootXNodeImpl> readObjects(@NotNull ParserSource source, @NotNull ParsingContext parsingContext)
+            throws SchemaException {
+        return new BinaryReader(getData(source)).readObjects();
+    }
+
+    @Override
+    public void readObjectsIteratively(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
+            RootXNodeHandler handler) throws SchemaException {
+        for (RootXNodeImpl root : readObjects(source, parsingContext)) {
+            if (!handler.handleData(root)) {
+                break;
+            }
+        }
+    }
+
+    @NotNull
+    private byte[] getData(@NotNull ParserSource source) {
+        if (!(source instanceof ParserBinarySource)) {
+            throw new IllegalStateException("Unsupported parser source: " + source.getClass().getName());
+        }
+        return ((ParserBinarySource) source).getData();
+    }
+
+    @Override
+    public boolean canRead(@NotNull File file) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(@NotNull String dataString) {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext) throws SchemaException {
+        return new BinaryWriter().write((RootXNodeImpl) xnode);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull XNode xnode, @NotNull QName rootElementName, @Nullable SerializationContext serializationContext)
+            throws SchemaException {
+        return write(LexicalUtils.createRootXNode((XNodeImpl) xnode, rootElementName), serializationContext);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException {
+        return new BinaryWriter().write(roots);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import static com.evolveum.midpoint.prism.impl.lex.binary.BinaryFormat.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Reads XNode trees from the binary format (see {@link BinaryFormat}).
+ *
+ * Not thread safe; a new instance is to be used for each data item.
+ */
+class BinaryReader {
+
+    @NotNull private final byte[] data;
+    @NotNull private final DataInputStream in;
+
+    @NotNull private final List<String> stringDictionary = new ArrayList<>();
+    @NotNull private final List<QName> qNameDictionary = new ArrayList<>();
+
+    BinaryReader(@NotNull byte[] data) {
+        this.data = data;
+        this.in = new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    @NotNull
+    RootXNodeImpl read() throws SchemaException {
+        List<RootXNodeImpl> roots = readObjects();
+        if (roots.size() != 1) {
+            throw new SchemaException("Expected exactly one object in binary data, got " + roots.size() + " of them");
+        }
+        return roots.get(0);
+    }
+
+    @NotNull
+    List<RootXNodeImpl> readObjects() throws SchemaException {
+        try {
+            readHeader();
+            int contentKind = in.readUnsignedByte();
+            if (contentKind == CONTENT_SINGLE) {
+                return Collections.singletonList(readRoot());
+            } else if (contentKind == CONTENT_MULTIPLE) {
+                int count = readVarInt();
+                List<RootXNodeImpl> roots = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    roots.add(readRoot());
+                }
+                return roots;
+            } else {
+                throw new SchemaException("Unknown content kind in binary data: " + contentKind);
+            }
+        } catch (EOFException e) {
+            throw new SchemaException("Unexpected end of binary data (" + data.length + " bytes)", e);
+        } catch (IOException e) {
+            throw new SchemaException("Couldn't read binary data: " + e.getMessage(), e);
+        }
+    }
+
+    private void readHeader() throws IOException, SchemaException {
+        if (!hasMagic(data)) {
+            throw new SchemaException("Data are not in the binary format (wrong header)");
+        }
+        in.skipBytes(MAGIC.length);
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new SchemaException("Unsupported version of the binary format: " + version + " (supported: " + VERSION + ")");
+        }
+    }
+
+    private RootXNodeImpl readRoot() throws IOException, SchemaException {
+        QName rootElementName = readQName();
+        if (rootElementName == null) {
+            throw new SchemaException("No root element name in binary data");
+        }
+        return new RootXNodeImpl(rootElementName, readNode());
+    }
+
+    private XNodeImpl readNode() throws IOException, SchemaException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_MAP:
+                MapXNodeImpl map = new MapXNodeImpl();
+                List<MapXNode> mapMetadata = readCommon(map);
+                readMapContent(map);
+                if (mapMetadata != null) {
+                    map.setMetadataNodes(mapMetadata);
+                }
+                return map;
+            case TAG_LIST:
+                ListXNodeImpl list = new ListXNodeImpl();
+                readCommon(list);
+                int size = readVarInt();
+                for (int i = 0; i < size; i++) {
+                    list.add(readNode());
+                }
+                return list;
+            case TAG_PRIMITIVE:
+                PrimitiveXNodeImpl<Object> primitive = new PrimitiveXNodeImpl<>();
+                List<MapXNode> primitiveMetadata = readCommon(primitive);
+                readPrimitiveContent(primitive);
+                if (primitiveMetadata != null) {
+                    primitive.setMetadataNodes(primitiveMetadata);
+                }
+                return primitive;
+            case TAG_SCHEMA:
+                SchemaXNodeImpl schema = new SchemaXNodeImpl();
+                List<MapXNode> schemaMetadata = readCommon(schema);
+                String schemaText = readText();
+                if (schemaText != null) {
+                    schema.setSchemaElement(DOMUtil.parseDocument(schemaText).getDocumentElement());
+                }
+                if (schemaMetadata != null) {
+                    schema.setMetadataNodes(schemaMetadata);
+                }
+                return schema;
+            case TAG_INCOMPLETE:
+                IncompleteMarkerXNodeImpl incomplete = new IncompleteMarkerXNodeImpl();
+                readCommon(incomplete);
+                return incomplete;
+            default:
+                throw new SchemaException("Unknown node tag in binary data: " + tag);
+        }
+    }
+
+    /**
+     * Reads common node properties. Returns metadata nodes (if present), because these can be set
+     * only for metadata-aware nodes.
+     */
+    private List<MapXNode> readCommon(XNodeImpl node) throws IOException, SchemaException {
+        int flags = in.readUnsignedByte();
+        if ((flags & FLAG_ELEMENT_NAME) != 0) {
+            node.setElementName(readQName());
+        }
+        if ((flags & FLAG_TYPE_NAME) != 0) {
+            node.setTypeQName(readQName());
+        }
+        if ((flags & FLAG_EXPLICIT_TYPE) != 0) {
+            node.setExplicitTypeDeclaration(true);
+        }
+        if ((flags & FLAG_ATTRIBUTE) != 0 && node instanceof PrimitiveXNodeImpl) {
+            ((PrimitiveXNodeImpl<?>) node).setAttribute(true);
+        }
+        if ((flags & FLAG_METADATA) != 0) {
+            int count = readVarInt();
+            List<MapXNode> metadataNodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                XNodeImpl metadataNode = readNode();
+                if (!(metadataNode instanceof MapXNodeImpl)) {
+                    throw new SchemaException("Metadata node is not a map: " + metadataNode);
+                }
+                metadataNodes.add((MapXNodeImpl) metadataNode);
+            }
+            return metadataNodes;
+        } else {
+            return null;
+        }
+    }
+
+    private void readMapContent(MapXNodeImpl map) throws IOException, SchemaException {
+        int size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            QName key = readQName();
+            XNodeImpl value = readNode();
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+    }
+
+    private void readPrimitiveContent(PrimitiveXNodeImpl<Object> primitive) throws IOException, SchemaException {
+        int valueKind = in.readUnsignedByte();
+        switch (valueKind) {
+            case VALUE_EMPTY:
+                break;
+            case VALUE_QNAME:
+                // The type name was already set by readCommon (if it was known when writing).
+                primitive.setValue(readQName(), primitive.getTypeQName() != null ? primitive.getTypeQName() : DOMUtil.XSD_QNAME);
+                break;
+            case VALUE_TEXT:
+                String text = readText();
+                Map<String, String> namespaceDeclarations = readNamespaceDeclarations();
+                primitive.setValueParser(new BinaryValueParser<>(text, namespaceDeclarations));
+                break;
+            default:
+                throw new SchemaException("Unknown primitive value kind in binary data: " + valueKind);
+        }
+    }
+
+    private Map<String, String> readNamespaceDeclarations() throws IOException, SchemaException {
+        int count = readVarInt();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> declarations = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String prefix = readDictionaryString();
+            String namespace = readDictionaryString();
+            declarations.put(prefix, namespace);
+        }
+        return declarations;
+    }
+
+    private QName readQName() throws IOException, SchemaException {
+        int ref = readVarInt();
+        if (ref == REF_NULL) {
+            return null;
+        } else if (ref == REF_NEW) {
+            String namespace = readDictionaryString();
+            String localPart = readDictionaryString();
+            String prefix = readDictionaryString();
+            if (localPart == null) {
+                throw new SchemaException("QName without local part in binary data");
+            }
+            QName name = new QName(namespace != null ? namespace : "", localPart, prefix != null ? prefix : "");
+            qNameDictionary.add(name);
+            return name;
+        } else {
+            return getEntry(qNameDictionary, ref, "QName");
+        }
+    }
+
+    private String readDictionaryString() throws IOException, SchemaException {
+        int ref = readVarInt();
+        if (ref == REF_NULL) {
+            return null;
+        } else if (ref == REF_NEW) {
+            String string = readText();
+            stringDictionary.add(string);
+            return string;
+        } else {
+            return getEntry(stringDictionary, ref, "string");
+        }
+    }
+
+    private <T> T getEntry(List<T> dictionary, int ref, String kind) throws SchemaException {
+        int index = ref - REF_FIRST_ENTRY;
+        if (index >= dictionary.size()) {
+            throw new SchemaException("Invalid " + kind + " dictionary reference in binary data: " + index
+                    + " (dictionary size is " + dictionary.size() + ")");
+        }
+        return dictionary.get(index);
+    }
+
+    private String readText() throws IOException, SchemaException {
+        int lengthPlusOne = readVarInt();
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        int length = lengthPlusOne - 1;
+        if (length > data.length) {
+            throw new SchemaException("Invalid string length in binary data: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException, SchemaException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SchemaException("Malformed variable-length integer in binary data");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.impl.marshaller.ItemPathHolder;
+import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
+import com.evolveum.midpoint.prism.xnode.ValueParser;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
+
+/**
+ * Parser for primitive values read from the binary format. The value is stored in its textual (XML) form,
+ * along with namespace declarations that are relevant for it (for QNames and item paths).
+ *
+ * Behaves the same as the DOM-less parser used for XML data.
+ */
+@ThreadSafe
+class BinaryValueParser<T> implements ValueParser<T>, Serializable {
+
+    private static final Trace LOGGER = TraceManager.getTrace(BinaryValueParser.class);
+
+    private final String textContent;
+    @NotNull private final Map<String, String> namespaceDeclarations;
+
+    BinaryValueParser(String textContent, @NotNull Map<String, String> namespaceDeclarations) {
+        this.textContent = textContent;
+        this.namespaceDeclarations = Collections.unmodifiableMap(namespaceDeclarations);
+    }
+
+    @Override
+    public T parse(QName typeName, XNodeProcessorEvaluationMode mode) throws SchemaException {
+        try {
+            if (ItemPathType.COMPLEX_TYPE.equals(typeName)) {
+                //noinspection unchecked
+                return (T) new ItemPathType(ItemPathHolder.parseFromString(textContent, namespaceDeclarations));
+            } else {
+                Class<?> javaType = XsdTypeMapper.getXsdToJavaMapping(typeName);
+                if (javaType != null) {
+                    //noinspection unchecked
+                    return (T) XmlTypeConverter.toJavaValue(textContent, namespaceDeclarations, javaType);
+                } else if (DOMUtil.XSD_ANYTYPE.equals(typeName)) {
+                    //noinspection unchecked
+                    return (T) textContent;                // if parsing primitive as xsd:anyType, we can safely parse it as string
+                } else {
+                    throw new SchemaException("Cannot convert value '" + textContent + "' to " + typeName);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            if (mode == XNodeProcessorEvaluationMode.COMPAT) {
+                LOGGER.warn("Value of '{}' couldn't be parsed as '{}' -- interpreting as null because of COMPAT mode set",
+                        textContent, typeName, e);
+                return null;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean canParseAs(QName typeName) {
+        return ItemPathType.COMPLEX_TYPE.equals(typeName) ||
+                XmlTypeConverter.canConvert(typeName) ||
+                DOMUtil.XSD_ANYTYPE.equals(typeName);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return StringUtils.isBlank(textContent);
+    }
+
+    @Override
+    public String getStringValue() {
+        return textContent;
+    }
+
+    @Override
+    public Map<String, String> getPotentiallyRelevantNamespaces() {
+        return namespaceDeclarations;
+    }
+
+    @Override
+    public ValueParser<T> freeze() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ValueParser(binary, " + PrettyPrinter.prettyPrint(textContent) + ", " + namespaceDeclarations.size() + " namespace declarations)";
+    }
+}
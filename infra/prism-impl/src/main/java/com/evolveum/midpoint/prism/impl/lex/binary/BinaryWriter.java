@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import static com.evolveum.midpoint.prism.impl.lex.binary.BinaryFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Element;
+
+import com.evolveum.midpoint.prism.impl.marshaller.ItemPathSerializerTemp;
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.MetadataAware;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
+
+/**
+ * Writes XNode trees into the binary format (see {@link BinaryFormat}).
+ *
+ * Not thread safe; a new instance is to be used for each serialization.
+ */
+class BinaryWriter {
+
+    @NotNull private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    @NotNull private final DataOutputStream out = new DataOutputStream(buffer);
+
+    @NotNull private final Map<String, Integer> stringDictionary = new HashMap<>();
+    /**
+     * Keyed by namespace, local part and prefix. (QName equality ignores the prefix, so names differing only
+     * in prefix would be written with the prefix of the first one.)
+     */
+    @NotNull private final Map<DictionaryQName, Integer> qNameDictionary = new HashMap<>();
+
+    @NotNull
+    byte[] write(@NotNull RootXNodeImpl root) throws SchemaException {
+        try {
+            writeHeader();
+            out.writeByte(CONTENT_SINGLE);
+            writeRoot(root);
+            return getOutput();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected I/O exception while writing to memory: " + e.getMessage(), e);
+        }
+    }
+
+    @NotNull
+    byte[] write(@NotNull List<RootXNodeImpl> roots) throws SchemaException {
+        try {
+            writeHeader();
+            out.writeByte(CONTENT_MULTIPLE);
+            writeVarInt(roots.size());
+            for (RootXNodeImpl root : roots) {
+                writeRoot(root);
+            }
+            return getOutput();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected I/O exception while writing to memory: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] getOutput() throws IOException {
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    private void writeRoot(RootXNodeImpl root) throws IOException, SchemaException {
+        writeQName(root.getRootElementName());
+        writeNode(root.getSubnode());
+    }
+
+    private void writeNode(XNodeImpl node) throws IOException, SchemaException {
+        if (node == null) {
+            out.writeByte(TAG_NULL);
+        } else if (node instanceof MapXNodeImpl) {
+            out.writeByte(TAG_MAP);
+            writeCommon(node);
+            writeMapContent((MapXNodeImpl) node);
+        } else if (node instanceof ListXNodeImpl) {
+            out.writeByte(TAG_LIST);
+            writeCommon(node);
+            ListXNodeImpl list = (ListXNodeImpl) node;
+            writeVarInt(list.size());
+            for (XNodeImpl item : list) {
+                writeNode(item);
+            }
+        } else if (node instanceof PrimitiveXNodeImpl) {
+            out.writeByte(TAG_PRIMITIVE);
+            writeCommon(node);
+            writePrimitiveContent((PrimitiveXNodeImpl<?>) node);
+        } else if (node instanceof SchemaXNodeImpl) {
+            out.writeByte(TAG_SCHEMA);
+            writeCommon(node);
+            writeSchemaContent((SchemaXNodeImpl) node);
+        } else if (node instanceof IncompleteMarkerXNodeImpl) {
+            out.writeByte(TAG_INCOMPLETE);
+            writeCommon(node);
+        } else if (node instanceof RootXNodeImpl) {
+            // Root nodes nested in the tree are not expected; we write only their content (as other writers do).
+            RootXNodeImpl nestedRoot = (RootXNodeImpl) node;
+            writeNode(nestedRoot.toMapXNode());
+        } else {
+            throw new UnsupportedOperationException("Cannot write " + node);
+        }
+    }
+
+    private void writeCommon(XNodeImpl node) throws IOException, SchemaException {
+        QName elementName = node.getElementName();
+        QName typeName = node.getTypeQName();
+        List<MapXNode> metadataNodes = node instanceof MetadataAware ?
+                ((MetadataAware) node).getMetadataNodes() : Collections.emptyList();
+        boolean attribute = node instanceof PrimitiveXNodeImpl && ((PrimitiveXNodeImpl<?>) node).isAttribute();
+
+        int flags = 0;
+        if (elementName != null) {
+            flags |= FLAG_ELEMENT_NAME;
+        }
+        if (typeName != null) {
+            flags |= FLAG_TYPE_NAME;
+        }
+        if (node.isExplicitTypeDeclaration()) {
+            flags |= FLAG_EXPLICIT_TYPE;
+        }
+        if (!metadataNodes.isEmpty()) {
+            flags |= FLAG_METADATA;
+        }
+        if (attribute) {
+            flags |= FLAG_ATTRIBUTE;
+        }
+        out.writeByte(flags);
+
+        if (elementName != null) {
+            writeQName(elementName);
+        }
+        if (typeName != null) {
+            writeQName(typeName);
+        }
+        if (!metadataNodes.isEmpty()) {
+            writeVarInt(metadataNodes.size());
+            for (MapXNode metadataNode : metadataNodes) {
+                writeNode((MapXNodeImpl) metadataNode);
+            }
+        }
+    }
+
+    private void writeMapContent(MapXNodeImpl map) throws IOException, SchemaException {
+        int size = 0;
+        for (Map.Entry<QName, XNodeImpl> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                size++;
+            }
+        }
+        writeVarInt(size);
+        for (Map.Entry<QName, XNodeImpl> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writeQName(entry.getKey());
+                writeNode(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Parsed values are written in the same textual form as the XML writer uses (except for QNames that are
+     * written directly). Unparsed values are written as they are, along with relevant namespace declarations.
+     */
+    private void writePrimitiveContent(PrimitiveXNodeImpl<?> primitive) throws IOException, SchemaException {
+        if (primitive.isParsed()) {
+            Object value = primitive.getValue();
+            if (value == null) {
+                out.writeByte(VALUE_EMPTY);
+            } else if (value instanceof QName) {
+                out.writeByte(VALUE_QNAME);
+                writeQName((QName) value);
+            } else if (value instanceof ItemPathType) {
+                out.writeByte(VALUE_TEXT);
+                writeText(ItemPathSerializerTemp.serializeWithForcedDeclarations((ItemPathType) value));
+                writeNamespaceDeclarations(Collections.emptyMap());
+            } else {
+                out.writeByte(VALUE_TEXT);
+                writeText(primitive.getTypeQName() != null ? primitive.getGuessedFormattedValue() : primitive.getStringValue());
+                writeNamespaceDeclarations(Collections.emptyMap());
+            }
+        } else {
+            out.writeByte(VALUE_TEXT);
+            writeText(primitive.getStringValue());
+            writeNamespaceDeclarations(primitive.getRelevantNamespaceDeclarations());
+        }
+    }
+
+    private void writeSchemaContent(SchemaXNodeImpl schema) throws IOException {
+        Element schemaElement = schema.getSchemaElement();
+        if (schemaElement != null) {
+            // Namespace declarations from the ancestors have to be preserved (the clone is detached from them).
+            Element clonedSchemaElement = (Element) schemaElement.cloneNode(true);
+            DOMUtil.setNamespaceDeclarations(clonedSchemaElement, DOMUtil.getAllVisibleNamespaceDeclarations(schemaElement));
+            writeText(DOMUtil.serializeDOMToString(clonedSchemaElement));
+        } else {
+            writeText(null);
+        }
+    }
+
+    private void writeNamespaceDeclarations(Map<String, String> declarations) throws IOException {
+        writeVarInt(declarations.size());
+        for (Map.Entry<String, String> declaration : declarations.entrySet()) {
+            writeDictionaryString(declaration.getKey());
+            writeDictionaryString(declaration.getValue());
+        }
+    }
+
+    private void writeQName(QName name) throws IOException {
+        if (name == null) {
+            writeVarInt(REF_NULL);
+            return;
+        }
+        DictionaryQName key = new DictionaryQName(name);
+        Integer number = qNameDictionary.get(key);
+        if (number != null) {
+            writeVarInt(REF_FIRST_ENTRY + number);
+        } else {
+            writeVarInt(REF_NEW);
+            writeDictionaryString(name.getNamespaceURI());
+            writeDictionaryString(name.getLocalPart());
+            writeDictionaryString(name.getPrefix());
+            qNameDictionary.put(key, qNameDictionary.size());
+        }
+    }
+
+    private void writeDictionaryString(String string) throws IOException {
+        if (string == null) {
+            writeVarInt(REF_NULL);
+            return;
+        }
+        Integer number = stringDictionary.get(string);
+        if (number != null) {
+            writeVarInt(REF_FIRST_ENTRY + number);
+        } else {
+            writeVarInt(REF_NEW);
+            writeText(string);
+            stringDictionary.put(string, stringDictionary.size());
+        }
+    }
+
+    /**
+     * Writes a string as length + 1 (0 meaning null) followed by UTF-8 bytes.
+     */
+    private void writeText(String text) throws IOException {
+        if (text == null) {
+            writeVarInt(0);
+        } else {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static class DictionaryQName {
+        @NotNull private final QName name;
+
+        private DictionaryQName(@NotNull QName name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DictionaryQName)) {
+                return false;
+            }
+            DictionaryQName that = (DictionaryQName) o;
+            return name.equals(that.name) && name.getPrefix().equals(that.name.getPrefix());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, name.getPrefix());
+        }
+    }
+}
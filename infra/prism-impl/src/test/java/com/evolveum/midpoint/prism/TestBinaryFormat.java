@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.testng.AssertJUnit.*;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.delta.DiffUtil;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.xnode.*;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Tests the compact binary format (serialization and parsing round trips).
+ */
+public class TestBinaryFormat extends AbstractPrismTest {
+
+    @Test
+    public void test100RoundTripJack() throws Exception {
+        PrismObject<UserType> user = roundTrip(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+        assertUserJack(user, true, true, true);
+    }
+
+    @Test
+    public void test110RoundTripJackAdhoc() throws Exception {
+        roundTrip(new File(COMMON_DIR_XML, USER_JACK_ADHOC_BASENAME + ".xml"));
+    }
+
+    @Test
+    public void test120RoundTripWill() throws Exception {
+        roundTrip(new File(COMMON_DIR_XML, USER_WILL_FILE_BASENAME + ".xml"));
+    }
+
+    @Test
+    public void test130RoundTripElisabeth() throws Exception {
+        roundTrip(new File(COMMON_DIR_XML, USER_ELISABETH_FILE_BASENAME + ".xml"));
+    }
+
+    @Test
+    public void test140RoundTripAliceMetadata() throws Exception {
+        roundTrip(new File(COMMON_DIR_XML, USER_ALICE_METADATA_BASENAME + ".xml"));
+    }
+
+    @Test
+    public void test150RoundTripResourceWithSchema() throws Exception {
+        roundTrip(new File(COMMON_DIR_XML, RESOURCE_RUM_FILE_BASENAME + ".xml"));
+    }
+
+    @Test
+    public void test200RoundTripXNode() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        RootXNode original = prismContext.parserFor(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml")).parseToXNode();
+
+        when();
+        byte[] serialized = prismContext.binarySerializer().serialize(original);
+        RootXNode reparsed = prismContext.parserFor(serialized).parseToXNode();
+
+        then();
+        displayValue("reparsed", reparsed);
+        assertEquals("Wrong root element name", original.getRootElementName(), reparsed.getRootElementName());
+        PrismObject<UserType> user = prismContext.parserFor(reparsed).parse();
+        assertUserJack(user, true, true, true);
+    }
+
+    @Test
+    public void test300TextualDataAsBytes() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> original = prismContext.parseObject(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+        byte[] xml = prismContext.xmlSerializer().serialize(original).getBytes(StandardCharsets.UTF_8);
+        byte[] json = prismContext.jsonSerializer().serialize(original).getBytes(StandardCharsets.UTF_8);
+
+        when();
+        PrismObject<UserType> fromXml = prismContext.parserFor(xml).parse();
+        PrismObject<UserType> fromJson = prismContext.parserFor(json).parse();
+
+        then();
+        assertFalse("XML recognized as binary", prismContext.isBinaryFormat(xml));
+        assertFalse("JSON recognized as binary", prismContext.isBinaryFormat(json));
+        assertEquals("Users (XML) not equal", original, fromXml);
+        assertEquals("Users (JSON) not equal", original, fromJson);
+    }
+
+    @Test
+    public void test310UnsupportedVersion() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> original = prismContext.parseObject(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+        byte[] serialized = prismContext.binarySerializer().serialize(original);
+        serialized[4] = 99;             // the version byte follows 4 bytes of magic
+
+        when();
+        try {
+            prismContext.parserFor(serialized).parse();
+            fail("unexpected success");
+        } catch (SchemaException e) {
+            then();
+            displayExpectedException(e);
+            assertTrue("Wrong message: " + e.getMessage(), e.getMessage().contains("version"));
+        }
+    }
+
+    /**
+     * QNames differing only in prefix are equal, but each one has to keep its own prefix.
+     */
+    @Test
+    public void test320QNamePrefixes() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        XNodeFactory factory = prismContext.xnodeFactory();
+        QName withPrefixA = new QName(NS_FOO, "name", "a");
+        QName withPrefixB = new QName(NS_FOO, "name", "b");
+        RootXNode original = factory.root(new QName(NS_FOO, "root"),
+                factory.map(new QName(NS_FOO, "value"),
+                        factory.list(
+                                factory.primitive(withPrefixA, DOMUtil.XSD_QNAME),
+                                factory.primitive(withPrefixB, DOMUtil.XSD_QNAME))));
+
+        when();
+        byte[] serialized = prismContext.binarySerializer().serialize(original);
+        RootXNode reparsed = prismContext.parserFor(serialized).parseToXNode();
+
+        then();
+        displayValue("reparsed", reparsed);
+        ListXNode values = (ListXNode) ((MapXNode) reparsed.getSubnode()).get(new QName(NS_FOO, "value"));
+        assertEquals("Wrong prefix of the first value", "a", getQNameValue(values.get(0)).getPrefix());
+        assertEquals("Wrong prefix of the second value", "b", getQNameValue(values.get(1)).getPrefix());
+    }
+
+    @SuppressWarnings("unchecked")
+    private QName getQNameValue(XNode node) throws SchemaException {
+        return ((PrimitiveXNode<QName>) node).getParsedValue(DOMUtil.XSD_QNAME, QName.class);
+    }
+
+    private <O extends Objectable> PrismObject<O> roundTrip(File file) throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        PrismObject<O> original = prismContext.parseObject(file);
+        displayValue("original", original);
+
+        when();
+        // We need to serialize with composite objects during roundtrip, otherwise the result will not be equal
+        byte[] serialized = prismContext.binarySerializer()
+                .options(SerializationOptions.createSerializeCompositeObjects())
+                .serialize(original);
+        PrismObject<O> reparsed = prismContext.parserFor(serialized).parse();
+
+        then();
+        String xml = prismContext.xmlSerializer().serialize(original);
+        System.out.println("Binary: " + serialized.length + " bytes, XML: " + xml.length() + " characters");
+        displayValue("reparsed", reparsed);
+        assertTrue("Binary data not recognized", prismContext.isBinaryFormat(serialized));
+
+        ObjectDelta<O> diff = DiffUtil.diff(original, reparsed);
+        assertTrue("Diff: " + diff, diff.isEmpty());
+        assertEquals("Objects not equal", original, reparsed);
+        return reparsed;
+    }
+}
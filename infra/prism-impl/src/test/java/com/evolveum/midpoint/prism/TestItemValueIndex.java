@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.testng.AssertJUnit.*;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.delta.PropertyDelta;
+import com.evolveum.midpoint.prism.foo.UserType;
+
+/**
+ * Tests the behavior of large multi-valued items, i.e. ones where values are indexed (see ItemValueIndex).
+ * The results must be the same as for small (non-indexed) items.
+ */
+public class TestItemValueIndex extends AbstractPrismTest {
+
+    private static final int VALUES = 200;
+
+    @Test
+    public void test100AddPropertyValues() throws Exception {
+        // GIVEN
+        PrismProperty<String> property = createAdditionalNames();
+
+        // WHEN
+        for (int i = 0; i < VALUES; i++) {
+            property.addRealValue("name" + i);
+        }
+        boolean addedAgain = property.add(createPropertyValue("name42"));
+        boolean addedNew = property.add(createPropertyValue("name" + VALUES));
+
+        // THEN
+        assertFalse("existing value was added again", addedAgain);
+        assertTrue("new value was not added", addedNew);
+        assertEquals("Wrong # of values", VALUES + 1, property.size());
+        for (int i = 0; i <= VALUES; i++) {
+            assertEquals("Wrong value order at " + i, "name" + i, property.getValues().get(i).getValue());
+        }
+        assertTrue(property.contains(createPropertyValue("name" + (VALUES - 1))));
+        assertFalse(property.contains(createPropertyValue("nonexistent")));
+    }
+
+    @Test
+    public void test110RemovePropertyValues() throws Exception {
+        // GIVEN
+        PrismProperty<String> property = createAdditionalNames();
+        for (int i = 0; i < VALUES; i++) {
+            property.addRealValue("name" + i);
+        }
+
+        // WHEN
+        boolean removed = property.remove(createPropertyValue("name10"));
+        boolean removedNonexistent = property.remove(createPropertyValue("nonexistent"));
+        property.remove(0);
+
+        // THEN
+        assertTrue(removed);
+        assertFalse(removedNonexistent);
+        assertEquals("Wrong # of values", VALUES - 2, property.size());
+        assertFalse(property.contains(createPropertyValue("name0")));
+        assertFalse(property.contains(createPropertyValue("name10")));
+        assertTrue(property.contains(createPropertyValue("name11")));
+    }
+
+    @Test
+    public void test200AddAndRemoveReferenceValues() throws Exception {
+        // GIVEN
+        PrismReference reference = createAccountRef();
+
+        // WHEN
+        for (int i = 0; i < VALUES; i++) {
+            reference.add(createReferenceValue("oid" + i));
+        }
+        reference.add(createReferenceValue("oid7"));
+        reference.remove(createReferenceValue("oid8"));
+
+        // THEN
+        assertEquals("Wrong # of values", VALUES - 1, reference.size());
+        assertTrue(reference.contains(createReferenceValue("oid7")));
+        assertFalse(reference.contains(createReferenceValue("oid8")));
+    }
+
+    /**
+     * Values list is modified directly; the index must not return stale results.
+     */
+    @Test
+    public void test300DirectListModification() throws Exception {
+        // GIVEN
+        PrismReference reference = createAccountRef();
+        for (int i = 0; i < VALUES; i++) {
+            reference.add(createReferenceValue("oid" + i));
+        }
+        assertTrue(reference.contains(createReferenceValue("oid0")));        // index is built here
+
+        // WHEN
+        PrismReferenceValue direct = createReferenceValue("direct");
+        direct.setParent(reference);
+        reference.getValues().set(0, direct);
+
+        // THEN
+        assertFalse(reference.contains(createReferenceValue("oid0")));
+        assertTrue(reference.contains(createReferenceValue("direct")));
+        assertFalse("existing value was added again", reference.add(createReferenceValue("direct")));
+    }
+
+    /**
+     * Value already present in the item is modified; the index must not return stale results.
+     */
+    @Test
+    public void test310ValueModification() throws Exception {
+        // GIVEN
+        PrismReference reference = createAccountRef();
+        for (int i = 0; i < VALUES; i++) {
+            reference.add(createReferenceValue("oid" + i));
+        }
+        assertTrue(reference.contains(createReferenceValue("oid5")));        // index is built here
+
+        // WHEN
+        reference.getValues().get(5).setOid("changed");
+
+        // THEN
+        assertFalse(reference.contains(createReferenceValue("oid5")));
+        assertTrue(reference.contains(createReferenceValue("changed")));
+    }
+
+    @Test
+    public void test400DiffLargeItems() throws Exception {
+        // GIVEN
+        PrismProperty<String> property1 = createAdditionalNames();
+        PrismProperty<String> property2 = createAdditionalNames();
+        for (int i = 0; i < VALUES; i++) {
+            property1.addRealValue("name" + i);
+            property2.addRealValue("name" + (i + 10));
+        }
+
+        // WHEN
+        PropertyDelta<String> delta = property1.diff(property2);
+
+        // THEN
+        displayValue("delta", delta);
+        assertNotNull("No delta", delta);
+        assertEquals("Wrong # of values to add", 10, delta.getValuesToAdd().size());
+        assertEquals("Wrong # of values to delete", 10, delta.getValuesToDelete().size());
+        assertTrue(delta.getValuesToAdd().contains(createPropertyValue("name" + (VALUES + 9))));
+        assertTrue(delta.getValuesToDelete().contains(createPropertyValue("name0")));
+    }
+
+    private PrismProperty<String> createAdditionalNames() throws Exception {
+        PrismObjectDefinition<UserType> userDefinition = getUserDefinition();
+        PrismPropertyDefinition<String> definition = userDefinition.findPropertyDefinition(UserType.F_ADDITIONAL_NAMES);
+        return definition.instantiate();
+    }
+
+    private PrismReference createAccountRef() throws Exception {
+        PrismObjectDefinition<UserType> userDefinition = getUserDefinition();
+        PrismReferenceDefinition definition = userDefinition.findReferenceDefinition(UserType.F_ACCOUNT_REF);
+        return definition.instantiate();
+    }
+
+    private PrismObjectDefinition<UserType> getUserDefinition() {
+        return getFooSchema(getPrismContext()).findObjectDefinitionByElementName(USER_QNAME);
+    }
+
+    private PrismPropertyValue<String> createPropertyValue(String value) {
+        return getPrismContext().itemFactory().createPropertyValue(value);
+    }
+
+    private PrismReferenceValue createReferenceValue(String oid) {
+        return getPrismContext().itemFactory().createReferenceValue(oid);
+    }
+}
@@ -284,6 +284,9 @@ public abstract class SchemaConstants {
     public static final ItemName MODEL_EXTENSION_RETRY_LIVE_SYNC_ERRORS = new ItemName(NS_MODEL_EXTENSION, "retryLiveSyncErrors");
     public static final ItemName MODEL_EXTENSION_UPDATE_LIVE_SYNC_TOKEN_IN_DRY_RUN = new ItemName(NS_MODEL_EXTENSION, "updateLiveSyncTokenInDryRun");
     public static final ItemName MODEL_EXTENSION_LIVE_SYNC_BATCH_SIZE = new ItemName(NS_MODEL_EXTENSION, "liveSyncBatchSize");
+    public static final ItemName MODEL_EXTENSION_LIVE_SYNC_MAX_BATCH_SIZE = new ItemName(NS_MODEL_EXTENSION, "liveSyncMaxBatchSize");
+    public static final ItemName MODEL_EXTENSION_LIVE_SYNC_CURRENT_BATCH_SIZE = new ItemName(NS_MODEL_EXTENSION, "liveSyncCurrentBatchSize");
+    public static final ItemName MODEL_EXTENSION_LIVE_SYNC_MIN_WORKER_THREADS = new ItemName(NS_MODEL_EXTENSION, "liveSyncMinWorkerThreads");
     public static final ItemName MODEL_EXTENSION_FINISH_OPERATIONS_ONLY = new ItemName(NS_MODEL_EXTENSION, "finishOperationsOnly");
     public static final ItemName MODEL_EXTENSION_KIND = new ItemName(NS_MODEL_EXTENSION, "kind");
     public static final ItemName MODEL_EXTENSION_INTENT = new ItemName(NS_MODEL_EXTENSION, "intent");
@@ -358,6 +361,8 @@ public abstract class SchemaConstants {
     public static final ItemName MODEL_EXTENSION_OBJECT_DELTA = new ItemName(NS_MODEL_EXTENSION, "objectDelta");
     public static final ItemName MODEL_EXTENSION_OBJECT_DELTAS = new ItemName(NS_MODEL_EXTENSION, "objectDeltas");
     public static final ItemName MODEL_EXTENSION_WORKER_THREADS = new ItemName(NS_MODEL_EXTENSION, "workerThreads");
+    public static final ItemName MODEL_EXTENSION_PROCESSING_BATCH_SIZE = new ItemName(NS_MODEL_EXTENSION, "processingBatchSize");
+    public static final ItemName MODEL_EXTENSION_RESOURCE_OBJECT_PROCESSING_THREADS = new ItemName(NS_MODEL_EXTENSION, "resourceObjectProcessingThreads");
     public static final ItemName MODEL_EXTENSION_OPTION_RAW = new ItemName(NS_MODEL_EXTENSION, "optionRaw");
     public static final ItemName MODEL_EXTENSION_EXECUTE_OPTIONS = new ItemName(NS_MODEL_EXTENSION, "executeOptions");
     public static final ItemName MODEL_EXTENSION_MODEL_EXECUTE_OPTIONS = new ItemName(NS_MODEL_EXTENSION, "modelExecuteOptions");
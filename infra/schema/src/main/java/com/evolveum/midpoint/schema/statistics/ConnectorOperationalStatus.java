@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.schema.statistics;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 import com.evolveum.midpoint.util.DebugDumpable;
 import com.evolveum.midpoint.util.DebugUtil;
@@ -28,6 +29,11 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
     public static final String F_POOL_CONFIG_MIN_EVICTABLE_IDLE_TIME = "poolConfigMinEvictableIdleTime";
     public static final String F_POOL_STATUS_NUM_IDLE = "poolStatusNumIdle";
     public static final String F_POOL_STATUS_NUM_ACTIVE = "poolStatusNumActive";
+    public static final String F_INSTANCE_WARMED_UP = "instanceWarmedUp";
+    public static final String F_INSTANCE_INITIALIZATION_COUNT = "instanceInitializationCount";
+    public static final String F_INSTANCE_INITIALIZATION_TIME = "instanceInitializationTime";
+    public static final String F_INSTANCE_WAIT_COUNT = "instanceWaitCount";
+    public static final String F_INSTANCE_WAIT_TIME = "instanceWaitTime";
 
     private String connectorName;
     private String connectorClassName;
@@ -44,6 +50,13 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
     private Integer poolStatusNumIdle;
     private Integer poolStatusNumActive;
 
+    // connector instance (re)initialization statistics on this node; times are in milliseconds
+    private Boolean instanceWarmedUp;
+    private Integer instanceInitializationCount;
+    private Long instanceInitializationTime;
+    private Integer instanceWaitCount;
+    private Long instanceWaitTime;
+
     public String getConnectorName() {
         return connectorName;
     }
@@ -124,6 +137,59 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
         this.poolStatusNumActive = poolStatusNumActive;
     }
 
+    public Boolean getInstanceWarmedUp() {
+        return instanceWarmedUp;
+    }
+
+    public void setInstanceWarmedUp(Boolean instanceWarmedUp) {
+        this.instanceWarmedUp = instanceWarmedUp;
+    }
+
+    public Integer getInstanceInitializationCount() {
+        return instanceInitializationCount;
+    }
+
+    public void setInstanceInitializationCount(Integer instanceInitializationCount) {
+        this.instanceInitializationCount = instanceInitializationCount;
+    }
+
+    public Long getInstanceInitializationTime() {
+        return instanceInitializationTime;
+    }
+
+    public void setInstanceInitializationTime(Long instanceInitializationTime) {
+        this.instanceInitializationTime = instanceInitializationTime;
+    }
+
+    /**
+     * How many times an operation had to wait for the connector instance to be created or (re)configured.
+     */
+    public Integer getInstanceWaitCount() {
+        return instanceWaitCount;
+    }
+
+    public void setInstanceWaitCount(Integer instanceWaitCount) {
+        this.instanceWaitCount = instanceWaitCount;
+    }
+
+    public Long getInstanceWaitTime() {
+        return instanceWaitTime;
+    }
+
+    public void setInstanceWaitTime(Long instanceWaitTime) {
+        this.instanceWaitTime = instanceWaitTime;
+    }
+
+    /**
+     * Returns the fraction of the pool that is in use (0 to 1), if known.
+     */
+    public Double getPoolUtilization() {
+        if (poolStatusNumActive == null || poolConfigMaxSize == null || poolConfigMaxSize <= 0) {
+            return null;
+        }
+        return (double) poolStatusNumActive / poolConfigMaxSize;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -138,6 +204,11 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
         result = prime * result + ((poolConfigWaitTimeout == null) ? 0 : poolConfigWaitTimeout.hashCode());
         result = prime * result + ((poolStatusNumActive == null) ? 0 : poolStatusNumActive.hashCode());
         result = prime * result + ((poolStatusNumIdle == null) ? 0 : poolStatusNumIdle.hashCode());
+        result = prime * result + ((instanceWarmedUp == null) ? 0 : instanceWarmedUp.hashCode());
+        result = prime * result + ((instanceInitializationCount == null) ? 0 : instanceInitializationCount.hashCode());
+        result = prime * result + ((instanceInitializationTime == null) ? 0 : instanceInitializationTime.hashCode());
+        result = prime * result + ((instanceWaitCount == null) ? 0 : instanceWaitCount.hashCode());
+        result = prime * result + ((instanceWaitTime == null) ? 0 : instanceWaitTime.hashCode());
         return result;
     }
 
@@ -216,7 +287,11 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
         } else if (!poolStatusNumIdle.equals(other.poolStatusNumIdle)) {
             return false;
         }
-        return true;
+        return Objects.equals(instanceWarmedUp, other.instanceWarmedUp)
+                && Objects.equals(instanceInitializationCount, other.instanceInitializationCount)
+                && Objects.equals(instanceInitializationTime, other.instanceInitializationTime)
+                && Objects.equals(instanceWaitCount, other.instanceWaitCount)
+                && Objects.equals(instanceWaitTime, other.instanceWaitTime);
     }
 
     @Override
@@ -238,7 +313,12 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
         DebugUtil.debugDumpWithLabelLn(sb, "poolConfigWaitTimeout", poolConfigWaitTimeout, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "poolConfigMinEvictableIdleTime", poolConfigMinEvictableIdleTime, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "poolStatusNumIdle", poolStatusNumIdle, indent + 1);
-        DebugUtil.debugDumpWithLabel(sb, "poolStatusNumActive", poolStatusNumActive, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "poolStatusNumActive", poolStatusNumActive, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "instanceWarmedUp", instanceWarmedUp, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "instanceInitializationCount", instanceInitializationCount, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "instanceInitializationTime", instanceInitializationTime, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "instanceWaitCount", instanceWaitCount, indent + 1);
+        DebugUtil.debugDumpWithLabel(sb, "instanceWaitTime", instanceWaitTime, indent + 1);
         return sb.toString();
 
     }
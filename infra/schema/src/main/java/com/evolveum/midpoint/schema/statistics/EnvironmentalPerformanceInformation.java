@@ -37,7 +37,7 @@ public class EnvironmentalPerformanceInformation {
 
     private Map<ProvisioningStatisticsKey,ProvisioningStatisticsData> provisioningData = new HashMap<>();
     private Map<NotificationsStatisticsKey,GenericStatisticsData> notificationsData = new HashMap<>();
-    private Map<MappingsStatisticsKey,GenericStatisticsData> mappingsData = new HashMap<>();
+    private Map<MappingsStatisticsKey,MappingsStatisticsData> mappingsData = new HashMap<>();
 
     private static final int AGGREGATION_THRESHOLD = 50;
 
@@ -106,7 +106,7 @@ public class EnvironmentalPerformanceInformation {
             Integer current = entriesPerType.get(key.getObjectType());
             entriesPerType.put(key.getObjectType(), current != null ? current+1 : 1);
         }
-        for (Map.Entry<MappingsStatisticsKey, GenericStatisticsData> entry : mappingsData.entrySet()) {
+        for (Map.Entry<MappingsStatisticsKey, MappingsStatisticsData> entry : mappingsData.entrySet()) {
             final MappingsStatisticsKey key = entry.getKey();
             final String targetEntryName;
             if (entriesPerType.get(key.getObjectType()) < AGGREGATION_THRESHOLD) {
@@ -121,7 +121,8 @@ public class EnvironmentalPerformanceInformation {
                 rv.getEntry().add(entryType);
             }
             setValueMapping(entryType, entry.getValue().getCount(),
-                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration());
+                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration(),
+                    entry.getValue().getValueCombinations(), entry.getValue().getMaxValueCombinations());
         }
         return rv;
     }
@@ -244,7 +245,8 @@ public class EnvironmentalPerformanceInformation {
         e.setTotalTime(e.getTotalTime() + totalDuration);
     }
 
-    private void setValueMapping(MappingsStatisticsEntryType e, int count, long min, long max, long totalDuration) {
+    private void setValueMapping(MappingsStatisticsEntryType e, int count, long min, long max, long totalDuration,
+            long valueCombinations, long maxValueCombinations) {
         e.setCount(e.getCount() + count);
         if (e.getMinTime() == null || min < e.getMinTime()) {
             e.setMinTime(min);
@@ -253,6 +255,10 @@ public class EnvironmentalPerformanceInformation {
             e.setMaxTime(max);
         }
         e.setTotalTime(e.getTotalTime() + totalDuration);
+        if (valueCombinations > 0) {
+            e.setValueCombinations(defaultIfNull(e.getValueCombinations(), 0L) + valueCombinations);
+            e.setMaxValueCombinations(max(e.getMaxValueCombinations(), maxValueCombinations));
+        }
     }
 
     private EnvironmentalPerformanceInformationType aggregate(EnvironmentalPerformanceInformationType startValue, EnvironmentalPerformanceInformationType delta) {
@@ -341,6 +347,10 @@ public class EnvironmentalPerformanceInformation {
             e.setMinTime(min(e.getMinTime(), de.getMinTime()));
             e.setMaxTime(max(e.getMaxTime(), de.getMaxTime()));
             e.setTotalTime(e.getTotalTime() + de.getTotalTime());
+            if (de.getValueCombinations() != null) {
+                e.setValueCombinations(defaultIfNull(e.getValueCombinations(), 0L) + de.getValueCombinations());
+            }
+            e.setMaxValueCombinations(max(e.getMaxValueCombinations(), de.getMaxValueCombinations()));
             if (e.getCount() > 0) {
                 e.setAverageTime(e.getTotalTime() / e.getCount());
             } else {
@@ -456,15 +466,16 @@ public class EnvironmentalPerformanceInformation {
         data.recordOperation(duration, 1);
     }
 
-    public synchronized void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration) {
+    public synchronized void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName,
+            long duration, long valueCombinations) {
         // ignoring mapping name for now
         MappingsStatisticsKey key = new MappingsStatisticsKey(objectOid, objectName, objectTypeName);
-        GenericStatisticsData data = mappingsData.get(key);
+        MappingsStatisticsData data = mappingsData.get(key);
         if (data == null) {
-            data = new GenericStatisticsData();
+            data = new MappingsStatisticsData();
             mappingsData.put(key, data);
         }
-        data.recordOperation(duration, 1);
+        data.recordMappingOperation(duration, valueCombinations);
     }
 
     public synchronized StatusMessage getLastMessage() {
@@ -522,9 +533,14 @@ public class EnvironmentalPerformanceInformation {
     private static String format(MappingsStatisticsType information) {
         StringBuilder sb = new StringBuilder();
         for (MappingsStatisticsEntryType e : information.getEntry()) {
-            sb.append(String.format(Locale.US, "    %-40s count: %6d, total time: %6d ms [min: %5d, max: %5d, avg: %7.1f]\n", e.getObject(),
+            sb.append(String.format(Locale.US, "    %-40s count: %6d, total time: %6d ms [min: %5d, max: %5d, avg: %7.1f]", e.getObject(),
                     e.getCount(), e.getTotalTime(), defaultIfNull(e.getMinTime(), 0L),
                     defaultIfNull(e.getMaxTime(), 0L), avg(e.getTotalTime(), e.getCount())));
+            if (e.getValueCombinations() != null) {
+                sb.append(String.format(Locale.US, " value combinations: %8d [max: %6d]", e.getValueCombinations(),
+                        defaultIfNull(e.getMaxValueCombinations(), 0L)));
+            }
+            sb.append("\n");
         }
         return sb.toString();
     }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.schema.statistics;
+
+/**
+ * Statistics of mapping evaluations, including number of value combinations transformed.
+ */
+public class MappingsStatisticsData extends GenericStatisticsData {
+
+    private long valueCombinations;
+    private long maxValueCombinations;
+
+    public long getValueCombinations() {
+        return valueCombinations;
+    }
+
+    public long getMaxValueCombinations() {
+        return maxValueCombinations;
+    }
+
+    public void recordMappingOperation(long duration, long valueCombinations) {
+        recordOperation(duration, 1);
+        this.valueCombinations += valueCombinations;
+        if (maxValueCombinations < valueCombinations) {
+            maxValueCombinations = valueCombinations;
+        }
+    }
+}
@@ -44,7 +44,13 @@ public interface StatisticsCollector {
 
     void recordNotificationOperation(String transportName, boolean success, long duration);
 
-    void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration);
+    /**
+     * Records evaluation of a mapping.
+     *
+     * @param valueCombinations Number of value combinations transformed by the mapping expression (in combinatorial mode).
+     */
+    void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration,
+            long valueCombinations);
 
     /**
      * Records information about iterative processing of objects.
@@ -77,4 +77,17 @@ public class EmbeddedBroker {
             channel.queueDeclare(queueName, true, false, false, new HashMap<>());
         }
     }
+
+    /**
+     * Returns the number of messages ready for delivery, i.e. not counting the ones delivered to (and not settled by)
+     * a consumer whose connection is still open.
+     */
+    public int getMessageCount(String queueName) throws IOException, TimeoutException {
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost("localhost");
+        try (Connection connection = factory.newConnection();
+                Channel channel = connection.createChannel()) {
+            return channel.queueDeclarePassive(queueName).getMessageCount();
+        }
+    }
 }
@@ -11,6 +11,9 @@ import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -23,6 +26,7 @@ public abstract class AbstractThreadLocalCache {
     private int hits = 0;
     private int misses = 0;
     private int passes = 0;
+    private int evictions = 0;
 
     private CacheConfiguration configuration;
 
@@ -72,7 +76,7 @@ public abstract class AbstractThreadLocalCache {
     }
 
     String getCacheStatisticsString() {
-        return "hits: " + hits + ", misses: " + misses + ", passes: " + passes +
+        return "hits: " + hits + ", misses: " + misses + ", passes: " + passes + ", evictions: " + evictions +
                 (hits+misses+passes != 0 ? ", % of hits: " + (100.0f * hits / (hits + misses + passes)) : "");
     }
 
@@ -132,6 +136,32 @@ public abstract class AbstractThreadLocalCache {
         passes++;
     }
 
+    int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Creates a map for the cached data. If maxSize is configured, least recently used entries are evicted
+     * when the size is exceeded; otherwise the map is unbounded.
+     *
+     * The map is synchronized: although the cache is used by its own thread, its size and content can be
+     * inspected by other threads (e.g. for diagnostics). Iteration over the map must be synchronized on it.
+     */
+    protected <K, V> Map<K, V> createDataMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                Integer maxSize = configuration != null ? configuration.getMaxSize() : null;
+                if (maxSize != null && size() > maxSize) {
+                    evictions++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        });
+    }
+
     public boolean supportsObjectType(Class<?> type) {
         return configuration != null && configuration.supportsObjectType(type);
     }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.util.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+public class TestThreadLocalCache extends AbstractUnitTest {
+
+    @Test
+    public void testUnboundedCache() {
+        TestCache cache = new TestCache();
+        cache.setConfiguration(new CacheConfiguration());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.data.put("k" + i, "v" + i);
+        }
+
+        assertThat(cache.getSize()).as("cache size").isEqualTo(1000);
+        assertThat(cache.getEvictions()).as("evictions").isEqualTo(0);
+    }
+
+    @Test
+    public void testBoundedCacheEvictsLeastRecentlyUsed() {
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.setMaxSize(3);
+        TestCache cache = new TestCache();
+        cache.setConfiguration(configuration);
+
+        cache.data.put("a", "1");
+        cache.data.put("b", "2");
+        cache.data.put("c", "3");
+        cache.data.get("a");                // "b" is now the least recently used entry
+        cache.data.put("d", "4");
+
+        assertThat(cache.getSize()).as("cache size").isEqualTo(3);
+        assertThat(cache.data).as("cache content").containsOnlyKeys("a", "c", "d");
+        assertThat(cache.getEvictions()).as("evictions").isEqualTo(1);
+    }
+
+    private static class TestCache extends AbstractThreadLocalCache {
+
+        private final Map<String, String> data = createDataMap();
+
+        @Override
+        public String description() {
+            return "T:" + data.size();
+        }
+
+        @Override
+        protected int getSize() {
+            return data.size();
+        }
+
+        @Override
+        protected void dumpContent(String threadName) {
+        }
+    }
+}
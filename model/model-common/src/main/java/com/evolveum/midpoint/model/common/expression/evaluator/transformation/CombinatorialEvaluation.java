@@ -23,6 +23,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ValueTransformationE
 
 import com.evolveum.prism.xml.ns._public.types_3.DeltaSetTripleType;
 
+import com.google.common.collect.MapMaker;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -37,6 +38,18 @@ class CombinatorialEvaluation<V extends PrismValue, D extends ItemDefinition, E
 
     private static final Trace LOGGER = TraceManager.getTrace(CombinatorialEvaluation.class);
 
+    /**
+     * Number of value combinations above which we warn that the evaluation is going to be expensive.
+     */
+    private static final long LARGE_COMBINATIONS_THRESHOLD = 10000;
+
+    /**
+     * Evaluator beans for which we have already warned about large number of combinations. We warn only once
+     * per evaluator (i.e. per mapping), as the same mapping is typically evaluated for many objects; further occurrences
+     * are logged on DEBUG level and are visible in the mapping statistics. Keys are weak and compared by identity.
+     */
+    private static final Set<Object> WARNED_EVALUATORS = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
     /**
      * Configuration of the evaluator.
      */
@@ -70,6 +83,11 @@ class CombinatorialEvaluation<V extends PrismValue, D extends ItemDefinition, E
      */
     @NotNull final PrismValueDeltaSetTriple<V> outputTriple;
 
+    /**
+     * Number of value tuples transformed so far.
+     */
+    private long valueCombinations;
+
     CombinatorialEvaluation(ExpressionEvaluationContext context, OperationResult parentResult,
             AbstractValueTransformationExpressionEvaluator<V, D, E> evaluator) throws SecurityViolationException, ObjectNotFoundException, SchemaException {
         super(context, parentResult, evaluator);
@@ -84,10 +102,13 @@ class CombinatorialEvaluation<V extends PrismValue, D extends ItemDefinition, E
             CommunicationException, ConfigurationException, SecurityViolationException {
 
         recordEvaluationStart();
+        checkNumberOfCombinations();
         try {
             transformValues();
         } catch (TunnelException e) {
             unwrapTunnelException(e);
+        } finally {
+            context.addValueCombinations(valueCombinations);
         }
 
         cleanUpOutputTriple();
@@ -145,12 +166,84 @@ class CombinatorialEvaluation<V extends PrismValue, D extends ItemDefinition, E
         List<Collection<PrismValue>> domains = createDomainsForSets(sets);
         logDomainsForSets(domains, sets, outputSet);
         MiscUtil.carthesian(domains, valuesTuple -> {
+            valueCombinations++;
             try (ValueTupleTransformation<V> valueTupleTransformation = new ValueTupleTransformation<>(valuesTuple, outputSet, this, parentResult)) {
                 valueTupleTransformation.evaluate();
             }
         });
     }
 
+    /**
+     * Computes the number of value tuples that are going to be transformed (before actually transforming them),
+     * so the mappings that combine many multi-valued sources can be spotted before they take all the time.
+     */
+    private void checkNumberOfCombinations() {
+        long expected = countCombinations();
+        LOGGER.trace("Expecting {} value combinations in {}", expected, context.getContextDescription());
+        if (expected > LARGE_COMBINATIONS_THRESHOLD) {
+            if (WARNED_EVALUATORS.add(evaluatorBean)) {
+                LOGGER.warn("Combinatorial evaluation of {} is going to transform {} value combinations; source sizes: {}. "
+                                + "Consider splitting the mapping or using the absolute relativity mode. (This is reported "
+                                + "only once for this mapping; see the mapping statistics for the number of combinations.)",
+                        context.getContextDescription(), expected, getSourceSizesLazily());
+            } else {
+                LOGGER.debug("Combinatorial evaluation of {} is going to transform {} value combinations; source sizes: {}",
+                        context.getContextDescription(), expected, getSourceSizesLazily());
+            }
+            parentResult.addReturn("expectedValueCombinations", expected);
+        }
+    }
+
+    private long countCombinations() {
+        long[] count = new long[1];
+        MiscUtil.carthesian(setsOccupiedPlusZero, sets -> {
+            if (isAllZeros(sets) || !context.isSkipEvaluationPlus()) {
+                count[0] = saturatedAdd(count[0], countCombinations(sets));
+            }
+        });
+        if (!context.isSkipEvaluationMinus()) {
+            MiscUtil.carthesian(setsOccupiedMinusZero, sets -> {
+                if (!isAllZeros(sets)) {
+                    count[0] = saturatedAdd(count[0], countCombinations(sets));
+                }
+            });
+        }
+        return count[0];
+    }
+
+    private long countCombinations(List<PlusMinusZero> sets) {
+        long product = 1;
+        for (Collection<PrismValue> domain : createDomainsForSets(sets)) {
+            int size = domain.size();
+            if (size != 0 && product > Long.MAX_VALUE / size) {
+                return Long.MAX_VALUE;
+            }
+            product *= size;
+        }
+        return product;
+    }
+
+    private long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private Object getSourceSizesLazily() {
+        return new Object() {
+            @Override
+            public String toString() {
+                StringBuilder sb = new StringBuilder();
+                for (SourceTriple<?, ?> sourceTriple : sourceTripleList) {
+                    if (sb.length() > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(sourceTriple.getName().getLocalPart()).append('=').append(sourceTriple.size());
+                }
+                return sb.toString();
+            }
+        };
+    }
+
     private void logDomainsForSets(List<Collection<PrismValue>> domains, List<PlusMinusZero> sets, PlusMinusZero outputSet) {
         if (LOGGER.isTraceEnabled()) {
             LOGGER.trace("Domains for sets, targeting {}:", outputSet);
@@ -33,6 +33,7 @@ import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.util.statistics.OperationInvocationRecord;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -47,11 +48,14 @@ public abstract class AbstractCachingScriptEvaluator<I,C> extends AbstractScript
 
     private static final Trace LOGGER = TraceManager.getTrace(AbstractCachingScriptEvaluator.class);
 
+    /** Compilation time is recorded in operations performance information under this name. */
+    private static final String OP_COMPILE_SCRIPT = AbstractCachingScriptEvaluator.class.getName() + ".compileScript";
+
     private final ScriptCache<I,C> scriptCache;
 
     public AbstractCachingScriptEvaluator(PrismContext prismContext, Protector protector, LocalizationService localizationService) {
         super(prismContext, protector, localizationService);
-        this.scriptCache = new ScriptCache<>();
+        this.scriptCache = new ScriptCache<>(ScriptCache.DEFAULT_MAX_SIZE, this::releaseCompiledScript);
     }
 
     protected ScriptCache<I,C> getScriptCache() {
@@ -145,12 +149,17 @@ public abstract class AbstractCachingScriptEvaluator<I,C> extends AbstractScript
             return compiledScript;
         }
         InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
+        OperationInvocationRecord invocationRecord = OperationInvocationRecord.create(OP_COMPILE_SCRIPT, null);
         try {
             compiledScript = compileScript(codeString, context);
         } catch (ExpressionEvaluationException | SecurityViolationException e) {
+            invocationRecord.processException(e);
             throw e;
         } catch (Exception e) {
-            throw new ExpressionEvaluationException(e.getMessage() + " while compiling " + context.getContextDescription(), e);
+            throw invocationRecord.processException(
+                    new ExpressionEvaluationException(e.getMessage() + " while compiling " + context.getContextDescription(), e));
+        } finally {
+            invocationRecord.afterCall();
         }
         scriptCache.putCode(context.getExpressionProfile(), codeString, compiledScript);
         return compiledScript;
@@ -158,6 +167,12 @@ public abstract class AbstractCachingScriptEvaluator<I,C> extends AbstractScript
 
     protected abstract C compileScript(String codeString, ScriptExpressionEvaluationContext context) throws Exception;
 
+    /**
+     * Called when compiled script is evicted from the cache. It may still be in use by scripts being evaluated.
+     */
+    protected void releaseCompiledScript(C compiledScript) {
+    }
+
     protected abstract Object evaluateScript(C compiledScript, ScriptExpressionEvaluationContext context)
                 throws Exception;
 
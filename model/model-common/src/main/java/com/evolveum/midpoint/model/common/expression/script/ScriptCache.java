@@ -6,47 +6,140 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
-import java.util.HashMap;
+import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_CACHE;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Cache for compiled scripts and interpreters, aware of expression profiles.
  *
+ * Compiled code is kept in a single concurrent map, so lookups do not block each other. The number of entries
+ * is bounded: when the limit is exceeded, least recently used entries are evicted (approximately, as the access
+ * order is tracked by a counter and not by a linked list). Evicted code is passed to the eviction listener,
+ * if any, so e.g. generated classes can be released.
+ *
+ * Hits and misses are reported to {@link CachePerformanceCollector}.
+ *
  * @param <C> compiled code
  * @author Radovan Semancik
  */
 public class ScriptCache<I,C> {
 
-    private final Map<String, I> interpreterCache = new HashMap<>();
-    private final Map<String, Map<String, C>> codeCache = new HashMap<>();
+    private static final Trace LOGGER = TraceManager.getTrace(ScriptCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 5000;
+
+    /** When evicting, we remove this fraction of the maximal size at once, to avoid evicting on each put. */
+    private static final double EVICTION_FRACTION = 0.1;
+
+    private final Map<String, I> interpreterCache = new ConcurrentHashMap<>();
+    private final Map<CodeKey, CodeEntry<C>> codeCache = new ConcurrentHashMap<>();
 
-    public synchronized I getInterpreter(ExpressionProfile profile) {
+    private final int maxSize;
+    private final Consumer<C> evictionListener;
+
+    /** Logical clock used to track recency of use of the entries. */
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final AtomicBoolean evictionInProgress = new AtomicBoolean();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ScriptCache() {
+        this(DEFAULT_MAX_SIZE, null);
+    }
+
+    public ScriptCache(int maxSize, Consumer<C> evictionListener) {
+        this.maxSize = maxSize;
+        this.evictionListener = evictionListener;
+    }
+
+    public I getInterpreter(ExpressionProfile profile) {
         return interpreterCache.get(getProfileKey(profile));
     }
 
-    public synchronized void putInterpreter(ExpressionProfile profile, I interpreter) {
+    public void putInterpreter(ExpressionProfile profile, I interpreter) {
         interpreterCache.put(getProfileKey(profile), interpreter);
     }
 
-    public synchronized C getCode(ExpressionProfile profile, String sourceCodeKey) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
+    public C getCode(ExpressionProfile profile, String sourceCode) {
+        CodeEntry<C> entry = codeCache.get(new CodeKey(getProfileKey(profile), sourceCode));
+        if (entry != null) {
+            entry.lastAccess = accessCounter.incrementAndGet();
+            CachePerformanceCollector.INSTANCE.registerHit(ScriptCache.class, null, PER_CACHE);
+            return entry.code;
+        } else {
+            CachePerformanceCollector.INSTANCE.registerMiss(ScriptCache.class, null, PER_CACHE);
             return null;
         }
-        return profileCache.get(sourceCodeKey);
     }
 
-    public synchronized void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
-            profileCache = new HashMap<>();
-            codeCache.put(profileKey, profileCache);
+    public void putCode(ExpressionProfile profile, String sourceCode, C compiledCode) {
+        CodeEntry<C> entry = new CodeEntry<>(compiledCode, accessCounter.incrementAndGet());
+        CodeEntry<C> previous = codeCache.put(new CodeKey(getProfileKey(profile), sourceCode), entry);
+        if (previous != null && previous.code != compiledCode) {
+            // The script was compiled concurrently by more threads.
+            notifyEvicted(previous.code);
+        }
+        if (codeCache.size() > maxSize) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Removes least recently used entries so that the cache is safely below its maximal size.
+     * Only one thread evicts at a time; the others simply go on.
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evictionInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int toRemove = codeCache.size() - maxSize + (int) Math.ceil(maxSize * EVICTION_FRACTION);
+            if (toRemove <= 0) {
+                return;
+            }
+            // The access times are changed concurrently by getCode calls, so we must sort a snapshot of them.
+            // Otherwise the sort could fail because of inconsistent comparison results.
+            List<EvictionCandidate<C>> candidates = new ArrayList<>(codeCache.size());
+            codeCache.forEach((key, entry) -> candidates.add(new EvictionCandidate<>(key, entry)));
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+            int removed = 0;
+            for (EvictionCandidate<C> candidate : candidates) {
+                if (removed >= toRemove) {
+                    break;
+                }
+                if (codeCache.remove(candidate.key, candidate.entry)) {
+                    notifyEvicted(candidate.entry.code);
+                    removed++;
+                }
+            }
+            evictions.addAndGet(removed);
+            LOGGER.debug("Evicted {} compiled scripts from the cache; current size is {}", removed, codeCache.size());
+        } finally {
+            evictionInProgress.set(false);
+        }
+    }
+
+    private void notifyEvicted(C code) {
+        if (evictionListener != null) {
+            try {
+                evictionListener.accept(code);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Couldn't release evicted compiled script: {}", e.getMessage(), e);
+            }
         }
-        profileCache.put(sourceCodeKey, compiledCode);
     }
 
     private String getProfileKey(ExpressionProfile profile) {
@@ -57,8 +150,79 @@ public class ScriptCache<I,C> {
         }
     }
 
-    public synchronized void clear() {
-        codeCache.clear();
+    public int size() {
+        return codeCache.size();
     }
 
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public void clear() {
+        // Removing entries one by one, so each removed entry is released exactly once, even if entries are
+        // being put concurrently.
+        for (CodeKey key : codeCache.keySet()) {
+            CodeEntry<C> removed = codeCache.remove(key);
+            if (removed != null) {
+                notifyEvicted(removed.code);
+            }
+        }
+    }
+
+    /**
+     * Key of compiled code: expression profile and source code. The hash is computed only once;
+     * equality is checked on the full source code, so hash collisions cannot lead to wrong code being used.
+     */
+    private static class CodeKey {
+        private final String profileKey;
+        private final String sourceCode;
+        private final int hash;
+
+        private CodeKey(String profileKey, String sourceCode) {
+            this.profileKey = profileKey;
+            this.sourceCode = sourceCode;
+            this.hash = 31 * Objects.hashCode(profileKey) + sourceCode.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CodeKey)) {
+                return false;
+            }
+            CodeKey other = (CodeKey) o;
+            return hash == other.hash
+                    && Objects.equals(profileKey, other.profileKey)
+                    && sourceCode.equals(other.sourceCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class EvictionCandidate<C> {
+        private final CodeKey key;
+        private final CodeEntry<C> entry;
+        private final long lastAccess;
+
+        private EvictionCandidate(CodeKey key, CodeEntry<C> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    private static class CodeEntry<C> {
+        private final C code;
+        private volatile long lastAccess;
+
+        private CodeEntry(C code, long lastAccess) {
+            this.code = code;
+            this.lastAccess = lastAccess;
+        }
+    }
 }
@@ -234,9 +234,18 @@ public class ScriptExpressionFactory implements Cacheable {
     @NotNull
     @Override
     public Collection<SingleCacheStateInformationType> getStateInformation() {
-        return Collections.singleton(new SingleCacheStateInformationType(prismContext)
+        List<SingleCacheStateInformationType> rv = new ArrayList<>();
+        rv.add(new SingleCacheStateInformationType(prismContext)
                 .name(ScriptExpressionFactory.class.getName())
                 .size(customFunctionLibraryCache.size()));
+        evaluatorMap.forEach((language, evaluator) -> {
+            if (evaluator instanceof AbstractCachingScriptEvaluator) {
+                rv.add(new SingleCacheStateInformationType(prismContext)
+                        .name(ScriptCache.class.getName() + "." + evaluator.getLanguageName())
+                        .size(((AbstractCachingScriptEvaluator<?, ?>) evaluator).getScriptCache().size()));
+            }
+        });
+        return rv;
     }
 
     @Override
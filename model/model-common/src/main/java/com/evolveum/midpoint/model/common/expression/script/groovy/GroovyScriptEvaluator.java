@@ -44,7 +44,7 @@ import groovy.transform.CompileStatic;
  * @author Radovan Semancik
  * "Sandboxing" based on type checking inspired by work of Cédric Champeau (http://melix.github.io/blog/2015/03/sandboxing.html)
  */
-public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<GroovyClassLoader, Class<?>> {
+public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<CompilerConfiguration, Class<?>> {
 
     public static final String LANGUAGE_NAME = "Groovy";
     public static final String LANGUAGE_URL = MidPointConstants.EXPRESSION_LANGUAGE_URL_BASE + LANGUAGE_NAME;
@@ -99,10 +99,15 @@ public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<Groovy
         }
     }
 
+    /**
+     * Each script is compiled by its own class loader. The cache keeps the class (and therefore its loader)
+     * reachable; when the script is evicted from the cache, both can be garbage collected, so scripts generated
+     * at runtime do not fill the metaspace.
+     */
     @Override
     protected Class<?> compileScript(String codeString, ScriptExpressionEvaluationContext context) throws ExpressionEvaluationException, SecurityViolationException {
         try {
-            return getGroovyLoader(context).parseClass(codeString, context.getContextDescription());
+            return createGroovyLoader(context).parseClass(codeString, context.getContextDescription());
         } catch (MultipleCompilationErrorsException e) {
             String sandboxErrorMessage = getSandboxError(e);
             if (sandboxErrorMessage == null) {
@@ -115,22 +120,25 @@ public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<Groovy
         }
     }
 
+    @Override
+    protected void releaseCompiledScript(Class<?> compiledScriptClass) {
+        // Releases the meta class Groovy keeps for the script class, so the class can be unloaded.
+        InvokerHelper.removeClass(compiledScriptClass);
+    }
 
-    private GroovyClassLoader getGroovyLoader(ScriptExpressionEvaluationContext context) throws SecurityViolationException {
-        GroovyClassLoader groovyClassLoader = getScriptCache().getInterpreter(context.getExpressionProfile());
-        if (groovyClassLoader != null) {
-            return groovyClassLoader;
-        }
-        ScriptExpressionProfile scriptExpressionProfile = context.getScriptExpressionProfile();
-        groovyClassLoader = createGroovyLoader(scriptExpressionProfile, context);
-        getScriptCache().putInterpreter(context.getExpressionProfile(), groovyClassLoader);
-        return groovyClassLoader;
+    private GroovyClassLoader createGroovyLoader(ScriptExpressionEvaluationContext context) throws SecurityViolationException {
+        return new GroovyClassLoader(GroovyScriptEvaluator.class.getClassLoader(), getCompilerConfiguration(context));
     }
 
-    private GroovyClassLoader createGroovyLoader(ScriptExpressionProfile expressionProfile, ScriptExpressionEvaluationContext context) throws SecurityViolationException {
-        CompilerConfiguration compilerConfiguration = new CompilerConfiguration(CompilerConfiguration.DEFAULT);
-        configureCompiler(compilerConfiguration, expressionProfile, context);
-        return new GroovyClassLoader(GroovyScriptEvaluator.class.getClassLoader(), compilerConfiguration);
+    private CompilerConfiguration getCompilerConfiguration(ScriptExpressionEvaluationContext context) throws SecurityViolationException {
+        CompilerConfiguration compilerConfiguration = getScriptCache().getInterpreter(context.getExpressionProfile());
+        if (compilerConfiguration != null) {
+            return compilerConfiguration;
+        }
+        compilerConfiguration = new CompilerConfiguration(CompilerConfiguration.DEFAULT);
+        configureCompiler(compilerConfiguration, context.getScriptExpressionProfile(), context);
+        getScriptCache().putInterpreter(context.getExpressionProfile(), compilerConfiguration);
+        return compilerConfiguration;
     }
 
     private void configureCompiler(CompilerConfiguration compilerConfiguration, ScriptExpressionProfile scriptExpressionProfile, ScriptExpressionEvaluationContext context) throws SecurityViolationException {
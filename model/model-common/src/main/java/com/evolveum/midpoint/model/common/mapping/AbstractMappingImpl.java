@@ -310,6 +310,11 @@ public abstract class AbstractMappingImpl<V extends PrismValue, D extends ItemDe
      */
     private Long evaluationEndTime;
 
+    /**
+     * Number of value combinations transformed by the expression (in combinatorial mode).
+     */
+    private long valueCombinations;
+
     /**
      * Parent context description with added information about this mapping.
      * Lazily evaluated.
@@ -535,6 +540,10 @@ public abstract class AbstractMappingImpl<V extends PrismValue, D extends ItemDe
         return profiling;
     }
 
+    public long getValueCombinations() {
+        return valueCombinations;
+    }
+
     public Long getEtime() {
         if (evaluationStartTime == null || evaluationEndTime == null) {
             return null;
@@ -1173,7 +1182,11 @@ public abstract class AbstractMappingImpl<V extends PrismValue, D extends ItemDe
             mappingPreExpression.mappingPreExpression(context, result);
         }
 
-        outputTriple = expression.evaluate(context, result);
+        try {
+            outputTriple = expression.evaluate(context, result);
+        } finally {
+            valueCombinations = context.getValueCombinations();
+        }
 
         if (outputTriple == null) {
 
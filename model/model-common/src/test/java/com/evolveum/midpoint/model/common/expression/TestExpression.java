@@ -362,6 +362,89 @@ public class TestExpression extends AbstractModelCommonTest {
         assertScriptExecutionIncrement(1);
     }
 
+    /**
+     * Parsed expressions should be found by identity of the expression bean. Entries for bean instances
+     * that are no longer used should go away.
+     */
+    @Test
+    public void test900ExpressionLookupByIdentity() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        expressionFactory.invalidate(null, null, null);
+        PrismPropertyDefinition<String> outputDefinition = prismContext.definitionFactory().createPropertyDefinition(
+                ExpressionConstants.OUTPUT_ELEMENT_NAME, PrimitiveType.STRING.getQname());
+        ExpressionType bean = parseExpression(EXPRESSION_VALUE_FILE);
+
+        when("expression is created and then looked up by the same bean");
+        Expression<?, ?> expression = expressionFactory.makeExpression(bean, outputDefinition, getExpressionProfile(),
+                getTestNameShort(), null, result);
+        Expression<?, ?> expressionAgain = expressionFactory.makeExpression(bean, outputDefinition, getExpressionProfile(),
+                getTestNameShort(), null, result);
+
+        then("the same expression is returned via the identity lookup");
+        assertSame("Different expression returned", expression, expressionAgain);
+        assertEquals("Wrong # of beans cached by identity", 1, expressionFactory.getExpressionsByBeanSize());
+
+        when("expression is looked up by another (equal) instance of the bean");
+        ExpressionType beanCopy = parseExpression(EXPRESSION_VALUE_FILE);
+        Expression<?, ?> expressionForCopy = expressionFactory.makeExpression(beanCopy, outputDefinition,
+                getExpressionProfile(), getTestNameShort(), null, result);
+
+        then("the same expression is returned (by equality) and the copy is cached by identity");
+        assertSame("Different expression returned for the copy", expression, expressionForCopy);
+        assertEquals("Wrong # of beans cached by identity", 2, expressionFactory.getExpressionsByBeanSize());
+
+        when("the copy is no longer used");
+        //noinspection UnusedAssignment
+        beanCopy = null;
+        //noinspection UnusedAssignment
+        expressionForCopy = null;
+        long size = expressionFactory.getExpressionsByBeanSize();
+        for (int attempt = 0; attempt < 50 && size > 1; attempt++) {
+            System.gc();
+            Thread.sleep(100);
+            size = expressionFactory.getExpressionsByBeanSize();
+        }
+
+        then("the entry for the copy goes away");
+        assertEquals("Entry for unused bean was not removed", 1, size);
+        assertSame("Expression for the original bean is not cached", expression,
+                expressionFactory.makeExpression(bean, outputDefinition, getExpressionProfile(), getTestNameShort(),
+                        null, result));
+    }
+
+    /**
+     * Expression bean is changed in place after the expression was created from it: the old expression
+     * must not be returned by the identity lookup.
+     */
+    @Test
+    public void test910ExpressionBeanModifiedInPlace() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        expressionFactory.invalidate(null, null, null);
+        PrismPropertyDefinition<String> outputDefinition = prismContext.definitionFactory().createPropertyDefinition(
+                ExpressionConstants.OUTPUT_ELEMENT_NAME, PrimitiveType.STRING.getQname());
+        ExpressionType bean = parseExpression(EXPRESSION_VALUE_FILE);
+        Expression<?, ?> expression = expressionFactory.makeExpression(bean, outputDefinition, getExpressionProfile(),
+                getTestNameShort(), null, result);
+
+        when("the bean is modified and the expression is looked up again");
+        bean.setDescription("modified in place");
+        Expression<?, ?> expressionAfterChange = expressionFactory.makeExpression(bean, outputDefinition,
+                getExpressionProfile(), getTestNameShort(), null, result);
+
+        then("a new expression is created");
+        assertNotSame("Outdated expression returned", expression, expressionAfterChange);
+
+        when("the expression is looked up once more");
+        Expression<?, ?> expressionAgain = expressionFactory.makeExpression(bean, outputDefinition,
+                getExpressionProfile(), getTestNameShort(), null, result);
+
+        then("the new expression is found by identity");
+        assertSame("Different expression returned", expressionAfterChange, expressionAgain);
+        assertEquals("Wrong # of beans cached by identity", 1, expressionFactory.getExpressionsByBeanSize());
+    }
+
     protected ExpressionType parseExpression(File file) throws SchemaException, IOException {
         return PrismTestUtil.parseAtomicValue(file, ExpressionType.COMPLEX_TYPE);
     }
@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.model.common.expression.script;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
@@ -14,8 +15,16 @@ import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.namespace.QName;
 
 import org.testng.AssertJUnit;
@@ -122,6 +131,100 @@ public class TestScriptCaching extends AbstractUnitTest
         assertTrue("Even Horatio was wrong! " + horatio1Time + " -> " + horatio2Time, horatio2Time <= horatio1Time);
     }
 
+    @Test
+    public void testEviction() {
+        given();
+        List<String> evicted = new ArrayList<>();
+        ScriptCache<Object, String> cache = new ScriptCache<>(10, evicted::add);
+
+        when();
+        for (int i = 0; i < 10; i++) {
+            cache.putCode(null, "script" + i, "code" + i);
+        }
+        // Using the oldest entry, so it is not evicted.
+        assertEquals("Wrong cached code", "code0", cache.getCode(null, "script0"));
+        cache.putCode(null, "script10", "code10");
+
+        then();
+        displayValue("Evicted", evicted);
+        assertEquals("Wrong cache size", 9, cache.size());
+        assertEquals("Wrong evicted code", Arrays.asList("code1", "code2"), evicted);
+        assertEquals("Wrong number of evictions", 2, cache.getEvictions());
+        assertEquals("Wrong cached code", "code0", cache.getCode(null, "script0"));
+        assertEquals("Wrong cached code", "code10", cache.getCode(null, "script10"));
+        assertNull("Evicted code is still cached", cache.getCode(null, "script1"));
+    }
+
+    /**
+     * Evicts entries while other threads keep reading them (changing their access times).
+     * Every code put into the cache must be either still cached or released exactly once.
+     */
+    @Test
+    public void testConcurrentEviction() throws Exception {
+        given();
+        Set<String> evicted = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicateEvictions = new AtomicInteger();
+        ScriptCache<Object, String> cache = new ScriptCache<>(50, code -> {
+            if (!evicted.add(code)) {
+                duplicateEvictions.incrementAndGet();
+            }
+        });
+        for (int i = 0; i < 50; i++) {
+            cache.putCode(null, "script" + i, "code" + i);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                Random random = new Random();
+                while (running.get()) {
+                    try {
+                        cache.getCode(null, "script" + random.nextInt(50));
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        when();
+        try {
+            for (int i = 50; i < 5000; i++) {
+                cache.putCode(null, "script" + i, "code" + i);
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        then();
+        assertEquals("Failures in readers: " + failures, 0, failures.size());
+        assertEquals("Duplicate evictions", 0, duplicateEvictions.get());
+        assertTrue("Cache is too large: " + cache.size(), cache.size() <= 50);
+        assertEquals("Wrong number of cached + evicted entries", 5000, cache.size() + evicted.size());
+    }
+
+    @Test
+    public void testClear() {
+        given();
+        List<String> evicted = new ArrayList<>();
+        ScriptCache<Object, String> cache = new ScriptCache<>(10, evicted::add);
+        cache.putCode(null, "script1", "code1");
+        cache.putCode(null, "script2", "code2");
+
+        when();
+        cache.clear();
+
+        then();
+        assertEquals("Wrong cache size", 0, cache.size());
+        assertEquals("Wrong released code", new HashSet<>(Arrays.asList("code1", "code2")), new HashSet<>(evicted));
+    }
+
     private void assertScriptMonitor(int expCompilations, int expExecutions, String desc) {
         assertEquals("Unexpected number of script compilations after " + desc, expCompilations, InternalMonitor.getCount(InternalCounters.SCRIPT_COMPILE_COUNT));
         assertEquals("Unexpected number of script executions after " + desc, expExecutions, InternalMonitor.getCount(InternalCounters.SCRIPT_EXECUTION_COUNT));
@@ -637,6 +637,9 @@ public class TestMappingDynamicSimple extends AbstractModelCommonTest {
         PrismAsserts.assertTripleNoZero(outputTriple);
         PrismAsserts.assertTriplePlus(outputTriple, PrismTestUtil.createPolyString("Sparrow"));
         PrismAsserts.assertTripleMinus(outputTriple, PrismTestUtil.createPolyString("Jack Sparrow"));
+
+        // (null, Sparrow) for plus set, (Jack, Sparrow) for minus set
+        assertEquals("Wrong number of value combinations", 2, mapping.getValueCombinations());
     }
 
     /**
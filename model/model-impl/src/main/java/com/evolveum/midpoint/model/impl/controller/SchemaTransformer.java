@@ -668,7 +668,8 @@ public class SchemaTransformer {
             return;
         }
         for (ObjectReferenceType includeRef: objectTemplateType.getIncludeRef()) {
-            PrismObject<ObjectTemplateType> subTemplate = cacheRepositoryService.getObject(ObjectTemplateType.class, includeRef.getOid(), null, result);
+            PrismObject<ObjectTemplateType> subTemplate = cacheRepositoryService.getObject(ObjectTemplateType.class, includeRef.getOid(),
+                    GetOperationOptions.createReadOnlyCollection(), result);
             applyObjectTemplateToDefinition(objectDefinition, subTemplate.asObjectable(), result);
         }
         for (ObjectTemplateItemDefinitionType templateItemDefType: objectTemplateType.getItem()) {
@@ -693,7 +694,8 @@ public class SchemaTransformer {
             return;
         }
         for (ObjectReferenceType includeRef: objectTemplateType.getIncludeRef()) {
-            PrismObject<ObjectTemplateType> subTemplate = cacheRepositoryService.getObject(ObjectTemplateType.class, includeRef.getOid(), null, result);
+            PrismObject<ObjectTemplateType> subTemplate = cacheRepositoryService.getObject(ObjectTemplateType.class, includeRef.getOid(),
+                    GetOperationOptions.createReadOnlyCollection(), result);
             applyObjectTemplateToObject(object, subTemplate.asObjectable(), result);
         }
         for (ObjectTemplateItemDefinitionType templateItemDefType: objectTemplateType.getItem()) {
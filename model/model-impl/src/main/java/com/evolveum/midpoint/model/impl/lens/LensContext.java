@@ -186,6 +186,13 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
      */
     private transient Map<String, ResourceType> resourceCache;
 
+    /**
+     * Numbers of assignees of abstract roles, as determined when evaluating multiplicity policy constraints.
+     * Constraints are evaluated repeatedly during the operation (e.g. in each projector run), so we remember
+     * the numbers to avoid repeated count queries against the repository. Keys are created by the evaluator.
+     */
+    private transient Map<String, Integer> assigneeCountCache;
+
     private transient PrismContext prismContext;
 
     private transient ProvisioningService provisioningService;
@@ -936,6 +943,20 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         getResourceCache().put(resourceType.getOid(), resourceType);
     }
 
+    /**
+     * Returns number of assignees remembered by {@link #rememberAssigneeCount(String, int)}, or null if there is none.
+     */
+    public Integer getAssigneeCount(String key) {
+        return assigneeCountCache != null ? assigneeCountCache.get(key) : null;
+    }
+
+    public void rememberAssigneeCount(String key, int count) {
+        if (assigneeCountCache == null) {
+            assigneeCountCache = new HashMap<>();
+        }
+        assigneeCountCache.put(key, count);
+    }
+
     /**
      * Cleans up the contexts by removing some of the working state. The current
      * wave number is retained. Otherwise it ends up in endless loop.
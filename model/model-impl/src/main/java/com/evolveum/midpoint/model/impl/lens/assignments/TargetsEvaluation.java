@@ -10,6 +10,7 @@ package com.evolveum.midpoint.model.impl.lens.assignments;
 import static com.evolveum.midpoint.model.api.util.ReferenceResolver.Source.REPOSITORY;
 import static com.evolveum.midpoint.model.impl.lens.assignments.Util.isChanged;
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
+import static com.evolveum.midpoint.schema.GetOperationOptions.createReadOnlyCollection;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -201,7 +202,9 @@ class TargetsEvaluation<AH extends AssignmentHolderType> extends AbstractEvaluat
             CommunicationException, ConfigurationException, SecurityViolationException {
         ObjectReferenceType targetRef = segment.assignment.getTargetRef();
         ReferenceResolver.FilterEvaluator filterEvaluator = createFilterEvaluator(segment, ctx);
-        return ctx.ae.referenceResolver.resolve(targetRef, null, REPOSITORY, filterEvaluator, ctx.task, result);
+        // Targets are only read during the evaluation, so we can use the (immutable) objects shared by the repository cache
+        // instead of getting a private copy of each of them.
+        return ctx.ae.referenceResolver.resolve(targetRef, createReadOnlyCollection(), REPOSITORY, filterEvaluator, ctx.task, result);
     }
 
     @NotNull
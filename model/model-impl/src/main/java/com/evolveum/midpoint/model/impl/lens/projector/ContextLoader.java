@@ -607,7 +607,9 @@ public class ContextLoader implements ProjectorProcessor {
         if (!java.util.Objects.equals(currentOid, newOid)) {
             ObjectTemplateType template;
             if (newOid != null) {
-                template = cacheRepositoryService.getObject(ObjectTemplateType.class, newOid, null, result).asObjectable();
+                // The template is not modified during the processing, so the instance shared by the repository cache is sufficient.
+                template = cacheRepositoryService.getObject(ObjectTemplateType.class, newOid,
+                        GetOperationOptions.createReadOnlyCollection(), result).asObjectable();
             } else {
                 template = null;
             }
@@ -6,9 +6,13 @@
  */
 package com.evolveum.midpoint.model.impl.lens.projector.focus;
 
+import static com.evolveum.midpoint.schema.GetOperationOptions.createReadOnlyCollection;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -39,12 +43,14 @@ import com.evolveum.midpoint.schema.util.FocusTypeUtil;
 import com.evolveum.midpoint.schema.util.SchemaDebugUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.LifecycleStateModelType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -58,6 +64,7 @@ public class AssignmentTripleEvaluator<AH extends AssignmentHolderType> {
     private static final Trace LOGGER = TraceManager.getTrace(AssignmentTripleEvaluator.class);
 
     private static final String OP_EVALUATE_ASSIGNMENT = AssignmentTripleEvaluator.class.getName()+".evaluateAssignment";
+    private static final String OP_PREFETCH_ASSIGNMENT_TARGETS = AssignmentTripleEvaluator.class.getName()+".prefetchAssignmentTargets";
 
     private final LensContext<AH> context;
     private final LensFocusContext<AH> focusContext;
@@ -119,6 +126,8 @@ public class AssignmentTripleEvaluator<AH extends AssignmentHolderType> {
 
         LOGGER.trace("Assignment collection:\n{}", assignmentCollection.debugDumpLazily(1));
 
+        prefetchAssignmentTargets(assignmentCollection);
+
         // Iterate over all the assignments. I mean really all. This is a union of the existing and changed assignments
         // therefore it contains all three types of assignments (plus, minus and zero). As it is an union each assignment
         // will be processed only once. Inside the loop we determine whether it was added, deleted or remains unchanged.
@@ -133,6 +142,32 @@ public class AssignmentTripleEvaluator<AH extends AssignmentHolderType> {
         return evaluatedAssignmentTriple;
     }
 
+    /**
+     * Assignment targets are resolved one by one when assignments are evaluated. Here we load all of them
+     * by a single bulk repository call, so the individual resolutions can be served from the repository cache.
+     * This is only an optimization, so any failure is just logged.
+     */
+    private void prefetchAssignmentTargets(SmartAssignmentCollection<AH> assignmentCollection) {
+        Set<String> targetOids = new HashSet<>();
+        for (SmartAssignmentElement assignmentElement : assignmentCollection) {
+            ObjectReferenceType targetRef = assignmentElement.getAssignmentCVal().asContainerable().getTargetRef();
+            if (targetRef != null && targetRef.getOid() != null && targetRef.asReferenceValue().getObject() == null) {
+                targetOids.add(targetRef.getOid());
+            }
+        }
+        if (targetOids.size() < 2) {
+            return; // nothing to gain here
+        }
+        OperationResult prefetchResult = result.createMinorSubresult(OP_PREFETCH_ASSIGNMENT_TARGETS);
+        try {
+            beans.cacheRepositoryService.getObjects(ObjectType.class, targetOids, createReadOnlyCollection(), prefetchResult);
+            prefetchResult.computeStatus();
+        } catch (SchemaException | RuntimeException e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't prefetch assignment targets for {}", e, source);
+            prefetchResult.recordWarning("Couldn't prefetch assignment targets: " + e.getMessage(), e);
+        }
+    }
+
     @NotNull
     private Collection<AssignmentType> getVirtualAssignments() throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
         Collection<AssignmentType> forcedAssignments = LensUtil.getForcedAssignments(focusContext.getLifecycleModel(),
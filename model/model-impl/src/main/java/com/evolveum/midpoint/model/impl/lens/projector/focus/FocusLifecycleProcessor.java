@@ -113,7 +113,7 @@ public class FocusLifecycleProcessor implements ProjectorProcessor {
         // TODO: more variables?
 
         Expression<PrismPropertyValue<Boolean>,PrismPropertyDefinition<Boolean>> expression = expressionFactory.makeExpression(
-                conditionExpressionType, ExpressionUtil.createConditionOutputDefinition(context.getPrismContext()),
+                conditionExpressionType, expressionFactory.getConditionOutputDefinition(),
                 MiscSchemaUtil.getExpressionProfile(), desc, task, result);
         ExpressionEvaluationContext expressionContext = new ExpressionEvaluationContext(null , variables, desc, task);
         ExpressionEnvironment<?,?,?> env = new ExpressionEnvironment<>(context, null, task, result);
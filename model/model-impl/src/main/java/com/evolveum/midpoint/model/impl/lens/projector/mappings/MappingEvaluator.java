@@ -106,7 +106,8 @@ public class MappingEvaluator {
             task.recordState("Evaluation of mapping " + mapping.getMappingContextDescription() + " finished with error in " + (System.currentTimeMillis() - start) + " ms.");
             throw new IllegalArgumentException(e.getMessage() + " in " + mapping.getContextDescription(), e);
         } finally {
-            task.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, System.currentTimeMillis() - start);
+            task.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, System.currentTimeMillis() - start,
+                    mapping.getValueCombinations());
             ModelExpressionThreadLocalHolder.popExpressionEnvironment();
             if (lensContext.getInspector() != null) {
                 lensContext.getInspector().afterMappingEvaluation(lensContext, mapping);
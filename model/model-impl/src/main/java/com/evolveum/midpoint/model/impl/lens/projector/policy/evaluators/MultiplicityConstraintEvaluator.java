@@ -108,7 +108,6 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
         if (!isMin && !isMax) {
             throw new AssertionError("!isMin and !isMax");
         }
-        // TODO cache repository call results
         if (isMin) {
             Integer requiredMultiplicity = XsdTypeMapper.multiplicityToInteger(constraint.getValue().getMultiplicity());
             if (requiredMultiplicity == null) {
@@ -118,7 +117,7 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
                 return null;            // unbounded or 0
             }
             for (QName relationToCheck : relationsToCheck) {
-                int currentAssignees = getNumberOfAssigneesExceptMyself(targetRole, null, relationToCheck, result);
+                int currentAssignees = getNumberOfAssigneesExceptMyself(ctx.lensContext, targetRole, null, relationToCheck, result);
                 if (currentAssignees < requiredMultiplicity) {
                     return new EvaluatedMultiplicityTrigger(PolicyConstraintKindType.MIN_ASSIGNEES_VIOLATION,
                             constraint.getValue(),
@@ -138,7 +137,7 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
                 return null;            // unbounded
             }
             for (QName relationToCheck : relationsToCheck) {
-                int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(targetRole, null, relationToCheck, result);
+                int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(ctx.lensContext, targetRole, null, relationToCheck, result);
                 if (currentAssigneesExceptMyself >= requiredMultiplicity) {
                     return new EvaluatedMultiplicityTrigger(PolicyConstraintKindType.MAX_ASSIGNEES_VIOLATION,
                             constraint.getValue(),
@@ -188,15 +187,17 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
         if (!isMin && !isMax) {
             throw new AssertionError("!isMin and !isMax");
         }
-        // TODO cache repository call results
         Integer requiredMultiplicity = XsdTypeMapper.multiplicityToInteger(constraint.getValue().getMultiplicity());
         if (isMin) {
             if (requiredMultiplicity <= 0) {
                 return null;            // unbounded or 0
             }
-            // Complain only if the situation is getting worse
-            int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(targetRole, focusOid, relation, result);
-            if (currentAssigneesExceptMyself < requiredMultiplicity && plusMinus == PlusMinusZero.MINUS) {
+            // Complain only if the situation is getting worse. We do not need to count the assignees otherwise.
+            if (plusMinus != PlusMinusZero.MINUS) {
+                return null;
+            }
+            int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(context, targetRole, focusOid, relation, result);
+            if (currentAssigneesExceptMyself < requiredMultiplicity) {
                 return new EvaluatedMultiplicityTrigger(PolicyConstraintKindType.MIN_ASSIGNEES_VIOLATION,
                         constraint.getValue(),
                         getMessage(constraint, ctx, result, KEY_MIN, KEY_TARGET, targetRole.asPrismObject(),
@@ -210,9 +211,12 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
             if (requiredMultiplicity < 0) {
                 return null;            // unbounded
             }
-            // Complain only if the situation is getting worse
-            int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(targetRole, focusOid, relation, result);
-            if (currentAssigneesExceptMyself >= requiredMultiplicity && plusMinus == PLUS) {
+            // Complain only if the situation is getting worse. We do not need to count the assignees otherwise.
+            if (plusMinus != PLUS) {
+                return null;
+            }
+            int currentAssigneesExceptMyself = getNumberOfAssigneesExceptMyself(context, targetRole, focusOid, relation, result);
+            if (currentAssigneesExceptMyself >= requiredMultiplicity) {
                 return new EvaluatedMultiplicityTrigger(PolicyConstraintKindType.MAX_ASSIGNEES_VIOLATION,
                         constraint.getValue(),
                         getMessage(constraint, ctx, result, KEY_MAX, KEY_TARGET, targetRole.asPrismObject(),
@@ -237,12 +241,20 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
 
     /**
      * Returns numbers of assignees with the given relation name.
+     *
+     * The number is determined once per operation (lens context): constraints are evaluated repeatedly
+     * during the operation, and the count query can be expensive for roles with many members.
      */
-    private int getNumberOfAssigneesExceptMyself(AbstractRoleType target, String selfOid, QName relation, OperationResult result)
-            throws SchemaException {
+    private int getNumberOfAssigneesExceptMyself(LensContext<?> context, AbstractRoleType target, String selfOid,
+            QName relation, OperationResult result) throws SchemaException {
         if (target.getOid() == null) {
             return 0;
         }
+        String key = target.getOid() + " " + QNameUtil.qNameToUri(relation) + " " + selfOid;
+        Integer cached = context.getAssigneeCount(key);
+        if (cached != null) {
+            return cached;
+        }
         S_AtomicFilterExit q = prismContext.queryFor(FocusType.class)
                 .item(FocusType.F_ASSIGNMENT, AssignmentType.F_TARGET_REF).ref(
                         prismContext.itemFactory().createReferenceValue(target.getOid()).relation(relation));
@@ -250,7 +262,9 @@ public class MultiplicityConstraintEvaluator implements PolicyConstraintEvaluato
             q = q.and().not().id(selfOid);
         }
         ObjectQuery query = q.build();
-        return repositoryService.countObjects(FocusType.class, query, null, result);
+        int count = repositoryService.countObjects(FocusType.class, query, null, result);
+        context.rememberAssigneeCount(key, count);
+        return count;
     }
 
     private <AH extends AssignmentHolderType> LocalizableMessage getMessage(JAXBElement<MultiplicityPolicyConstraintType> constraintElement,
@@ -6,6 +6,11 @@
  */
 package com.evolveum.midpoint.model.impl.sync;
 
+import static com.evolveum.midpoint.schema.GetOperationOptions.createReadOnlyCollection;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.annotation.PostConstruct;
 
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
@@ -91,6 +96,12 @@ public class RecomputeTaskHandler extends AbstractSearchIterativeModelTaskHandle
                 return true;
             }
 
+            @Override
+            protected void prepareBatch(List<PrismObject<FocusType>> objects, RunningTask workerTask, OperationResult result)
+                    throws SchemaException {
+                preloadReferencedObjects(objects, result);
+            }
+
         };
         handler.setStopOnError(false);
         return handler;
@@ -106,6 +117,38 @@ public class RecomputeTaskHandler extends AbstractSearchIterativeModelTaskHandle
         }
     }
 
+    /**
+     * Loads linked shadows and assignment targets of all objects in the batch using a couple of bulk reads.
+     * The objects get into thread-local repository caches (if enabled for respective types), so the clockwork
+     * finds them there when processing individual focal objects.
+     */
+    private void preloadReferencedObjects(List<PrismObject<FocusType>> objects, OperationResult result)
+            throws SchemaException {
+        Set<String> shadowOids = new HashSet<>();
+        Set<String> targetOids = new HashSet<>();
+        for (PrismObject<FocusType> object : objects) {
+            FocusType focus = object.asObjectable();
+            for (ObjectReferenceType linkRef : focus.getLinkRef()) {
+                if (linkRef.getOid() != null) {
+                    shadowOids.add(linkRef.getOid());
+                }
+            }
+            for (AssignmentType assignment : focus.getAssignment()) {
+                if (assignment.getTargetRef() != null && assignment.getTargetRef().getOid() != null) {
+                    targetOids.add(assignment.getTargetRef().getOid());
+                }
+            }
+        }
+        LOGGER.trace("Preloading {} shadow(s) and {} assignment target(s) for {} object(s)", shadowOids.size(),
+                targetOids.size(), objects.size());
+        if (!shadowOids.isEmpty()) {
+            repositoryService.getObjects(ShadowType.class, shadowOids, createReadOnlyCollection(), result);
+        }
+        if (!targetOids.isEmpty()) {
+            repositoryService.getObjects(ObjectType.class, targetOids, createReadOnlyCollection(), result);
+        }
+    }
+
     private void recompute(PrismObject<FocusType> focalObject, ModelExecuteOptions options, Task task, TaskPartitionDefinitionType partition, OperationResult result) throws SchemaException,
             ObjectNotFoundException, ExpressionEvaluationException, CommunicationException, ObjectAlreadyExistsException,
             ConfigurationException, PolicyViolationException, SecurityViolationException, PreconditionViolationException {
@@ -24,6 +24,8 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.test.DummyResourceContoller;
+import com.evolveum.midpoint.test.TestResource;
+import com.evolveum.midpoint.test.asserter.RepoOpAsserter;
 import com.evolveum.midpoint.test.util.TestUtil;
 import com.evolveum.midpoint.util.LocalizableMessage;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
@@ -32,6 +34,7 @@ import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -52,6 +55,8 @@ public class TestPolicyRules extends AbstractLensTest {
 
     private static final String ROLE_JUDGE_POLICY_RULE_EXCLUSION_NAME = "criminal exclusion";
 
+    private static final TestResource ROLE_LIMITED = new TestResource(TEST_DIR, "role-limited.xml", "0b3a2b1c-4f5e-4b8a-9d2c-7e6f5a4b3c21");
+
     @Override
     public void initSystem(Task initTask, OperationResult initResult) throws Exception {
         super.initSystem(initTask, initResult);
@@ -69,6 +74,7 @@ public class TestPolicyRules extends AbstractLensTest {
 
         addObject(USER_LOCALIZED, initTask, initResult);
         addObject(ROLE_LOCALIZED, initTask, initResult);
+        addObject(ROLE_LIMITED, initTask, initResult);
 
         assumeAssignmentPolicy(AssignmentPolicyEnforcementType.FULL);
 
@@ -643,6 +649,98 @@ public class TestPolicyRules extends AbstractLensTest {
         assertEquals("Wrong SK message", messageSk, "Priradenie pre rola \"Lokalizovana rola\" (vztah default) ma byt pridane");
     }
 
+    /**
+     * Adding an assignment can only violate maxAssignees constraints. The assignees should be counted once,
+     * even if there are more such constraints for the same relation. The minAssignees constraints
+     * should not need any count at all.
+     */
+    @Test
+    public void test500AssignRoleLimitedToJack() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = getTestOperationResult();
+
+        // GIVEN
+
+        LensContext<UserType> context = createUserLensContext();
+        fillContextWithUser(context, USER_JACK_OID, result);
+        addModificationToContextAssignRole(context, USER_JACK_OID, ROLE_LIMITED.oid);
+
+        displayDumpable("Input context", context);
+
+        assertFocusModificationSanity(context);
+
+        repositoryService.getPerformanceMonitor().startThreadLocalPerformanceInformationCollection();
+
+        // WHEN
+        when();
+        projector.project(context, "test", task, result);
+
+        // THEN
+        then();
+        result.computeStatus();
+        TestUtil.assertSuccess(result);
+
+        RepoOpAsserter repoOpAsserter = createRepoOpAsserter().display();
+        repositoryService.getPerformanceMonitor().stopThreadLocalPerformanceInformationCollection();
+
+        dumpPolicyRules(context);
+
+        repoOpAsserter.assertOp("countObjects", 1);
+
+        List<EvaluatedPolicyRuleTrigger<?>> triggers = new ArrayList<>();
+        forTriggeredTargetPolicyRule(context, ROLE_LIMITED.oid, triggers::add);
+        assertEquals("Unexpected triggers: " + triggers, 0, triggers.size());
+    }
+
+    /**
+     * Deleting an assignment can only violate minAssignees constraints. Again, one count should be sufficient.
+     */
+    @Test
+    public void test510UnassignRoleLimitedFromJack() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = getTestOperationResult();
+
+        // GIVEN
+
+        assignRole(USER_JACK_OID, ROLE_LIMITED.oid, task, result);
+        assertAssignedRole(getUser(USER_JACK_OID), ROLE_LIMITED.oid);
+
+        LensContext<UserType> context = createUserLensContext();
+        fillContextWithUser(context, USER_JACK_OID, result);
+        addModificationToContextUnassignRole(context, USER_JACK_OID, ROLE_LIMITED.oid);
+
+        displayDumpable("Input context", context);
+
+        assertFocusModificationSanity(context);
+
+        repositoryService.getPerformanceMonitor().startThreadLocalPerformanceInformationCollection();
+
+        // WHEN
+        when();
+        projector.project(context, "test", task, result);
+
+        // THEN
+        then();
+        result.computeStatus();
+        TestUtil.assertSuccess(result);
+
+        RepoOpAsserter repoOpAsserter = createRepoOpAsserter().display();
+        repositoryService.getPerformanceMonitor().stopThreadLocalPerformanceInformationCollection();
+
+        dumpPolicyRules(context);
+
+        repoOpAsserter.assertOp("countObjects", 1);
+
+        EvaluatedPolicyRuleTrigger<?> trigger = assertTriggeredTargetPolicyRule(context, ROLE_LIMITED.oid,
+                PolicyConstraintKindType.OR, 1, true);
+        Collection<EvaluatedPolicyRuleTrigger<?>> innerTriggers = ((EvaluatedCompositeTrigger) trigger).getInnerTriggers();
+        assertEquals("Wrong # of inner triggers: " + innerTriggers, 2, innerTriggers.size());
+        for (EvaluatedPolicyRuleTrigger<?> innerTrigger : innerTriggers) {
+            assertEquals("Wrong inner trigger kind", PolicyConstraintKindType.MIN_ASSIGNEES_VIOLATION,
+                    innerTrigger.getConstraintKind());
+        }
+    }
+
     private ObjectDelta<ShadowType> assertAssignAccountToJack(LensContext<UserType> context) {
         displayDumpable("Output context", context);
 
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.intest;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.common.task.AbstractSearchIterativeResultHandler;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.RunningTask;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.DummyTestResource;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests processing of objects in batches (processingBatchSize) by AbstractSearchIterativeResultHandler,
+ * both in the coordinator thread and in worker threads, the recompute task that preloads
+ * referenced objects for each batch, and the import task with resource objects processed
+ * by multiple threads (resourceObjectProcessingThreads).
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-intest-test-main.xml" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestIterativeTaskBatches extends AbstractEmptyModelIntegrationTest {
+
+    private static final File TEST_DIR = new File("src/test/resources/iterative-tasks");
+
+    private static final File TASK_RECOMPUTE_BATCHED_FILE = new File(TEST_DIR, "task-recompute-batched.xml");
+    private static final String TASK_RECOMPUTE_BATCHED_OID = "0b8e1e2c-3b8e-4d4f-9c1d-6f5b0a7e2c41";
+
+    private static final DummyTestResource RESOURCE_DUMMY_IMPORT = new DummyTestResource(TEST_DIR,
+            "resource-dummy-import.xml", "5a8d2f0e-6c1b-4c53-9b7e-2d4f8e1a6c37", "import");
+    private static final File TASK_IMPORT_PROCESSING_THREADS_FILE = new File(TEST_DIR, "task-import-processing-threads.xml");
+    private static final String TASK_IMPORT_PROCESSING_THREADS_OID = "8c3e6a1d-2f4b-4e7a-a9d0-5b1c7e3f9a24";
+
+    private static final String OP_PREFIX = TestIterativeTaskBatches.class.getName();
+
+    private static final int BATCH_SIZE = 4;
+    private static final int OBJECTS = 10;              // not a multiple of BATCH_SIZE, so the last batch is incomplete
+    private static final int WORKER_THREADS = 2;
+
+    private static final int USERS = 10;
+    private static final int ACCOUNTS = 25;
+
+    private final List<String> userOids = new ArrayList<>();
+    private String roleOid;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        RoleType role = new RoleType(prismContext)
+                .name("batch-role");
+        roleOid = repositoryService.addObject(role.asPrismObject(), null, initResult);
+
+        for (int i = 0; i < USERS; i++) {
+            UserType user = new UserType(prismContext)
+                    .name(String.format("batch-%02d", i))
+                    .subtype("batch")
+                    .beginAssignment()
+                        .targetRef(roleOid, RoleType.COMPLEX_TYPE)
+                    .end();
+            userOids.add(repositoryService.addObject(user.asPrismObject(), null, initResult));
+        }
+
+        initDummyResource(RESOURCE_DUMMY_IMPORT, initTask, initResult);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            RESOURCE_DUMMY_IMPORT.controller.addAccount(getImportedAccountName(i));
+        }
+    }
+
+    /**
+     * Objects are processed by the coordinator in batches. The last (incomplete) batch is processed
+     * only when the processing is completed.
+     */
+    @Test
+    public void test100SingleThreaded() throws Exception {
+        given();
+        RunningTask task = createRunningTask(null);
+        OperationResult result = createOperationResult();
+        RecordingHandler handler = new RecordingHandler(task);
+        handler.createWorkerThreads(task);
+
+        when();
+        for (int i = 0; i < OBJECTS; i++) {
+            assertTrue("Handler requested stop", handler.handle(createObject(i), result));
+        }
+
+        then();
+        assertEquals("Wrong batches before completion", Arrays.asList(BATCH_SIZE, BATCH_SIZE), handler.preparedBatches);
+        assertEquals("Wrong # of objects processed before completion", 2 * BATCH_SIZE, handler.processed.size());
+
+        when("completion");
+        handler.completeProcessing(task, result);
+
+        then("completion");
+        assertSuccess(result);
+        assertEquals("Wrong batches", Arrays.asList(BATCH_SIZE, BATCH_SIZE, OBJECTS - 2 * BATCH_SIZE), handler.preparedBatches);
+        assertProcessedOnce(handler);
+        assertEquals("Some objects were processed without being prepared", Collections.emptyList(), handler.processedUnprepared);
+    }
+
+    /**
+     * Objects are processed in worker threads. Each worker takes up to batch size objects from the queue.
+     */
+    @Test
+    public void test110MultiThreaded() throws Exception {
+        given();
+        RunningTask task = createRunningTask(WORKER_THREADS);
+        OperationResult result = createOperationResult();
+        RecordingHandler handler = new RecordingHandler(task);
+        handler.createWorkerThreads(task);
+
+        when();
+        for (int i = 0; i < OBJECTS; i++) {
+            assertTrue("Handler requested stop", handler.handle(createObject(i), result));
+        }
+        handler.completeProcessing(task, result);
+
+        then();
+        assertSuccess(result);
+        displayValue("Prepared batches", handler.preparedBatches);
+        assertProcessedOnce(handler);
+        for (int size : handler.preparedBatches) {
+            assertTrue("Wrong batch size: " + size, size > 1 && size <= BATCH_SIZE);
+        }
+        int prepared = handler.preparedBatches.stream().mapToInt(Integer::intValue).sum();
+        assertEquals("Objects prepared in batches vs. processed individually", OBJECTS,
+                prepared + handler.processedUnprepared.size());
+        assertFalse("Handler was called in the coordinator thread", handler.processingThreads.contains(Thread.currentThread()));
+    }
+
+    /**
+     * Recompute task with processingBatchSize: all users are recomputed (getting their role membership).
+     */
+    @Test
+    public void test200RecomputeInBatches() throws Exception {
+        given();
+        for (String userOid : userOids) {
+            assertTrue("Unexpected role membership before",
+                    repositoryService.getObject(UserType.class, userOid, null, getTestOperationResult())
+                            .asObjectable().getRoleMembershipRef().isEmpty());
+        }
+
+        when();
+        addTask(TASK_RECOMPUTE_BATCHED_FILE);
+        waitForTaskFinish(TASK_RECOMPUTE_BATCHED_OID, true, 60000);
+
+        then();
+        assertTask(TASK_RECOMPUTE_BATCHED_OID, "after")
+                .display()
+                .assertSuccess()
+                .assertProgress(USERS);
+        for (String userOid : userOids) {
+            assertUserAfter(userOid)
+                    .roleMembershipRefs()
+                        .assertRoleMemberhipRefs(1)
+                        .assertRole(roleOid);
+        }
+    }
+
+    /**
+     * Import task with resourceObjectProcessingThreads and processingBatchSize, without worker threads.
+     * Resource objects are processed by multiple threads, but the task handler (that keeps the batch) is called
+     * only by the task thread. All the accounts are imported.
+     */
+    @Test
+    public void test300ImportWithProcessingThreads() throws Exception {
+        when();
+        addTask(TASK_IMPORT_PROCESSING_THREADS_FILE);
+        waitForTaskFinish(TASK_IMPORT_PROCESSING_THREADS_OID, true, 60000);
+
+        then();
+        assertTask(TASK_IMPORT_PROCESSING_THREADS_OID, "after")
+                .display()
+                .assertSuccess()
+                .assertProgress(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertUserAfterByUsername(getImportedAccountName(i))
+                    .links()
+                        .assertLinks(1);
+        }
+    }
+
+    private String getImportedAccountName(int i) {
+        return String.format("imported-%02d", i);
+    }
+
+    private RunningTask createRunningTask(Integer workerThreads) throws Exception {
+        RunningTask task = taskManager.createFakeRunningTask(getTestTask());
+        task.setExtensionPropertyValue(SchemaConstants.MODEL_EXTENSION_PROCESSING_BATCH_SIZE, BATCH_SIZE);
+        if (workerThreads != null) {
+            task.setExtensionPropertyValue(SchemaConstants.MODEL_EXTENSION_WORKER_THREADS, workerThreads);
+        }
+        return task;
+    }
+
+    private PrismObject<UserType> createObject(int i) {
+        UserType user = new UserType(prismContext)
+                .oid(UUID.randomUUID().toString())
+                .name(String.format("object-%02d", i));
+        return user.asPrismObject();
+    }
+
+    private void assertProcessedOnce(RecordingHandler handler) {
+        assertEquals("Wrong # of objects processed", OBJECTS, handler.processed.size());
+        assertEquals("Some objects were processed more than once", OBJECTS, new HashSet<>(handler.processed).size());
+    }
+
+    private class RecordingHandler extends AbstractSearchIterativeResultHandler<UserType> {
+
+        private final List<Integer> preparedBatches = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> preparedOids = ConcurrentHashMap.newKeySet();
+        private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> processedUnprepared = Collections.synchronizedList(new ArrayList<>());
+        private final Set<Thread> processingThreads = ConcurrentHashMap.newKeySet();
+
+        private RecordingHandler(RunningTask coordinatorTask) {
+            super(coordinatorTask, OP_PREFIX, "test", "in test", taskManager);
+        }
+
+        @Override
+        protected void prepareBatch(List<PrismObject<UserType>> objects, RunningTask workerTask, OperationResult result) {
+            preparedBatches.add(objects.size());
+            for (PrismObject<UserType> object : objects) {
+                preparedOids.add(object.getOid());
+            }
+        }
+
+        @Override
+        protected boolean handleObject(PrismObject<UserType> object, RunningTask workerTask, OperationResult result) {
+            processed.add(object.getOid());
+            if (!preparedOids.contains(object.getOid())) {
+                processedUnprepared.add(object.getOid());
+            }
+            processingThreads.add(Thread.currentThread());
+            result.recordSuccess();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.intest.manual;
+
+import static org.testng.AssertJUnit.fail;
+
+import java.io.File;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Listeners;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Same as {@link TestSemiManualGrouping} but the pending operations are propagated by several threads
+ * (propagationThreads is set on the resource).
+ *
+ * In addition, each successful propagation is checked not to skip any shadow.
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-intest-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+@Listeners({ com.evolveum.midpoint.tools.testng.AlphabeticalMethodInterceptor.class })
+public class TestSemiManualGroupingParallelPropagation extends TestSemiManualGrouping {
+
+    private static final File RESOURCE_SEMI_MANUAL_GROUPING_PARALLEL_FILE = new File(TEST_DIR, "resource-semi-manual-grouping-parallel.xml");
+
+    @Override
+    protected File getResourceFile() {
+        return RESOURCE_SEMI_MANUAL_GROUPING_PARALLEL_FILE;
+    }
+
+    @Override
+    protected void runPropagation(OperationResultStatusType expectedStatus) throws Exception {
+        // Operations that are due now are due also when the propagation task runs.
+        XMLGregorianCalendar startTime = clock.currentTimeXMLGregorianCalendar();
+        super.runPropagation(expectedStatus);
+        if (expectedStatus == null || expectedStatus == OperationResultStatusType.SUCCESS) {
+            assertAllShadowsPropagated(startTime);
+        }
+    }
+
+    /**
+     * No pending operation that was due at the given time may be left waiting for the execution.
+     */
+    private void assertAllShadowsPropagated(XMLGregorianCalendar time) throws Exception {
+        OperationResult result = createOperationResult("assertAllShadowsPropagated");
+        Duration groupingInterval = repositoryService.getObject(ResourceType.class, getResourceOid(), null, result)
+                .asObjectable().getConsistency().getOperationGroupingInterval();
+        ObjectQuery query = prismContext.queryFor(ShadowType.class)
+                .item(ShadowType.F_RESOURCE_REF).ref(getResourceOid())
+                .and().exists(ShadowType.F_PENDING_OPERATION)
+                .build();
+        for (PrismObject<ShadowType> shadow : repositoryService.searchObjects(ShadowType.class, query, null, result)) {
+            for (PendingOperationType pendingOperation : shadow.asObjectable().getPendingOperation()) {
+                if (pendingOperation.getExecutionStatus() == PendingOperationExecutionStatusType.EXECUTION_PENDING
+                        && pendingOperation.getRequestTimestamp() != null
+                        && XmlTypeConverter.isAfterInterval(pendingOperation.getRequestTimestamp(), groupingInterval, time)) {
+                    fail("Pending operation was not propagated in " + shadow + ": " + pendingOperation);
+                }
+            }
+        }
+    }
+}
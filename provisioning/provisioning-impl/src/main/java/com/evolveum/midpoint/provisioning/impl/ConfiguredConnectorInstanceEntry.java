@@ -6,8 +6,12 @@
  */
 package com.evolveum.midpoint.provisioning.impl;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.evolveum.midpoint.prism.PrismContainer;
 import com.evolveum.midpoint.provisioning.ucf.api.ConnectorInstance;
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationalStatus;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ConnectorConfigurationType;
 
 /**
@@ -20,6 +24,13 @@ public class ConfiguredConnectorInstanceEntry {
     private PrismContainer<ConnectorConfigurationType> configuration;
     private ConnectorInstance connectorInstance;
 
+    // Statistics of (re)initializations of the connector instance
+    private final AtomicInteger initializationCount = new AtomicInteger();
+    private final AtomicLong initializationTime = new AtomicLong();
+    private final AtomicInteger waitCount = new AtomicInteger();
+    private final AtomicLong waitTime = new AtomicLong();
+    private volatile boolean warmedUp;
+
     public String getConnectorOid() {
         return connectorOid;
     }
@@ -48,11 +59,37 @@ public class ConfiguredConnectorInstanceEntry {
         this.connectorInstance = connectorInstance;
     }
 
+    /**
+     * Records creation and/or (re)configuration of the connector instance.
+     *
+     * @param warmUp True if the connector was initialized in advance, i.e. no operation had to wait for it.
+     */
+    void recordInitialization(long time, boolean warmUp) {
+        initializationCount.incrementAndGet();
+        initializationTime.addAndGet(time);
+        if (warmUp) {
+            warmedUp = true;
+        } else {
+            waitCount.incrementAndGet();
+            waitTime.addAndGet(time);
+        }
+    }
+
+    void fillInStatistics(ConnectorOperationalStatus status) {
+        status.setInstanceWarmedUp(warmedUp);
+        status.setInstanceInitializationCount(initializationCount.get());
+        status.setInstanceInitializationTime(initializationTime.get());
+        status.setInstanceWaitCount(waitCount.get());
+        status.setInstanceWaitTime(waitTime.get());
+    }
+
     @Override
     public String toString() {
         return "ConfiguredConnectorInstanceEntry{" +
                 "connectorOid='" + connectorOid + '\'' +
                 ", connectorInstance=" + connectorInstance +
+                ", initializations=" + initializationCount +
+                ", waits=" + waitCount +
                 '}';
     }
 }
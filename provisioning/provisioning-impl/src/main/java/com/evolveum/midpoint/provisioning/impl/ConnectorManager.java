@@ -48,6 +48,7 @@ import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.processor.ResourceSchema;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationalStatus;
 import com.evolveum.midpoint.schema.util.ConnectorTypeUtil;
 import com.evolveum.midpoint.schema.util.ResourceTypeUtil;
 import com.evolveum.midpoint.task.api.Task;
@@ -146,13 +147,29 @@ public class ConnectorManager implements Cacheable {
 
     ConnectorInstance getConfiguredConnectorInstance(ConnectorSpec connectorSpec, boolean forceFresh, OperationResult result)
             throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException {
+        return getConfiguredConnectorInstance(connectorSpec, forceFresh, false, result);
+    }
+
+    /**
+     * Makes sure the connector instance is created, configured and cached, so the first operation
+     * that needs it does not have to wait.
+     */
+    void warmUpConnectorInstance(ConnectorSpec connectorSpec, OperationResult result)
+            throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException {
+        getConfiguredConnectorInstance(connectorSpec, false, true, result);
+    }
 
+    private ConnectorInstance getConfiguredConnectorInstance(ConnectorSpec connectorSpec, boolean forceFresh, boolean warmUp,
+            OperationResult result) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException {
+
+        long start = System.currentTimeMillis();
         ConfiguredConnectorInstanceEntry connectorCacheEntry = getConnectorInstanceCacheEntry(connectorSpec, result);
         ConnectorInstance connectorInstance = connectorCacheEntry.getConnectorInstance();
 
         if (forceFresh && connectorCacheEntry.isConfigured()) {
             LOGGER.debug("FORCE in connector cache: reconfiguring cached connector {}", connectorSpec);
             configureConnector(connectorInstance, connectorSpec, result);
+            connectorCacheEntry.recordInitialization(System.currentTimeMillis() - start, warmUp);
             // Connector is cached already. No need to put it into cache.
             return connectorInstance;
         }
@@ -162,18 +179,30 @@ public class ConnectorManager implements Cacheable {
             configureConnector(connectorInstance, connectorSpec, result);
             // Connector is cached already. No need to put it into cache. We just need to update the configuration.
             connectorCacheEntry.setConfiguration(connectorSpec.getConnectorConfiguration());
+            connectorCacheEntry.recordInitialization(System.currentTimeMillis() - start, warmUp);
             return connectorInstance;
         }
 
         if (!connectorCacheEntry.isConfigured()) {
             LOGGER.trace("Configuring new connector {}", connectorSpec);
             configureConnector(connectorInstance, connectorSpec, result);
+            connectorCacheEntry.recordInitialization(System.currentTimeMillis() - start, warmUp);
             cacheConfiguredConnector(connectorCacheEntry, connectorSpec);
         }
 
         return connectorInstance;
     }
 
+    /**
+     * Adds connector instance initialization statistics to the operational status (if the instance is cached).
+     */
+    void fillInInstanceStatistics(ConnectorSpec connectorSpec, ConnectorOperationalStatus status) {
+        ConfiguredConnectorInstanceEntry entry = connectorInstanceCache.get(connectorSpec.getCacheKey());
+        if (entry != null) {
+            entry.fillInStatistics(status);
+        }
+    }
+
     /**
      * Returns connector cache entry with connector instance. The entry may come from the cache or it may be just
      * created and not yet cached. In the latter case the connector instance is not yet configured. This is indicated
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.api.Cacheable;
+import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.invalidation.RepositoryCacheInvalidationDetails;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceConsistencyType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Prepares connector instances (and resource schemas) in advance for resources that have
+ * consistency/connectorWarmUp set: at node start and after each change of resource configuration.
+ *
+ * Resource changes are learned through cache invalidation events, so the warm-up takes place on each node
+ * of the cluster. Modifications that touch no configuration item (e.g. operational state updates) are ignored.
+ * If the modifications are not known (e.g. for events coming from other nodes), the warm-up is scheduled anyway.
+ * Warm-up is executed in a single background thread; each resource is warmed up at most once at a time.
+ *
+ * This is not a cache by itself; it implements {@link Cacheable} just to receive the invalidation events.
+ */
+@Component
+public class ConnectorWarmUpManager implements Cacheable {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ConnectorWarmUpManager.class);
+
+    private static final String OP_WARM_UP = ConnectorWarmUpManager.class.getName() + ".warmUp";
+    private static final String OP_WARM_UP_ALL = ConnectorWarmUpManager.class.getName() + ".warmUpAll";
+
+    /**
+     * Resource items whose change can require new connector instances or a new resource schema.
+     */
+    private static final List<ItemName> CONFIGURATION_ITEMS = Arrays.asList(
+            ResourceType.F_CONNECTOR_REF,
+            ResourceType.F_CONNECTOR_CONFIGURATION,
+            ResourceType.F_ADDITIONAL_CONNECTOR,
+            ResourceType.F_SCHEMA,
+            ResourceType.F_SCHEMA_HANDLING,
+            ResourceType.F_CAPABILITIES,
+            ResourceType.F_CONSISTENCY);
+
+    @Autowired private ResourceManager resourceManager;
+    @Autowired private TaskManager taskManager;
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired @Qualifier("cacheRepositoryService")
+    private RepositoryService repositoryService;
+
+    /** Resources scheduled for warm-up or being warmed up. */
+    private final Set<String> pendingResourceOids = ConcurrentHashMap.newKeySet();
+
+    /** Number of warm-ups executed so far (on this node). */
+    private final AtomicInteger warmUpCount = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connector-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCacheableService(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCacheableService(this);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Warms up all resources that require it. Called at node start.
+     */
+    void warmUpAllResources() {
+        submit(() -> {
+            OperationResult result = new OperationResult(OP_WARM_UP_ALL);
+            try {
+                Collection<SelectorOptions<GetOperationOptions>> options =
+                        SelectorOptions.createCollection(GetOperationOptions.createReadOnly());
+                for (PrismObject<ResourceType> resource : repositoryService.searchObjects(ResourceType.class, null, options, result)) {
+                    if (isWarmUpEnabled(resource)) {
+                        scheduleWarmUp(resource.getOid());
+                    }
+                }
+            } catch (Throwable t) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't warm up connectors", t);
+            }
+        });
+    }
+
+    private void scheduleWarmUp(String resourceOid) {
+        if (pendingResourceOids.add(resourceOid)) {
+            if (!submit(() -> warmUp(resourceOid))) {
+                pendingResourceOids.remove(resourceOid);
+            }
+        } else {
+            // Invalidations caused by the warm-up itself (e.g. storing fetched schema) end here as well.
+            LOGGER.trace("Warm-up of resource {} is already pending", resourceOid);
+        }
+    }
+
+    private boolean submit(Runnable runnable) {
+        try {
+            executor.submit(runnable);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Couldn't submit connector warm-up, probably shutting down: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void warmUp(String resourceOid) {
+        OperationResult result = new OperationResult(OP_WARM_UP);
+        result.addParam("resourceOid", resourceOid);
+        try {
+            // Checking the repository object first, as we do not want to touch resources that do not need warm-up.
+            PrismObject<ResourceType> repoResource = repositoryService.getObject(ResourceType.class, resourceOid,
+                    SelectorOptions.createCollection(GetOperationOptions.createReadOnly()), result);
+            if (!isWarmUpEnabled(repoResource)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Task task = taskManager.createTaskInstance(OP_WARM_UP);
+            // This completes the resource (fetching the schema if needed) and puts it into the resource cache.
+            PrismObject<ResourceType> resource = resourceManager.getResource(resourceOid,
+                    GetOperationOptions.createReadOnly(), task, result);
+            resourceManager.warmUpConnectorInstances(resource, result);
+            warmUpCount.incrementAndGet();
+            LOGGER.debug("Connector instances for {} warmed up in {} ms", resource, System.currentTimeMillis() - start);
+        } catch (ObjectNotFoundException e) {
+            LOGGER.trace("Resource {} no longer exists, no warm-up needed", resourceOid);
+        } catch (Throwable t) {
+            // Not critical: connector instances will be created when needed.
+            LoggingUtils.logException(LOGGER, "Couldn't warm up connectors for resource {}", t, resourceOid);
+        } finally {
+            pendingResourceOids.remove(resourceOid);
+        }
+    }
+
+    private boolean isWarmUpEnabled(PrismObject<ResourceType> resource) {
+        ResourceConsistencyType consistency = resource.asObjectable().getConsistency();
+        return consistency != null && Boolean.TRUE.equals(consistency.isConnectorWarmUp());
+    }
+
+    /**
+     * Returns the number of warm-ups executed on this node. Used in tests.
+     */
+    public int getWarmUpCount() {
+        return warmUpCount.get();
+    }
+
+    /**
+     * Is warm-up of the resource scheduled or running? Used in tests.
+     */
+    public boolean isWarmUpPending(String resourceOid) {
+        return pendingResourceOids.contains(resourceOid);
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (oid != null && type != null && type.isAssignableFrom(ResourceType.class) && isConfigurationChange(context)) {
+            // We do not know whether the resource requires warm-up; this is checked in the background.
+            scheduleWarmUp(oid);
+        }
+    }
+
+    /**
+     * Returns false only if we know that the resource was modified and no configuration item was touched.
+     */
+    private boolean isConfigurationChange(CacheInvalidationContext context) {
+        if (context == null || !(context.getDetails() instanceof RepositoryCacheInvalidationDetails)) {
+            return true;
+        }
+        Object details = ((RepositoryCacheInvalidationDetails) context.getDetails()).getObject();
+        if (!(details instanceof ModifyObjectResult) || ((ModifyObjectResult<?>) details).getModifications() == null) {
+            return true;
+        }
+        for (ItemDelta<?, ?> modification : ((ModifyObjectResult<?>) details).getModifications()) {
+            ItemPath path = modification.getPath();
+            if (!path.startsWithName() || QNameUtil.matchAny(path.firstToName(), CONFIGURATION_ITEMS)) {
+                return true;
+            }
+        }
+        LOGGER.trace("No configuration item was modified, no warm-up needed");
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void dumpContent() {
+    }
+}
@@ -20,14 +20,13 @@ import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.provisioning.api.ConstraintViolationConfirmer;
 import com.evolveum.midpoint.provisioning.api.ConstraintsCheckingResult;
 import com.evolveum.midpoint.repo.api.RepositoryService;
-import com.evolveum.midpoint.schema.GetOperationOptions;
-import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
 import com.evolveum.midpoint.schema.cache.CacheType;
 import com.evolveum.midpoint.schema.processor.ResourceAttributeDefinition;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.MiscUtil;
+import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.caching.AbstractThreadLocalCache;
 import com.evolveum.midpoint.util.caching.CacheConfiguration;
 import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
@@ -55,6 +54,11 @@ public class ConstraintsChecker {
     private static final Trace LOGGER = TraceManager.getTrace(ConstraintsChecker.class);
     private static final Trace PERFORMANCE_ADVISOR = TraceManager.getPerformanceAdvisorTrace();
 
+    /**
+     * We only need to distinguish between no conflicting shadow, single one and more of them.
+     */
+    private static final int MAX_SHADOWS_TO_FETCH = 2;
+
     private static ConcurrentHashMap<Thread, Cache> cacheInstances = new ConcurrentHashMap<>();
 
     private ProvisioningContext provisioningContext;
@@ -203,6 +207,7 @@ public class ConstraintsChecker {
                     .item(ShadowType.F_DEAD).eq(false)
                     .or().item(ShadowType.F_DEAD).isNull()
                 .endBlock()
+                .maxSize(MAX_SHADOWS_TO_FETCH)
                 .build();
         boolean unique = checkUniqueness(oid, identifier, query, task, result);
         return unique;
@@ -217,9 +222,10 @@ public class ConstraintsChecker {
         }
 
         // Note that we should not call repository service directly here. The query values need to be normalized according to
-        // attribute matching rules.
-        Collection<SelectorOptions<GetOperationOptions>> options = SelectorOptions.createCollection(GetOperationOptions.createNoFetch());
-        List<PrismObject<ShadowType>> foundObjects = shadowCache.searchObjects(query, options, task, result);
+        // attribute matching rules. Apart from that, this is a single lookup using the (indexed) attribute values stored
+        // in repository shadows. Found shadows are needed only to be compared with the shadow being checked
+        // (and provided to the caller), so we do not process them in any way.
+        List<PrismObject<ShadowType>> foundObjects = shadowCache.searchShadowsForUniquenessCheck(provisioningContext, query, result);
         LOGGER.trace("Uniqueness check of {} resulted in {} results:\n{}\nquery:\n{}",
                 identifier, foundObjects.size(), foundObjects, query.debugDumpLazily(1));
         if (foundObjects.isEmpty()) {
@@ -276,8 +282,17 @@ public class ConstraintsChecker {
     public static <T extends ShadowType> void onShadowAddOperation(T shadow) {
         Cache cache = Cache.getCache();
         if (cache != null) {
-            log("Clearing cache on shadow add operation", false);
-            cache.conflictFreeSituations.clear();            // TODO fix this brute-force approach
+            String resourceOid = shadow.getResourceRef() != null ? shadow.getResourceRef().getOid() : null;
+            QName objectClassName = shadow.getObjectClass();
+            if (resourceOid == null || objectClassName == null) {
+                log("Clearing cache on shadow add operation", false);
+                cache.conflictFreeSituations.clear();
+            } else {
+                // The new shadow can conflict only with shadows of the same object class on the same resource.
+                log("Clearing cache on shadow add operation for {} on {}", false, objectClassName, resourceOid);
+                cache.conflictFreeSituations.removeIf(situation -> resourceOid.equals(situation.resourceOid)
+                        && (situation.objectClassName == null || QNameUtil.match(objectClassName, situation.objectClassName)));
+            }
         }
     }
 
@@ -6,10 +6,13 @@
  */
 package com.evolveum.midpoint.provisioning.impl;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import static java.util.Collections.emptyList;
 
+import static org.apache.commons.collections4.CollectionUtils.emptyIfNull;
+
+import java.util.*;
+
+import javax.xml.datatype.Duration;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.common.refinery.*;
@@ -38,6 +41,7 @@ import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ResourceTypeUtil;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
+import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.CommunicationException;
 import com.evolveum.midpoint.util.exception.ConfigurationException;
 import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
@@ -72,6 +76,7 @@ class EntitlementConverter {
     @Autowired private ResourceObjectReferenceResolver resourceObjectReferenceResolver;
     @Autowired private PrismContext prismContext;
     @Autowired private MatchingRuleRegistry matchingRuleRegistry;
+    @Autowired private EntitlementMembershipCache entitlementMembershipCache;
 
     //////////
     // GET
@@ -233,6 +238,19 @@ class EntitlementConverter {
             throw new SchemaException("Value attribute "+valueAttrName+" has no more than one value; attribute defined in entitlement association '"+associationName+"' in "+resourceType);
         }
 
+        Duration membershipIndexTimeToLive = assocDefType.getResourceObjectAssociationType().getMembershipIndexTimeToLive();
+        if (membershipIndexTimeToLive != null) {
+            Map<Object, List<PrismObject<ShadowType>>> membershipIndex = getMembershipIndex(subjectCtx, assocDefType,
+                    entitlementCtx, assocAttrDef, membershipIndexTimeToLive, parentResult);
+            Object normalizedValue = normalizeValueAttribute(assocDefType, assocAttrDef, valueAttr).getValue();
+            for (PrismObject<ShadowType> entitlementShadow : membershipIndex.getOrDefault(normalizedValue, emptyList())) {
+                // Indexed shadows are shared, so each association gets its own copy.
+                addEntitlementToSubjectAssociationValue(resourceObject, associationName, entitlementDef,
+                        associationContainer, entitlementShadow.clone());
+            }
+            return;
+        }
+
         ObjectQuery query = createQuery(assocDefType, assocAttrDef, valueAttr);
 
         AttributesToReturn attributesToReturn = ProvisioningUtil.createAttributesToReturn(entitlementCtx);
@@ -242,21 +260,9 @@ class EntitlementConverter {
         ShadowResultHandler handler = new ShadowResultHandler() {
             @Override
             public boolean handle(PrismObject<ShadowType> entitlementShadow) {
-                PrismContainerValue<ShadowAssociationType> associationCVal = associationContainer.createNewValue();
-                associationCVal.asContainerable().setName(associationName);
-                Collection<ResourceAttribute<?>> entitlementIdentifiers = ShadowUtil.getAllIdentifiers(entitlementShadow);
                 try {
-                    ResourceAttributeContainer identifiersContainer = ObjectFactory.createResourceAttributeContainer(
-                            ShadowAssociationType.F_IDENTIFIERS, entitlementDef.toResourceAttributeContainerDefinition(), prismContext);
-                    associationCVal.add(identifiersContainer);
-                    identifiersContainer.getValue().addAll(Item.cloneCollection(entitlementIdentifiers));
-
-                    // Remember the full shadow in user data. This is used later as an optimization to create the shadow in repo
-                    identifiersContainer.setUserData(ResourceObjectConverter.FULL_SHADOW_KEY, entitlementShadow);
-                    if (LOGGER.isTraceEnabled()) {
-                        LOGGER.trace("Processed entitlement-to-subject association for account {} and entitlement {}",
-                                ShadowUtil.getHumanReadableName(resourceObject), ShadowUtil.getHumanReadableName(entitlementShadow));
-                    }
+                    addEntitlementToSubjectAssociationValue(resourceObject, associationName, entitlementDef,
+                            associationContainer, entitlementShadow);
                 } catch (SchemaException e) {
                     throw new TunnelException(e);
                 }
@@ -282,8 +288,135 @@ class EntitlementConverter {
 
     }
 
+    private <S extends ShadowType> void addEntitlementToSubjectAssociationValue(PrismObject<S> resourceObject,
+            QName associationName, RefinedObjectClassDefinition entitlementDef,
+            PrismContainer<ShadowAssociationType> associationContainer, PrismObject<ShadowType> entitlementShadow)
+            throws SchemaException {
+        PrismContainerValue<ShadowAssociationType> associationCVal = associationContainer.createNewValue();
+        associationCVal.asContainerable().setName(associationName);
+        Collection<ResourceAttribute<?>> entitlementIdentifiers = ShadowUtil.getAllIdentifiers(entitlementShadow);
+        ResourceAttributeContainer identifiersContainer = ObjectFactory.createResourceAttributeContainer(
+                ShadowAssociationType.F_IDENTIFIERS, entitlementDef.toResourceAttributeContainerDefinition(), prismContext);
+        associationCVal.add(identifiersContainer);
+        identifiersContainer.getValue().addAll(Item.cloneCollection(entitlementIdentifiers));
+
+        // Remember the full shadow in user data. This is used later as an optimization to create the shadow in repo
+        identifiersContainer.setUserData(ResourceObjectConverter.FULL_SHADOW_KEY, entitlementShadow);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Processed entitlement-to-subject association for account {} and entitlement {}",
+                    ShadowUtil.getHumanReadableName(resourceObject), ShadowUtil.getHumanReadableName(entitlementShadow));
+        }
+    }
+
+    /**
+     * Returns membership index for given object-to-subject association: normalized values of the association
+     * attribute mapped to entitlement objects having them. If not cached, the index is built by a single search
+     * over all the entitlement objects.
+     */
+    private <TA> Map<Object, List<PrismObject<ShadowType>>> getMembershipIndex(ProvisioningContext subjectCtx,
+            RefinedAssociationDefinition assocDefType, ProvisioningContext entitlementCtx,
+            RefinedAttributeDefinition<TA> assocAttrDef, Duration timeToLive, OperationResult parentResult)
+            throws SchemaException, CommunicationException, ObjectNotFoundException, ConfigurationException,
+            SecurityViolationException, ExpressionEvaluationException {
+        RefinedObjectClassDefinition entitlementDef = entitlementCtx.getObjectClassDefinition();
+        EntitlementMembershipCache.Key key = new EntitlementMembershipCache.Key(subjectCtx.getResourceOid(),
+                entitlementDef.getTypeName(), assocDefType.getName(), entitlementDef.getIntent());
+        return entitlementMembershipCache.get(key, timeToLive.getTimeInMillis(new Date()),
+                query -> loadMembershipIndex(subjectCtx, assocDefType, entitlementCtx, assocAttrDef, query, parentResult));
+    }
+
+    /**
+     * Searches for entitlement objects matching the query (all of them if null) and indexes them by normalized values
+     * of the association attribute.
+     */
+    private <TA> Map<Object, List<PrismObject<ShadowType>>> loadMembershipIndex(ProvisioningContext subjectCtx,
+            RefinedAssociationDefinition assocDefType, ProvisioningContext entitlementCtx,
+            RefinedAttributeDefinition<TA> assocAttrDef, ObjectQuery query, OperationResult parentResult)
+            throws SchemaException, CommunicationException, ObjectNotFoundException, ConfigurationException,
+            SecurityViolationException, ExpressionEvaluationException {
+        RefinedObjectClassDefinition entitlementDef = entitlementCtx.getObjectClassDefinition();
+        MatchingRule<TA> matchingRule = matchingRuleRegistry.getMatchingRule(
+                assocDefType.getResourceObjectAssociationType().getMatchingRule(), assocAttrDef.getTypeName());
+        ItemName assocAttrName = assocAttrDef.getItemName();
+
+        // The association attribute (e.g. member) need not be returned by default, so we ask for it explicitly.
+        AttributesToReturn attributesToReturn = ProvisioningUtil.createAttributesToReturn(entitlementCtx);
+        boolean assocAttrReturnedAnyway = isReturned(attributesToReturn, assocAttrDef);
+        if (attributesToReturn == null) {
+            attributesToReturn = new AttributesToReturn();
+        }
+        if (!assocAttrReturnedAnyway) {
+            List<ResourceAttributeDefinition> attributeDefinitions = new ArrayList<>(emptyIfNull(attributesToReturn.getAttributesToReturn()));
+            attributeDefinitions.add(assocAttrDef);
+            attributesToReturn.setAttributesToReturn(attributeDefinitions);
+        }
+
+        SearchHierarchyConstraints searchHierarchyConstraints = determineSearchHierarchyConstraints(entitlementCtx, parentResult);
+
+        Map<Object, List<PrismObject<ShadowType>>> index = new HashMap<>();
+        ShadowResultHandler handler = entitlementShadow -> {
+            ResourceAttribute<TA> assocAttr = ShadowUtil.getAttributesContainer(entitlementShadow).findAttribute(assocAttrName);
+            if (assocAttr == null || assocAttr.isEmpty()) {
+                return true;
+            }
+            Collection<TA> values = new ArrayList<>(assocAttr.getRealValues());
+            if (!assocAttrReturnedAnyway) {
+                // The shadow has to look the same as if it was found by a search for the subject (see above).
+                // This also avoids keeping the (possibly large) membership values in the indexed shadows.
+                ShadowUtil.getAttributesContainer(entitlementShadow).remove(assocAttr);
+            }
+            for (TA value : values) {
+                try {
+                    index.computeIfAbsent(matchingRule.normalize(value), k -> new ArrayList<>()).add(entitlementShadow);
+                } catch (SchemaException e) {
+                    throw new TunnelException(e);
+                }
+            }
+            return true;
+        };
+
+        ConnectorInstance connector = subjectCtx.getConnector(ReadCapabilityType.class, parentResult);
+        try {
+            LOGGER.trace("Building membership index for association {} in {} (query: {})", assocDefType.getName(),
+                    entitlementDef, query);
+            try {
+                connector.search(entitlementDef, query, handler, attributesToReturn, null, searchHierarchyConstraints,
+                        subjectCtx, parentResult);
+            } catch (GenericFrameworkException e) {
+                throw new GenericConnectorException("Generic error in the connector " + connector + ". Reason: "
+                        + e.getMessage(), e);
+            }
+        } catch (TunnelException e) {
+            throw (SchemaException) e.getCause();
+        }
+        return index;
+    }
+
+    /**
+     * Is the attribute returned by a search with given attributesToReturn (null meaning the default ones)?
+     */
+    private boolean isReturned(AttributesToReturn attributesToReturn, ResourceAttributeDefinition<?> attrDef) {
+        if (attributesToReturn == null) {
+            return attrDef.isReturnedByDefault();
+        }
+        return attributesToReturn.isReturnDefaultAttributes() && attrDef.isReturnedByDefault()
+                || emptyIfNull(attributesToReturn.getAttributesToReturn()).stream()
+                        .anyMatch(def -> QNameUtil.match(def.getItemName(), attrDef.getItemName()));
+    }
+
     // precondition: valueAttr has exactly one value
     private <TV,TA> ObjectQuery createQuery(RefinedAssociationDefinition assocDefType, RefinedAttributeDefinition<TA> assocAttrDef, ResourceAttribute<TV> valueAttr) throws SchemaException{
+        PrismPropertyValue<TA> normalized = normalizeValueAttribute(assocDefType, assocAttrDef, valueAttr);
+        ObjectQuery query = prismContext.queryFor(ShadowType.class)
+                .item(ItemPath.create(ShadowType.F_ATTRIBUTES, assocAttrDef.getItemName()), assocAttrDef).eq(normalized)
+                .build();
+        query.setAllowPartialResults(true);
+        return query;
+    }
+
+    // precondition: valueAttr has exactly one value
+    private <TV,TA> PrismPropertyValue<TA> normalizeValueAttribute(RefinedAssociationDefinition assocDefType,
+            RefinedAttributeDefinition<TA> assocAttrDef, ResourceAttribute<TV> valueAttr) throws SchemaException {
         MatchingRule<TA> matchingRule = matchingRuleRegistry.getMatchingRule(assocDefType.getResourceObjectAssociationType().getMatchingRule(),
                 assocAttrDef.getTypeName());
         if (valueAttr.size() > 1) {
@@ -293,11 +426,7 @@ class EntitlementConverter {
         TA normalizedRealValue = matchingRule.normalize(converted.getValue());
         PrismPropertyValue<TA> normalized = prismContext.itemFactory().createPropertyValue(normalizedRealValue);
         LOGGER.trace("Converted entitlement filter value: {} ({}) def={}", normalized, normalized.getValue().getClass(), assocAttrDef);
-        ObjectQuery query = prismContext.queryFor(ShadowType.class)
-                .item(ItemPath.create(ShadowType.F_ATTRIBUTES, assocAttrDef.getItemName()), assocAttrDef).eq(normalized)
-                .build();
-        query.setAllowPartialResults(true);
-        return query;
+        return normalized;
     }
 
     //////////
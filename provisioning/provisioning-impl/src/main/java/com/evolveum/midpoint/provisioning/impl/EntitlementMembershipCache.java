@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl;
+
+import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_CACHE;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.builder.S_AtomicFilterEntry;
+import com.evolveum.midpoint.prism.query.builder.S_AtomicFilterExit;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.api.Cacheable;
+import com.evolveum.midpoint.schema.processor.ResourceAttribute;
+import com.evolveum.midpoint.schema.processor.ResourceAttributeDefinition;
+import com.evolveum.midpoint.schema.util.ShadowUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Caches membership indices for object-to-subject associations: for each (normalized) value of the association
+ * attribute (e.g. member DN) the index contains entitlement objects (e.g. groups) having that value.
+ * See ResourceObjectAssociationType.membershipIndexTimeToLive.
+ *
+ * Each index is built only once even if it is requested by more threads at the same time: the first thread searches
+ * the resource and the others wait for its result.
+ *
+ * Entries expire after configured time. When an entitlement is added, modified or deleted on the resource by midPoint,
+ * only that entitlement is re-read from the resource before the index is used next time. (If the entitlement cannot be
+ * identified, or if its identifiers are changed, whole indices for the object class are dropped.) Indices are also
+ * dropped when the resource itself is invalidated. The cache is node-local: changes made by other cluster nodes
+ * become visible only after the entries expire.
+ */
+@Component
+class EntitlementMembershipCache implements Cacheable {
+
+    private static final Trace LOGGER = TraceManager.getTrace(EntitlementMembershipCache.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(EntitlementMembershipCache.class.getName() + ".content");
+
+    @Autowired private PrismContext prismContext;
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired private MatchingRuleRegistry matchingRuleRegistry;
+
+    /**
+     * Indices, either built or being built. Entries whose building (or refreshing) fails are removed.
+     */
+    private final Map<Key, CompletableFuture<Index>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Entitlements changed by midPoint since the respective index was built. They are re-read from the resource
+     * before the index is used.
+     */
+    private final Map<Key, Set<EntitlementIdentifier>> changedEntitlements = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCacheableService(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCacheableService(this);
+    }
+
+    /**
+     * Returns the index for given key. If it is not cached (or has expired), it is built using the loader; if some
+     * entitlements were changed since it was built, they are re-read using the loader.
+     */
+    Map<Object, List<PrismObject<ShadowType>>> get(Key key, long timeToLive, IndexLoader loader)
+            throws SchemaException, CommunicationException, ObjectNotFoundException, ConfigurationException,
+            SecurityViolationException, ExpressionEvaluationException {
+        for (;;) {
+            CompletableFuture<Index> future = cache.get(key);
+            if (future == null) {
+                CompletableFuture<Index> building = new CompletableFuture<>();
+                if (cache.putIfAbsent(key, building) == null) {
+                    LOGGER.trace("MISS for {}", key);
+                    CachePerformanceCollector.INSTANCE.registerMiss(EntitlementMembershipCache.class, ShadowType.class, PER_CACHE);
+                    // The index is built from the current state of the resource, so earlier changes are irrelevant.
+                    changedEntitlements.remove(key);
+                    Map<Object, List<PrismObject<ShadowType>>> entitlementsByValue = complete(key, building,
+                            () -> new Index(loader.load(null), System.currentTimeMillis() + timeToLive));
+                    LOGGER.debug("Cached membership index for {}: {} values", key, entitlementsByValue.size());
+                    return entitlementsByValue;
+                }
+            } else if (!future.isDone()) {
+                LOGGER.trace("Waiting for membership index for {} being built by another thread", key);
+                waitFor(future);
+            } else if (future.isCompletedExceptionally()) {
+                cache.remove(key, future);
+            } else {
+                Index index = future.join();
+                if (index.expiresAt <= System.currentTimeMillis()) {
+                    cache.remove(key, future);
+                    continue;
+                }
+                Set<EntitlementIdentifier> changed = changedEntitlements.remove(key);
+                if (changed == null || changed.isEmpty()) {
+                    LOGGER.trace("HIT for {}", key);
+                    CachePerformanceCollector.INSTANCE.registerHit(EntitlementMembershipCache.class, ShadowType.class, PER_CACHE);
+                    return index.entitlementsByValue;
+                }
+                CompletableFuture<Index> refreshing = new CompletableFuture<>();
+                if (cache.replace(key, future, refreshing)) {
+                    LOGGER.trace("Refreshing membership index for {} because of changed entitlements: {}", key, changed);
+                    return complete(key, refreshing, () -> index.refresh(changed, loader.load(createQuery(changed))));
+                } else {
+                    // The entry was replaced in the meanwhile; the changes have to be applied to the new one.
+                    changedEntitlements.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).addAll(changed);
+                }
+            }
+        }
+    }
+
+    private Map<Object, List<PrismObject<ShadowType>>> complete(Key key, CompletableFuture<Index> future,
+            IndexSupplier supplier) throws SchemaException, CommunicationException, ObjectNotFoundException,
+            ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
+        Index index;
+        try {
+            index = supplier.get();
+        } catch (Throwable t) {
+            // Removed first, so the waiting threads do not find the failed entry and start their own attempts.
+            cache.remove(key, future);
+            future.completeExceptionally(t);
+            throw t;
+        }
+        future.complete(index);
+        return index.entitlementsByValue;
+    }
+
+    private void waitFor(CompletableFuture<Index> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for membership index", e);
+        } catch (ExecutionException e) {
+            // The failing thread reports the exception; we simply try again.
+            LOGGER.trace("Membership index building in another thread failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private ObjectQuery createQuery(Collection<EntitlementIdentifier> identifiers) {
+        S_AtomicFilterEntry entry = prismContext.queryFor(ShadowType.class);
+        S_AtomicFilterExit exit = null;
+        for (EntitlementIdentifier identifier : identifiers) {
+            exit = (exit != null ? exit.or() : entry)
+                    .item(ItemPath.create(ShadowType.F_ATTRIBUTES, identifier.definition.getItemName()), identifier.definition)
+                    .eq(identifier.value);
+        }
+        return Objects.requireNonNull(exit, "no identifiers").build();
+    }
+
+    /**
+     * Records that the entitlement with given identifiers was (or might have been) added, modified or deleted
+     * on the resource. If the identifiers are not known, all indices for the object class are dropped.
+     */
+    void invalidate(String resourceOid, QName objectClassName, @Nullable Collection<? extends ResourceAttribute<?>> identifiers) {
+        Set<EntitlementIdentifier> entitlementIdentifiers = createEntitlementIdentifiers(identifiers);
+        if (entitlementIdentifiers.isEmpty()) {
+            invalidate(resourceOid, objectClassName);
+            return;
+        }
+        for (Key key : cache.keySet()) {
+            if (key.matches(resourceOid, objectClassName)) {
+                changedEntitlements.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).addAll(entitlementIdentifiers);
+            }
+        }
+    }
+
+    private Set<EntitlementIdentifier> createEntitlementIdentifiers(Collection<? extends ResourceAttribute<?>> identifiers) {
+        Set<EntitlementIdentifier> rv = new HashSet<>();
+        for (ResourceAttribute<?> identifier : emptyIfNull(identifiers)) {
+            ResourceAttributeDefinition<?> definition = identifier.getDefinition();
+            if (definition == null) {
+                return Collections.emptySet();
+            }
+            for (Object value : identifier.getRealValues()) {
+                rv.add(new EntitlementIdentifier(definition, value, normalize(definition, value)));
+            }
+        }
+        return rv;
+    }
+
+    /**
+     * Drops indices built from objects of given object class (or all object classes, if null) on given resource.
+     * Indices being built are dropped as well, so their results are not stored.
+     */
+    void invalidate(String resourceOid, QName objectClassName) {
+        if (!cache.isEmpty()) {
+            cache.keySet().removeIf(key -> key.matches(resourceOid, objectClassName));
+        }
+        if (!changedEntitlements.isEmpty()) {
+            changedEntitlements.keySet().removeIf(key -> key.matches(resourceOid, objectClassName));
+        }
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null || type.isAssignableFrom(ResourceType.class)) {
+            if (oid != null) {
+                invalidate(oid, null);
+            } else {
+                cache.clear();
+                changedEntitlements.clear();
+            }
+        }
+    }
+
+    private Object normalize(ResourceAttributeDefinition<?> definition, Object value) {
+        try {
+            MatchingRule<Object> matchingRule =
+                    matchingRuleRegistry.getMatchingRule(definition.getMatchingRuleQName(), definition.getTypeName());
+            return matchingRule.normalize(value);
+        } catch (SchemaException e) {
+            LoggingUtils.logExceptionAsWarning(LOGGER, "Couldn't normalize value {} of {}, using it as is", e,
+                    value, definition.getItemName());
+            return value;
+        }
+    }
+
+    private static <T> Collection<T> emptyIfNull(Collection<T> collection) {
+        return collection != null ? collection : Collections.emptySet();
+    }
+
+    @NotNull
+    @Override
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(
+                new SingleCacheStateInformationType(prismContext)
+                        .name(EntitlementMembershipCache.class.getName())
+                        .size(cache.size())
+        );
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            cache.forEach((key, future) -> {
+                Index index = future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+                if (index != null) {
+                    LOGGER_CONTENT.info("Cached membership index: {}: {} values (expires at {})",
+                            key, index.entitlementsByValue.size(), new Date(index.expiresAt));
+                } else {
+                    LOGGER_CONTENT.info("Cached membership index: {}: being built", key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Searches for entitlement objects and indexes them by normalized values of the association attribute.
+     */
+    @FunctionalInterface
+    interface IndexLoader {
+
+        /**
+         * @param query Entitlements to be searched for; null means all of them.
+         */
+        Map<Object, List<PrismObject<ShadowType>>> load(@Nullable ObjectQuery query)
+                throws SchemaException, CommunicationException, ObjectNotFoundException, ConfigurationException,
+                SecurityViolationException, ExpressionEvaluationException;
+    }
+
+    @FunctionalInterface
+    private interface IndexSupplier {
+        Index get() throws SchemaException, CommunicationException, ObjectNotFoundException, ConfigurationException,
+                SecurityViolationException, ExpressionEvaluationException;
+    }
+
+    static class Key {
+        private final String resourceOid;
+        private final QName objectClassName;
+        private final QName associationName;
+        private final String intent;
+
+        Key(String resourceOid, QName objectClassName, QName associationName, String intent) {
+            this.resourceOid = resourceOid;
+            this.objectClassName = objectClassName;
+            this.associationName = associationName;
+            this.intent = intent;
+        }
+
+        private boolean matches(String resourceOid, QName objectClassName) {
+            return Objects.equals(this.resourceOid, resourceOid)
+                    && (objectClassName == null || QNameUtil.match(this.objectClassName, objectClassName));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(resourceOid, key.resourceOid) &&
+                    Objects.equals(objectClassName, key.objectClassName) &&
+                    Objects.equals(associationName, key.associationName) &&
+                    Objects.equals(intent, key.intent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceOid, objectClassName, associationName, intent);
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                    "resourceOid='" + resourceOid + '\'' +
+                    ", objectClassName=" + objectClassName +
+                    ", associationName=" + associationName +
+                    ", intent='" + intent + '\'' +
+                    '}';
+        }
+    }
+
+    /**
+     * Identifier (primary or secondary) of a changed entitlement.
+     */
+    private static class EntitlementIdentifier {
+        private final ResourceAttributeDefinition<?> definition;
+        private final Object value;
+        private final Object normalizedValue;
+
+        private EntitlementIdentifier(ResourceAttributeDefinition<?> definition, Object value, Object normalizedValue) {
+            this.definition = definition;
+            this.value = value;
+            this.normalizedValue = normalizedValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntitlementIdentifier)) {
+                return false;
+            }
+            EntitlementIdentifier that = (EntitlementIdentifier) o;
+            return QNameUtil.match(definition.getItemName(), that.definition.getItemName()) &&
+                    Objects.equals(normalizedValue, that.normalizedValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(definition.getItemName().getLocalPart(), normalizedValue);
+        }
+
+        @Override
+        public String toString() {
+            return definition.getItemName().getLocalPart() + "=" + value;
+        }
+    }
+
+    private class Index {
+        private final Map<Object, List<PrismObject<ShadowType>>> entitlementsByValue;
+        private final long expiresAt;
+
+        private Index(Map<Object, List<PrismObject<ShadowType>>> entitlementsByValue, long expiresAt) {
+            this.entitlementsByValue = entitlementsByValue;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Creates a copy of this index with changed entitlements replaced by their current versions.
+         * The original index is not modified, as it can be used by other threads.
+         */
+        private Index refresh(Set<EntitlementIdentifier> changed, Map<Object, List<PrismObject<ShadowType>>> reloaded) {
+            Map<Object, List<PrismObject<ShadowType>>> refreshed = new HashMap<>();
+            entitlementsByValue.forEach((value, entitlements) -> {
+                List<PrismObject<ShadowType>> kept = new ArrayList<>();
+                for (PrismObject<ShadowType> entitlement : entitlements) {
+                    if (!isAmong(entitlement, changed)) {
+                        kept.add(entitlement);
+                    }
+                }
+                if (!kept.isEmpty()) {
+                    refreshed.put(value, kept);
+                }
+            });
+            reloaded.forEach((value, entitlements) ->
+                    refreshed.computeIfAbsent(value, k -> new ArrayList<>()).addAll(entitlements));
+            return new Index(refreshed, expiresAt);
+        }
+
+        private boolean isAmong(PrismObject<ShadowType> entitlement, Set<EntitlementIdentifier> identifiers) {
+            for (EntitlementIdentifier identifier : identifiers) {
+                ResourceAttribute<?> attribute = ShadowUtil.getAttribute(entitlement, identifier.definition.getItemName());
+                if (attribute != null) {
+                    for (Object value : attribute.getRealValues()) {
+                        if (Objects.equals(identifier.normalizedValue, normalize(identifier.definition, value))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.evolveum.midpoint.prism.util.CloneUtil;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.task.api.LightweightTaskHandler;
+import com.evolveum.midpoint.task.api.RunningTask;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Processes items in a given number of worker threads (lightweight subtasks of the parent task). Items are submitted
+ * by the parent task thread into a bounded queue: when the queue is full, the submitting thread waits.
+ *
+ * Each worker thread gets its own {@link Worker} instance, so the worker can keep thread-specific state (e.g. a batch).
+ *
+ * Processing stops when a worker returns false, when a worker encounters an error, or when the parent task is suspended.
+ * The first worker failure is re-thrown by {@link #finish()}.
+ *
+ * While waiting (for a free place in the queue or for the workers to finish), the submitting thread executes
+ * the wait action, if set (see {@link #setWaitAction(Runnable)}). This can be used to consume the results of the workers
+ * in the submitting thread.
+ *
+ * Usage: {@link #submit(Object)} items, then call {@link #finish()}, and always {@link #close(OperationResult)}
+ * the pool (in a finally block).
+ */
+public class LightweightWorkerPool<T> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(LightweightWorkerPool.class);
+
+    private static final long QUEUE_WAIT = 500L;
+    private static final long QUEUE_WAIT_WITH_ACTION = 100L;
+
+    /**
+     * Processes items in a single worker thread.
+     */
+    public interface Worker<T> {
+
+        /**
+         * @return false if the processing should stop
+         */
+        boolean process(T item) throws Exception;
+
+        /**
+         * Called after all the items are processed (not called if the processing was stopped or failed).
+         *
+         * @return false if the processing should stop
+         */
+        default boolean finish() throws Exception {
+            return true;
+        }
+
+        /**
+         * Called when the worker thread ends, regardless of the reason.
+         */
+        default void close() {
+        }
+    }
+
+    @FunctionalInterface
+    public interface WorkerFactory<T> {
+        Worker<T> createWorker(RunningTask workerTask, OperationResult workerResult);
+    }
+
+    private final RunningTask parentTask;
+    private final String description;
+
+    private final BlockingQueue<T> waitingItems;
+    private final List<OperationResult> workerSpecificResults = new ArrayList<>();
+    private final CountDownLatch workersFinished;
+
+    private volatile boolean allItemsSubmitted;
+    private volatile boolean stopped;
+    private volatile Throwable workerFailure;
+    private boolean closed;
+    private Runnable waitAction;
+
+    /**
+     * @param operationName Name of the worker-specific operation results.
+     * @param description What is processed, e.g. "resource objects". Used in subtask names and error messages.
+     */
+    public LightweightWorkerPool(RunningTask parentTask, int threadsCount, String operationName, String description,
+            WorkerFactory<T> workerFactory) {
+        if (!canCreateWorkers(parentTask)) {
+            throw new IllegalStateException("Worker threads cannot be created for " + parentTask);
+        }
+        this.parentTask = parentTask;
+        this.description = description;
+        // Workers can keep their own batches, so the queue needs to hold only a few items for each of them.
+        this.waitingItems = new ArrayBlockingQueue<>(threadsCount * 2);
+        this.workersFinished = new CountDownLatch(threadsCount);
+        int started = 0;
+        try {
+            for (int i = 0; i < threadsCount; i++) {
+                // Worker results are put under the parent result only after the workers finish (because of concurrency issues).
+                OperationResult workerSpecificResult = new OperationResult(operationName);
+                workerSpecificResult.addContext("subtaskIndex", i + 1);
+                workerSpecificResults.add(workerSpecificResult);
+
+                RunningTask subtask = parentTask.createSubtask(new WorkerHandler(workerFactory, workerSpecificResult));
+                subtask.setCategory(parentTask.getCategory());
+                subtask.setResult(new OperationResult(operationName, OperationResultStatus.IN_PROGRESS, (String) null));
+                subtask.setName("Worker thread " + (i + 1) + " of " + threadsCount + " processing " + description);
+                subtask.setExecutionEnvironment(CloneUtil.clone(parentTask.getExecutionEnvironment()));
+                subtask.startLightweightHandler();
+                started++;
+                LOGGER.trace("Worker subtask {} created", subtask);
+            }
+        } catch (Throwable t) {
+            // Workers that were not started will never count down the latch, so we do it for them. The started ones
+            // exit as soon as they notice the pool is stopped.
+            stopped = true;
+            allItemsSubmitted = true;
+            for (int i = started; i < threadsCount; i++) {
+                workersFinished.countDown();
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * Worker threads can be created only by a running task that is not a lightweight subtask itself.
+     * (Lightweight subtasks of lightweight subtasks are not supported by the task manager.)
+     */
+    public static boolean canCreateWorkers(Task task) {
+        return task instanceof RunningTask && !((RunningTask) task).isLightweightAsynchronousTask();
+    }
+
+    /**
+     * Sets the action that is executed by the submitting thread repeatedly while it waits in {@link #submit(Object)}
+     * or {@link #finish()}, and once more after all the workers finish. Exceptions thrown by the action are propagated
+     * to the caller of these methods.
+     */
+    public void setWaitAction(Runnable waitAction) {
+        this.waitAction = waitAction;
+    }
+
+    /**
+     * Puts the item into the queue, waiting while the queue is full.
+     *
+     * @return false if the processing was stopped (the item was then not submitted)
+     */
+    public boolean submit(T item) {
+        try {
+            while (!stopped && !waitingItems.offer(item, getQueueWait(), TimeUnit.MILLISECONDS)) {
+                executeWaitAction();
+                if (!parentTask.canRun()) {
+                    stopped = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.trace("Interrupted while submitting {}", item, e);
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        return !stopped;
+    }
+
+    /**
+     * Waits until the workers process all the submitted items. Re-throws the failure of a worker, if any.
+     */
+    public void finish() {
+        allItemsSubmitted = true;
+        try {
+            while (!workersFinished.await(getQueueWait(), TimeUnit.MILLISECONDS)) {
+                executeWaitAction();
+                if (!parentTask.canRun()) {
+                    stopped = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.trace("Interrupted while waiting for the workers to finish", e);
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        executeWaitAction();
+        Throwable failure = workerFailure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new SystemException("Couldn't process " + description + ": " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Stops the workers (if they are still running), waits for them, and puts their results under the parent result.
+     */
+    public void close(OperationResult parentResult) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        allItemsSubmitted = true;
+        stopped = true;
+        try {
+            workersFinished.await();
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted while waiting for the workers to stop", e);
+            Thread.currentThread().interrupt();
+        }
+        for (OperationResult workerSpecificResult : workerSpecificResults) {
+            workerSpecificResult.computeStatus();
+            workerSpecificResult.summarize(true);
+            workerSpecificResult.cleanupResultDeeply();
+            parentResult.addSubresult(workerSpecificResult);
+        }
+    }
+
+    /**
+     * Stops the processing: items not yet taken by the workers are not processed.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void executeWaitAction() {
+        if (waitAction != null) {
+            waitAction.run();
+        }
+    }
+
+    /**
+     * If the submitting thread has something to do while waiting, it should not wait too long.
+     */
+    private long getQueueWait() {
+        return waitAction != null ? QUEUE_WAIT_WITH_ACTION : QUEUE_WAIT;
+    }
+
+    private class WorkerHandler implements LightweightTaskHandler {
+
+        private final WorkerFactory<T> workerFactory;
+        private final OperationResult workerSpecificResult;
+
+        private WorkerHandler(WorkerFactory<T> workerFactory, OperationResult workerSpecificResult) {
+            this.workerFactory = workerFactory;
+            this.workerSpecificResult = workerSpecificResult;
+        }
+
+        @Override
+        public void run(RunningTask workerTask) {
+            workerSpecificResult.addArbitraryObjectAsContext("subtaskName", workerTask.getName());
+            Worker<T> worker = null;
+            try {
+                worker = workerFactory.createWorker(workerTask, workerSpecificResult);
+                while (workerTask.canRun() && !stopped) {
+                    // The flag must be read before polling: if it was set, every item had been offered before,
+                    // so an empty poll means there is nothing left. (Reading it after the poll could miss an item
+                    // offered while this worker was waiting.)
+                    boolean lastItemSubmitted = allItemsSubmitted;
+                    T item = waitingItems.poll(QUEUE_WAIT, TimeUnit.MILLISECONDS);
+                    if (item != null) {
+                        if (!worker.process(item)) {
+                            stopped = true;
+                        }
+                    } else if (lastItemSubmitted) {
+                        LOGGER.trace("Queue is empty and nothing more is expected - exiting");
+                        if (!worker.finish()) {
+                            stopped = true;
+                        }
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOGGER.trace("Interrupted when waiting for next item", e);
+                stopped = true;
+            } catch (Throwable t) {
+                LOGGER.error("Couldn't process {}: {}", description, t.getMessage(), t);
+                workerSpecificResult.recordFatalError(t);
+                if (workerFailure == null) {
+                    workerFailure = t;
+                }
+                stopped = true;
+            } finally {
+                if (worker != null) {
+                    worker.close();
+                }
+                workersFinished.countDown();
+            }
+        }
+    }
+}
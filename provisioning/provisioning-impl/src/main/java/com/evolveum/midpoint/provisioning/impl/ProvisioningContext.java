@@ -264,6 +264,27 @@ public class ProvisioningContext extends StateReporter {
         return ctx;
     }
 
+    /**
+     * Creates a copy of this context to be used by a worker thread. Connector instances already obtained
+     * are shared but the map holding them is not, as it is filled-in lazily.
+     */
+    public ProvisioningContext spawn(Task workerTask) {
+        ProvisioningContext ctx = spawnSameResource();
+        ctx.setTask(workerTask);
+        if (connectorMap != null) {
+            ctx.connectorMap = new HashMap<>(connectorMap);
+        }
+        ctx.getOperationOptions = this.getOperationOptions;
+        ctx.originalShadow = this.originalShadow;
+        ctx.shadowCoordinates = this.shadowCoordinates;
+        ctx.additionalAuxiliaryObjectClassQNames = this.additionalAuxiliaryObjectClassQNames;
+        ctx.useRefinedDefinition = this.useRefinedDefinition;
+        ctx.isPropagation = this.isPropagation;
+        ctx.objectClassDefinition = this.objectClassDefinition;
+        ctx.channelOverride = this.channelOverride;
+        return ctx;
+    }
+
 //    /**
 //     * Creates a context for a different object class on the same resource.
 //     */
@@ -95,6 +95,7 @@ public class ProvisioningServiceImpl implements ProvisioningService, SystemConfi
     @Autowired ShadowCache shadowCache;
     @Autowired ResourceManager resourceManager;
     @Autowired ConnectorManager connectorManager;
+    @Autowired ConnectorWarmUpManager connectorWarmUpManager;
     @Autowired ProvisioningContextFactory ctxFactory;
     @Autowired PrismContext prismContext;
     @Autowired CacheConfigurationManager cacheConfigurationManager;
@@ -1133,6 +1134,9 @@ public class ProvisioningServiceImpl implements ProvisioningService, SystemConfi
             LOGGER.info("Discovered local connector {}", ObjectTypeUtil.toShortString(connector));
         }
 
+        // Prepare connector instances for resources that require it (in the background)
+        connectorWarmUpManager.warmUpAllResources();
+
         result.computeStatus("Provisioning post-initialization failed");
         result.cleanupResult();
     }
@@ -7,11 +7,14 @@
 package com.evolveum.midpoint.provisioning.impl;
 
 import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.repo.api.Cacheable;
+import com.evolveum.midpoint.repo.api.ModifyObjectResult;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.cache.invalidation.RepositoryCacheInvalidationDetails;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
@@ -180,17 +183,33 @@ public class ResourceCache implements Cacheable {
         cache.remove(oid);
     }
 
+    /**
+     * Besides the cached resources, invalidates also the parsed schemas shared among resource versions
+     * (see {@link RefinedResourceSchemaImpl}). These are kept on local modifications, as they are checked against
+     * the schema content anyway. But they are evicted on deletions and on changes coming from other nodes
+     * (for which we do not know what has happened), so they are not kept for resources that no longer exist.
+     */
     @Override
     public synchronized void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
         if (type == null || type.isAssignableFrom(ResourceType.class)) {
             if (oid != null) {
                 remove(oid);
+                if (!isLocalModification(context)) {
+                    RefinedResourceSchemaImpl.evictSharedSchemas(oid);
+                }
             } else {
                 cache.clear();
+                RefinedResourceSchemaImpl.evictAllSharedSchemas();
             }
         }
     }
 
+    private boolean isLocalModification(CacheInvalidationContext context) {
+        return context != null
+                && context.getDetails() instanceof RepositoryCacheInvalidationDetails
+                && ((RepositoryCacheInvalidationDetails) context.getDetails()).getObject() instanceof ModifyObjectResult;
+    }
+
     @NotNull
     @Override
     public synchronized Collection<SingleCacheStateInformationType> getStateInformation() {
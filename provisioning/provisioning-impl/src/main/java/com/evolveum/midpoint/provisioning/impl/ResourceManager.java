@@ -1282,12 +1282,23 @@ public class ResourceManager {
             ConnectorOperationalStatus operationalStatus = connectorInstance.getOperationalStatus();
             if (operationalStatus != null) {
                 operationalStatus.setConnectorName(connectorSpec.getConnectorName());
+                connectorManager.fillInInstanceStatistics(connectorSpec, operationalStatus);
                 statuses.add(operationalStatus);
             }
         }
         return statuses;
     }
 
+    /**
+     * Creates and configures (if needed) connector instances for all the connectors of the resource.
+     */
+    void warmUpConnectorInstances(PrismObject<ResourceType> resource, OperationResult result)
+            throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException {
+        for (ConnectorSpec connectorSpec: getAllConnectorSpecs(resource)) {
+            connectorManager.warmUpConnectorInstance(connectorSpec, result);
+        }
+    }
+
     private List<ConnectorSpec> getAllConnectorSpecs(PrismObject<ResourceType> resource) throws SchemaException {
         List<ConnectorSpec> connectorSpecs = new ArrayList<>();
         connectorSpecs.add(getDefaultConnectorSpec(resource));
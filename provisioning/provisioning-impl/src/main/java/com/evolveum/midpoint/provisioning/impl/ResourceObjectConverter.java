@@ -86,6 +86,7 @@ public class ResourceObjectConverter {
     private static final String OPERATION_HANDLE_CHANGE = DOT_CLASS + "handleChange";
 
     @Autowired private EntitlementConverter entitlementConverter;
+    @Autowired private EntitlementMembershipCache entitlementMembershipCache;
     @Autowired private MatchingRuleRegistry matchingRuleRegistry;
     @Autowired private ResourceObjectReferenceResolver resourceObjectReferenceResolver;
     @Autowired private ShadowCaretaker shadowCaretaker;
@@ -259,7 +260,12 @@ public class ResourceObjectConverter {
                 }
                 transformActivationAttributesAdd(ctx, shadowType, result);
 
-                connectorAsyncOpRet = connector.addObject(shadowClone, ctx, result);
+                try {
+                    connectorAsyncOpRet = connector.addObject(shadowClone, ctx, result);
+                } finally {
+                    entitlementMembershipCache.invalidate(ctx.getResourceOid(), shadowType.getObjectClass(),
+                            ShadowUtil.getAllIdentifiers(shadowClone));
+                }
                 resourceAttributesAfterAdd = connectorAsyncOpRet.getReturnValue();
 
                 if (LOGGER.isDebugEnabled()) {
@@ -407,7 +413,12 @@ public class ResourceObjectConverter {
                 throw e;
             }
 
-            connectorAsyncOpRet = connector.deleteObject(ctx.getObjectClassDefinition(), shadow, identifiers, ctx, result);
+            try {
+                connectorAsyncOpRet = connector.deleteObject(ctx.getObjectClassDefinition(), shadow, identifiers, ctx, result);
+            } finally {
+                entitlementMembershipCache.invalidate(ctx.getResourceOid(), ctx.getObjectClassDefinition().getTypeName(),
+                        identifiers);
+            }
 
         } catch (ObjectNotFoundException ex) {
             result.recordFatalError("Can't delete object " + shadow
@@ -648,6 +659,18 @@ public class ResourceObjectConverter {
         }
     }
 
+    private boolean changesIdentifiers(Collection<Operation> operations, RefinedObjectClassDefinition objectClassDefinition) {
+        for (Operation operation : operations) {
+            if (operation instanceof PropertyModificationOperation) {
+                QName attrName = ((PropertyModificationOperation<?>) operation).getPropertyDelta().getElementName();
+                if (objectClassDefinition.isPrimaryIdentifier(attrName) || objectClassDefinition.isSecondaryIdentifier(attrName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private Collection<PropertyDelta<PrismPropertyValue>> convertToPropertyDelta(
             Collection<PropertyModificationOperation> sideEffectOperations) {
         Collection<PropertyDelta<PrismPropertyValue>> sideEffectDeltas = new ArrayList<>();
@@ -766,7 +789,13 @@ public class ResourceObjectConverter {
 
                 if (!operationsWave.isEmpty()) {
                     ResourceObjectIdentification identification = ResourceObjectIdentification.create(objectClassDefinition, identifiersWorkingCopy);
-                    connectorAsyncOpRet = connector.modifyObject(identification, currentShadow, operationsWave, connOptions, ctx, parentResult);
+                    try {
+                        connectorAsyncOpRet = connector.modifyObject(identification, currentShadow, operationsWave, connOptions, ctx, parentResult);
+                    } finally {
+                        // After a rename the entitlement cannot be reliably found by the original identifiers.
+                        entitlementMembershipCache.invalidate(ctx.getResourceOid(), objectClassDefinition.getTypeName(),
+                                changesIdentifiers(operationsWave, objectClassDefinition) ? null : identifiersWorkingCopy);
+                    }
                     Collection<PropertyModificationOperation> sideEffects = connectorAsyncOpRet.getReturnValue();
                     if (sideEffects != null) {
                         sideEffectChanges.addAll(sideEffects);
@@ -1827,8 +1856,11 @@ public class ResourceObjectConverter {
         return ShadowType.F_ATTRIBUTES.equivalent(itemDelta.getParentPath());
     }
 
-    public void fetchChanges(ProvisioningContext ctx, @NotNull PrismProperty<?> initialToken, ChangeHandler changeHandler,
-            OperationResult parentResult) throws SchemaException, CommunicationException, ConfigurationException,
+    /**
+     * @param batchSize Maximal number of changes to fetch (null or non-positive means no limit).
+     */
+    public void fetchChanges(ProvisioningContext ctx, @NotNull PrismProperty<?> initialToken, @Nullable Integer batchSize,
+            ChangeHandler changeHandler, OperationResult parentResult) throws SchemaException, CommunicationException, ConfigurationException,
             SecurityViolationException, GenericFrameworkException, ObjectNotFoundException, ExpressionEvaluationException {
 
         LOGGER.trace("START fetch changes from {}, objectClass: {}", initialToken, ctx.getObjectClassDefinition());
@@ -1840,7 +1872,7 @@ public class ResourceObjectConverter {
         }
 
         ConnectorInstance connector = ctx.getConnector(LiveSyncCapabilityType.class, parentResult);
-        Integer maxChanges = getMaxChanges(ctx);
+        Integer maxChanges = getMaxChanges(ctx, batchSize);
 
         Holder<Boolean> allChangesFetchedHolder = new Holder<>();           // for diag purposes
         Holder<PrismProperty<?>> finalTokenHolder = new Holder<>();         // for diag purposes
@@ -1929,9 +1961,8 @@ public class ResourceObjectConverter {
     }
 
     @Nullable
-    private Integer getMaxChanges(ProvisioningContext ctx) throws SchemaException, ObjectNotFoundException,
+    private Integer getMaxChanges(ProvisioningContext ctx, Integer batchSizeInTask) throws SchemaException, ObjectNotFoundException,
             CommunicationException, ConfigurationException, ExpressionEvaluationException {
-        Integer batchSizeInTask = ctx.getTask().getExtensionPropertyRealValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_BATCH_SIZE);
         LiveSyncCapabilityType capability = ctx.getEffectiveCapability(LiveSyncCapabilityType.class);
         if (capability != null) {
             if (Boolean.TRUE.equals(capability.isPreciseTokenValue())) {
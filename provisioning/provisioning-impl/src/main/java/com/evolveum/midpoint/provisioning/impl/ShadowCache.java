@@ -27,6 +27,7 @@ import com.evolveum.midpoint.provisioning.impl.shadowmanager.ShadowManager;
 import com.evolveum.midpoint.provisioning.ucf.api.*;
 import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
@@ -43,6 +44,7 @@ import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
 import com.evolveum.midpoint.schema.util.ResourceTypeUtil;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
+import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.DebugUtil;
@@ -73,6 +75,7 @@ import javax.xml.namespace.QName;
 
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Shadow cache is a facade that covers all the operations with shadows. It
@@ -95,6 +98,10 @@ public class ShadowCache {
     private static final String OP_OPERATION_RETRY = ShadowCache.class.getName() + ".operationRetry";
     private static final String OP_RESOURCE_OPERATION = ShadowCache.class.getName() + ".resourceOperation";
     private static final String OP_REFRESH_RETRY = ShadowCache.class.getName() + ".refreshRetry";
+    private static final String OP_PROCESS_BATCHED_OBJECT = ShadowCache.class.getName() + ".processBatchedObject";
+    private static final String OP_LOOKUP_SHADOWS_IN_BULK = ShadowCache.class.getName() + ".lookupShadowsInBulk";
+    private static final String OP_PROCESS_OBJECTS_ASYNCHRONOUSLY = ShadowCache.class.getName() + ".processObjectsAsynchronously";
+    private static final String OP_HANDLE_PROCESSED_OBJECT = ShadowCache.class.getName() + ".handleProcessedObject";
 
     @Autowired
     @Qualifier("cacheRepositoryService")
@@ -857,6 +864,16 @@ public class ShadowCache {
         }
     }
 
+    /**
+     * Searches repository shadows for the purpose of uniqueness checking. The query values are normalized
+     * according to attribute matching rules, but the shadows found are returned as they are in the repository.
+     */
+    SearchResultList<PrismObject<ShadowType>> searchShadowsForUniquenessCheck(ProvisioningContext ctx, ObjectQuery query,
+            OperationResult result) throws SchemaException, ConfigurationException, ObjectNotFoundException,
+            CommunicationException, ExpressionEvaluationException {
+        return shadowManager.searchObjectsRepository(ctx, query, null, result);
+    }
+
     private void validateSchema(ProvisioningContext ctx, PrismObject<ShadowType> shadow, Task task, OperationResult result) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, ExpressionEvaluationException {
         if (ResourceTypeUtil.isValidateSchema(ctx.getResource())) {
             ShadowUtil.validateAttributeSchema(shadow, ctx.getObjectClassDefinition());
@@ -2029,79 +2046,135 @@ public class ShadowCache {
 
         ObjectQuery attributeQuery = createAttributeQuery(query);
 
-        ResultHandler<ShadowType> resultHandler = (PrismObject<ShadowType> resourceObject, OperationResult objResult) -> {
-            LOGGER.trace("Found resource object\n{}", resourceObject.debugDumpLazily(1));
-            PrismObject<ShadowType> resultShadow;
-                try {
-                    // The shadow does not have any kind or intent at this point.
-                    // But at least locate the definition using object classes.
-                    ProvisioningContext estimatedShadowCtx = shadowCaretaker.reapplyDefinitions(ctx, resourceObject);
-                    // Try to find shadow that corresponds to the resource object.
-                    if (readFromRepository) {
-                        PrismObject<ShadowType> repoShadow = acquireRepositoryShadow(
-                                estimatedShadowCtx, resourceObject, true, isDoDiscovery, objResult);
-
-                        // This determines the definitions exactly. How the repo
-                        // shadow should have proper kind/intent
-                        ProvisioningContext shadowCtx = shadowCaretaker.applyAttributesDefinition(ctx, repoShadow);
-                        // TODO: shadowState
-                        repoShadow = shadowManager.updateShadow(shadowCtx, resourceObject, null, repoShadow, null, objResult);
-
-                        resultShadow = completeShadow(shadowCtx, resourceObject, repoShadow, isDoDiscovery, objResult);
-
-                        // TODO do we want also to futurize the shadow like in getObject?
-
-                        //check and fix kind/intent
-                        ShadowType repoShadowType = repoShadow.asObjectable();
-                        if (isDoDiscovery && (repoShadowType.getKind() == null || repoShadowType.getIntent() == null)) { //TODO: check also empty?
-                            // notify resourceObjectChangeListeners to fix kind and intent for Shadow
-                            // Do NOT invoke this if discovery is disabled. This may ruin the flow (e.g. when importing objects)
-                            // or it may lead to discovery loops.
-                            notifyResourceObjectChangeListeners(repoShadow, ctx.getResource().asPrismObject(), false);
-                        }
+        boolean fetchAssociations = SelectorOptions.hasToLoadPath(ShadowType.F_ASSOCIATION, options);
 
-                    } else {
-                        resultShadow = resourceObject;
-                    }
+        int shadowLookupBatchSize = readFromRepository ? getShadowLookupBatchSize(ctx) : 1;
+        int processingThreads = readFromRepository ? getResourceObjectProcessingThreads(ctx) : 0;
+        if (processingThreads > 0) {
+            ResourceObjectProcessingPipeline pipeline = new ResourceObjectProcessingPipeline(ctx, handler, isDoDiscovery,
+                    shadowLookupBatchSize, processingThreads, parentResult);
+            try {
+                SearchResultMetadata metadata = resourceObjectConverter.searchResourceObjects(ctx, pipeline::submit,
+                        attributeQuery, fetchAssociations, parentResult);
+                pipeline.finish();
+                return metadata;
+            } finally {
+                pipeline.close();
+            }
+        } else if (shadowLookupBatchSize > 1) {
+            ShadowLookupBatch batch = new ShadowLookupBatch(ctx, handler, isDoDiscovery, shadowLookupBatchSize, parentResult);
+            SearchResultMetadata metadata = resourceObjectConverter.searchResourceObjects(ctx, batch::add, attributeQuery,
+                    fetchAssociations, parentResult);
+            batch.flush();
+            return metadata;
+        } else {
+            ResultHandler<ShadowType> resultHandler = (resourceObject, objResult) ->
+                    processFoundResourceObject(ctx, resourceObject, null, handler, readFromRepository, isDoDiscovery, objResult);
+            return resourceObjectConverter.searchResourceObjects(ctx, resultHandler, attributeQuery,
+                    fetchAssociations, parentResult);
+        }
+    }
 
-                    validateShadow(resultShadow, readFromRepository);
-
-                } catch (SchemaException e) {
-                    objResult.recordFatalError("Schema error: " + e.getMessage(), e);
-                    LOGGER.error("Schema error: {}", e.getMessage(), e);
-                    return false;
-                } catch (ConfigurationException e) {
-                    objResult.recordFatalError("Configuration error: " + e.getMessage(), e);
-                    LOGGER.error("Configuration error: {}", e.getMessage(), e);
-                    return false;
-                } catch (ObjectNotFoundException | CommunicationException
-                        | SecurityViolationException | GenericConnectorException | ExpressionEvaluationException | EncryptionException e) {
-                    objResult.recordFatalError(e.getMessage(), e);
-                    LOGGER.error("{}", e.getMessage(), e);
-                    return false;
+    /**
+     * Acquires repository shadow for the resource object found by the search, completes it, and passes the result
+     * to the handler.
+     *
+     * @param prefetchedRepoShadow Live repository shadow already looked up for the resource object (if known).
+     */
+    private boolean processFoundResourceObject(ProvisioningContext ctx, PrismObject<ShadowType> resourceObject,
+            PrismObject<ShadowType> prefetchedRepoShadow, ResultHandler<ShadowType> handler, boolean readFromRepository,
+            boolean isDoDiscovery, OperationResult objResult) {
+        LOGGER.trace("Found resource object\n{}", resourceObject.debugDumpLazily(1));
+        PrismObject<ShadowType> resultShadow;
+        try {
+            // The shadow does not have any kind or intent at this point.
+            // But at least locate the definition using object classes.
+            ProvisioningContext estimatedShadowCtx = shadowCaretaker.reapplyDefinitions(ctx, resourceObject);
+            // Try to find shadow that corresponds to the resource object.
+            if (readFromRepository) {
+                PrismObject<ShadowType> repoShadow = acquireRepositoryShadow(
+                        estimatedShadowCtx, resourceObject, prefetchedRepoShadow, true, isDoDiscovery, objResult);
+
+                // This determines the definitions exactly. How the repo
+                // shadow should have proper kind/intent
+                ProvisioningContext shadowCtx = shadowCaretaker.applyAttributesDefinition(ctx, repoShadow);
+                // TODO: shadowState
+                repoShadow = shadowManager.updateShadow(shadowCtx, resourceObject, null, repoShadow, null, objResult);
+
+                resultShadow = completeShadow(shadowCtx, resourceObject, repoShadow, isDoDiscovery, objResult);
+
+                // TODO do we want also to futurize the shadow like in getObject?
+
+                //check and fix kind/intent
+                ShadowType repoShadowType = repoShadow.asObjectable();
+                if (isDoDiscovery && (repoShadowType.getKind() == null || repoShadowType.getIntent() == null)) { //TODO: check also empty?
+                    // notify resourceObjectChangeListeners to fix kind and intent for Shadow
+                    // Do NOT invoke this if discovery is disabled. This may ruin the flow (e.g. when importing objects)
+                    // or it may lead to discovery loops.
+                    notifyResourceObjectChangeListeners(repoShadow, ctx.getResource().asPrismObject(), false);
                 }
 
-                boolean doContinue;
-                try {
+            } else {
+                resultShadow = resourceObject;
+            }
 
-                    doContinue =  handler.handle(resultShadow, objResult);
+            validateShadow(resultShadow, readFromRepository);
 
-                    objResult.computeStatus();
-                    objResult.recordSuccessIfUnknown();
+        } catch (SchemaException e) {
+            objResult.recordFatalError("Schema error: " + e.getMessage(), e);
+            LOGGER.error("Schema error: {}", e.getMessage(), e);
+            return false;
+        } catch (ConfigurationException e) {
+            objResult.recordFatalError("Configuration error: " + e.getMessage(), e);
+            LOGGER.error("Configuration error: {}", e.getMessage(), e);
+            return false;
+        } catch (ObjectNotFoundException | CommunicationException
+                | SecurityViolationException | GenericConnectorException | ExpressionEvaluationException | EncryptionException e) {
+            objResult.recordFatalError(e.getMessage(), e);
+            LOGGER.error("{}", e.getMessage(), e);
+            return false;
+        }
 
-                } catch (RuntimeException | Error e) {
-                    objResult.recordFatalError(e);
-                    throw e;
-                }
+        boolean doContinue;
+        try {
 
-                return doContinue;
-            };
+            doContinue =  handler.handle(resultShadow, objResult);
 
-        boolean fetchAssociations = SelectorOptions.hasToLoadPath(ShadowType.F_ASSOCIATION, options);
+            objResult.computeStatus();
+            objResult.recordSuccessIfUnknown();
 
-        return resourceObjectConverter.searchResourceObjects(ctx, resultHandler, attributeQuery,
-                fetchAssociations, parentResult);
+        } catch (RuntimeException | Error e) {
+            objResult.recordFatalError(e);
+            throw e;
+        }
 
+        return doContinue;
+    }
+
+    private int getShadowLookupBatchSize(ProvisioningContext ctx) throws SchemaException, ObjectNotFoundException,
+            CommunicationException, ConfigurationException, ExpressionEvaluationException {
+        ResourceConsistencyType consistency = ctx.getResource().getConsistency();
+        if (consistency == null || consistency.getShadowLookupBatchSize() == null) {
+            return 1;
+        }
+        return consistency.getShadowLookupBatchSize();
+    }
+
+    /**
+     * Processing threads are used only if the search is executed by a running task (e.g. import or reconciliation)
+     * that is not a lightweight subtask itself.
+     */
+    private int getResourceObjectProcessingThreads(ProvisioningContext ctx) {
+        Task task = ctx.getTask();
+        if (!LightweightWorkerPool.canCreateWorkers(task)) {
+            return 0;
+        }
+        PrismProperty<Integer> threadsProperty =
+                task.getExtensionPropertyOrClone(SchemaConstants.MODEL_EXTENSION_RESOURCE_OBJECT_PROCESSING_THREADS);
+        if (threadsProperty == null || threadsProperty.getRealValue() == null) {
+            return 0;
+        }
+        return threadsProperty.getRealValue();
     }
 
     @NotNull
@@ -2138,8 +2211,22 @@ public class ShadowCache {
             PrismObject<ShadowType> resourceShadow, boolean unknownIntent, boolean isDoDiscovery, OperationResult parentResult)
                     throws SchemaException, ConfigurationException, ObjectNotFoundException,
                     CommunicationException, SecurityViolationException, GenericConnectorException, ExpressionEvaluationException, EncryptionException {
+        return acquireRepositoryShadow(ctx, resourceShadow, null, unknownIntent, isDoDiscovery, parentResult);
+    }
+
+    /**
+     * @param prefetchedRepoShadow Live repository shadow that was already looked up for the resource object
+     * (e.g. by bulk lookup). If null, the shadow is looked up here.
+     */
+    private PrismObject<ShadowType> acquireRepositoryShadow(ProvisioningContext ctx,
+            PrismObject<ShadowType> resourceShadow, PrismObject<ShadowType> prefetchedRepoShadow, boolean unknownIntent,
+            boolean isDoDiscovery, OperationResult parentResult)
+                    throws SchemaException, ConfigurationException, ObjectNotFoundException,
+                    CommunicationException, SecurityViolationException, GenericConnectorException, ExpressionEvaluationException, EncryptionException {
 
-        PrismObject<ShadowType> existingRepoShadow = shadowManager.lookupLiveShadowInRepository(ctx, resourceShadow, parentResult);
+        PrismObject<ShadowType> existingRepoShadow = prefetchedRepoShadow != null
+                ? prefetchedRepoShadow
+                : shadowManager.lookupLiveShadowInRepository(ctx, resourceShadow, parentResult);
 
         if (existingRepoShadow != null) {
             if (LOGGER.isTraceEnabled()) {
@@ -3190,4 +3277,261 @@ public class ShadowCache {
         return sb.toString();
     }
 
+
+    /**
+     * Collects resource objects found by a search and processes them in batches: repository shadows for the whole
+     * batch are looked up using a single query (see {@link ShadowManager#lookupLiveShadowsByPrimaryIdentifierValues}).
+     * Processing of the objects is therefore deferred until the batch is full or the search is over.
+     * Each deferred object gets its own operation result.
+     *
+     * If the bulk lookup fails, shadows of the affected objects are looked up individually (as without batching),
+     * so errors are reported for each object separately and do not stop the search.
+     */
+    private class ShadowLookupBatch {
+
+        private final ProvisioningContext ctx;
+        private final ResultHandler<ShadowType> handler;
+        private final boolean isDoDiscovery;
+        private final int batchSize;
+        private final OperationResult parentResult;
+
+        private final List<PrismObject<ShadowType>> resourceObjects = new ArrayList<>();
+        private boolean stopped;
+
+        private ShadowLookupBatch(ProvisioningContext ctx, ResultHandler<ShadowType> handler, boolean isDoDiscovery,
+                int batchSize, OperationResult parentResult) {
+            this.ctx = ctx;
+            this.handler = handler;
+            this.isDoDiscovery = isDoDiscovery;
+            this.batchSize = batchSize;
+            this.parentResult = parentResult;
+        }
+
+        private boolean add(PrismObject<ShadowType> resourceObject, OperationResult objResult) {
+            if (stopped) {
+                return false;
+            }
+            resourceObjects.add(resourceObject);
+            if (resourceObjects.size() < batchSize) {
+                return true;
+            }
+            return flush();
+        }
+
+        private boolean flush() {
+            if (stopped || resourceObjects.isEmpty()) {
+                resourceObjects.clear();
+                return !stopped;
+            }
+            List<PrismObject<ShadowType>> objects = new ArrayList<>(resourceObjects);
+            resourceObjects.clear();
+
+            Map<PrismObject<ShadowType>, PrismObject<ShadowType>> repoShadows =
+                    batchSize > 1 ? lookupRepoShadows(objects) : Collections.emptyMap();
+            LOGGER.trace("Processing batch of {} resource objects, {} repository shadow(s) found in bulk",
+                    objects.size(), repoShadows.size());
+
+            for (PrismObject<ShadowType> resourceObject : objects) {
+                OperationResult objResult = parentResult.subresult(OP_PROCESS_BATCHED_OBJECT)
+                        .setMinor()
+                        .build();
+                try {
+                    if (!processFoundResourceObject(ctx, resourceObject, repoShadows.get(resourceObject), handler,
+                            true, isDoDiscovery, objResult)) {
+                        stopped = true;
+                        return false;
+                    }
+                } catch (Throwable t) {
+                    objResult.recordFatalError(t);
+                    throw t;
+                } finally {
+                    objResult.computeStatusIfUnknown();
+                    if (objResult.isSuccess() && !objResult.isTraced()) {
+                        objResult.getSubresults().clear();
+                    }
+                    parentResult.summarize();
+                }
+            }
+            return true;
+        }
+
+        private Map<PrismObject<ShadowType>, PrismObject<ShadowType>> lookupRepoShadows(List<PrismObject<ShadowType>> objects) {
+            // Objects are looked up per object class, because primaryIdentifierValue is unique only within it.
+            Map<QName, ProvisioningContext> contexts = new HashMap<>();
+            Map<QName, Map<String, PrismObject<ShadowType>>> objectsByClass = new HashMap<>();
+            for (PrismObject<ShadowType> resourceObject : objects) {
+                try {
+                    ProvisioningContext estimatedShadowCtx = shadowCaretaker.reapplyDefinitions(ctx, resourceObject);
+                    String primaryIdentifierValue = shadowManager.determinePrimaryIdentifierValue(estimatedShadowCtx, resourceObject);
+                    if (primaryIdentifierValue != null) {
+                        QName objectClass = estimatedShadowCtx.getObjectClassDefinition().getTypeName();
+                        contexts.putIfAbsent(objectClass, estimatedShadowCtx);
+                        // Other objects with the same value in this batch (e.g. differing only in case) are looked up
+                        // individually, so they find the shadow of the first one even if it is created in this batch.
+                        objectsByClass.computeIfAbsent(objectClass, k -> new HashMap<>())
+                                .putIfAbsent(primaryIdentifierValue, resourceObject);
+                    }
+                } catch (CommonException e) {
+                    // The object will be looked up (and the problem reported) when it is processed individually.
+                    LOGGER.trace("Couldn't determine primary identifier value of {}, its shadow will be looked up individually: {}",
+                            resourceObject, e.getMessage(), e);
+                }
+            }
+
+            Map<PrismObject<ShadowType>, PrismObject<ShadowType>> repoShadows = new IdentityHashMap<>();
+            for (Map.Entry<QName, Map<String, PrismObject<ShadowType>>> entry : objectsByClass.entrySet()) {
+                Map<String, PrismObject<ShadowType>> objectsByValue = entry.getValue();
+                Map<String, PrismObject<ShadowType>> liveShadows;
+                OperationResult lookupResult = parentResult.subresult(OP_LOOKUP_SHADOWS_IN_BULK)
+                        .setMinor()
+                        .build();
+                try {
+                    liveShadows = shadowManager.lookupLiveShadowsByPrimaryIdentifierValues(
+                            contexts.get(entry.getKey()), objectsByValue, lookupResult);
+                } catch (CommonException | RuntimeException e) {
+                    // The objects will be looked up (and the problem reported) when they are processed individually.
+                    LOGGER.warn("Couldn't look up repository shadows of {} objects of {} in bulk, they will be looked up "
+                            + "individually: {}", objectsByValue.size(), entry.getKey(), e.getMessage(), e);
+                    lookupResult.recordHandledError(e);
+                    continue;
+                } finally {
+                    lookupResult.computeStatusIfUnknown();
+                }
+                liveShadows.forEach((value, repoShadow) -> repoShadows.put(objectsByValue.get(value), repoShadow));
+            }
+            return repoShadows;
+        }
+    }
+
+    /**
+     * Processes resource objects found by a search in worker threads, while the connector continues fetching
+     * further objects in the thread that executes the search:
+     *
+     * 1. Found objects are put into a bounded queue (see {@link LightweightWorkerPool}). When the queue is full,
+     * the search thread waits (so the connector is not allowed to run too far ahead).
+     *
+     * 2. Workers (lightweight subtasks of the current task) take objects from the queue and acquire, update and complete
+     * their repository shadows - optionally in batches, see {@link ShadowLookupBatch}.
+     *
+     * 3. Processed shadows are passed to the handler in the search thread, in the order in which their processing
+     * finished. So the handler is never called concurrently, and it is called in the context of the original task.
+     * (Task handlers, e.g. the ones of import or reconciliation, rely on this.)
+     *
+     * Processing stops when the handler returns false, when a worker encounters an error, or when the task is suspended.
+     */
+    private class ResourceObjectProcessingPipeline {
+
+        private final ResultHandler<ShadowType> handler;
+        private final OperationResult parentResult;
+
+        private final Queue<PrismObject<ShadowType>> processedObjects = new ConcurrentLinkedQueue<>();
+        private final LightweightWorkerPool<PrismObject<ShadowType>> workerPool;
+
+        private volatile boolean stopped;
+
+        private ResourceObjectProcessingPipeline(ProvisioningContext ctx, ResultHandler<ShadowType> handler,
+                boolean isDoDiscovery, int batchSize, int threadsCount, OperationResult parentResult) {
+            this.handler = handler;
+            this.parentResult = parentResult;
+            workerPool = new LightweightWorkerPool<>((RunningTask) ctx.getTask(), threadsCount,
+                    OP_PROCESS_OBJECTS_ASYNCHRONOUSLY, "resource objects",
+                    (workerTask, workerResult) -> new ResourceObjectProcessingWorker(ctx.spawn(workerTask),
+                            this::addProcessedObject, isDoDiscovery, batchSize, workerResult));
+            workerPool.setWaitAction(this::passProcessedObjects);
+        }
+
+        /**
+         * Called by the connector (in the search thread) for each object found.
+         */
+        private boolean submit(PrismObject<ShadowType> resourceObject, OperationResult objResult) {
+            passProcessedObjects();
+            if (!stopped && workerPool.submit(resourceObject)) {
+                objResult.recordStatus(OperationResultStatus.SUCCESS, "Object submitted for processing");
+                return true;
+            } else {
+                objResult.recordStatus(OperationResultStatus.WARNING, "Object was not submitted for processing as the processing was stopped");
+                return false;
+            }
+        }
+
+        /**
+         * Called (in the search thread) after the search is over: waits until the workers process all the objects
+         * and passes the objects to the handler.
+         */
+        private void finish() {
+            workerPool.finish();
+        }
+
+        private void close() {
+            workerPool.close(parentResult);
+        }
+
+        /**
+         * Passes the shadows processed so far to the handler. Executed in the search thread.
+         */
+        private void passProcessedObjects() {
+            PrismObject<ShadowType> shadow;
+            while (!stopped && (shadow = processedObjects.poll()) != null) {
+                OperationResult objResult = parentResult.subresult(OP_HANDLE_PROCESSED_OBJECT)
+                        .setMinor()
+                        .build();
+                try {
+                    if (!handler.handle(shadow, objResult)) {
+                        stop();
+                    }
+                } catch (Throwable t) {
+                    objResult.recordFatalError(t);
+                    stop();
+                    throw t;
+                } finally {
+                    objResult.computeStatusIfUnknown();
+                    if (objResult.isSuccess() && !objResult.isTraced()) {
+                        objResult.getSubresults().clear();
+                    }
+                    parentResult.summarize();
+                }
+            }
+        }
+
+        /**
+         * Handler used by the workers: it only queues the processed shadow for the search thread.
+         */
+        private boolean addProcessedObject(PrismObject<ShadowType> shadow, OperationResult objResult) {
+            processedObjects.add(shadow);
+            return !stopped;
+        }
+
+        private void stop() {
+            stopped = true;
+            workerPool.stop();
+        }
+    }
+
+    private class ResourceObjectProcessingWorker implements LightweightWorkerPool.Worker<PrismObject<ShadowType>> {
+
+        private final ShadowLookupBatch batch;
+        private final OperationResult workerResult;
+
+        private ResourceObjectProcessingWorker(ProvisioningContext workerCtx, ResultHandler<ShadowType> handler, boolean isDoDiscovery,
+                int batchSize, OperationResult workerResult) {
+            RepositoryCache.enterLocalCaches(cacheConfigurationManager);
+            this.batch = new ShadowLookupBatch(workerCtx, handler, isDoDiscovery, batchSize, workerResult);
+            this.workerResult = workerResult;
+        }
+
+        @Override
+        public boolean process(PrismObject<ShadowType> resourceObject) {
+            return batch.add(resourceObject, workerResult);
+        }
+
+        @Override
+        public boolean finish() {
+            return batch.flush();
+        }
+
+        @Override
+        public void close() {
+            RepositoryCache.exitLocalCaches();
+        }
+    }
 }
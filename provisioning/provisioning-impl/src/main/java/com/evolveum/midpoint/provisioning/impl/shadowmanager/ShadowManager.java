@@ -42,6 +42,7 @@ import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.EqualFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.QueryFactory;
 import com.evolveum.midpoint.prism.query.Visitor;
 import com.evolveum.midpoint.prism.query.builder.S_AtomicFilterEntry;
 import com.evolveum.midpoint.prism.query.builder.S_FilterEntry;
@@ -157,6 +158,11 @@ public class ShadowManager {
         if (liveShadow == null) {
             return null;
         }
+        return prepareLiveShadow(resourceShadow, liveShadow, parentResult);
+    }
+
+    private PrismObject<ShadowType> prepareLiveShadow(PrismObject<ShadowType> resourceShadow, PrismObject<ShadowType> liveShadow,
+            OperationResult parentResult) throws SchemaException {
         ShadowType repoShadowType = liveShadow.asObjectable();
         if (ShadowUtil.isDead(repoShadowType)) {
             // Note: never reset dead shadow flag. Once the shadow's dead, it stays dead.
@@ -175,6 +181,59 @@ public class ShadowManager {
         return liveShadow;
     }
 
+    /**
+     * Bulk version of {@link #lookupLiveShadowInRepository(ProvisioningContext, PrismObject, OperationResult)}.
+     * Live shadows of given resource objects (all of the object class from the context) are looked up using
+     * a single repository query on primaryIdentifierValue.
+     *
+     * Shadows that cannot be found this way (e.g. shadows without primaryIdentifierValue) are simply missing
+     * in the returned map; the caller has to look them up individually.
+     *
+     * @param resourceObjects Resource objects indexed by their primary identifier value.
+     * @return Live shadows indexed by primary identifier value.
+     */
+    public Map<String, PrismObject<ShadowType>> lookupLiveShadowsByPrimaryIdentifierValues(ProvisioningContext ctx,
+            Map<String, PrismObject<ShadowType>> resourceObjects, OperationResult parentResult)
+            throws SchemaException, ConfigurationException, ObjectNotFoundException, CommunicationException,
+            ExpressionEvaluationException {
+
+        if (resourceObjects.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // Our repository does not support multi-valued EQ filters, so we use OR of simple ones.
+        QueryFactory queryFactory = prismContext.queryFactory();
+        List<ObjectFilter> valueFilters = new ArrayList<>(resourceObjects.size());
+        for (String primaryIdentifierValue : resourceObjects.keySet()) {
+            valueFilters.add(prismContext.queryFor(ShadowType.class)
+                    .item(ShadowType.F_PRIMARY_IDENTIFIER_VALUE).eq(primaryIdentifierValue)
+                    .buildFilter());
+        }
+        ObjectQuery query = prismContext.queryFor(ShadowType.class)
+                .item(ShadowType.F_OBJECT_CLASS).eq(ctx.getObjectClassDefinition().getTypeName())
+                .and().item(ShadowType.F_RESOURCE_REF).ref(ctx.getResourceOid())
+                .and().filter(queryFactory.createOr(valueFilters))
+                .build();
+        LOGGER.trace("Searching for shadows by primaryIdentifierValues using filter:\n{}", DebugUtil.debugDumpLazily(query, 1));
+
+        // Explicitly avoid all caches. We want to avoid shadow duplication.
+        Collection<SelectorOptions<GetOperationOptions>> options = SelectorOptions.createCollection(GetOperationOptions.createStaleness(0L));
+        List<PrismObject<ShadowType>> foundShadows = repositoryService.searchObjects(ShadowType.class, query, options, parentResult);
+        LOGGER.trace("Bulk shadow lookup for {} primary identifier value(s) found {} shadow(s)", resourceObjects.size(),
+                foundShadows.size());
+
+        Map<String, PrismObject<ShadowType>> liveShadows = new HashMap<>();
+        for (PrismObject<ShadowType> foundShadow : foundShadows) {
+            String primaryIdentifierValue = foundShadow.asObjectable().getPrimaryIdentifierValue();
+            PrismObject<ShadowType> resourceObject = resourceObjects.get(primaryIdentifierValue);
+            if (resourceObject == null || ShadowUtil.isDead(foundShadow)) {
+                continue;
+            }
+            liveShadows.put(primaryIdentifierValue, prepareLiveShadow(resourceObject, foundShadow, parentResult));
+        }
+        return liveShadows;
+    }
+
     public PrismObject<ShadowType> lookupShadowByPrimaryIdentifierValue(ProvisioningContext ctx, String primaryIdentifierValue,
             OperationResult parentResult) throws SchemaException {
 
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.impl.sync;
+
+import java.util.function.LongSupplier;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Determines how many of the worker threads of {@link ChangeProcessingCoordinator} should take new change requests.
+ *
+ * The decision is made periodically by the thread that submits the requests. It is based on:
+ *
+ * 1. the depth of the request queue (sampled at each submission) and on whether the submitter had to wait for a free
+ * place in the queue;
+ * 2. the ratio of average processing time of a request to the average time between fetching two changes from the resource.
+ * This is the number of workers needed to keep pace with the connector.
+ *
+ * Workers above the limit finish requests already assigned to them but do not take new ones.
+ *
+ * EXPERIMENTAL
+ */
+class AdaptiveWorkerController {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AdaptiveWorkerController.class);
+
+    private static final long ADJUSTMENT_INTERVAL = 2000L;
+
+    private static final double QUEUE_FILL_HIGH = 0.75;
+    private static final double QUEUE_FILL_LOW = 0.25;
+
+    /** Weight of the newest sample in exponentially weighted moving averages of durations. */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int queueCapacity;
+
+    /** Source of current time (replaceable for tests). */
+    private final LongSupplier clock;
+
+    private volatile int activeWorkers;
+
+    // Updated by the submitting thread only.
+    private long lastAdjustment;
+    private long lastSubmission;
+    private long queueDepthSum;
+    private int queueDepthSamples;
+    private boolean submitterBlocked;
+    private double averageFetchTime;
+
+    // Updated by worker threads.
+    private double averageProcessingTime;
+
+    // Decision statistics
+    private int increases;
+    private int decreases;
+    private int lowestActiveWorkers;
+    private int highestActiveWorkers;
+
+    AdaptiveWorkerController(int minWorkers, int maxWorkers, int queueCapacity) {
+        this(minWorkers, maxWorkers, queueCapacity, System::currentTimeMillis);
+    }
+
+    AdaptiveWorkerController(int minWorkers, int maxWorkers, int queueCapacity, LongSupplier clock) {
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.queueCapacity = queueCapacity;
+        this.clock = clock;
+        this.lastAdjustment = clock.getAsLong();
+        this.activeWorkers = minWorkers;
+        this.lowestActiveWorkers = minWorkers;
+        this.highestActiveWorkers = minWorkers;
+    }
+
+    /**
+     * @param workerIndex Zero-based index of the worker.
+     */
+    boolean isActive(int workerIndex) {
+        return workerIndex < activeWorkers;
+    }
+
+    int getActiveWorkers() {
+        return activeWorkers;
+    }
+
+    /**
+     * Called by the submitting thread before the request is offered to the queue.
+     */
+    void beforeSubmission(int queueDepth) {
+        long now = clock.getAsLong();
+        if (lastSubmission != 0) {
+            averageFetchTime = smooth(averageFetchTime, now - lastSubmission);
+        }
+        queueDepthSum += queueDepth;
+        queueDepthSamples++;
+        if (now - lastAdjustment >= ADJUSTMENT_INTERVAL) {
+            adjust();
+            lastAdjustment = now;
+        }
+    }
+
+    /**
+     * Called by the submitting thread after the request was accepted by the queue.
+     *
+     * @param blocked True if the submitter had to wait for a free place in the queue.
+     */
+    void afterSubmission(boolean blocked) {
+        submitterBlocked |= blocked;
+        lastSubmission = clock.getAsLong();
+    }
+
+    synchronized void recordProcessingTime(long time) {
+        averageProcessingTime = smooth(averageProcessingTime, time);
+    }
+
+    private double smooth(double average, long sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    private void adjust() {
+        double queueFill = queueDepthSamples > 0 ? (double) queueDepthSum / queueDepthSamples / queueCapacity : 0;
+        double processingTime;
+        synchronized (this) {
+            processingTime = averageProcessingTime;
+        }
+        int workersNeeded = averageFetchTime > 0 ? (int) Math.ceil(processingTime / averageFetchTime) : maxWorkers;
+
+        int current = activeWorkers;
+        int target;
+        if (submitterBlocked || queueFill >= QUEUE_FILL_HIGH) {
+            target = Math.min(maxWorkers, Math.max(current + 1, workersNeeded));
+        } else if (queueFill <= QUEUE_FILL_LOW && workersNeeded < current) {
+            target = Math.max(minWorkers, Math.max(current - 1, workersNeeded));
+        } else {
+            target = current;
+        }
+
+        if (target != current) {
+            LOGGER.debug("Changing number of active workers from {} to {}: queue fill = {}, submitter blocked = {}, "
+                            + "average processing time = {} ms, average fetch time = {} ms", current, target,
+                    queueFill, submitterBlocked, processingTime, averageFetchTime);
+            activeWorkers = target;
+            if (target > current) {
+                increases++;
+            } else {
+                decreases++;
+            }
+            lowestActiveWorkers = Math.min(lowestActiveWorkers, target);
+            highestActiveWorkers = Math.max(highestActiveWorkers, target);
+        }
+
+        queueDepthSum = 0;
+        queueDepthSamples = 0;
+        submitterBlocked = false;
+    }
+
+    void addReturnsTo(OperationResult result) {
+        result.addReturn("activeWorkersFinal", activeWorkers);
+        result.addReturn("activeWorkersLowest", lowestActiveWorkers);
+        result.addReturn("activeWorkersHighest", highestActiveWorkers);
+        result.addReturn("activeWorkersIncreases", increases);
+        result.addReturn("activeWorkersDecreases", decreases);
+        synchronized (this) {
+            result.addReturn("averageProcessingTime", (long) averageProcessingTime);
+        }
+        result.addReturn("averageFetchTime", (long) averageFetchTime);
+    }
+}
@@ -10,6 +10,8 @@ package com.evolveum.midpoint.provisioning.impl.sync;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContextFactory;
 import com.evolveum.midpoint.provisioning.impl.ResourceObjectConverter;
+import com.evolveum.midpoint.provisioning.ucf.api.Change;
+import com.evolveum.midpoint.provisioning.ucf.api.async.AcknowledgementSink;
 import com.evolveum.midpoint.provisioning.ucf.api.async.ChangeListener;
 import com.evolveum.midpoint.schema.ResourceShadowDiscriminator;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
@@ -17,30 +19,40 @@ import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implements Async Update functionality. (Currently not much, but this might change as we'll implement multi-threading.
- * Then we'll maybe find some code common with LiveSynchronizer.)
+ * Implements Async Update functionality.
+ *
+ * Changes are submitted to worker threads (if configured) without waiting for their processing; they are acknowledged
+ * at the source when they are done. Changes related to the same object are processed in the order of their arrival
+ * (see {@link AffinityController}), unrelated ones are processed in parallel.
+ *
+ * (Maybe we'll find some code common with LiveSynchronizer.)
  */
 @Component
 public class AsyncUpdater {
 
-    @SuppressWarnings("unused")
     private static final Trace LOGGER = TraceManager.getTrace(AsyncUpdater.class);
 
     private static final long WAIT_FOR_REQUEST_COMPLETION = 10000L;
+    private static final long STATISTICS_REPORTING_INTERVAL = 60000L;
 
     @Autowired private ProvisioningContextFactory ctxFactory;
     @Autowired private ResourceObjectConverter resourceObjectConverter;
     @Autowired private ChangeProcessor changeProcessor;
+    @Autowired private TaskManager taskManager;
 
     public void processAsynchronousUpdates(ResourceShadowDiscriminator shadowCoordinates, Task callerTask, OperationResult callerResult)
             throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException,
@@ -51,88 +63,195 @@ public class AsyncUpdater {
 
         ChangeProcessingCoordinator coordinator = new ChangeProcessingCoordinator(globalContext::canRun, changeProcessor,
                 callerTask, null);
+        ProcessingStatistics statistics = new ProcessingStatistics();
 
-        ChangeListener listener = (change, listenerTask, listenerResult) -> {
-            /*
-             * This code can execute in arbitrary thread. It can be the caller one (e.g. for passive sources)
-             * or provider-created one (e.g. for AMQP client library).
-             *
-             * But we need to execute the requests in the context of the caller task or its working threads (LATs).
-             * This is necessary e.g. to correctly report low-level statistics that are stored in thread-local structures.
-             */
-            ProcessChangeRequest request = new ProcessChangeRequest(change, globalContext, false) {
-                @Override
-                public void setDone(boolean done) {
-                    super.setDone(done);
-                    synchronized (this) {
-                        notifyAll();
-                    }
-                }
+        /*
+         * The listener code can execute in arbitrary thread. It can be the caller one (e.g. for passive sources)
+         * or provider-created one (e.g. for AMQP client library).
+         *
+         * But we need to execute the requests in the context of the caller task or its working threads (LATs).
+         * This is necessary e.g. to correctly report low-level statistics that are stored in thread-local structures.
+         *
+         * IMPORTANT! Do not manipulate with coordinator nor worker tasks in the listener. Use overridden methods
+         * in the request object.
+         */
+        ChangeListener listener = new ChangeListener() {
+            @Override
+            public boolean onChange(Change change, Task listenerTask, OperationResult listenerResult) {
+                AsyncUpdateRequest request = new AsyncUpdateRequest(change, globalContext, statistics, null);
+                try {
+                    submit(coordinator, request, listenerResult);
 
-                @Override
-                public void onCompletion(@NotNull Task workerTask, Task coordinatorTask, @NotNull OperationResult result) {
-                    if (workerTask instanceof RunningTask) {
-                        ((RunningTask) workerTask).incrementProgressAndStoreStatsIfNeeded();
-
-                        if (coordinatorTask instanceof RunningTask) {
-                            //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                            synchronized (coordinatorTask) {
-                                // TODO factor out progress computation to RunningTaskQuartzImpl
-                                Collection<? extends RunningTask> subtasks = ((RunningTask) coordinatorTask)
-                                        .getLightweightAsynchronousSubtasks();
-                                long totalProgress = 0;
-                                for (RunningTask subtask : subtasks) {
-                                    totalProgress += subtask.getProgress();
-                                }
-                                coordinatorTask.setProgress(totalProgress);
-
-                                // todo report current op result?
-                                // FIXME this probably should not be called from the worker task! Or can it be?
-                                ((RunningTask) coordinatorTask).storeOperationStatsIfNeeded();  // includes flushPendingModifications
-                            }
+                    /*
+                     * Let's wait for the request completion.
+                     */
+                    LOGGER.trace("Waiting for the request to be done: {}", request);
+                    //noinspection SynchronizationOnLocalVariableOrMethodParameter
+                    synchronized (request) {
+                        while (!request.isDone()) {
+                            request.wait(WAIT_FOR_REQUEST_COMPLETION);
                         }
                     }
+                    LOGGER.trace("Request done: {}", request);
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Execution was interrupted in {} (caller task: {})", listenerTask, callerTask);
+                    return false;
                 }
-            };
-
-            /*
-             * IMPORTANT! Do not manipulate with coordinator nor worker tasks in this method. This code is executed in
-             * a more or less random thread. Use overridden methods in the request object.
-             */
-
-            try {
-                /*
-                 * Let us submit the request for processing. We assume there are working threads set for the task, so
-                 * the request will be processed asynchronously - in some of the workers.
-                 *
-                 * Note that even if this method works synchronously (i.e. there are no working threads configured for the task),
-                 * it's not a big problem: the whole execution will occur in the context of wrong thread. So the reporting
-                 * will not be accurate. But there should be no other negative effects.
-                 */
-                LOGGER.trace("Submitting request for processing: {}", request);
-                coordinator.submit(request, listenerResult);
-
-                /*
-                 * Let's wait for the request completion.
-                 */
-                LOGGER.trace("Waiting for the request to be done: {}", request);
-                //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                synchronized (request) {
-                    while (!request.isDone()) {
-                        request.wait(WAIT_FOR_REQUEST_COMPLETION);
-                    }
+                return request.isSuccess();
+            }
+
+            @Override
+            public void onChange(Change change, Task listenerTask, OperationResult listenerResult,
+                    AcknowledgementSink acknowledgementSink) {
+                // The sink is called when the request is done; we do not wait for it here.
+                AsyncUpdateRequest request = new AsyncUpdateRequest(change, globalContext, statistics, acknowledgementSink);
+                try {
+                    submit(coordinator, request, listenerResult);
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Execution was interrupted in {} (caller task: {})", listenerTask, callerTask);
+                    request.acknowledge(false);
                 }
-                LOGGER.trace("Request done: {}", request);
-            } catch (InterruptedException e) {
-                LOGGER.warn("Execution was interrupted in {} (caller task: {})", listenerTask, callerTask);
-                return false;
             }
-            return request.isSuccess();
         };
-        resourceObjectConverter.listenForAsynchronousUpdates(globalContext, listener, callerResult);
+        try {
+            resourceObjectConverter.listenForAsynchronousUpdates(globalContext, listener, callerResult);
+        } finally {
+            // We expect no more messages (either we got the last one, or the task is going down, or whatever).
+            // So we want the worker threads to stop.
+            coordinator.setAllItemsSubmitted();
+        }
+
+        // The workers can still be processing the last changes; the statistics are complete only after they finish.
+        if (callerTask instanceof RunningTask) {
+            taskManager.waitForTransientChildren((RunningTask) callerTask, callerResult);
+            coordinator.updateOperationResult(callerResult);
+        }
+        statistics.report(callerResult);
+    }
+
+    private void submit(ChangeProcessingCoordinator coordinator, AsyncUpdateRequest request, OperationResult listenerResult)
+            throws InterruptedException {
+        /*
+         * Let us submit the request for processing. We assume there are working threads set for the task, so
+         * the request will be processed asynchronously - in some of the workers.
+         *
+         * Note that even if this method works synchronously (i.e. there are no working threads configured for the task),
+         * it's not a big problem: the whole execution will occur in the context of wrong thread. So the reporting
+         * will not be accurate. But there should be no other negative effects.
+         */
+        LOGGER.trace("Submitting request for processing: {}", request);
+        coordinator.submit(request, listenerResult);
+    }
+
+    private static class AsyncUpdateRequest extends ProcessChangeRequest {
+
+        @NotNull private final ProcessingStatistics statistics;
+        @Nullable private final AcknowledgementSink acknowledgementSink;
+        private final long received = System.currentTimeMillis();
+        @NotNull private final AtomicBoolean acknowledged = new AtomicBoolean();
+
+        private AsyncUpdateRequest(@NotNull Change change, ProvisioningContext globalContext,
+                @NotNull ProcessingStatistics statistics, @Nullable AcknowledgementSink acknowledgementSink) {
+            super(change, globalContext, false);
+            this.statistics = statistics;
+            this.acknowledgementSink = acknowledgementSink;
+        }
+
+        @Override
+        public void setDone(boolean done) {
+            super.setDone(done);
+            // setDone can be called more times
+            if (acknowledged.compareAndSet(false, true)) {
+                statistics.recordCompletion(received);
+                if (acknowledgementSink != null) {
+                    acknowledgementSink.acknowledge(isSuccess());
+                }
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        private void acknowledge(boolean successful) {
+            if (acknowledgementSink != null && acknowledged.compareAndSet(false, true)) {
+                acknowledgementSink.acknowledge(successful);
+            }
+        }
+
+        @Override
+        public void onCompletion(@NotNull Task workerTask, Task coordinatorTask, @NotNull OperationResult result) {
+            if (workerTask instanceof RunningTask) {
+                ((RunningTask) workerTask).incrementProgressAndStoreStatsIfNeeded();
+
+                if (coordinatorTask instanceof RunningTask) {
+                    //noinspection SynchronizationOnLocalVariableOrMethodParameter
+                    synchronized (coordinatorTask) {
+                        // TODO factor out progress computation to RunningTaskQuartzImpl
+                        Collection<? extends RunningTask> subtasks = ((RunningTask) coordinatorTask)
+                                .getLightweightAsynchronousSubtasks();
+                        long totalProgress = 0;
+                        for (RunningTask subtask : subtasks) {
+                            totalProgress += subtask.getProgress();
+                        }
+                        coordinatorTask.setProgress(totalProgress);
+
+                        // todo report current op result?
+                        // FIXME this probably should not be called from the worker task! Or can it be?
+                        ((RunningTask) coordinatorTask).storeOperationStatsIfNeeded();  // includes flushPendingModifications
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Throughput and lag (time from receiving a change to its completion) of the processing.
+     * Reported periodically to the log and at the end to the operation result.
+     */
+    private static class ProcessingStatistics {
+
+        private final long started = System.currentTimeMillis();
+        private final AtomicLong changesProcessed = new AtomicLong();
+        private final AtomicLong totalLag = new AtomicLong();
+        private final AtomicLong maxLag = new AtomicLong();
+        private final AtomicLong nextReportAt = new AtomicLong(started + STATISTICS_REPORTING_INTERVAL);
+
+        private void recordCompletion(long received) {
+            long now = System.currentTimeMillis();
+            long lag = now - received;
+            changesProcessed.incrementAndGet();
+            totalLag.addAndGet(lag);
+            maxLag.accumulateAndGet(lag, Math::max);
+            long reportAt = nextReportAt.get();
+            if (now >= reportAt && nextReportAt.compareAndSet(reportAt, now + STATISTICS_REPORTING_INTERVAL)) {
+                LOGGER.debug("Asynchronous updates processing: {}", this);
+            }
+        }
+
+        private void report(OperationResult result) {
+            LOGGER.debug("Asynchronous updates processing finished: {}", this);
+            result.addReturn("changesProcessed", changesProcessed.get());
+            result.addReturn("changesPerMinute", getChangesPerMinute());
+            result.addReturn("averageLag", getAverageLag());
+            result.addReturn("maxLag", maxLag.get());
+        }
+
+        private long getChangesPerMinute() {
+            long time = System.currentTimeMillis() - started;
+            return time > 0 ? changesProcessed.get() * 60000L / time : 0;
+        }
+
+        private long getAverageLag() {
+            long processed = changesProcessed.get();
+            return processed > 0 ? totalLag.get() / processed : 0;
+        }
 
-        // We expect no more messages (either we got the last one, or the task is going down, or whatever).
-        // So we want the worker threads to stop.
-        coordinator.setAllItemsSubmitted();
+        @Override
+        public String toString() {
+            return "changes processed: " + changesProcessed.get() +
+                    ", changes per minute: " + getChangesPerMinute() +
+                    ", average lag: " + getAverageLag() + " ms" +
+                    ", max lag: " + maxLag.get() + " ms";
+        }
     }
 }
@@ -51,6 +51,7 @@ public class ChangeProcessingCoordinator {
     private final List<OperationResult> workerSpecificResults;
     private final BlockingQueue<ProcessChangeRequest> waitingRequestsQueue;
     private final AffinityController affinityController;
+    private final AdaptiveWorkerController adaptiveWorkerController;
 
     private volatile boolean allItemsSubmitted;
 
@@ -68,23 +69,38 @@ public class ChangeProcessingCoordinator {
             waitingRequestsQueue = new ArrayBlockingQueue<>(queueSize);
             workerSpecificResults = new ArrayList<>(threadsCount);
             affinityController = new AffinityController();
+            int minThreadsCount = getMinWorkerThreadsCount();
+            if (minThreadsCount > 0 && minThreadsCount < threadsCount) {
+                adaptiveWorkerController = new AdaptiveWorkerController(minThreadsCount, threadsCount, queueSize);
+            } else {
+                adaptiveWorkerController = null;
+            }
             createWorkerTasks(threadsCount);
         } else {
             multithreaded = false;
             waitingRequestsQueue = null;
             workerSpecificResults = null;
             affinityController = null;
+            adaptiveWorkerController = null;
         }
     }
 
     public void submit(ProcessChangeRequest request, OperationResult result) throws InterruptedException {
         if (multithreaded) {
+            if (adaptiveWorkerController != null) {
+                adaptiveWorkerController.beforeSubmission(waitingRequestsQueue.size());
+            }
+            boolean blocked = false;
             while (!waitingRequestsQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                blocked = true;
                 if (!canRunSupplier.get()) {
                     result.recordStatus(OperationResultStatus.WARNING, "Could not submit request as the processing was interrupted");
                     return;
                 }
             }
+            if (adaptiveWorkerController != null) {
+                adaptiveWorkerController.afterSubmission(blocked || waitingRequestsQueue.remainingCapacity() == 0);
+            }
             // This is perhaps better than IN PROGRESS (e.g. because of tests).
             // The processing will continue in a separate thread.
             result.recordStatus(OperationResultStatus.SUCCESS, "Request submitted for processing");
@@ -107,7 +123,7 @@ public class ChangeProcessingCoordinator {
             workerSpecificResult.addContext("subtaskIndex", i+1);
             workerSpecificResults.add(workerSpecificResult);
 
-            RunningTask subtask = runningCoordinatorTask.createSubtask(new WorkerHandler(workerSpecificResult));
+            RunningTask subtask = runningCoordinatorTask.createSubtask(new WorkerHandler(i, workerSpecificResult));
             subtask.resetIterativeTaskInformation(null);
             subtask.resetSynchronizationInformation(null);
             subtask.resetActionsExecutedInformation(null);
@@ -121,9 +137,11 @@ public class ChangeProcessingCoordinator {
     }
 
     private class WorkerHandler implements LightweightTaskHandler {
+        private final int workerIndex;
         private final OperationResult workerSpecificResult;
 
-        private WorkerHandler(OperationResult workerSpecificResult) {
+        private WorkerHandler(int workerIndex, OperationResult workerSpecificResult) {
+            this.workerIndex = workerIndex;
             this.workerSpecificResult = workerSpecificResult;
         }
 
@@ -145,6 +163,18 @@ public class ChangeProcessingCoordinator {
                 if (preAssigned != null) {
                     LOGGER.trace("Got pre-assigned request {}", preAssigned);
                     request = preAssigned;
+                } else if (adaptiveWorkerController != null && !adaptiveWorkerController.isActive(workerIndex)) {
+                    if (allItemsSubmitted && waitingRequestsQueue.isEmpty()) {
+                        LOGGER.trace("inactive worker: queue is empty and nothing more is expected - exiting");
+                        break;
+                    }
+                    try {
+                        Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
+                    } catch (InterruptedException e) {
+                        LOGGER.trace("Interrupted when waiting for activation", e);
+                        break;
+                    }
+                    continue;
                 } else {
                     try {
                         request = waitingRequestsQueue.poll(WORKER_THREAD_WAIT_FOR_REQUEST, TimeUnit.MILLISECONDS);
@@ -160,9 +190,13 @@ public class ChangeProcessingCoordinator {
                     if (!affinityController.bind(workerTask.getTaskIdentifier(), request)) {
                         continue;
                     }
+                    long start = System.currentTimeMillis();
                     try {
                         changeProcessor.execute(request, workerTask, coordinatorTask, taskPartition, workerSpecificResult);
                     } finally {
+                        if (adaptiveWorkerController != null) {
+                            adaptiveWorkerController.recordProcessingTime(System.currentTimeMillis() - start);
+                        }
                         request.setDone(true);          // probably set already -- but better twice than not at all
                         affinityController.unbind(workerTask.getTaskIdentifier(), request);
 
@@ -196,6 +230,11 @@ public class ChangeProcessingCoordinator {
         }
     }
 
+    private int getMinWorkerThreadsCount() {
+        Integer minWorkerThreads = coordinatorTask.getExtensionPropertyRealValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_MIN_WORKER_THREADS);
+        return defaultIfNull(minWorkerThreads, 0);
+    }
+
     void setAllItemsSubmitted() {
         this.allItemsSubmitted = true;
     }
@@ -211,6 +250,9 @@ public class ChangeProcessingCoordinator {
             }
             // In single-threaded case the status should be already computed
             opResult.computeStatus("Issues during processing");
+            if (adaptiveWorkerController != null) {
+                adaptiveWorkerController.addReturnsTo(opResult);
+            }
         }
     }
 }
@@ -38,6 +38,8 @@ import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.apache.commons.lang3.BooleanUtils.isNotFalse;
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
 
@@ -90,6 +92,8 @@ public class LiveSynchronizer {
         boolean preciseTokenValue = capability != null && isTrue(capability.isPreciseTokenValue());
 
         OldestTokenWatcher oldestTokenWatcher = new OldestTokenWatcher();
+        BatchSizing batchSizing = new BatchSizing(task);
+        AtomicInteger changesFetched = new AtomicInteger();
 
         ChangeProcessingCoordinator coordinator = new ChangeProcessingCoordinator(
                 () -> ctx.canRun() && !syncResult.isHaltingErrorEncountered(),
@@ -99,6 +103,7 @@ public class LiveSynchronizer {
         ChangeHandler changeHandler = new ChangeHandler() {
             @Override
             public boolean handleChange(Change change, OperationResult result) {
+                changesFetched.incrementAndGet();
                 int sequentialNumber = oldestTokenWatcher.changeArrived(change.getToken());
                 if (ctx.canRun()) {
                     ProcessChangeRequest request = new ProcessChangeRequest(change, ctx, isSimulate) {
@@ -152,6 +157,7 @@ public class LiveSynchronizer {
             @Override
             public boolean handleError(@Nullable PrismProperty<?> token, @Nullable Change change,
                     @NotNull Throwable exception, @NotNull OperationResult result) {
+                changesFetched.incrementAndGet();
                 int sequentialNumber = oldestTokenWatcher.changeArrived(token);
                 LoggingUtils
                         .logUnexpectedException(LOGGER, "An exception occurred during live synchronization in {}, "
@@ -195,11 +201,13 @@ public class LiveSynchronizer {
             }
         };
 
+        long fetchStart = System.currentTimeMillis();
         try {
-            resourceObjectConverter.fetchChanges(ctx, initialToken, changeHandler, parentResult);
+            resourceObjectConverter.fetchChanges(ctx, initialToken, batchSizing.current, changeHandler, parentResult);
         } finally {
             coordinator.setAllItemsSubmitted();
         }
+        long fetchTime = System.currentTimeMillis() - fetchStart;
 
         if (task instanceof RunningTask) {
             taskManager.waitForTransientChildren((RunningTask) task, parentResult);
@@ -245,10 +253,64 @@ public class LiveSynchronizer {
             task.setExtensionProperty(tokenToSet);
             syncResult.setTaskTokenUpdatedTo(tokenToSet);
         }
+        if (batchSizing.isAdaptive() && !isSimulate && !syncResult.isHaltingErrorEncountered()
+                && !syncResult.isSuspendEncountered()) {
+            batchSizing.adapt(changesFetched.get(), fetchTime, task, parentResult);
+        }
         task.flushPendingModifications(parentResult);
         return syncResult;
     }
 
+    /**
+     * Adaptive live sync batch sizing: the batch size is kept between liveSyncBatchSize and liveSyncMaxBatchSize.
+     * It is doubled if the whole batch was fetched - so there are probably more changes waiting - and halved
+     * if less than half of the batch was fetched. The value for the next run is stored in the task.
+     */
+    static class BatchSizing {
+
+        private final Integer min;
+        private final Integer max;
+        private final Integer current;
+
+        private BatchSizing(Task task) {
+            min = task.getExtensionPropertyRealValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_BATCH_SIZE);
+            max = task.getExtensionPropertyRealValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_MAX_BATCH_SIZE);
+            if (isAdaptive()) {
+                Integer stored = task.getExtensionPropertyRealValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_CURRENT_BATCH_SIZE);
+                current = stored != null ? Math.max(min, Math.min(max, stored)) : min;
+            } else {
+                current = min;
+            }
+        }
+
+        private boolean isAdaptive() {
+            return min != null && min > 0 && max != null && max > min;
+        }
+
+        private void adapt(int changesFetched, long fetchTime, Task task, OperationResult result) throws SchemaException {
+            int next = nextBatchSize(current, min, max, changesFetched);
+            result.addReturn("batchSize", current);
+            result.addReturn("nextBatchSize", next);
+            result.addReturn("changesFetched", changesFetched);
+            result.addReturn("fetchTime", fetchTime);
+            if (next != current) {
+                LOGGER.debug("Changing live sync batch size from {} to {} in {}: {} changes fetched in {} ms", current, next,
+                        task, changesFetched, fetchTime);
+                task.setExtensionPropertyValue(SchemaConstants.MODEL_EXTENSION_LIVE_SYNC_CURRENT_BATCH_SIZE, next);
+            }
+        }
+
+        static int nextBatchSize(int current, int min, int max, int changesFetched) {
+            if (changesFetched >= current) {
+                return (int) Math.min(max, 2L * current);
+            } else if (changesFetched < current / 2) {
+                return Math.max(min, current / 2);
+            } else {
+                return current;
+            }
+        }
+    }
+
     private PrismProperty<?> getTokenFromTask(Task task) {
         PrismProperty<?> tokenProperty = task.getExtensionPropertyOrClone(SchemaConstants.SYNC_TOKEN);
         LOGGER.trace("Initial token from the task: {}", SchemaDebugUtil.prettyPrintLazily(tokenProperty));
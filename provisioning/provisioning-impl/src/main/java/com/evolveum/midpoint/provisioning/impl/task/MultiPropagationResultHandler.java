@@ -9,6 +9,7 @@ package com.evolveum.midpoint.provisioning.impl.task;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.provisioning.impl.LightweightWorkerPool;
 import com.evolveum.midpoint.provisioning.impl.ShadowCache;
 import com.evolveum.midpoint.provisioning.ucf.api.GenericFrameworkException;
 import com.evolveum.midpoint.repo.api.RepositoryService;
@@ -22,6 +23,7 @@ import com.evolveum.midpoint.util.exception.CommonException;
 import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceConsistencyType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
 
@@ -33,6 +35,9 @@ public class MultiPropagationResultHandler extends AbstractSearchIterativeResult
 
     private static final Trace LOGGER = TraceManager.getTrace(MultiPropagationResultHandler.class);
 
+    private static final String OP_PROPAGATE_ASYNCHRONOUSLY = MultiPropagationResultHandler.class.getName() + ".propagateAsynchronously";
+    private static final String OP_PROPAGATE_SHADOW = MultiPropagationResultHandler.class.getName() + ".propagateShadow";
+
     private final RepositoryService repositoryService;
     private final ShadowCache shadowCache;
 
@@ -53,13 +58,41 @@ public class MultiPropagationResultHandler extends AbstractSearchIterativeResult
                 .exists(ShadowType.F_PENDING_OPERATION)
             .build();
 
-        ResultHandler<ShadowType> handler =
-                (shadow, result) -> {
-                    propagateShadowOperations(resource, shadow, workerTask, result);
-                    return true;
-                };
+        int threads = getPropagationThreads(resource);
+        if (threads > 1 && LightweightWorkerPool.canCreateWorkers(workerTask)) {
+            // Shadows are read from the repository by the current thread, operations are propagated by the workers.
+            // Processing stops when a worker encounters an error (just like in the sequential case).
+            LightweightWorkerPool<PrismObject<ShadowType>> workerPool = new LightweightWorkerPool<>(workerTask, threads,
+                    OP_PROPAGATE_ASYNCHRONOUSLY, "pending operations on " + resource,
+                    (propagationTask, workerResult) -> shadow -> {
+                        OperationResult shadowResult = workerResult.createMinorSubresult(OP_PROPAGATE_SHADOW);
+                        try {
+                            propagateShadowOperations(resource, shadow, propagationTask, shadowResult);
+                        } catch (Throwable t) {
+                            shadowResult.recordFatalError(t);
+                            throw t;
+                        } finally {
+                            shadowResult.computeStatusIfUnknown();
+                            workerResult.summarize();
+                        }
+                        return true;
+                    });
+            try {
+                repositoryService.searchObjectsIterative(ShadowType.class, query,
+                        (shadow, result) -> workerPool.submit(shadow), null, true, taskResult);
+                workerPool.finish();
+            } finally {
+                workerPool.close(taskResult);
+            }
+        } else {
+            ResultHandler<ShadowType> handler =
+                    (shadow, result) -> {
+                        propagateShadowOperations(resource, shadow, workerTask, result);
+                        return true;
+                    };
 
-        repositoryService.searchObjectsIterative(ShadowType.class, query, handler, null, true, taskResult);
+            repositoryService.searchObjectsIterative(ShadowType.class, query, handler, null, true, taskResult);
+        }
 
         LOGGER.trace("Propagation of {} done", resource);
 
@@ -74,4 +107,10 @@ public class MultiPropagationResultHandler extends AbstractSearchIterativeResult
         }
     }
 
+    private int getPropagationThreads(PrismObject<ResourceType> resource) {
+        ResourceConsistencyType consistency = resource.asObjectable().getConsistency();
+        Integer threads = consistency != null ? consistency.getPropagationThreads() : null;
+        return threads != null ? threads : 1;
+    }
+
 }
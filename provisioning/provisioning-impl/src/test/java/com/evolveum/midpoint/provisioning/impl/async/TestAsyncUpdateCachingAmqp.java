@@ -25,9 +25,9 @@ public class TestAsyncUpdateCachingAmqp extends TestAsyncUpdateCaching {
 
     private static final File RESOURCE_ASYNC_CACHING_AMQP_FILE = new File(TEST_DIR, "resource-async-caching-amqp.xml");
 
-    private static final String QUEUE_NAME = "testQueue";
+    static final String QUEUE_NAME = "testQueue";
 
-    private final EmbeddedBroker embeddedBroker = new EmbeddedBroker();
+    final EmbeddedBroker embeddedBroker = new EmbeddedBroker();
 
     @Override
     public void initSystem(Task initTask, OperationResult initResult) throws Exception {
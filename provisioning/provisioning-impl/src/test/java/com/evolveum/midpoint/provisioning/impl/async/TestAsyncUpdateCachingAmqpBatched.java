@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.impl.async;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.provisioning.ucf.api.ListeningActivity;
+import com.evolveum.midpoint.provisioning.ucf.api.async.AcknowledgementSink;
+import com.evolveum.midpoint.provisioning.ucf.api.async.AsyncUpdateMessageListener;
+import com.evolveum.midpoint.provisioning.ucf.impl.builtin.async.AsyncUpdateConnectorInstance;
+import com.evolveum.midpoint.provisioning.ucf.impl.builtin.async.ConnectorConfiguration;
+import com.evolveum.midpoint.provisioning.ucf.impl.builtin.async.sources.Amqp091AsyncUpdateSource;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+import com.evolveum.prism.xml.ns._public.types_3.ProtectedStringType;
+
+/**
+ * Same as {@link TestAsyncUpdateCachingAmqp} but with batched message acknowledgements.
+ */
+public class TestAsyncUpdateCachingAmqpBatched extends TestAsyncUpdateCachingAmqp {
+
+    private static final File RESOURCE_ASYNC_CACHING_AMQP_BATCHED_FILE = new File(TEST_DIR, "resource-async-caching-amqp-batched.xml");
+
+    private static final int MESSAGES = 200;
+    private static final int WORKERS = 5;
+    private static final int ACKNOWLEDGEMENT_BATCH_SIZE = 5;
+    private static final long LISTENING_TIMEOUT = 60000L;
+
+    @Override
+    protected File getResourceFile() {
+        return RESOURCE_ASYNC_CACHING_AMQP_BATCHED_FILE;
+    }
+
+    /**
+     * Messages are processed by several threads and completed in random order, so the batches
+     * of acknowledgements have to deal with gaps in delivery tags. The activity has to stay alive until
+     * the last message is completed, and every message has to be acknowledged before the connection is closed.
+     * (Unacknowledged messages would return to the queue.)
+     */
+    @Test
+    public void test900ConcurrentBatchedAcknowledgements() throws Exception {
+        given();
+        assertEquals("Messages in queue before", 0, embeddedBroker.getMessageCount(QUEUE_NAME));
+        for (int i = 0; i < MESSAGES; i++) {
+            Map<String, Object> headers = new HashMap<>();
+            if (i == MESSAGES - 1) {
+                headers.put(Amqp091AsyncUpdateSource.HEADER_LAST_MESSAGE, true);
+            }
+            embeddedBroker.send(QUEUE_NAME, "message " + i, headers);
+        }
+
+        Amqp091SourceType sourceConfiguration = new Amqp091SourceType();
+        sourceConfiguration.setName("test");
+        sourceConfiguration.setUri("amqp://localhost:5672/");
+        sourceConfiguration.setUsername("guest");
+        ProtectedStringType password = new ProtectedStringType();
+        password.setClearValue("guest");
+        sourceConfiguration.setPassword(password);
+        sourceConfiguration.setQueue(QUEUE_NAME);
+        sourceConfiguration.setPrefetch(4 * ACKNOWLEDGEMENT_BATCH_SIZE);
+        sourceConfiguration.setAcknowledgementBatchSize(ACKNOWLEDGEMENT_BATCH_SIZE);
+
+        AsyncUpdateSourcesType sources = new AsyncUpdateSourcesType();
+        sources.getAmqp091().add(sourceConfiguration);
+        ConnectorConfiguration connectorConfiguration = new ConnectorConfiguration();
+        connectorConfiguration.setSources(sources);
+        connectorConfiguration.setErrorHandlingAction(AsyncUpdateErrorHandlingActionType.SKIP_UPDATE);
+        AsyncUpdateConnectorInstance connectorInstance = new AsyncUpdateConnectorInstance();
+        connectorInstance.setPrismContext(prismContext);
+        connectorInstance.setConfiguration(connectorConfiguration);
+
+        Amqp091AsyncUpdateSource source = Amqp091AsyncUpdateSource.create(sourceConfiguration, connectorInstance);
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        Random random = new Random();
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AsyncUpdateMessageListener listener = new AsyncUpdateMessageListener() {
+            @Override
+            public boolean onMessage(AsyncUpdateMessageType message) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void onMessage(AsyncUpdateMessageType message, AcknowledgementSink acknowledgementSink) {
+                received.incrementAndGet();
+                int delay = random.nextInt(20);
+                workers.submit(() -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    completed.incrementAndGet();
+                    acknowledgementSink.acknowledge(true);
+                });
+            }
+        };
+
+        when();
+        ListeningActivity activity = source.startListening(listener);
+        long start = System.currentTimeMillis();
+        while (activity.isAlive() && System.currentTimeMillis() - start < LISTENING_TIMEOUT) {
+            Thread.sleep(100);
+        }
+        boolean alive = activity.isAlive();
+        int completedWhenDone = completed.get();
+        activity.stop();
+        source.close();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+
+        then();
+        assertFalse("Listening activity is still alive", alive);
+        assertEquals("Wrong # of messages received", MESSAGES, received.get());
+        assertEquals("Activity finished before all messages were completed", MESSAGES, completedWhenDone);
+        assertEquals("Messages left in queue (i.e. not acknowledged)", 0, embeddedBroker.getMessageCount(QUEUE_NAME));
+    }
+}
@@ -341,7 +341,7 @@ public class AbstractBasicDummyTest extends AbstractDummyTest {
         dummyResource.assertConnections(1);
         assertDummyConnectorInstances(1);
 
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
         assertResourceCacheMissesIncrement(1);          // incurred in assertDummyConnectorInstances call
 
         assertResourceAfterTest();
@@ -747,8 +747,8 @@ public class AbstractBasicDummyTest extends AbstractDummyTest {
         assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_FETCH_COUNT, 1);
         assertCounterIncrement(InternalCounters.CONNECTOR_SCHEMA_PARSE_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_CAPABILITIES_FETCH_COUNT, 1);
-        // Test connection contains one extra resource read from repository
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 2);
+        // Test connection contains one extra resource read from repository, but that one shares the parsed schema
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
 
         PrismObject<ResourceType> resourceRepoAfter = repositoryService.getObject(ResourceType.class,
                 RESOURCE_DUMMY_OID, null, task.getResult());
@@ -1065,6 +1065,9 @@ public class AbstractBasicDummyTest extends AbstractDummyTest {
         assertEquals("Wrong poolConfigMinEvictableIdleTime", (Long) 120000L, operationalStatus.getPoolConfigMinEvictableIdleTime());
         assertEquals("Wrong poolStatusNumIdle", (Integer) 1, operationalStatus.getPoolStatusNumIdle());
         assertEquals("Wrong poolStatusNumActive", (Integer) 0, operationalStatus.getPoolStatusNumActive());
+        assertEquals("Wrong instanceWarmedUp", Boolean.FALSE, operationalStatus.getInstanceWarmedUp());
+        assertTrue("No connector instance initialization recorded", operationalStatus.getInstanceInitializationCount() > 0);
+        assertEquals("Wrong instanceWaitCount", operationalStatus.getInstanceInitializationCount(), operationalStatus.getInstanceWaitCount());
 
         assertSteadyResource();
     }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.dummy;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import com.evolveum.icf.dummy.resource.DummyAccount;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.task.api.RunningTask;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Tests searching the resource with repository shadows looked up in batches (shadowLookupBatchSize)
+ * and with resource objects processed by worker threads (resourceObjectProcessingThreads).
+ */
+@ContextConfiguration(locations = "classpath:ctx-provisioning-test-main.xml")
+@DirtiesContext
+@Listeners({ com.evolveum.midpoint.tools.testng.AlphabeticalMethodInterceptor.class })
+public class TestDummyBatchedSearch extends AbstractDummyTest {
+
+    private static final File TEST_DIR = new File(TEST_DIR_DUMMY, "dummy-batched-search");
+    private static final File RESOURCE_DUMMY_FILE = new File(TEST_DIR, "resource-dummy.xml");
+
+    /** Shadow without primaryIdentifierValue. */
+    private static final File SHADOW_LEGACY_FILE = new File(TEST_DIR, "shadow-legacy.xml");
+    private static final String SHADOW_LEGACY_OID = "c0c010c0-dddd-dddd-dddd-dddd1e6ac100";
+    private static final String ACCOUNT_LEGACY_NAME = "legacy";
+
+    /** Two accounts that differ only in case, so they share a shadow. They are found in the same batch. */
+    private static final String ACCOUNT_DUP_NAME = "dup";
+    private static final String ACCOUNT_DUP_UPPERCASE_NAME = "DUP";
+
+    private static final int GENERATED_ACCOUNTS = 20;
+    private static final int PROCESSING_THREADS = 3;
+
+    /** Generated accounts + daemon + legacy + dup + DUP. */
+    private static final int ALL_ACCOUNTS = GENERATED_ACCOUNTS + 4;
+
+    /** Accounts "dup" and "DUP" share one shadow. */
+    private static final int ALL_SHADOWS = ALL_ACCOUNTS - 1;
+
+    /** Shadow OIDs by (lowercase) account name, as seen by the first search. */
+    private final Map<String, String> shadowOids = new HashMap<>();
+
+    @Override
+    protected File getResourceDummyFile() {
+        return RESOURCE_DUMMY_FILE;
+    }
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+        for (int i = 0; i < GENERATED_ACCOUNTS; i++) {
+            dummyResource.addAccount(new DummyAccount(String.format("user-%02d", i)));
+        }
+        dummyResource.addAccount(new DummyAccount(ACCOUNT_LEGACY_NAME));
+        PrismObject<ShadowType> shadowLegacy = PrismTestUtil.parseObject(SHADOW_LEGACY_FILE);
+        repositoryService.addObject(shadowLegacy, null, initResult);
+        dummyResource.addAccount(new DummyAccount(ACCOUNT_DUP_NAME));
+        dummyResource.addAccount(new DummyAccount(ACCOUNT_DUP_UPPERCASE_NAME));
+    }
+
+    @Test
+    public void test000TestResource() throws Exception {
+        given();
+        Task task = getTestTask();
+
+        when();
+        OperationResult testResult = provisioningService.testResource(RESOURCE_DUMMY_OID, task);
+
+        then();
+        assertSuccess(testResult);
+    }
+
+    /**
+     * Shadows are created for all the accounts (except for daemon and legacy whose shadows already exist).
+     * Accounts "dup" and "DUP" get the same shadow.
+     */
+    @Test
+    public void test100SearchNewShadows() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        List<PrismObject<ShadowType>> foundObjects = new ArrayList<>();
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null,
+                (shadow, lResult) -> foundObjects.add(shadow), task, result);
+
+        then();
+        assertSuccess(result);
+        assertEquals("Wrong # of found objects", ALL_ACCOUNTS, foundObjects.size());
+        for (PrismObject<ShadowType> shadow : foundObjects) {
+            assertNotNull("No OID in " + shadow, shadow.getOid());
+            String previousOid = shadowOids.put(getName(shadow), shadow.getOid());
+            if (previousOid != null) {
+                assertEquals("Different shadow OIDs for " + getName(shadow), previousOid, shadow.getOid());
+            }
+        }
+        assertEquals("Wrong # of distinct shadows", ALL_SHADOWS, shadowOids.size());
+        assertEquals("Wrong daemon shadow OID", ACCOUNT_DAEMON_OID, shadowOids.get(ACCOUNT_DAEMON_USERNAME));
+        assertEquals("Wrong legacy shadow OID", SHADOW_LEGACY_OID, shadowOids.get(ACCOUNT_LEGACY_NAME));
+        assertRepoShadows(ALL_SHADOWS, result);
+    }
+
+    /**
+     * All the shadows exist now, so they are found by the batched lookup (and no new ones are created).
+     */
+    @Test
+    public void test110SearchExistingShadows() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        List<PrismObject<ShadowType>> foundObjects = new ArrayList<>();
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null,
+                (shadow, lResult) -> foundObjects.add(shadow), task, result);
+
+        then();
+        assertSuccess(result);
+        assertEquals("Wrong # of found objects", ALL_ACCOUNTS, foundObjects.size());
+        for (PrismObject<ShadowType> shadow : foundObjects) {
+            assertEquals("Wrong shadow OID for " + getName(shadow), shadowOids.get(getName(shadow)), shadow.getOid());
+        }
+        assertRepoShadows(ALL_SHADOWS, result);
+    }
+
+    /**
+     * The handler returns false in the middle of a batch: remaining objects of the batch are not passed to it.
+     */
+    @Test
+    public void test120SearchStopMidBatch() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        int stopAfter = 7; // batch size is 5
+        AtomicInteger calls = new AtomicInteger();
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null,
+                (shadow, lResult) -> calls.incrementAndGet() < stopAfter, task, result);
+
+        then();
+        result.computeStatus();
+        assertFalse("Unexpected error: " + result, result.isError());
+        assertEquals("Wrong # of handler calls", stopAfter, calls.get());
+        assertRepoShadows(ALL_SHADOWS, result);
+    }
+
+    /**
+     * Objects are processed by the worker threads, but the handler is invoked in the search thread.
+     * Each object is passed to it exactly once.
+     */
+    @Test
+    public void test200SearchWithProcessingThreads() throws Exception {
+        given();
+        RunningTask task = createRunningTaskWithProcessingThreads();
+        OperationResult result = createOperationResult();
+        Map<String, String> foundOids = new ConcurrentHashMap<>();
+        Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger calls = new AtomicInteger();
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null,
+                (shadow, lResult) -> {
+                    calls.incrementAndGet();
+                    handlerThreads.add(Thread.currentThread());
+                    foundOids.put(getName(shadow), shadow.getOid());
+                    return true;
+                }, task, result);
+
+        then();
+        assertSuccess(result);
+        assertEquals("Wrong # of handler calls", ALL_ACCOUNTS, calls.get());
+        assertEquals("Wrong shadow OIDs", shadowOids, foundOids);
+        assertEquals("Handler was called outside the search thread", Collections.singleton(Thread.currentThread()),
+                handlerThreads);
+        assertNoRunningWorkers(task);
+        assertRepoShadows(ALL_SHADOWS, result);
+    }
+
+    /**
+     * The handler returns false: the search stops, and no more objects are passed to the handler.
+     */
+    @Test
+    public void test210ProcessingThreadsHandlerStops() throws Exception {
+        given();
+        RunningTask task = createRunningTaskWithProcessingThreads();
+        OperationResult result = createOperationResult();
+        int stopAfter = 5;
+        AtomicInteger calls = new AtomicInteger();
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null,
+                (shadow, lResult) -> calls.incrementAndGet() < stopAfter, task, result);
+
+        then();
+        result.computeStatus();
+        assertFalse("Unexpected error: " + result, result.isError());
+        assertEquals("Wrong # of handler calls", stopAfter, calls.get());
+        assertNoRunningWorkers(task);
+    }
+
+    /**
+     * The handler fails: the search stops, the workers are stopped, and the exception is propagated to the caller.
+     */
+    @Test
+    public void test220ProcessingThreadsWorkerFailure() throws Exception {
+        given();
+        RunningTask task = createRunningTaskWithProcessingThreads();
+        OperationResult result = createOperationResult();
+        AtomicInteger calls = new AtomicInteger();
+        ResultHandler<ShadowType> handler = (shadow, lResult) -> {
+            if (calls.incrementAndGet() == 3) {
+                throw new IllegalStateException("Simulated handler failure");
+            }
+            return true;
+        };
+
+        when();
+        try {
+            provisioningService.searchObjectsIterative(ShadowType.class, createAccountQuery(), null, handler, task, result);
+            fail("Unexpected success");
+        } catch (Exception e) {
+            then();
+            displayExpectedException(e);
+            // The exception may be wrapped when passing through the connector.
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof IllegalStateException)) {
+                cause = cause.getCause();
+            }
+            assertNotNull("No simulated failure in " + e, cause);
+            assertEquals("Wrong exception message", "Simulated handler failure", cause.getMessage());
+        }
+
+        result.computeStatus();
+        assertTrue("Expected error in " + result, result.isError());
+        assertEquals("Wrong # of handler calls", 3, calls.get());
+        assertNoRunningWorkers(task);
+        assertRepoShadows(ALL_SHADOWS, result);
+    }
+
+    private RunningTask createRunningTaskWithProcessingThreads() throws Exception {
+        RunningTask task = taskManager.createFakeRunningTask(getTestTask());
+        task.setExtensionPropertyValue(SchemaConstants.MODEL_EXTENSION_RESOURCE_OBJECT_PROCESSING_THREADS, PROCESSING_THREADS);
+        return task;
+    }
+
+    private ObjectQuery createAccountQuery() {
+        return ObjectQueryUtil.createResourceAndObjectClassQuery(RESOURCE_DUMMY_OID,
+                dummyResourceCtl.getAccountObjectClassQName(), prismContext);
+    }
+
+    private String getName(PrismObject<ShadowType> shadow) {
+        return shadow.asObjectable().getName().getOrig().toLowerCase();
+    }
+
+    private void assertNoRunningWorkers(RunningTask task) {
+        assertTrue("Some workers are still running: " + task.getRunningLightweightAsynchronousSubtasks(),
+                task.getRunningLightweightAsynchronousSubtasks().isEmpty());
+    }
+
+    private void assertRepoShadows(int expected, OperationResult result) throws Exception {
+        assertEquals("Wrong # of repository shadows", expected,
+                repositoryService.countObjects(ShadowType.class, null, null, result));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.dummy;
+
+import static org.testng.AssertJUnit.*;
+
+import static com.evolveum.midpoint.test.IntegrationTestTools.waitFor;
+
+import java.io.File;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.provisioning.impl.ConnectorWarmUpManager;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationalStatus;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests preparing connector instances in advance (consistency/connectorWarmUp).
+ *
+ * The resource is imported directly into the repository, so the warm-up is triggered by the cache invalidation.
+ */
+@ContextConfiguration(locations = "classpath:ctx-provisioning-test-main.xml")
+@DirtiesContext
+@Listeners({ com.evolveum.midpoint.tools.testng.AlphabeticalMethodInterceptor.class })
+public class TestDummyConnectorWarmUp extends AbstractDummyTest {
+
+    private static final File TEST_DIR = new File(TEST_DIR_DUMMY, "dummy-connector-warm-up");
+    private static final File RESOURCE_DUMMY_FILE = new File(TEST_DIR, "resource-dummy.xml");
+
+    private static final long WARM_UP_TIMEOUT = 30000L;
+
+    @Autowired private ConnectorWarmUpManager connectorWarmUpManager;
+
+    private Integer waitCountAfterImport;
+
+    @Override
+    protected File getResourceDummyFile() {
+        return RESOURCE_DUMMY_FILE;
+    }
+
+    /**
+     * Connector instance is prepared (and resource schema is fetched) after the resource is imported.
+     */
+    @Test
+    public void test000WarmUpAfterImport() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when();
+        waitForWarmUp(1);
+
+        then();
+        ConnectorOperationalStatus status = getConnectorOperationalStatus(task, result);
+        assertEquals("Wrong instanceWarmedUp", Boolean.TRUE, status.getInstanceWarmedUp());
+        assertTrue("No connector instance initialization recorded", status.getInstanceInitializationCount() > 0);
+        waitCountAfterImport = status.getInstanceWaitCount();
+    }
+
+    /**
+     * Operational state of the resource is changed. This is not a configuration change, so no warm-up is scheduled.
+     */
+    @Test
+    public void test100OperationalStateChange() throws Exception {
+        given();
+        OperationResult result = getTestOperationResult();
+        int warmUpsBefore = connectorWarmUpManager.getWarmUpCount();
+        List<ItemDelta<?, ?>> modifications = prismContext.deltaFor(ResourceType.class)
+                .item(ResourceType.F_OPERATIONAL_STATE)
+                .replace(new OperationalStateType(prismContext)
+                        .lastAvailabilityStatus(AvailabilityStatusType.UP)
+                        .message("Checked by the test"))
+                .asItemDeltas();
+
+        when();
+        repositoryService.modifyObject(ResourceType.class, RESOURCE_DUMMY_OID, modifications, result);
+
+        then();
+        assertSuccess(result);
+        // Scheduling is done synchronously within the invalidation; so if nothing is pending now, nothing was scheduled.
+        assertFalse("Warm-up was scheduled", connectorWarmUpManager.isWarmUpPending(RESOURCE_DUMMY_OID));
+        assertEquals("Warm-up was executed", warmUpsBefore, connectorWarmUpManager.getWarmUpCount());
+    }
+
+    /**
+     * Consistency settings of the resource are changed. This is a configuration change, so the warm-up is executed again.
+     * No operation has to wait for the connector instance.
+     */
+    @Test
+    public void test110ConfigurationChange() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        int warmUpsBefore = connectorWarmUpManager.getWarmUpCount();
+        List<ItemDelta<?, ?>> modifications = prismContext.deltaFor(ResourceType.class)
+                .item(ResourceType.F_CONSISTENCY, ResourceConsistencyType.F_AVOID_DUPLICATE_VALUES)
+                .replace(true)
+                .asItemDeltas();
+
+        when();
+        repositoryService.modifyObject(ResourceType.class, RESOURCE_DUMMY_OID, modifications, result);
+        waitForWarmUp(warmUpsBefore + 1);
+
+        then();
+        assertSuccess(result);
+        ConnectorOperationalStatus status = getConnectorOperationalStatus(task, result);
+        assertEquals("Wrong instanceWarmedUp", Boolean.TRUE, status.getInstanceWarmedUp());
+        assertEquals("Wrong instanceWaitCount", waitCountAfterImport, status.getInstanceWaitCount());
+    }
+
+    private void waitForWarmUp(int expectedCount) throws Exception {
+        waitFor("Waiting for connector warm-up #" + expectedCount,
+                () -> connectorWarmUpManager.getWarmUpCount() >= expectedCount
+                        && !connectorWarmUpManager.isWarmUpPending(RESOURCE_DUMMY_OID),
+                WARM_UP_TIMEOUT);
+        assertEquals("Wrong # of warm-ups", expectedCount, connectorWarmUpManager.getWarmUpCount());
+    }
+
+    private ConnectorOperationalStatus getConnectorOperationalStatus(Task task, OperationResult result) throws Exception {
+        List<ConnectorOperationalStatus> statuses =
+                provisioningService.getConnectorOperationalStatus(RESOURCE_DUMMY_OID, task, result);
+        display("Connector operational status", statuses);
+        assertEquals("Unexpected size of operational status", 1, statuses.size());
+        return statuses.get(0);
+    }
+}
@@ -2824,7 +2824,7 @@ public class TestDummyConsistency extends AbstractDummyTest {
     private void assertResourceStatusChangeCounterIncrements() {
         assertCounterIncrement(InternalCounters.RESOURCE_REPOSITORY_MODIFY_COUNT, 1);
         assertCounterIncrement(InternalCounters.RESOURCE_REPOSITORY_READ_COUNT, 1);
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
     }
 
     private void assertGetUncreatedShadow(String oid)
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.dummy;
+
+import static org.testng.AssertJUnit.*;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.common.refinery.RefinedObjectClassDefinition;
+import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.provisioning.api.ConstraintsCheckingResult;
+import com.evolveum.midpoint.schema.ResourceShadowDiscriminator;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Tests the thread-local cache of conflict-free situations in the constraints (uniqueness) checker.
+ *
+ * Adding a shadow invalidates only the situations for its resource and object class. To see whether a situation
+ * is still cached, conflicting shadows are also added directly to the repository, i.e. without invalidating the cache:
+ * the check then succeeds only if it is answered from the cache.
+ */
+@ContextConfiguration(locations = "classpath:ctx-provisioning-test-main.xml")
+@DirtiesContext
+@Listeners({ com.evolveum.midpoint.tools.testng.AlphabeticalMethodInterceptor.class })
+public class TestDummyConstraintsChecker extends AbstractDummyTest {
+
+    private static final String ACCOUNT_BLACKBEARD_USERNAME = "blackbeard";
+    private static final String ACCOUNT_MORGAN_USERNAME = "morgan";
+
+    @Test
+    public void test000TestResource() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when();
+        OperationResult testResult = provisioningService.testResource(RESOURCE_DUMMY_OID, task);
+
+        then();
+        assertSuccess(testResult);
+        resource = provisioningService.getObject(ResourceType.class, RESOURCE_DUMMY_OID, null, task, result);
+        resourceType = resource.asObjectable();
+    }
+
+    /**
+     * Account with a conflicting name is added. The cached situation is dropped, so the conflict is detected.
+     */
+    @Test
+    public void test100AddConflictingAccount() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        provisioningService.enterConstraintsCheckerCache();
+        try {
+            assertSatisfiesConstraints(checkAccount(ACCOUNT_BLACKBEARD_USERNAME, task, result));
+
+            when();
+            String oid = provisioningService.addObject(createShadow(resource, ACCOUNT_BLACKBEARD_USERNAME),
+                    null, null, task, result);
+
+            then();
+            ConstraintsCheckingResult checkingResult = checkAccount(ACCOUNT_BLACKBEARD_USERNAME, task, result);
+            assertFalse("Conflict was not detected", checkingResult.isSatisfiesConstraints());
+            assertNotNull("No conflicting shadow", checkingResult.getConflictingShadow());
+            assertEquals("Wrong conflicting shadow", oid, checkingResult.getConflictingShadow().getOid());
+        } finally {
+            provisioningService.exitConstraintsCheckerCache();
+        }
+        assertSuccess(result);
+    }
+
+    /**
+     * Group (another object class) is added. The cached situation for the account is kept: the check succeeds
+     * even though a conflicting account shadow was meanwhile added directly to the repository.
+     */
+    @Test
+    public void test110AddGroup() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        provisioningService.enterConstraintsCheckerCache();
+        try {
+            assertSatisfiesConstraints(checkAccount(ACCOUNT_MORGAN_USERNAME, task, result));
+            repositoryService.addObject(createShadow(resource, ACCOUNT_MORGAN_USERNAME), null, result);
+
+            when();
+            addObject(GROUP_PIRATES_FILE, task, result);
+
+            then();
+            assertSatisfiesConstraints(checkAccount(ACCOUNT_MORGAN_USERNAME, task, result));
+        } finally {
+            provisioningService.exitConstraintsCheckerCache();
+        }
+
+        // Without the cache, the conflicting shadow is found.
+        assertFalse("Conflict was not detected without the cache",
+                checkAccount(ACCOUNT_MORGAN_USERNAME, task, result).isSatisfiesConstraints());
+        assertSuccess(result);
+    }
+
+    private ConstraintsCheckingResult checkAccount(String username, Task task, OperationResult result)
+            throws Exception {
+        RefinedObjectClassDefinition accountDefinition = RefinedResourceSchemaImpl.getRefinedSchema(resource)
+                .getDefaultRefinedDefinition(ShadowKindType.ACCOUNT);
+        ResourceShadowDiscriminator discriminator = new ResourceShadowDiscriminator(RESOURCE_DUMMY_OID,
+                ShadowKindType.ACCOUNT, SchemaConstants.INTENT_DEFAULT, null, false);
+        PrismObject<ShadowType> shadow = createShadow(resource, username);
+        ConstraintsCheckingResult checkingResult = provisioningService.checkConstraints(accountDefinition, shadow,
+                null, resourceType, null, discriminator, conflictingShadow -> true, null, task, result);
+        displayValue("Constraints checking messages for " + username, checkingResult.getMessages());
+        return checkingResult;
+    }
+
+    private void assertSatisfiesConstraints(ConstraintsCheckingResult checkingResult) {
+        assertTrue("Constraints not satisfied: " + checkingResult.getMessages(), checkingResult.isSatisfiesConstraints());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.dummy;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import static com.evolveum.midpoint.test.IntegrationTestTools.assertNoAssociation;
+
+import java.io.File;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import com.evolveum.icf.dummy.resource.DummyGroup;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.DummyResourceContoller;
+import com.evolveum.midpoint.test.util.ParallelTestThread;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Tests resolving object-to-subject associations (group membership) using the cached membership index
+ * (membershipIndexTimeToLive).
+ *
+ * Group members are changed directly on the dummy resource, i.e. without invalidating the index.
+ * So the index is in use as long as the changes are not visible. Groups are read from the resource only
+ * when the index is built or refreshed; this is checked using the dummy resource group members read counter.
+ */
+@ContextConfiguration(locations = "classpath:ctx-provisioning-test-main.xml")
+@DirtiesContext
+@Listeners({ com.evolveum.midpoint.tools.testng.AlphabeticalMethodInterceptor.class })
+public class TestDummyMembershipIndex extends AbstractDummyTest {
+
+    private static final File TEST_DIR = new File(TEST_DIR_DUMMY, "dummy-membership-index");
+    private static final File RESOURCE_DUMMY_FILE = new File(TEST_DIR, "resource-dummy.xml");
+
+    /** Must be the same as membershipIndexTimeToLive in the resource. */
+    private static final long MEMBERSHIP_INDEX_TIME_TO_LIVE = 5000L;
+
+    /** Group that is never changed by midPoint. */
+    private static final String GROUP_SAILORS_NAME = "sailors";
+
+    private static final int THREADS = 5;
+    private static final long WAIT_TIMEOUT = 60000L;
+
+    @Override
+    protected File getResourceDummyFile() {
+        return RESOURCE_DUMMY_FILE;
+    }
+
+    @Test
+    public void test000TestResource() throws Exception {
+        given();
+        Task task = getTestTask();
+
+        when();
+        OperationResult testResult = provisioningService.testResource(RESOURCE_DUMMY_OID, task);
+
+        then();
+        assertSuccess(testResult);
+    }
+
+    @Test
+    public void test010AddObjects() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when();
+        addObject(GROUP_PIRATES_FILE, task, result);
+        addObject(ACCOUNT_WILL_FILE, task, result);
+        addObject(ACCOUNT_ELIZABETH_FILE, task, result);
+        dummyResourceCtl.addGroup(GROUP_SAILORS_NAME);
+
+        then();
+        assertSuccess(result);
+    }
+
+    /**
+     * The index is built when reading will, and used when reading elizabeth. So the membership of elizabeth
+     * (added after the index was built) is not seen.
+     */
+    @Test
+    public void test100IndexHit() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        getPirates().addMember(ACCOUNT_WILL_USERNAME);
+
+        when();
+        PrismObject<ShadowType> will = getShadow(ACCOUNT_WILL_OID, task, result);
+        getPirates().addMember(ACCOUNT_ELIZABETH_USERNAME);
+        PrismObject<ShadowType> elizabeth = getShadow(ACCOUNT_ELIZABETH_OID, task, result);
+
+        then();
+        assertSuccess(result);
+        assertEntitlementGroup(will, GROUP_PIRATES_OID);
+        assertNoAssociation(elizabeth, ASSOCIATION_GROUP_NAME, GROUP_PIRATES_OID);
+    }
+
+    /**
+     * Pirates group is modified by midPoint, so it is re-read from the resource: the membership of elizabeth
+     * in pirates is seen now. Sailors group is not re-read, so the membership of elizabeth in it is not seen.
+     */
+    @Test
+    public void test110RefreshAfterEntitlementModify() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        dummyResource.getGroupByName(GROUP_SAILORS_NAME).addMember(ACCOUNT_ELIZABETH_USERNAME);
+        ObjectDelta<ShadowType> delta = prismContext.deltaFactory().object().createModificationReplaceProperty(ShadowType.class,
+                GROUP_PIRATES_OID,
+                dummyResourceCtl.getAttributePath(DummyResourceContoller.DUMMY_GROUP_ATTRIBUTE_DESCRIPTION),
+                "Bloodthirsty pirates");
+        provisioningService.modifyObject(ShadowType.class, delta.getOid(), delta.getModifications(), null, null, task, result);
+        int groupMembersReadBefore = dummyResource.getGroupMembersReadCount();
+
+        when();
+        PrismObject<ShadowType> elizabeth = getShadow(ACCOUNT_ELIZABETH_OID, task, result);
+
+        then();
+        assertSuccess(result);
+        assertEntitlementGroup(elizabeth, GROUP_PIRATES_OID);
+        assertAssociations(elizabeth, 1);
+        assertEquals("Wrong # of groups read", 1, dummyResource.getGroupMembersReadCount() - groupMembersReadBefore);
+    }
+
+    /**
+     * Membership of will is removed on the resource. It is seen only after the index expires.
+     */
+    @Test
+    public void test120TimeToLiveExpiry() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        getPirates().removeMember(ACCOUNT_WILL_USERNAME);
+
+        when("index is still valid");
+        PrismObject<ShadowType> willBefore = getShadow(ACCOUNT_WILL_OID, task, result);
+
+        then("index is still valid");
+        assertEntitlementGroup(willBefore, GROUP_PIRATES_OID);
+
+        when("index expired");
+        Thread.sleep(MEMBERSHIP_INDEX_TIME_TO_LIVE + 500L);
+        PrismObject<ShadowType> willAfter = getShadow(ACCOUNT_WILL_OID, task, result);
+
+        then("index expired");
+        assertSuccess(result);
+        assertNoAssociation(willAfter, ASSOCIATION_GROUP_NAME, GROUP_PIRATES_OID);
+    }
+
+    /**
+     * The index expires and is needed by more threads at once. It is built only once.
+     */
+    @Test
+    public void test130ConcurrentIndexBuild() throws Exception {
+        given();
+        Thread.sleep(MEMBERSHIP_INDEX_TIME_TO_LIVE + 500L);
+        int groups = dummyResource.listGroups().size();
+        int groupMembersReadBefore = dummyResource.getGroupMembersReadCount();
+        // Makes the index building slow, so the threads really ask for the index at the same time.
+        dummyResource.setOperationDelayOffset(500);
+
+        when();
+        String testName = getTestNameShort();
+        ParallelTestThread[] threads;
+        try {
+            threads = multithread(
+                    (i) -> {
+                        Task localTask = createTask(testName + "-thread-" + i);
+                        OperationResult localResult = localTask.getResult();
+                        PrismObject<ShadowType> elizabeth = getShadow(ACCOUNT_ELIZABETH_OID, localTask, localResult);
+                        assertSuccess(localResult);
+                        assertEntitlementGroup(elizabeth, GROUP_PIRATES_OID);
+                        assertAssociations(elizabeth, 2);
+                    }, THREADS, null);
+            waitForThreads(threads, WAIT_TIMEOUT);
+        } finally {
+            dummyResource.setOperationDelayOffset(0);
+        }
+
+        then();
+        assertEquals("Wrong # of groups read", groups, dummyResource.getGroupMembersReadCount() - groupMembersReadBefore);
+    }
+
+    private void assertAssociations(PrismObject<ShadowType> shadow, int expected) {
+        assertEquals("Wrong # of associations in " + shadow, expected, shadow.asObjectable().getAssociation().size());
+    }
+
+    private void addObject(File file, Task task, OperationResult result) throws Exception {
+        PrismObject<ShadowType> shadow = prismContext.parseObject(file);
+        provisioningService.addObject(shadow, null, null, task, result);
+    }
+
+    private PrismObject<ShadowType> getShadow(String oid, Task task, OperationResult result) throws Exception {
+        PrismObject<ShadowType> shadow = provisioningService.getObject(ShadowType.class, oid, null, task, result);
+        display("Shadow", shadow);
+        return shadow;
+    }
+
+    private DummyGroup getPirates() throws Exception {
+        return dummyResource.getGroupByName(GROUP_PIRATES_NAME);
+    }
+}
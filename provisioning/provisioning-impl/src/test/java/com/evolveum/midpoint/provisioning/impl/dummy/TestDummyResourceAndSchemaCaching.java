@@ -293,7 +293,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
     }
 
     /**
-     * Change something that is not important. The cached resource should be refreshed, the schema re-parsed
+     * Change something that is not important. The cached resource should be refreshed, the schema should be reused
      * but the connector should still be cached.
      */
     @Test
@@ -335,7 +335,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertCounterIncrement(InternalCounters.CONNECTOR_CAPABILITIES_FETCH_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_INITIALIZATION_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_CONFIGURATION_COUNT, 0);
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
 
         assertResourceVersionIncrement(resourceProvisioning, 0);
 
@@ -343,7 +343,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertResourceCacheHitsIncrement(0);
         assertResourceCacheMissesIncrement(1);
 
-        // There are expected to be re-parsed
+        // Schema is unchanged, so the parsed schemas are shared with the previous version of the resource
         rememberResourceSchema(RefinedResourceSchemaImpl.getResourceSchema(resourceProvisioning, prismContext));
         rememberRefinedResourceSchema(RefinedResourceSchemaImpl.getRefinedSchema(resourceProvisioning));
         assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
@@ -400,7 +400,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
      * Change resource directly in repo. This simulates the change done by other node. The connector cache should
      * be refreshed.
      * <p>
-     * Change something that is not important. The cached resource should be refreshed, the schema re-parsed
+     * Change something that is not important. The cached resource should be refreshed, the schema should be reused
      * but the connector should still be cached.
      */
     @Test
@@ -442,7 +442,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertCounterIncrement(InternalCounters.CONNECTOR_CAPABILITIES_FETCH_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_INITIALIZATION_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_CONFIGURATION_COUNT, 0);
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
 
         assertResourceVersionIncrement(resourceProvisioning, 0);
 
@@ -450,7 +450,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertResourceCacheHitsIncrement(0);
         assertResourceCacheMissesIncrement(1);
 
-        // There are expected to be re-parsed
+        // Schema is unchanged, so the parsed schemas are shared with the previous version of the resource
         rememberResourceSchema(RefinedResourceSchemaImpl.getResourceSchema(resourceProvisioning, prismContext));
         rememberRefinedResourceSchema(RefinedResourceSchemaImpl.getRefinedSchema(resourceProvisioning));
         assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
@@ -459,7 +459,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
     }
 
     /**
-     * Change part of connector configuration. The cached resource should be refreshed, the schema re-parsed.
+     * Change part of connector configuration. The cached resource should be refreshed, the schema reused.
      * The connector also needs to re-initialized.
      */
     @Test
@@ -487,7 +487,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
      * Change part of connector configuration. Change it directly in repo to simulate change
      * from another midPoint node.
      * <p>
-     * The cached resource should be refreshed, the schema re-parsed.
+     * The cached resource should be refreshed, the schema reused.
      * The connector also needs to re-initialized.
      */
     @Test
@@ -575,7 +575,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertCounterIncrement(InternalCounters.CONNECTOR_CAPABILITIES_FETCH_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_INITIALIZATION_COUNT, 0);
         assertCounterIncrement(InternalCounters.CONNECTOR_INSTANCE_CONFIGURATION_COUNT, 0);
-        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 1);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
 
         assertResourceVersionIncrement(resourceProvisioning, 0);
 
@@ -583,7 +583,7 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertResourceCacheHitsIncrement(0);
         assertResourceCacheMissesIncrement(1);
 
-        // There are expected to be re-parsed
+        // Schema is unchanged, so the parsed schemas are shared with the previous version of the resource
         rememberResourceSchema(RefinedResourceSchemaImpl.getResourceSchema(resourceProvisioning, prismContext));
         rememberRefinedResourceSchema(RefinedResourceSchemaImpl.getRefinedSchema(resourceProvisioning));
         assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
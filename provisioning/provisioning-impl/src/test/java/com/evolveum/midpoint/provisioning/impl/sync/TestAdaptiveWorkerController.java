@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.sync;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests {@link AdaptiveWorkerController} using synthetic samples of processing and fetch times
+ * (with simulated clock), and the bounds of adaptive live sync batch sizing.
+ */
+public class TestAdaptiveWorkerController extends AbstractUnitTest {
+
+    private static final int MIN_WORKERS = 2;
+    private static final int MAX_WORKERS = 6;
+    private static final int QUEUE_CAPACITY = 20;
+
+    /** Simulated time long enough for several adjustments. */
+    private static final long SIMULATION_TIME = 20000L;
+
+    private final AtomicLong clock = new AtomicLong(1000000L);
+
+    /**
+     * The connector is much faster than the workers and the queue is full: the number of workers grows to the maximum.
+     */
+    @Test
+    public void test100SlowProcessing() {
+        given();
+        AdaptiveWorkerController controller = createController();
+
+        when();
+        simulate(controller, 10, 100, QUEUE_CAPACITY - 1, false);
+
+        then();
+        assertEquals("Wrong # of active workers", MAX_WORKERS, controller.getActiveWorkers());
+    }
+
+    /**
+     * The workers are much faster than the connector and the queue is empty: the number of workers drops to the minimum.
+     */
+    @Test
+    public void test110FastProcessing() {
+        given();
+        AdaptiveWorkerController controller = createController();
+        simulate(controller, 10, 100, QUEUE_CAPACITY - 1, false);
+        assertEquals("Wrong # of active workers before", MAX_WORKERS, controller.getActiveWorkers());
+
+        when();
+        simulate(controller, 100, 10, 0, false);
+
+        then();
+        assertEquals("Wrong # of active workers", MIN_WORKERS, controller.getActiveWorkers());
+    }
+
+    /**
+     * The queue fills up: the number of workers is raised right to the number needed to keep pace with the connector
+     * (processing time / fetch time = 4). It stays there while the queue is neither full nor empty.
+     */
+    @Test
+    public void test120KeepPaceWithConnector() {
+        given();
+        AdaptiveWorkerController controller = createController();
+
+        when();
+        simulateUntilFirstAdjustment(controller, 10, 40, QUEUE_CAPACITY - 1, false);
+
+        then();
+        assertEquals("Wrong # of active workers after first adjustment", 4, controller.getActiveWorkers());
+
+        when();
+        simulate(controller, 10, 40, QUEUE_CAPACITY / 2, false);
+
+        then();
+        assertEquals("Wrong # of active workers", 4, controller.getActiveWorkers());
+    }
+
+    /**
+     * The submitter has to wait for a free place in the queue even if the average queue depth is low:
+     * workers are added one by one, up to the maximum.
+     */
+    @Test
+    public void test130SubmitterBlocked() {
+        given();
+        AdaptiveWorkerController controller = createController();
+
+        when();
+        simulateUntilFirstAdjustment(controller, 10, 10, 0, true);
+
+        then();
+        assertEquals("Wrong # of active workers after first adjustment", MIN_WORKERS + 1, controller.getActiveWorkers());
+
+        when();
+        simulate(controller, 10, 10, 0, true);
+
+        then();
+        assertEquals("Wrong # of active workers", MAX_WORKERS, controller.getActiveWorkers());
+    }
+
+    /**
+     * Batch size grows (doubling) up to liveSyncMaxBatchSize when full batches are fetched, and drops (halving)
+     * down to liveSyncBatchSize when the batches are mostly empty.
+     */
+    @Test
+    public void test200LiveSyncBatchSizeBounds() {
+        int min = 100;
+        int max = 1000;
+
+        assertEquals(200, LiveSynchronizer.BatchSizing.nextBatchSize(100, min, max, 100));
+        assertEquals(800, LiveSynchronizer.BatchSizing.nextBatchSize(400, min, max, 400));
+        assertEquals("Max batch size exceeded", max, LiveSynchronizer.BatchSizing.nextBatchSize(800, min, max, 800));
+        assertEquals("Max batch size exceeded", max, LiveSynchronizer.BatchSizing.nextBatchSize(max, min, max, max));
+
+        assertEquals(400, LiveSynchronizer.BatchSizing.nextBatchSize(400, min, max, 300));
+        assertEquals(200, LiveSynchronizer.BatchSizing.nextBatchSize(400, min, max, 150));
+        assertEquals("Min batch size not kept", min, LiveSynchronizer.BatchSizing.nextBatchSize(150, min, max, 10));
+        assertEquals("Min batch size not kept", min, LiveSynchronizer.BatchSizing.nextBatchSize(min, min, max, 0));
+    }
+
+    private AdaptiveWorkerController createController() {
+        AdaptiveWorkerController controller = new AdaptiveWorkerController(MIN_WORKERS, MAX_WORKERS, QUEUE_CAPACITY, clock::get);
+        assertEquals("Wrong # of active workers at start", MIN_WORKERS, controller.getActiveWorkers());
+        return controller;
+    }
+
+    /**
+     * Submits changes fetched each fetchTime ms, each processed in processingTime ms, for {@link #SIMULATION_TIME}.
+     * Checks the bounds after each submission.
+     */
+    private void simulate(AdaptiveWorkerController controller, long fetchTime, long processingTime, int queueDepth,
+            boolean blocked) {
+        long end = clock.get() + SIMULATION_TIME;
+        while (clock.get() < end) {
+            submit(controller, fetchTime, processingTime, queueDepth, blocked);
+        }
+    }
+
+    private void simulateUntilFirstAdjustment(AdaptiveWorkerController controller, long fetchTime, long processingTime,
+            int queueDepth, boolean blocked) {
+        int before = controller.getActiveWorkers();
+        long end = clock.get() + SIMULATION_TIME;
+        while (controller.getActiveWorkers() == before && clock.get() < end) {
+            submit(controller, fetchTime, processingTime, queueDepth, blocked);
+        }
+    }
+
+    private void submit(AdaptiveWorkerController controller, long fetchTime, long processingTime, int queueDepth,
+            boolean blocked) {
+        clock.addAndGet(fetchTime);
+        controller.recordProcessingTime(processingTime);
+        controller.beforeSubmission(queueDepth);
+        controller.afterSubmission(blocked);
+
+        int active = controller.getActiveWorkers();
+        assertTrue("Too few active workers: " + active, active >= MIN_WORKERS);
+        assertTrue("Too many active workers: " + active, active <= MAX_WORKERS);
+    }
+}
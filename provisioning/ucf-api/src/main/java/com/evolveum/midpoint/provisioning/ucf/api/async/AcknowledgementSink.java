@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.ucf.api.async;
+
+/**
+ * Receives the outcome of (possibly asynchronous) processing of a change or a message,
+ * so that it can be acknowledged (or rejected) at the source.
+ *
+ * Must be called exactly once for each change or message. Can be called from any thread.
+ */
+@FunctionalInterface
+public interface AcknowledgementSink {
+
+    /**
+     * @param successful true if the processing was successful and the change or message can be acknowledged;
+     * false if it should be rejected (according to the error handling settings)
+     */
+    void acknowledge(boolean successful);
+}
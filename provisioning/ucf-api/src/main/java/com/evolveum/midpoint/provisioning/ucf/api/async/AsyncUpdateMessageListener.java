@@ -22,4 +22,14 @@ public interface AsyncUpdateMessageListener {
      *         false (or by throwing an exception) otherwise
      */
     boolean onMessage(AsyncUpdateMessageType message) throws SchemaException;
+
+    /**
+     * Processes a message, possibly asynchronously. The outcome is reported to the acknowledgement sink
+     * when the processing is done. If an exception is thrown, the sink is not called.
+     *
+     * By default the message is processed synchronously.
+     */
+    default void onMessage(AsyncUpdateMessageType message, AcknowledgementSink acknowledgementSink) throws SchemaException {
+        acknowledgementSink.acknowledge(onMessage(message));
+    }
 }
@@ -23,4 +23,14 @@ public interface ChangeListener {
      * false (or a runtime exception) should be returned otherwise
      */
     boolean onChange(Change change, Task task, OperationResult result);
+
+    /**
+     * Called when the connector learns about a resource change. The change can be processed asynchronously;
+     * the outcome is reported to the acknowledgement sink when the processing is done.
+     *
+     * By default the change is processed synchronously.
+     */
+    default void onChange(Change change, Task task, OperationResult result, AcknowledgementSink acknowledgementSink) {
+        acknowledgementSink.acknowledge(onChange(change, task, result));
+    }
 }
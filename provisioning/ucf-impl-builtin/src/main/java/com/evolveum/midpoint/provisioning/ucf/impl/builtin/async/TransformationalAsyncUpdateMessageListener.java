@@ -11,6 +11,7 @@ import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.provisioning.ucf.api.async.AcknowledgementSink;
 import com.evolveum.midpoint.provisioning.ucf.api.async.AsyncUpdateMessageListener;
 import com.evolveum.midpoint.provisioning.ucf.api.Change;
 import com.evolveum.midpoint.provisioning.ucf.api.async.ChangeListener;
@@ -39,6 +40,7 @@ import org.springframework.security.core.Authentication;
 import javax.xml.namespace.QName;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -75,6 +77,22 @@ public class TransformationalAsyncUpdateMessageListener implements AsyncUpdateMe
 
     @Override
     public boolean onMessage(AsyncUpdateMessageType message) throws SchemaException {
+        AtomicBoolean successful = new AtomicBoolean();
+        processMessage(message, successful::set, false);
+        return successful.get();
+    }
+
+    /**
+     * Passes the changes to the change listener without waiting for their processing. The message is acknowledged
+     * when all of its changes are processed.
+     */
+    @Override
+    public void onMessage(AsyncUpdateMessageType message, AcknowledgementSink acknowledgementSink) throws SchemaException {
+        processMessage(message, acknowledgementSink, true);
+    }
+
+    private void processMessage(AsyncUpdateMessageType message, AcknowledgementSink acknowledgementSink,
+            boolean asynchronous) throws SchemaException {
         int messageNumber = messagesSeen.getAndIncrement();
         LOGGER.trace("Got message number {}: {}", messageNumber, message);
 
@@ -135,13 +153,24 @@ public class TransformationalAsyncUpdateMessageListener implements AsyncUpdateMe
                         ConfigurationException | ExpressionEvaluationException e) {
                     throw new SystemException("Couldn't evaluate message transformation expression: " + e.getMessage(), e);
                 }
-                boolean ok = true;
+                List<Change> changes = new ArrayList<>(changeBeans.size());
                 for (UcfChangeType changeBean : changeBeans) {
-                    // intentionally in this order - to process changes even after failure
-                    // (if listener wants to fail fast, it can throw an exception)
-                    ok = changeListener.onChange(createChange(changeBean, result), task, result) && ok;
+                    changes.add(createChange(changeBean, result));
+                }
+                if (asynchronous && !changes.isEmpty()) {
+                    MessageAcknowledgement messageAcknowledgement = new MessageAcknowledgement(changes.size(), acknowledgementSink);
+                    for (Change change : changes) {
+                        changeListener.onChange(change, task, result, messageAcknowledgement);
+                    }
+                } else {
+                    boolean ok = true;
+                    for (Change change : changes) {
+                        // intentionally in this order - to process changes even after failure
+                        // (if listener wants to fail fast, it can throw an exception)
+                        ok = changeListener.onChange(change, task, result) && ok;
+                    }
+                    acknowledgementSink.acknowledge(ok);
                 }
-                return ok;
             } catch (Throwable t) {
                 result.recordFatalError(t.getMessage(), t);
                 throw t;
@@ -157,6 +186,31 @@ public class TransformationalAsyncUpdateMessageListener implements AsyncUpdateMe
         }
     }
 
+    /**
+     * Acknowledges the message when all its changes are processed; successfully only if all of them succeeded.
+     */
+    private static class MessageAcknowledgement implements AcknowledgementSink {
+
+        @NotNull private final AtomicInteger changesRemaining;
+        @NotNull private final AtomicBoolean allSuccessful = new AtomicBoolean(true);
+        @NotNull private final AcknowledgementSink messageAcknowledgementSink;
+
+        private MessageAcknowledgement(int changes, @NotNull AcknowledgementSink messageAcknowledgementSink) {
+            this.changesRemaining = new AtomicInteger(changes);
+            this.messageAcknowledgementSink = messageAcknowledgementSink;
+        }
+
+        @Override
+        public void acknowledge(boolean successful) {
+            if (!successful) {
+                allSuccessful.set(false);
+            }
+            if (changesRemaining.decrementAndGet() == 0) {
+                messageAcknowledgementSink.acknowledge(allSuccessful.get());
+            }
+        }
+    }
+
     /**
      * Mainly for testing purposes we provide an option to simply unwrap UcfChangeType from "any data" message.
      */
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.provisioning.ucf.impl.builtin.async.sources;
 
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
+import com.evolveum.midpoint.provisioning.ucf.api.async.AcknowledgementSink;
 import com.evolveum.midpoint.provisioning.ucf.api.async.ActiveAsyncUpdateSource;
 import com.evolveum.midpoint.provisioning.ucf.api.async.AsyncUpdateMessageListener;
 import com.evolveum.midpoint.provisioning.ucf.api.ListeningActivity;
@@ -29,10 +30,13 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
@@ -49,6 +53,7 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
     private static final Trace LOGGER = TraceManager.getTrace(Amqp091AsyncUpdateSource.class);
     private static final int DEFAULT_PREFETCH = 10;
     private static final int DEFAULT_NUMBER_OF_THREADS = 10;
+    private static final int DEFAULT_ACKNOWLEDGEMENT_BATCH_SIZE = 1;
 
     @NotNull private final Amqp091SourceType sourceConfiguration;
     @NotNull private final PrismContext prismContext;
@@ -79,11 +84,42 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
 
         private volatile State state;
 
+        /**
+         * Messages delivered and not settled (i.e. acknowledged or rejected) yet.
+         */
         private final AtomicInteger messagesBeingProcessed = new AtomicInteger(0);
 
+        private final int acknowledgementBatchSize =
+                Math.max(1, defaultIfNull(sourceConfiguration.getAcknowledgementBatchSize(), DEFAULT_ACKNOWLEDGEMENT_BATCH_SIZE));
+
+        /**
+         * Guards the channel acknowledgement operations and the following two sets. The sets are used only
+         * if acknowledgements are batched.
+         */
+        private final Object acknowledgementLock = new Object();
+
+        /**
+         * Delivery tags of messages that are being processed, and of messages that are to be left unacknowledged
+         * (so they are redelivered after the connection is closed): the ones that failed when the processing should stop,
+         * and the ones ignored because the activity was stopping. A "multiple" acknowledgement must never cover them.
+         */
+        private final NavigableSet<Long> unsettledDeliveryTags = new TreeSet<>();
+
+        /**
+         * Delivery tags of messages that were successfully processed but not acknowledged yet.
+         */
+        private final NavigableSet<Long> completedDeliveryTags = new TreeSet<>();
+
+        /**
+         * After the stop was requested (last message, or an error requiring to stop the processing), the activity
+         * is alive until all messages being processed are settled. So the connection is closed - by the listening
+         * thread - only after the last acknowledgement is sent.
+         */
         @Override
         public boolean isAlive() {
-            return state != State.CLOSED;
+            State currentState = state;
+            return currentState == State.PREPARING || currentState == State.OPEN
+                    || currentState == State.CLOSING && messagesBeingProcessed.get() > 0;
         }
 
         private ListeningActivityImpl(AsyncUpdateMessageListener listener) {
@@ -94,35 +130,31 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
                 activeChannel.basicQos(defaultIfNull(sourceConfiguration.getPrefetch(), DEFAULT_PREFETCH));
                 LOGGER.info("Opened AMQP connection = {}, channel = {}", activeConnection, activeChannel);  // todo debug
                 DeliverCallback deliverCallback = (consumerTag, message) -> {
+                    messagesBeingProcessed.incrementAndGet();
+                    DeliverySettlement settlement = new DeliverySettlement(message);
+                    registerDelivery(message);
+                    if (state != State.OPEN) {
+                        LOGGER.info("Ignoring message on {} because the state is {}", consumerTag, state);
+                        settlement.abandon();
+                        return;
+                    }
                     try {
-                        messagesBeingProcessed.incrementAndGet();
-                        if (state != State.OPEN) {
-                            LOGGER.info("Ignoring message on {} because the state is {}", consumerTag, state);
-                            return;
-                        }
                         byte[] body = message.getBody();
                         LOGGER.info("Received a message on {}", consumerTag);   // todo debug
                         LOGGER.info("Message is:\n{}", new String(body, StandardCharsets.UTF_8)); // todo trace
-                        boolean successful = listener.onMessage(createAsyncUpdateMessage(message));
-                        if (successful) {
-                            activeChannel.basicAck(message.getEnvelope().getDeliveryTag(), false);
-                        } else {
-                            LOGGER.debug("Message processing was not successful, rejecting message according to the current settings");
-                            rejectMessage(message);
-                        }
+                        // The message can be processed asynchronously, so the settlement may occur later, in another thread.
+                        listener.onMessage(createAsyncUpdateMessage(message), settlement);
                         AMQP.BasicProperties properties = message.getProperties();
                         if (properties.getHeaders() != null) {
                             boolean last = Boolean.TRUE.equals(properties.getHeaders().get(HEADER_LAST_MESSAGE));
                             if (last) {
                                 LOGGER.info("Last message received, stopping the listening activity");
-                                stopInternal(true);
+                                requestStop();
                             }
                         }
                     } catch (RuntimeException | SchemaException e) {
                         LoggingUtils.logUnexpectedException(LOGGER, "Got exception while processing message", e);
-                        rejectMessage(message);
-                    } finally {
-                        messagesBeingProcessed.decrementAndGet();
+                        settlement.acknowledge(false);
                     }
                 };
                 state = State.OPEN;
@@ -143,45 +175,59 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
             }
         }
 
+        /**
+         * Called by the listening thread. Waits for the messages being processed (if any) and closes the connection.
+         */
         @Override
         public void stop() {
-            stopInternal(false);
+            if (state != State.CLOSED) {
+                state = State.CLOSING;
+            }
+            cancelConsumer();
+            closeConnectionGracefully();
         }
 
-        private void stopInternal(boolean withinMessageProcessing) {
+        /**
+         * Stops accepting new messages. Can be called from the consumer or worker threads, so it must not wait
+         * for other messages to be settled nor close the connection: that is done in {@link #stop()} as soon as
+         * the activity is no longer alive.
+         */
+        private void requestStop() {
             if (state != State.CLOSED) {
                 state = State.CLOSING;
             }
             cancelConsumer();
-            closeConnectionGracefully(withinMessageProcessing);
         }
 
         private void cancelConsumer() {
-            if (activeConnection != null && activeChannel != null && activeConsumerTag != null) {
-                LOGGER.info("Cancelling consumer {} on {}", activeConsumerTag, activeChannel);  // todo debug
+            Channel channel;
+            String consumerTag;
+            synchronized (this) {
+                channel = activeConnection != null ? activeChannel : null;
+                consumerTag = activeConsumerTag;
+                activeConsumerTag = null;
+            }
+            if (channel != null && consumerTag != null) {
+                LOGGER.info("Cancelling consumer {} on {}", consumerTag, channel);  // todo debug
                 try {
-                    activeChannel.basicCancel(activeConsumerTag);
-                } catch (IOException e) {
-                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't cancel consumer {} on channel {}", e, activeConsumerTag, activeChannel);
+                    channel.basicCancel(consumerTag);
+                } catch (IOException | RuntimeException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't cancel consumer {} on channel {}", e, consumerTag, channel);
                 }
-                activeConsumerTag = null;
             } else {
                 LOGGER.info("Consumer seems to be already cancelled: state={}, activeConnection={}, activeChannel={}, activeConsumerTag={}",
-                        state, activeConnection, activeChannel, activeConsumerTag);    // todo debug
+                        state, activeConnection, activeChannel, consumerTag);    // todo debug
             }
         }
 
-        private void closeConnectionGracefully(boolean withinMessageProcessing) {
+        private void closeConnectionGracefully() {
             if (activeConnection == null) {
                 return;
             }
-            LOGGER.info("Going to close connection gracefully (within processing: {}, messages being processed: {})",
-                    withinMessageProcessing, messagesBeingProcessed);
+            LOGGER.info("Going to close connection gracefully (messages being processed: {})", messagesBeingProcessed);
             // wait until remaining messages are processed (at least try so)
-            int steadyState = withinMessageProcessing ? 1 : 0;
-
             long start = System.currentTimeMillis();
-            while (messagesBeingProcessed.get() > steadyState
+            while (messagesBeingProcessed.get() > 0
                     && System.currentTimeMillis() - start < CONNECTION_CLOSE_TIMEOUT) {
                 try {
                     Thread.sleep(100);
@@ -190,14 +236,112 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
                     break;
                 }
             }
-            if (messagesBeingProcessed.get() > steadyState) {
+            if (messagesBeingProcessed.get() > 0) {
                 LOGGER.warn("Closing the connection even if {} messages are being processed; they will be unacknowledged",
-                        messagesBeingProcessed.get() - steadyState);
+                        messagesBeingProcessed.get());
             }
 
+            flushAcknowledgements(true);
             silentlyCloseActiveConnection();
         }
 
+        /**
+         * Settles given delivery exactly once: acknowledges it (immediately or as part of a batch) or rejects it.
+         */
+        private class DeliverySettlement implements AcknowledgementSink {
+
+            @NotNull private final Delivery message;
+            @NotNull private final AtomicBoolean settled = new AtomicBoolean();
+
+            private DeliverySettlement(@NotNull Delivery message) {
+                this.message = message;
+            }
+
+            @Override
+            public void acknowledge(boolean successful) {
+                if (!settled.compareAndSet(false, true)) {
+                    LOGGER.trace("Message {} has been already settled", message.getEnvelope().getDeliveryTag());
+                    return;
+                }
+                try {
+                    if (successful) {
+                        acknowledgeMessage(message);
+                    } else {
+                        LOGGER.debug("Message processing was not successful, rejecting message according to the current settings");
+                        rejectMessage(message);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't settle message {}", e, message.getEnvelope().getDeliveryTag());
+                } finally {
+                    messagesBeingProcessed.decrementAndGet();
+                }
+            }
+
+            private void abandon() {
+                if (settled.compareAndSet(false, true)) {
+                    messagesBeingProcessed.decrementAndGet();
+                }
+            }
+        }
+
+        private void registerDelivery(Delivery message) {
+            if (acknowledgementBatchSize > 1) {
+                synchronized (acknowledgementLock) {
+                    unsettledDeliveryTags.add(message.getEnvelope().getDeliveryTag());
+                }
+            }
+        }
+
+        private void acknowledgeMessage(Delivery message) throws IOException {
+            long deliveryTag = message.getEnvelope().getDeliveryTag();
+            synchronized (acknowledgementLock) {
+                Channel channel = activeChannel;
+                if (channel == null) {
+                    LOGGER.debug("Couldn't acknowledge message {} because the channel is closed; it will be redelivered", deliveryTag);
+                } else if (acknowledgementBatchSize > 1) {
+                    unsettledDeliveryTags.remove(deliveryTag);
+                    completedDeliveryTags.add(deliveryTag);
+                    flushAcknowledgements(false);
+                } else {
+                    channel.basicAck(deliveryTag, false);
+                }
+            }
+        }
+
+        /**
+         * Acknowledges completed messages that precede all unsettled messages (see {@link #unsettledDeliveryTags}) - with
+         * a single "multiple" acknowledgement - if there are enough of them or if there's nothing else being processed.
+         * As every delivered message is either unsettled or completed until it is acknowledged or rejected, these messages
+         * form a contiguous range of the messages not settled on the channel, so the acknowledgement covers nothing else.
+         * If forced (e.g. when closing the connection) all completed messages are acknowledged, individually if needed.
+         */
+        private void flushAcknowledgements(boolean force) {
+            synchronized (acknowledgementLock) {
+                Channel channel = activeChannel;
+                if (completedDeliveryTags.isEmpty() || channel == null) {
+                    return;
+                }
+                try {
+                    NavigableSet<Long> acknowledgeable = unsettledDeliveryTags.isEmpty() ?
+                            completedDeliveryTags : completedDeliveryTags.headSet(unsettledDeliveryTags.first(), false);
+                    if (!acknowledgeable.isEmpty()
+                            && (force || unsettledDeliveryTags.isEmpty() || acknowledgeable.size() >= acknowledgementBatchSize)) {
+                        LOGGER.trace("Acknowledging {} message(s) up to {}", acknowledgeable.size(), acknowledgeable.last());
+                        channel.basicAck(acknowledgeable.last(), acknowledgeable.size() > 1);
+                        acknowledgeable.clear();
+                    }
+                    if (force) {
+                        for (Long deliveryTag : completedDeliveryTags) {
+                            channel.basicAck(deliveryTag, false);
+                        }
+                        completedDeliveryTags.clear();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't acknowledge messages {}", e, completedDeliveryTags);
+                }
+            }
+        }
+
         @Override
         public String toString() {
             return "AMQP091-ListeningActivityImpl{" +
@@ -207,15 +351,29 @@ public class Amqp091AsyncUpdateSource implements ActiveAsyncUpdateSource {
         }
 
         private void rejectMessage(Delivery message) throws IOException {
+            long deliveryTag = message.getEnvelope().getDeliveryTag();
             AsyncUpdateErrorHandlingActionType action = getErrorHandlingAction();
+            if (action == AsyncUpdateErrorHandlingActionType.SKIP_UPDATE) {
+                synchronized (acknowledgementLock) {
+                    unsettledDeliveryTags.remove(deliveryTag);
+                    Channel channel = activeChannel;
+                    if (channel != null) {
+                        channel.basicReject(deliveryTag, false);
+                    }
+                }
+            }
             switch (action) {
                 case RETRY:
                     throw new UnsupportedOperationException("'Retry' error handling strategy is not implemented yet");
                 case SKIP_UPDATE:
-                    activeChannel.basicReject(message.getEnvelope().getDeliveryTag(), false);
+                    // Rejected above; the rejection could have made some completed messages acknowledgeable.
+                    flushAcknowledgements(false);
                     break;
                 case STOP_PROCESSING:
-                    stopInternal(true);
+                    // The message is left unacknowledged (and among unsettled ones, if acknowledgements are batched),
+                    // so it is redelivered after the connection is closed. This may be a worker thread, so we only
+                    // request the stop here.
+                    requestStop();
                     break;
                 default:
                     throw new AssertionError(action);
@@ -11,6 +11,7 @@ import static com.evolveum.midpoint.util.MiscUtil.emptyIfNull;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.namespace.QName;
 
 import org.identityconnectors.common.security.GuardedString;
@@ -53,6 +54,12 @@ public class ConnIdConvertor {
 
     private ConnIdNameMapper connIdNameMapper;
 
+    /**
+     * Conversion plan for the most recently used object definition. Searches convert many objects using the same
+     * definition, so attribute names and definitions are resolved only once for each ConnId attribute name.
+     */
+    private volatile ConversionPlan lastConversionPlan;
+
     ConnIdConvertor(Protector protector, String resourceSchemaNamespace, LocalizationService localizationService) {
         super();
         this.protector = protector;
@@ -66,6 +73,7 @@ public class ConnIdConvertor {
 
     public void setConnIdNameMapper(ConnIdNameMapper icfNameMapper) {
         this.connIdNameMapper = icfNameMapper;
+        this.lastConversionPlan = null;
     }
 
     /**
@@ -114,24 +122,19 @@ public class ConnIdConvertor {
             ResourceAttributeContainerDefinition attributesContainerDefinition = attributesContainer.getDefinition();
             shadow.setObjectClass(attributesContainerDefinition.getTypeName());
 
+            ConversionPlan plan = getConversionPlan(objectDefinition, attributesContainerDefinition, caseIgnoreAttributeNames,
+                    legacySchema);
+
             List<ObjectClassComplexTypeDefinition> auxiliaryObjectClassDefinitions = new ArrayList<>();
 
             for (Attribute icfAttr : co.getAttributes()) {
                 if (icfAttr.is(PredefinedAttributes.AUXILIARY_OBJECT_CLASS_NAME)) {
                     List<QName> auxiliaryObjectClasses = shadow.getAuxiliaryObjectClass();
                     for (Object auxiliaryIcfObjectClass : icfAttr.getValue()) {
-                        QName auxiliaryObjectClassQname = connIdNameMapper
-                                .objectClassToQname(new ObjectClass((String) auxiliaryIcfObjectClass), resourceSchemaNamespace,
-                                        legacySchema);
-                        auxiliaryObjectClasses.add(auxiliaryObjectClassQname);
-                        ObjectClassComplexTypeDefinition auxiliaryObjectClassDefinition = connIdNameMapper.getResourceSchema()
-                                .findObjectClassDefinition(auxiliaryObjectClassQname);
-                        if (auxiliaryObjectClassDefinition == null) {
-                            throw new SchemaException(
-                                    "Resource object " + co + " refers to auxiliary object class " + auxiliaryObjectClassQname
-                                            + " which is not in the schema");
-                        }
-                        auxiliaryObjectClassDefinitions.add(auxiliaryObjectClassDefinition);
+                        AuxiliaryObjectClass auxiliaryObjectClass =
+                                plan.getAuxiliaryObjectClass((String) auxiliaryIcfObjectClass, co);
+                        auxiliaryObjectClasses.add(auxiliaryObjectClass.name);
+                        auxiliaryObjectClassDefinitions.add(auxiliaryObjectClass.definition);
                     }
                     break;
                 }
@@ -205,8 +208,7 @@ public class ConnIdConvertor {
                     activationType.setLockoutStatus(lockoutStatusType);
                     LOGGER.trace("Converted activation lockoutStatus: {}", lockoutStatusType);
                 } else {
-                    convertStandardAttribute(connIdAttr, connIdAttrName, values, full, caseIgnoreAttributeNames, attributesContainer,
-                            attributesContainerDefinition,
+                    convertStandardAttribute(connIdAttr, connIdAttrName, values, full, plan, attributesContainer,
                             auxiliaryObjectClassDefinitions, co.getName());
                 }
             }
@@ -214,11 +216,7 @@ public class ConnIdConvertor {
             // Add Uid if it is not there already. It can be already present,
             // e.g. if Uid and Name represent the same attribute
             Uid uid = co.getUid();
-            ObjectClassComplexTypeDefinition ocDef = attributesContainerDefinition.getComplexTypeDefinition();
-            ResourceAttributeDefinition<String> uidDefinition = ConnIdUtil.getUidDefinition(ocDef);
-            if (uidDefinition == null) {
-                throw new SchemaException("No definition for ConnId UID attribute found in definition " + ocDef);
-            }
+            ResourceAttributeDefinition<String> uidDefinition = plan.getUidDefinition();
             if (attributesContainer.getValue().findItem(uidDefinition.getItemName()) == null) {
                 ResourceAttribute<String> uidRoa = uidDefinition.instantiate();
                 uidRoa.setRealValue(uid.getUidValue());
@@ -239,16 +237,20 @@ public class ConnIdConvertor {
     }
 
     private void convertStandardAttribute(Attribute connIdAttr, String connIdAttrName, List<Object> values, boolean full,
-            boolean caseIgnoreAttributeNames, ResourceAttributeContainer attributesContainer,
-            ResourceAttributeContainerDefinition attributesContainerDefinition,
+            ConversionPlan plan, ResourceAttributeContainer attributesContainer,
             List<ObjectClassComplexTypeDefinition> auxiliaryObjectClassDefinitions, Name coName) throws SchemaException {
-        ItemName convertedAttrName = ItemName.fromQName(
-                connIdNameMapper.convertAttributeNameToQName(connIdAttrName, attributesContainerDefinition));
-        ResourceAttributeDefinition<Object> attributeDefinition = findAttributeDefinition(connIdAttrName, convertedAttrName,
-                caseIgnoreAttributeNames, attributesContainerDefinition, auxiliaryObjectClassDefinitions, coName);
+        AttributeSlot slot = plan.getAttributeSlot(connIdAttrName);
+        ItemName convertedAttrName = slot.convertedName;
+        ResourceAttributeDefinition<Object> attributeDefinition;
+        if (slot.definition != null) {
+            attributeDefinition = slot.definition;
+        } else {
+            attributeDefinition = findAuxiliaryAttributeDefinition(connIdAttrName, convertedAttrName,
+                    plan.caseIgnoreAttributeNames, plan.attributesContainerDefinition, auxiliaryObjectClassDefinitions, coName);
+        }
 
         QName normalizedAttributeName;
-        if (caseIgnoreAttributeNames) {
+        if (plan.caseIgnoreAttributeNames) {
             normalizedAttributeName = attributeDefinition.getItemName();            // normalized version
         } else {
             normalizedAttributeName = convertedAttrName;
@@ -293,31 +295,137 @@ public class ConnIdConvertor {
         }
     }
 
+    /**
+     * Locates definition of an attribute that is not present in the structural object class definition.
+     * This depends on auxiliary object classes of the particular object, so it is not a part of the conversion plan.
+     */
     @NotNull
-    private ResourceAttributeDefinition<Object> findAttributeDefinition(String connIdAttrName, ItemName convertedAttrName,
-            boolean caseIgnoreAttributeNames,
+    private ResourceAttributeDefinition<Object> findAuxiliaryAttributeDefinition(String connIdAttrName,
+            ItemName convertedAttrName, boolean caseIgnoreAttributeNames,
             ResourceAttributeContainerDefinition attributesContainerDefinition,
             List<ObjectClassComplexTypeDefinition> auxiliaryObjectClassDefinitions, Name coName)
             throws SchemaException {
-        ResourceAttributeDefinition<Object> attributeDefinition = attributesContainerDefinition
-                .findAttributeDefinition(convertedAttrName, caseIgnoreAttributeNames);
+        for (ObjectClassComplexTypeDefinition auxiliaryObjectClassDefinition : auxiliaryObjectClassDefinitions) {
+            ResourceAttributeDefinition<Object> attributeDefinition = auxiliaryObjectClassDefinition
+                    .findAttributeDefinition(convertedAttrName, caseIgnoreAttributeNames);
+            if (attributeDefinition != null) {
+                return attributeDefinition;
+            }
+        }
+        throw new SchemaException("Unknown attribute " + convertedAttrName + " in definition of object class "
+                + attributesContainerDefinition.getTypeName() + ". Original ConnId name: " + connIdAttrName
+                + " in resource object identified by " + coName, convertedAttrName);
+    }
+
+    private ConversionPlan getConversionPlan(PrismObjectDefinition<?> objectDefinition,
+            ResourceAttributeContainerDefinition attributesContainerDefinition, boolean caseIgnoreAttributeNames,
+            boolean legacySchema) {
+        ConversionPlan plan = lastConversionPlan;
+        if (plan == null || !plan.isApplicableTo(objectDefinition, caseIgnoreAttributeNames, legacySchema)) {
+            plan = new ConversionPlan(objectDefinition, attributesContainerDefinition, caseIgnoreAttributeNames, legacySchema);
+            lastConversionPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Resolved names and definitions needed to convert ConnId objects using given object definition.
+     * Attribute slots are created lazily, as attribute names are encountered in converted objects.
+     * Definitions are shared by all objects converted, as it was before.
+     */
+    private class ConversionPlan {
+
+        @NotNull private final PrismObjectDefinition<?> objectDefinition;
+        @NotNull private final ResourceAttributeContainerDefinition attributesContainerDefinition;
+        private final boolean caseIgnoreAttributeNames;
+        private final boolean legacySchema;
+
+        private final Map<String, AttributeSlot> attributeSlots = new ConcurrentHashMap<>();
+        private final Map<String, AuxiliaryObjectClass> auxiliaryObjectClasses = new ConcurrentHashMap<>();
+        private volatile ResourceAttributeDefinition<String> uidDefinition;
+
+        private ConversionPlan(@NotNull PrismObjectDefinition<?> objectDefinition,
+                @NotNull ResourceAttributeContainerDefinition attributesContainerDefinition,
+                boolean caseIgnoreAttributeNames, boolean legacySchema) {
+            this.objectDefinition = objectDefinition;
+            this.attributesContainerDefinition = attributesContainerDefinition;
+            this.caseIgnoreAttributeNames = caseIgnoreAttributeNames;
+            this.legacySchema = legacySchema;
+        }
 
-        if (attributeDefinition == null) {
-            // Try to locate definition in auxiliary object classes
-            for (ObjectClassComplexTypeDefinition auxiliaryObjectClassDefinition : auxiliaryObjectClassDefinitions) {
-                attributeDefinition = auxiliaryObjectClassDefinition
+        private boolean isApplicableTo(PrismObjectDefinition<?> objectDefinition, boolean caseIgnoreAttributeNames,
+                boolean legacySchema) {
+            return this.objectDefinition == objectDefinition
+                    && this.caseIgnoreAttributeNames == caseIgnoreAttributeNames
+                    && this.legacySchema == legacySchema;
+        }
+
+        private AttributeSlot getAttributeSlot(String connIdAttrName) {
+            AttributeSlot slot = attributeSlots.get(connIdAttrName);
+            if (slot == null) {
+                ItemName convertedAttrName = ItemName.fromQName(
+                        connIdNameMapper.convertAttributeNameToQName(connIdAttrName, attributesContainerDefinition));
+                // If null, the definition is to be looked for in auxiliary object classes of each object.
+                ResourceAttributeDefinition<Object> definition = attributesContainerDefinition
                         .findAttributeDefinition(convertedAttrName, caseIgnoreAttributeNames);
-                if (attributeDefinition != null) {
-                    break;
+                slot = new AttributeSlot(convertedAttrName, definition);
+                attributeSlots.put(connIdAttrName, slot);
+            }
+            return slot;
+        }
+
+        @NotNull
+        private AuxiliaryObjectClass getAuxiliaryObjectClass(String connIdObjectClassName, ConnectorObject co)
+                throws SchemaException {
+            AuxiliaryObjectClass auxiliaryObjectClass = auxiliaryObjectClasses.get(connIdObjectClassName);
+            if (auxiliaryObjectClass == null) {
+                QName auxiliaryObjectClassQname = connIdNameMapper
+                        .objectClassToQname(new ObjectClass(connIdObjectClassName), resourceSchemaNamespace, legacySchema);
+                ObjectClassComplexTypeDefinition definition = connIdNameMapper.getResourceSchema()
+                        .findObjectClassDefinition(auxiliaryObjectClassQname);
+                if (definition == null) {
+                    throw new SchemaException(
+                            "Resource object " + co + " refers to auxiliary object class " + auxiliaryObjectClassQname
+                                    + " which is not in the schema");
                 }
+                auxiliaryObjectClass = new AuxiliaryObjectClass(auxiliaryObjectClassQname, definition);
+                auxiliaryObjectClasses.put(connIdObjectClassName, auxiliaryObjectClass);
             }
-            if (attributeDefinition == null) {
-                throw new SchemaException("Unknown attribute " + convertedAttrName + " in definition of object class "
-                        + attributesContainerDefinition.getTypeName() + ". Original ConnId name: " + connIdAttrName
-                        + " in resource object identified by " + coName, convertedAttrName);
+            return auxiliaryObjectClass;
+        }
+
+        @NotNull
+        private ResourceAttributeDefinition<String> getUidDefinition() throws SchemaException {
+            if (uidDefinition == null) {
+                ObjectClassComplexTypeDefinition ocDef = attributesContainerDefinition.getComplexTypeDefinition();
+                ResourceAttributeDefinition<String> definition = ConnIdUtil.getUidDefinition(ocDef);
+                if (definition == null) {
+                    throw new SchemaException("No definition for ConnId UID attribute found in definition " + ocDef);
+                }
+                uidDefinition = definition;
             }
+            return uidDefinition;
+        }
+    }
+
+    private static class AuxiliaryObjectClass {
+        @NotNull private final QName name;
+        @NotNull private final ObjectClassComplexTypeDefinition definition;
+
+        private AuxiliaryObjectClass(@NotNull QName name, @NotNull ObjectClassComplexTypeDefinition definition) {
+            this.name = name;
+            this.definition = definition;
+        }
+    }
+
+    private static class AttributeSlot {
+        @NotNull private final ItemName convertedName;
+        private final ResourceAttributeDefinition<Object> definition;
+
+        private AttributeSlot(@NotNull ItemName convertedName, ResourceAttributeDefinition<Object> definition) {
+            this.convertedName = convertedName;
+            this.definition = definition;
         }
-        return attributeDefinition;
     }
 
     Set<Attribute> convertFromResourceObjectToConnIdAttributes(ResourceAttributeContainer attributesPrism,
@@ -108,6 +108,7 @@ public interface RepositoryService {
 
     String CLASS_NAME_WITH_DOT = RepositoryService.class.getName() + ".";
     String GET_OBJECT = CLASS_NAME_WITH_DOT + "getObject";
+    String GET_OBJECTS = CLASS_NAME_WITH_DOT + "getObjects";
     String ADD_OBJECT = CLASS_NAME_WITH_DOT + "addObject";
     String DELETE_OBJECT = CLASS_NAME_WITH_DOT + "deleteObject";
     String SEARCH_OBJECTS = CLASS_NAME_WITH_DOT + "searchObjects";
@@ -137,6 +138,7 @@ public interface RepositoryService {
     String OP_RETURN_UNUSED_VALUES_TO_SEQUENCE = "returnUnusedValuesToSequence";
     String OP_EXECUTE_QUERY_DIAGNOSTICS = "executeQueryDiagnostics";
     String OP_GET_OBJECT = "getObject";
+    String OP_GET_OBJECTS = "getObjects";
     String OP_SEARCH_SHADOW_OWNER = "searchShadowOwner";
     String OP_SEARCH_OBJECTS = "searchObjects";
     String OP_SEARCH_OBJECTS_ITERATIVE = "searchObjectsIterative";
@@ -158,6 +160,22 @@ public interface RepositoryService {
             OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException;
 
+    /**
+     * Returns objects for provided OIDs. This is a bulk variant of {@link #getObject(Class, String, Collection, OperationResult)}
+     * that should retrieve the objects using as few storage operations as possible.
+     * <p>
+     * Unlike getObject, this method does not fail if some of the objects do not exist (or are not of given type):
+     * they are simply not present in the returned list. The order of returned objects is not specified.
+     *
+     * @param oids OIDs of the objects to get
+     * @param parentResult parent OperationResult (in/out)
+     * @return Objects fetched from repository
+     * @throws SchemaException error dealing with storage schema
+     */
+    @NotNull <O extends ObjectType> SearchResultList<PrismObject<O>> getObjects(Class<O> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
+            throws SchemaException;
+
 //    <T extends ObjectType> PrismObject<T> getContainerValue(Class<T> type, String oid, long id,
 //                                                            Collection<SelectorOptions<GetOperationOptions>> options,
 //                                                            OperationResult parentResult)
@@ -278,7 +296,7 @@ public interface RepositoryService {
      * <p>
      * A note related to iteration method:
      * <p>
-     * There are three iteration methods (see IterationMethodType):
+     * There are these iteration methods (see IterationMethodType):
      * - SINGLE_TRANSACTION: Fetches objects in single DB transaction. Not supported for all DBMSs.
      * - SIMPLE_PAGING: Uses the "simple paging" method: takes objects (e.g.) numbered 0 to 49, then 50 to 99,
      * then 100 to 149, and so on. The disadvantage is that if the order of objects is changed
@@ -287,10 +305,17 @@ public interface RepositoryService {
      * - STRICTLY_SEQUENTIAL_PAGING: Uses the "strictly sequential paging" method: sorting returned objects by OID. This
      * is (almost) reliable in such a way that no object would be skipped. However, custom
      * paging cannot be used in this mode.
+     * - PREFETCHING_SEQUENTIAL_PAGING: Like STRICTLY_SEQUENTIAL_PAGING, but the next page is fetched (and its objects
+     * are parsed) by repository-managed threads while the handler processes the current page. Each page is fetched
+     * in its own transaction. The same constraints apply.
+     * - FETCH_ALL: Fetches all objects in a single search, and then passes them to the handler. Suitable for small
+     * numbers of objects only.
      * <p>
      * If GetOperationOptions.iterationMethod is specified, it is used without any further considerations.
      * Otherwise, the repository configuration determines whether to use SINGLE_TRANSACTION or a paging. In the latter case,
      * strictlySequential flag determines between SIMPLE_PAGING (if false) and STRICTLY_SEQUENTIAL_PAGING (if true).
+     * If prefetching is enabled in the repository configuration, PREFETCHING_SEQUENTIAL_PAGING is used instead of
+     * STRICTLY_SEQUENTIAL_PAGING.
      * <p>
      * If explicit GetOperationOptions.iterationMethod is not provided, and paging is prescribed, and strictlySequential flag
      * is true and client-provided paging conflicts with the paging used by the iteration method, a warning is issued, and
@@ -62,6 +62,7 @@ public class RepositoryCache implements RepositoryService, Cacheable {
 
     // handlers
     @Autowired private GetObjectOpHandler getObjectOpHandler;
+    @Autowired private GetObjectsOpHandler getObjectsOpHandler;
     @Autowired private ModificationOpHandler modificationOpHandler;
     @Autowired private SearchOpHandler searchOpHandler;
     @Autowired private GetVersionOpHandler getVersionOpHandler;
@@ -96,6 +97,13 @@ public class RepositoryCache implements RepositoryService, Cacheable {
         return getObjectOpHandler.getObject(type, oid, options, parentResult);
     }
 
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) throws SchemaException {
+        return getObjectsOpHandler.getObjects(type, oids, options, parentResult);
+    }
+
     @Override
     public <T extends ObjectType> String getVersion(Class<T> type, String oid, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException {
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.handlers;
+
+import static com.evolveum.midpoint.repo.cache.RepositoryCache.CLASS_NAME_WITH_DOT;
+import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.log;
+import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpEnd;
+import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpStart;
+import static com.evolveum.midpoint.schema.GetOperationOptions.isReadOnly;
+import static com.evolveum.midpoint.schema.SelectorOptions.findRootOptions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.cache.global.GlobalCacheObjectValue;
+import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
+import com.evolveum.midpoint.repo.cache.local.LocalObjectCache;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Handles getObjects calls: objects found in local or global object cache are returned from there,
+ * the rest is retrieved from the repository by a single bulk call. Retrieved objects are then stored
+ * into the caches just like objects retrieved by getObject.
+ *
+ * Global cache entries that require version check are treated as misses: re-reading them within
+ * the bulk call is cheaper than checking their versions one by one.
+ */
+@Component
+public class GetObjectsOpHandler extends CachedOpHandler {
+
+    private static final String GET_OBJECTS = CLASS_NAME_WITH_DOT + "getObjects";
+
+    @NotNull
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) throws SchemaException {
+
+        OperationResult result = parentResult.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type)
+                .addParam("oidsCount", oids.size())
+                .addArbitraryObjectCollectionAsParam("options", options)
+                .build();
+        try {
+            PassReason passReason = PassReason.determine(options, type);
+            if (passReason != null) {
+                log("Cache: PASS {} getObjects {} ({} oids)", false, passReason, type.getSimpleName(), oids.size());
+                return getObjectsInternal(type, oids, options, result);
+            }
+
+            boolean readOnly = isReadOnly(findRootOptions(options));
+            CacheSetAccessInfo<T> caches = cacheSetAccessInfoFactory.determine(type);
+
+            SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(oids.size()));
+            List<String> missingOids = new ArrayList<>();
+            for (String oid : new LinkedHashSet<>(oids)) {
+                PrismObject<T> cached = getFromCaches(type, oid, caches);
+                if (cached != null) {
+                    objects.add(readOnly ? cached : cached.clone());
+                } else {
+                    missingOids.add(oid);
+                }
+            }
+            log("Cache: getObjects {}: {} hit(s), {} miss(es)", false, type.getSimpleName(),
+                    objects.size(), missingOids.size());
+
+            if (!missingOids.isEmpty()) {
+                long started = System.currentTimeMillis();
+                SearchResultList<PrismObject<T>> loaded = getObjectsInternal(type, missingOids, options, result);
+                long age = System.currentTimeMillis() - started;
+                for (PrismObject<T> object : loaded) {
+                    cacheUpdater.storeLoadedObjectToAll(object, readOnly, age);
+                    objects.add(object);
+                }
+            }
+            return objects;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.computeStatusIfUnknown();
+        }
+    }
+
+    /**
+     * Looks for the object in local and then global object cache. We do not check the "supports" flags here:
+     * an object can be present in a cache only if its (actual) type is supported there. This is important
+     * if the objects are requested using a supertype, e.g. ObjectType or AbstractRoleType.
+     */
+    private <T extends ObjectType> PrismObject<T> getFromCaches(Class<T> type, String oid, CacheSetAccessInfo<T> caches) {
+        if (caches.localObject.available) {
+            LocalObjectCache localObjectCache = caches.localObject.getCache();
+            PrismObject<T> cachedObject = localObjectCache.get(oid);
+            if (cachedObject != null && type.isAssignableFrom(cachedObject.getCompileTimeClass())) {
+                localObjectCache.registerHit();
+                CachePerformanceCollector.INSTANCE.registerHit(LocalObjectCache.class, type, caches.localObject.statisticsLevel);
+                return cachedObject;
+            } else {
+                localObjectCache.registerMiss();
+                CachePerformanceCollector.INSTANCE.registerMiss(LocalObjectCache.class, type, caches.localObject.statisticsLevel);
+            }
+        }
+        if (caches.globalObject.available) {
+            GlobalCacheObjectValue<T> cachedValue = globalObjectCache.get(oid);
+            if (cachedValue != null && !cachedValue.shouldCheckVersion()
+                    && type.isAssignableFrom(cachedValue.getObject().getCompileTimeClass())) {
+                CachePerformanceCollector.INSTANCE.registerHit(GlobalObjectCache.class, type, caches.globalObject.statisticsLevel);
+                PrismObject<T> cachedObject = cachedValue.getObject();
+                cacheUpdater.storeImmutableObjectToAllLocal(cachedObject, caches);
+                return cachedObject;
+            } else {
+                CachePerformanceCollector.INSTANCE.registerMiss(GlobalObjectCache.class, type, caches.globalObject.statisticsLevel);
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    private <T extends ObjectType> SearchResultList<PrismObject<T>> getObjectsInternal(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result) throws SchemaException {
+        Long startTime = repoOpStart();
+        try {
+            return repositoryService.getObjects(type, oids, options, result);
+        } finally {
+            repoOpEnd(startTime);
+        }
+    }
+}
@@ -130,19 +130,19 @@ public class Invalidator {
         ChangeDescription change = ChangeDescription.getFrom(type, oid, additionalInfo, true);
 
         long start = System.currentTimeMillis();
-        int all = 0;
-        int removed = 0;
-        Iterator<Map.Entry<QueryKey, SearchResultList>> iterator = cache.getEntryIterator();
-        while (iterator.hasNext()) {
-            Map.Entry<QueryKey, SearchResultList> entry = iterator.next();
+        AtomicInteger all = new AtomicInteger(0);
+        AtomicInteger removed = new AtomicInteger(0);
+        cache.removeMatching(entry -> {
             QueryKey<?> queryKey = entry.getKey();
-            all++;
+            all.incrementAndGet();
             if (change.mayAffect(queryKey, entry.getValue(), matchingRuleRegistry)) {
                 LOGGER.trace("Removing (from local cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
-                iterator.remove();
-                removed++;
+                removed.incrementAndGet();
+                return true;
+            } else {
+                return false;
             }
-        }
+        });
         LOGGER.trace("Removed (from local cache) {} (of {}) query result entries of type {} in {} ms", removed, all, type, System.currentTimeMillis() - start);
     }
 
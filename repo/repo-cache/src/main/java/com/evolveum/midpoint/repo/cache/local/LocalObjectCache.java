@@ -14,7 +14,6 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Thread-local cache for storing objects.
@@ -23,7 +22,7 @@ public class LocalObjectCache extends AbstractThreadLocalCache {
 
     private static final Trace LOGGER_CONTENT = TraceManager.getTrace(LocalObjectCache.class.getName() + ".content");
 
-    private final Map<String, PrismObject<? extends ObjectType>> data = new ConcurrentHashMap<>();
+    private final Map<String, PrismObject<? extends ObjectType>> data = createDataMap();
 
     public <T extends ObjectType> PrismObject<T> get(String oid) {
         //noinspection unchecked
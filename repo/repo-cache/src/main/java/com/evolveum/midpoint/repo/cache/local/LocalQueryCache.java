@@ -9,9 +9,9 @@ package com.evolveum.midpoint.repo.cache.local;
 
 import static com.evolveum.midpoint.repo.cache.handlers.SearchOpHandler.QUERY_RESULT_SIZE_LIMIT;
 
-import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -29,7 +29,7 @@ public class LocalQueryCache extends AbstractThreadLocalCache {
 
     private static final Trace LOGGER_CONTENT = TraceManager.getTrace(LocalQueryCache.class.getName() + ".content");
 
-    private final Map<QueryKey, SearchResultList> data = new ConcurrentHashMap<>();
+    private final Map<QueryKey, SearchResultList> data = createDataMap();
 
     public <T extends ObjectType> SearchResultList<PrismObject<T>> get(QueryKey key) {
         //noinspection unchecked
@@ -76,13 +76,20 @@ public class LocalQueryCache extends AbstractThreadLocalCache {
 
     private int getCachedObjects() {
         int rv = 0;
-        for (SearchResultList value : data.values()) {
-            rv += value.size();
+        synchronized (data) {
+            for (SearchResultList value : data.values()) {
+                rv += value.size();
+            }
         }
         return rv;
     }
 
-    public Iterator<Map.Entry<QueryKey, SearchResultList>> getEntryIterator() {
-        return data.entrySet().iterator();
+    /**
+     * Removes all entries matching given predicate.
+     */
+    public void removeMatching(Predicate<Map.Entry<QueryKey, SearchResultList>> predicate) {
+        synchronized (data) {
+            data.entrySet().removeIf(predicate);
+        }
     }
 }
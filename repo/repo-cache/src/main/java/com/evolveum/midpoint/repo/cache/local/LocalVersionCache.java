@@ -13,7 +13,6 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Thread-local cache for object version.
@@ -22,7 +21,7 @@ public class LocalVersionCache extends AbstractThreadLocalCache {
 
     private static final Trace LOGGER_CONTENT = TraceManager.getTrace(LocalVersionCache.class.getName() + ".content");
 
-    private final Map<String, String> data = new ConcurrentHashMap<>();
+    private final Map<String, String> data = createDataMap();
 
     public String get(String oid) {
         return data.get(oid);
@@ -103,6 +103,64 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         testGetCachedObject(SystemConfigurationType.class);
     }
 
+    /**
+     * Bulk retrieval (getObjects): cached objects are taken from the cache, missing ones are retrieved
+     * by a single repository call. Modified objects are re-read.
+     */
+    @Test
+    public void test120GetObjectsBulk() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        given();
+        OperationResult result = createOperationResult();
+
+        clearStatistics();
+        clearCaches();
+
+        List<String> oids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PrismObject<ArchetypeType> archetype = new ArchetypeType(prismContext)
+                    .name(getTestNameShort() + "." + i)
+                    .asPrismObject();
+            oids.add(repositoryCache.addObject(archetype, null, result));
+        }
+        List<String> oidsToGet = new ArrayList<>(oids);
+        oidsToGet.add("non-existing-" + getTestNameShort());
+
+        when("first retrieval");
+        SearchResultList<PrismObject<ArchetypeType>> objects1 = repositoryCache.getObjects(ArchetypeType.class, oidsToGet, null, result);
+
+        then("first retrieval");
+        assertThat(objects1).as("objects retrieved (1st)").hasSize(3);
+        assertOperations(RepositoryService.OP_GET_OBJECTS, 1);
+        oids.forEach(oid -> assertObjectAndVersionCached(oid, true));
+        objects1.get(0).asObjectable().setDescription("garbage");
+
+        when("second retrieval");
+        SearchResultList<PrismObject<ArchetypeType>> objects2 = repositoryCache.getObjects(ArchetypeType.class, oids, null, result);
+
+        then("second retrieval");
+        assertThat(objects2).as("objects retrieved (2nd)").hasSize(3);
+        objects2.forEach(object -> assertThat(object.asObjectable().getDescription()).as("description").isNull());
+        assertOperations(RepositoryService.OP_GET_OBJECTS, 1);
+        assertGetOperations(0);
+
+        when("retrieval after modification");
+        List<ItemDelta<?, ?>> deltas = prismContext.deltaFor(ArchetypeType.class)
+                .item(ArchetypeType.F_DESCRIPTION).replace("changed")
+                .asItemDeltas();
+        repositoryCache.modifyObject(ArchetypeType.class, oids.get(0), deltas, result);
+        SearchResultList<PrismObject<ArchetypeType>> objects3 = repositoryCache.getObjects(ArchetypeType.class, oids, null, result);
+        dumpStatistics();
+
+        then("retrieval after modification");
+        assertThat(objects3).as("objects retrieved (3rd)").hasSize(3);
+        PrismObject<ArchetypeType> modified = objects3.stream()
+                .filter(object -> oids.get(0).equals(object.getOid()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No modified object"));
+        assertThat(modified.asObjectable().getDescription()).as("description after change").isEqualTo("changed");
+        assertOperations(RepositoryService.OP_GET_OBJECTS, 2);
+    }
+
     @Test
     public void test200SearchUsers() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
         testSearchUncachedObjects(UserType.class);
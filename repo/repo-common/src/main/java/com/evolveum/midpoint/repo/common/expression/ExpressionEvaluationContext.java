@@ -12,6 +12,7 @@ import java.util.Collection;
 import java.util.function.Function;
 import javax.xml.namespace.QName;
 
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.expression.ExpressionEvaluatorProfile;
@@ -119,6 +120,12 @@ public class ExpressionEvaluationContext {
      */
     private TransformationValueMetadataComputer valueMetadataComputer;
 
+    /**
+     * Number of value combinations (tuples) transformed by combinatorial evaluations in this context.
+     * Shared with shallow clones, so the client can read it after the evaluation.
+     */
+    @NotNull private MutableLong valueCombinations = new MutableLong();
+
     public ExpressionEvaluationContext(Collection<Source<?,?>> sources,
             ExpressionVariables variables, String contextDescription, Task task) {
         super();
@@ -245,6 +252,14 @@ public class ExpressionEvaluationContext {
         this.valueMetadataComputer = valueMetadataComputer;
     }
 
+    public long getValueCombinations() {
+        return valueCombinations.longValue();
+    }
+
+    public void addValueCombinations(long count) {
+        valueCombinations.add(count);
+    }
+
     public boolean hasDeltas() {
         return hasDeltas(sources) || variables != null && variables.haveDeltas();
     }
@@ -271,6 +286,7 @@ public class ExpressionEvaluationContext {
         clone.variableProducer = this.variableProducer;
         clone.valueMetadataComputer = this.valueMetadataComputer;
         clone.localContextDescription = this.localContextDescription;
+        clone.valueCombinations = this.valueCombinations;
         return clone;
     }
 }
@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.repo.common.expression;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -14,19 +16,25 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.xml.namespace.QName;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.evolveum.midpoint.CacheInvalidationContext;
 import com.evolveum.midpoint.common.LocalizationService;
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.util.CloneUtil;
 import com.evolveum.midpoint.repo.api.CacheRegistry;
 import com.evolveum.midpoint.repo.api.Cacheable;
 import com.evolveum.midpoint.repo.common.ObjectResolver;
+import com.evolveum.midpoint.schema.constants.ExpressionConstants;
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.security.api.SecurityContextManager;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
@@ -48,7 +56,37 @@ public class ExpressionFactory implements Cacheable {
 
     @Autowired private CacheRegistry cacheRegistry;
 
-    @NotNull private Map<ExpressionIdentifier, Expression<?, ?>> cache = new HashMap<>();
+    /** Maximal number of parsed expressions kept (by equality of the expression bean and output definition). */
+    private static final int MAX_CACHED_EXPRESSIONS = 10000;
+
+    /** Maximal number of expression bean instances for which the expressions can be looked up by identity. */
+    private static final int MAX_CACHED_BEANS = 10000;
+
+    /**
+     * Parsed expressions. This cache holds the expressions (and therefore the first instance of each distinct bean)
+     * strongly, so it is bounded by size.
+     */
+    @NotNull private volatile Cache<ExpressionIdentifier, Expression<?, ?>> cache = createCache();
+
+    /**
+     * Expressions looked up by identity of the expression bean. Mappings and conditions are typically taken from
+     * cached objects (object templates, resources, roles), so the same bean is evaluated for many objects. The lookup
+     * by identity avoids computing deep hash code of the bean and looking it up on each evaluation.
+     *
+     * Beans are mutable, though. So on each hit the bean is compared with its copy taken when the entry was created;
+     * if the bean was changed in place, the entry is replaced and the expression is looked up by equality (and parsed,
+     * if needed), as if the bean was seen for the first time.
+     *
+     * The keys are weak, and the expressions are referenced only weakly from the values. (An expression points back to
+     * its bean, so holding it strongly would prevent the key from being ever collected.) Expressions are kept alive
+     * by the {@link #cache} and by their users. So an entry disappears when the bean is no longer used, or when the bean
+     * is not used anywhere but in the expression that was evicted from {@link #cache}. The number of entries is bounded
+     * as well.
+     */
+    @NotNull private volatile Cache<ExpressionType, ExpressionsForBean> expressionsByBean = createExpressionsByBeanCache();
+
+    /** Shared output definition for conditions, so they can be found by identity. */
+    private volatile PrismPropertyDefinition<Boolean> conditionOutputDefinition;
 
     // These are set from XML as properties, I'm not sure whether they can be autowired,
     // as there are various subclasses for both of them:
@@ -88,16 +126,61 @@ public class ExpressionFactory implements Cacheable {
             ExpressionType expressionType, D outputDefinition, ExpressionProfile expressionProfile,
             String shortDesc, Task task, OperationResult result)
             throws SchemaException, ObjectNotFoundException, SecurityViolationException {
+        ExpressionsForBean expressionsForBean;
+        if (expressionType != null) {
+            expressionsForBean = getExpressionsForBean(expressionType);
+            //noinspection unchecked
+            Expression<V, D> expression = (Expression<V, D>) expressionsForBean.get(outputDefinition);
+            if (expression != null) {
+                return expression;
+            }
+        } else {
+            expressionsForBean = null;
+        }
+
         ExpressionIdentifier eid = new ExpressionIdentifier(expressionType, outputDefinition);
         //noinspection unchecked
-        Expression<V, D> expression = (Expression<V, D>) cache.get(eid);
+        Expression<V, D> expression = (Expression<V, D>) cache.getIfPresent(eid);
         if (expression == null) {
             expression = createExpression(expressionType, outputDefinition, expressionProfile, shortDesc, task, result);
             cache.put(eid, expression);
         }
+        if (expressionsForBean != null) {
+            expressionsForBean.put(outputDefinition, expression);
+        }
         return expression;
     }
 
+    private ExpressionsForBean getExpressionsForBean(ExpressionType expressionType) {
+        Cache<ExpressionType, ExpressionsForBean> currentExpressionsByBean = expressionsByBean;
+        ExpressionsForBean existing = currentExpressionsByBean.getIfPresent(expressionType);
+        if (existing != null) {
+            if (existing.isUpToDate(expressionType)) {
+                return existing;
+            }
+            // The bean was modified after the expressions were created from it.
+            ExpressionsForBean created = new ExpressionsForBean(expressionType);
+            currentExpressionsByBean.put(expressionType, created);
+            return created;
+        }
+        ExpressionsForBean created = new ExpressionsForBean(expressionType);
+        ExpressionsForBean raced = currentExpressionsByBean.asMap().putIfAbsent(expressionType, created);
+        return raced != null && raced.isUpToDate(expressionType) ? raced : created;
+    }
+
+    /**
+     * Returns output definition for condition expressions. It is shared, so it must not be modified.
+     */
+    public PrismPropertyDefinition<Boolean> getConditionOutputDefinition() {
+        PrismPropertyDefinition<Boolean> definition = conditionOutputDefinition;
+        if (definition == null) {
+            definition = prismContext.definitionFactory().createPropertyDefinition(ExpressionConstants.OUTPUT_ELEMENT_NAME, DOMUtil.XSD_BOOLEAN);
+            definition.freeze();
+            conditionOutputDefinition = definition;
+        }
+        return definition;
+    }
+
     public <T> Expression<PrismPropertyValue<T>, PrismPropertyDefinition<T>> makePropertyExpression(
             ExpressionType expressionType, QName outputPropertyName,
             ExpressionProfile expressionProfile, String shortDesc, Task task, OperationResult result)
@@ -131,6 +214,82 @@ public class ExpressionFactory implements Cacheable {
         this.defaultEvaluatorFactory = defaultEvaluatorFactory;
     }
 
+    private static Cache<ExpressionIdentifier, Expression<?, ?>> createCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_EXPRESSIONS)
+                .build();
+    }
+
+    private static Cache<ExpressionType, ExpressionsForBean> createExpressionsByBeanCache() {
+        // Weak keys are compared by identity.
+        return CacheBuilder.newBuilder()
+                .weakKeys()
+                .maximumSize(MAX_CACHED_BEANS)
+                .build();
+    }
+
+    @VisibleForTesting
+    public long getExpressionsByBeanSize() {
+        expressionsByBean.cleanUp();
+        return expressionsByBean.size();
+    }
+
+    /**
+     * Expressions created from a single expression bean, for individual output definitions (compared by identity).
+     * There is usually only one. Callers that create a new output definition for each call are not served by this
+     * structure; after reaching the limit they simply fall back to the lookup by equality.
+     *
+     * Expressions are referenced weakly, see {@link #expressionsByBean}.
+     */
+    private static class ExpressionsForBean {
+
+        private static final int MAX_DEFINITIONS = 8;
+
+        /** Copy of the bean at the time this entry was created. (Not the bean itself, as it is the weak key.) */
+        @NotNull private final ExpressionType beanCopy;
+
+        /** Pairs of output definition and weak reference to the expression. */
+        private volatile Object[] entries = new Object[0];
+
+        private ExpressionsForBean(@NotNull ExpressionType bean) {
+            this.beanCopy = CloneUtil.clone(bean);
+        }
+
+        private boolean isUpToDate(ExpressionType bean) {
+            return beanCopy.equals(bean);
+        }
+
+        private Expression<?, ?> get(ItemDefinition<?> outputDefinition) {
+            Object[] current = entries;
+            for (int i = 0; i < current.length; i += 2) {
+                if (current[i] == outputDefinition) {
+                    //noinspection unchecked
+                    return ((WeakReference<Expression<?, ?>>) current[i + 1]).get();
+                }
+            }
+            return null;
+        }
+
+        private synchronized void put(ItemDefinition<?> outputDefinition, Expression<?, ?> expression) {
+            Object[] current = entries;
+            for (int i = 0; i < current.length; i += 2) {
+                if (current[i] == outputDefinition) {
+                    // The original expression was collected.
+                    Object[] updated = current.clone();
+                    updated[i + 1] = new WeakReference<>(expression);
+                    entries = updated;
+                    return;
+                }
+            }
+            if (current.length < 2 * MAX_DEFINITIONS) {
+                Object[] updated = Arrays.copyOf(current, current.length + 2);
+                updated[current.length] = outputDefinition;
+                updated[current.length + 1] = new WeakReference<>(expression);
+                entries = updated;
+            }
+        }
+    }
+
     class ExpressionIdentifier {
         private ExpressionType expressionType;
         private ItemDefinition outputDefinition;
@@ -206,7 +365,8 @@ public class ExpressionFactory implements Cacheable {
     public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
         if (type == null || type.isAssignableFrom(FunctionLibraryType.class)) {
             // Currently we don't attempt to select entries to be cleared based on function library OID
-            cache = new HashMap<>();
+            cache = createCache();
+            expressionsByBean = createExpressionsByBeanCache();
         }
     }
 
@@ -216,7 +376,7 @@ public class ExpressionFactory implements Cacheable {
         return Collections.singleton(
                 new SingleCacheStateInformationType(prismContext)
                         .name(ExpressionFactory.class.getName())
-                        .size(cache.size()));
+                        .size((int) cache.size()));
     }
 
     @Override
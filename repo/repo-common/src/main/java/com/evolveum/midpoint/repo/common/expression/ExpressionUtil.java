@@ -1055,7 +1055,7 @@ public class ExpressionUtil {
             ExpressionProfile expressionProfile,
             ExpressionFactory expressionFactory,
             String shortDesc, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException {
-        return expressionFactory.makeExpression(conditionExpressionType, createConditionOutputDefinition(expressionFactory.getPrismContext()), expressionProfile, shortDesc, task, result);
+        return expressionFactory.makeExpression(conditionExpressionType, expressionFactory.getConditionOutputDefinition(), expressionProfile, shortDesc, task, result);
     }
 
     public static Function<Object, Object> createRefConvertor(QName defaultType) {
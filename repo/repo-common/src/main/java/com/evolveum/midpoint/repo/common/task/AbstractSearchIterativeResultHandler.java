@@ -19,6 +19,7 @@ import com.evolveum.midpoint.schema.statistics.StatisticsUtil;
 import com.evolveum.midpoint.schema.util.ExceptionUtil;
 import com.evolveum.midpoint.task.api.*;
 import com.evolveum.midpoint.util.logging.LevelOverrideTurboFilter;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
 import com.evolveum.midpoint.util.logging.TracingAppender;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import org.apache.commons.lang.StringUtils;
@@ -65,6 +66,8 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
     private boolean enableSynchronizationStatistics = false;        // whether we want to collect sync statistics
     private boolean enableActionsExecutedStatistics = false;        // whether we want to collect repo objects statistics
     private BlockingQueue<ProcessingRequest> requestQueue;
+    private int batchSize = 1;
+    private List<ProcessingRequest> pendingBatch;                   // used in single-threaded case when batchSize > 1
     private AtomicBoolean stopRequestedByAnyWorker = new AtomicBoolean(false);
     private volatile Throwable exceptionEncountered;
     private final long startTime;
@@ -176,6 +179,15 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
                 recordInterrupted(parentResult);
                 return false;
             }
+        } else if (batchSize > 1) {
+            // coordinator is also a worker here; it processes the objects when the batch is complete
+            if (pendingBatch == null) {
+                pendingBatch = new ArrayList<>(batchSize);
+            }
+            pendingBatch.add(request);
+            if (pendingBatch.size() >= batchSize) {
+                processPendingBatch(parentResult);
+            }
         } else {
             processRequest(request, coordinatorTask, parentResult);            // coordinator is also a worker here
         }
@@ -249,6 +261,9 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
     }
 
     public void completeProcessing(Task task, OperationResult result) {
+        if (pendingBatch != null && !pendingBatch.isEmpty() && !shouldStop(result)) {
+            processPendingBatch(result);
+        }
         signalAllItemsSubmitted();
         waitForCompletion(result);              // in order to provide correct statistics results, we have to wait until all child tasks finish
         updateOperationResult(result);
@@ -280,7 +295,14 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
                     workerTask.refreshLowLevelStatistics();
                 }
                 if (request != null) {
-                    processRequest(request, workerTask, workerSpecificResult);
+                    if (batchSize > 1) {
+                        List<ProcessingRequest> batch = new ArrayList<>(batchSize);
+                        batch.add(request);
+                        requestQueue.drainTo(batch, batchSize - 1);
+                        processBatch(batch, workerTask, workerSpecificResult);
+                    } else {
+                        processRequest(request, workerTask, workerSpecificResult);
+                    }
                 } else {
                     if (allItemsSubmitted) {
                         LOGGER.trace("queue is empty and nothing more is expected - exiting");
@@ -291,6 +313,51 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
         }
     }
 
+    private void processPendingBatch(OperationResult parentResult) {
+        List<ProcessingRequest> batch = pendingBatch;
+        pendingBatch = null;
+        processBatch(batch, coordinatorTask, parentResult);
+    }
+
+    /**
+     * Processes a batch of objects in the current thread. Thread-local caches are entered for the whole batch,
+     * so anything loaded by {@link #prepareBatch(List, RunningTask, OperationResult)} is available when processing
+     * individual objects. (Per-object cache entering in processRequest is nested, so it reuses the same caches.)
+     */
+    private void processBatch(List<ProcessingRequest> batch, RunningTask workerTask, OperationResult parentResult) {
+        if (batch.size() == 1) {
+            processRequest(batch.get(0), workerTask, parentResult);
+            return;
+        }
+        RepositoryCache.enterLocalCaches(taskManager.getCacheConfigurationManager());
+        try {
+            List<PrismObject<O>> objects = new ArrayList<>(batch.size());
+            for (ProcessingRequest request : batch) {
+                objects.add(request.object);
+            }
+            OperationResult result = parentResult.createMinorSubresult(taskOperationPrefix + ".prepareBatch");
+            result.addParam("size", objects.size());
+            try {
+                prepareBatch(objects, workerTask, result);
+                result.computeStatusIfUnknown();
+            } catch (CommonException | RuntimeException e) {
+                // Preparation is only an optimization; objects will be processed without it.
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't prepare batch of {} objects {}", e,
+                        objects.size(), getContextDesc());
+                result.recordWarning("Couldn't prepare batch: " + e.getMessage(), e);
+            }
+            for (ProcessingRequest request : batch) {
+                if (stopRequestedByAnyWorker.get() || !workerTask.canRun()) {
+                    LOGGER.trace("Stop requested, skipping the rest of the batch");
+                    break;
+                }
+                processRequest(request, workerTask, parentResult);
+            }
+        } finally {
+            RepositoryCache.exitLocalCaches();
+        }
+    }
+
     private void processRequest(ProcessingRequest request, RunningTask workerTask, OperationResult parentResult) {
 
         PrismObject<O> object = request.object;
@@ -506,6 +573,19 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
 
     protected abstract boolean handleObject(PrismObject<O> object, RunningTask workerTask, OperationResult result) throws CommonException, PreconditionViolationException;
 
+    /**
+     * Called before a batch of objects is processed (only if processing batch size is greater than 1).
+     * Can be used to preload data needed to process the objects, e.g. by bulk repository searches:
+     * the thread-local repository caches are active for the whole batch.
+     *
+     * Failures are logged and ignored; the objects are then processed in the usual way.
+     */
+    @SuppressWarnings("unused")
+    protected void prepareBatch(List<PrismObject<O>> objects, RunningTask workerTask, OperationResult result)
+            throws CommonException {
+        // nothing to do by default
+    }
+
     public class ProcessingRequest {
         public PrismObject<O> object;
 
@@ -515,6 +595,9 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
     }
 
     public void createWorkerThreads(RunningTask coordinatorTask) {
+        Integer batchSizeFromTask = getProcessingBatchSize(coordinatorTask);
+        batchSize = batchSizeFromTask != null && batchSizeFromTask > 1 ? batchSizeFromTask : 1;
+
         Integer threadsCount = getWorkerThreadsCount(coordinatorTask);
         if (threadsCount == null || threadsCount == 0) {
             return;             // nothing to do
@@ -523,7 +606,7 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
         // remove subtasks that could have been created during processing of previous buckets
         coordinatorTask.deleteLightweightAsynchronousSubtasks();
 
-        int queueSize = threadsCount*2;                // actually, size of threadsCount should be sufficient but it doesn't hurt if queue is larger
+        int queueSize = threadsCount*2*batchSize;      // actually, size of threadsCount*batchSize should be sufficient but it doesn't hurt if queue is larger
         requestQueue = new ArrayBlockingQueue<>(queueSize);
 
         workerSpecificResults = new ArrayList<>(threadsCount);
@@ -563,4 +646,13 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
         }
     }
 
+    protected Integer getProcessingBatchSize(Task task) {
+        PrismProperty<Integer> batchSizePrismProperty = task.getExtensionPropertyOrClone(SchemaConstants.MODEL_EXTENSION_PROCESSING_BATCH_SIZE);
+        if (batchSizePrismProperty != null && batchSizePrismProperty.getRealValue() != null) {
+            return batchSizePrismProperty.getRealValue();
+        } else {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.sql;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.repo.api.DeleteObjectResult;
+import com.evolveum.midpoint.repo.sql.data.common.RObject;
+import com.evolveum.midpoint.repo.sql.util.RUtil;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Tests storing full objects in the binary format (fullObjectFormat = binary) in a repository
+ * that already contains objects stored as XML. Both kinds of rows have to be readable, and XML rows
+ * are converted to the binary format when they are modified.
+ */
+@ContextConfiguration(locations = { "../../../../../ctx-test.xml" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class FullObjectFormatTest extends BaseSQLRepoTest {
+
+    private static final String ROLE_OID = "4b2b7a8e-0f3c-4d61-9e57-1a6c8d2f3b90";
+
+    private String originalFullObjectFormat;
+
+    private PrismObject<UserType> xmlUser;
+    private PrismObject<UserType> binaryUser;
+
+    @Override
+    public void initSystem() throws Exception {
+        super.initSystem();
+        originalFullObjectFormat = sqlRepositoryService.sqlConfiguration().getFullObjectFormat();
+    }
+
+    @AfterClass
+    public void restoreFullObjectFormat() {
+        sqlRepositoryService.sqlConfiguration().setFullObjectFormat(originalFullObjectFormat);
+    }
+
+    @Test
+    public void test100AddUserAsXml() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        sqlRepositoryService.sqlConfiguration().setFullObjectFormat(PrismContext.LANG_XML);
+        xmlUser = createUser("xml-user", "XML User");
+
+        when();
+        xmlUser.setOid(repositoryService.addObject(xmlUser, null, result));
+
+        then();
+        assertSuccess(result);
+        assertFalse("XML user stored in binary format", isStoredAsBinary(xmlUser.getOid()));
+    }
+
+    @Test
+    public void test110AddUserAsBinary() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        sqlRepositoryService.sqlConfiguration().setFullObjectFormat(SqlRepositoryConfiguration.FULL_OBJECT_FORMAT_BINARY);
+        binaryUser = createUser("binary-user", "Binary User");
+
+        when();
+        binaryUser.setOid(repositoryService.addObject(binaryUser, null, result));
+
+        then();
+        assertSuccess(result);
+        assertTrue("Binary user not stored in binary format", isStoredAsBinary(binaryUser.getOid()));
+        assertFalse("XML user changed", isStoredAsBinary(xmlUser.getOid()));
+    }
+
+    /**
+     * Both kinds of rows are read, whatever the current format is.
+     */
+    @Test
+    public void test120GetAndSearchMixedRows() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+
+        when();
+        PrismObject<UserType> xmlUserAfter = repositoryService.getObject(UserType.class, xmlUser.getOid(), null, result);
+        PrismObject<UserType> binaryUserAfter = repositoryService.getObject(UserType.class, binaryUser.getOid(), null, result);
+        SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class, null, null, result);
+
+        then();
+        assertSuccess(result);
+        assertUser(xmlUserAfter, xmlUser);
+        assertUser(binaryUserAfter, binaryUser);
+        int found = 0;
+        for (PrismObject<UserType> user : users) {
+            if (user.getOid().equals(xmlUser.getOid())) {
+                assertUser(user, xmlUser);
+                found++;
+            } else if (user.getOid().equals(binaryUser.getOid())) {
+                assertUser(user, binaryUser);
+                found++;
+            }
+        }
+        assertEquals("Wrong # of users found", 2, found);
+    }
+
+    /**
+     * The XML row is rewritten in the binary format when modified.
+     */
+    @Test
+    public void test130ModifyXmlRow() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        List<ItemDelta<?, ?>> modifications = deltaFor(UserType.class)
+                .item(UserType.F_FULL_NAME).replace(new PolyStringType("XML User Modified"))
+                .asItemDeltas();
+
+        when();
+        repositoryService.modifyObject(UserType.class, xmlUser.getOid(), modifications, result);
+
+        then();
+        assertSuccess(result);
+        assertTrue("Modified user not stored in binary format", isStoredAsBinary(xmlUser.getOid()));
+        PrismObject<UserType> xmlUserAfter = repositoryService.getObject(UserType.class, xmlUser.getOid(), null, result);
+        assertEquals("Wrong full name", "XML User Modified", xmlUserAfter.asObjectable().getFullName().getOrig());
+        assertEquals("Wrong # of assignments", 1, xmlUserAfter.asObjectable().getAssignment().size());
+    }
+
+    /**
+     * Deleted object is returned in textual (XML) form even if it was stored in the binary format.
+     */
+    @Test
+    public void test140DeleteBinaryRow() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+
+        when();
+        DeleteObjectResult deleteResult = repositoryService.deleteObject(UserType.class, binaryUser.getOid(), result);
+
+        then();
+        assertSuccess(result);
+        String text = deleteResult.getObjectTextRepresentation();
+        displayValue("deleted object", text);
+        PrismObject<UserType> deletedUser = prismContext.parserFor(text).xml().parse();
+        assertUser(deletedUser, binaryUser);
+    }
+
+    private PrismObject<UserType> createUser(String name, String fullName) throws Exception {
+        UserType user = new UserType(prismContext)
+                .name(name)
+                .fullName(fullName)
+                .description("Stored by " + FullObjectFormatTest.class.getSimpleName())
+                .beginAssignment()
+                    .targetRef(ROLE_OID, RoleType.COMPLEX_TYPE)
+                .end();
+        return user.asPrismObject();
+    }
+
+    private void assertSuccess(OperationResult result) {
+        result.recomputeStatus();
+        assertTrue("Operation failed: " + result.getMessage(), result.isSuccess());
+    }
+
+    private boolean isStoredAsBinary(String oid) {
+        Session session = open();
+        try {
+            RObject object = session.createQuery("from RObject o where o.oid = :oid", RObject.class)
+                    .setParameter("oid", oid)
+                    .getSingleResult();
+            return prismContext.isBinaryFormat(RUtil.getUncompressedBytes(object.getFullObject()));
+        } finally {
+            close(session);
+        }
+    }
+
+    private void assertUser(PrismObject<UserType> user, PrismObject<UserType> expected) {
+        UserType userBean = user.asObjectable();
+        UserType expectedBean = expected.asObjectable();
+        assertEquals("Wrong name", expectedBean.getName().getOrig(), userBean.getName().getOrig());
+        assertEquals("Wrong full name", expectedBean.getFullName().getOrig(), userBean.getFullName().getOrig());
+        assertEquals("Wrong description", expectedBean.getDescription(), userBean.getDescription());
+        assertEquals("Wrong # of assignments", 1, userBean.getAssignment().size());
+        assertEquals("Wrong assignment target", ROLE_OID, userBean.getAssignment().get(0).getTargetRef().getOid());
+    }
+}
@@ -12,6 +12,7 @@ import static org.testng.AssertJUnit.*;
 import static com.evolveum.midpoint.repo.api.RepositoryService.OP_SEARCH_OBJECTS;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.test.annotation.DirtiesContext;
@@ -23,12 +24,15 @@ import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sql.perf.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.IterationMethodType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
@@ -201,6 +205,86 @@ public class SearchIterativeTest extends BaseSQLRepoTest {
         assertObjects(objects, COUNT);
     }
 
+    @Test
+    public void test106PrefetchingSequentialIteration() throws Exception {
+        OperationResult result = new OperationResult("test106PrefetchingSequentialIteration");
+
+        final List<PrismObject<UserType>> objects = new ArrayList<>();
+
+        ResultHandler<UserType> handler = (object, parentResult) -> {
+            objects.add(object);
+            return true;
+        };
+
+        SearchOpAsserter asserter = new SearchOpAsserter();
+
+        repositoryService.searchObjectsIterative(UserType.class, null, handler,
+                createIterationMethodOptions(IterationMethodType.PREFETCHING_SEQUENTIAL_PAGING), true, result);
+        result.recomputeStatus();
+
+        asserter.assertIncrement(COUNT / BATCH + 1);            // extra search is to make sure no other objects are there
+
+        assertTrue(result.isSuccess());
+        assertObjects(objects, COUNT);
+        assertOrderedByOid(objects);
+    }
+
+    @Test
+    public void test107PrefetchingSequentialIterationWithMaxSize() throws Exception {
+        OperationResult result = new OperationResult("test107PrefetchingSequentialIterationWithMaxSize");
+
+        final List<PrismObject<UserType>> objects = new ArrayList<>();
+
+        ResultHandler<UserType> handler = (object, parentResult) -> {
+            objects.add(object);
+            return true;
+        };
+
+        SearchOpAsserter asserter = new SearchOpAsserter();
+
+        ObjectQuery query = prismContext.queryFactory().createQuery(prismContext.queryFactory().createPaging(null, 70));
+        repositoryService.searchObjectsIterative(UserType.class, query, handler,
+                createIterationMethodOptions(IterationMethodType.PREFETCHING_SEQUENTIAL_PAGING), true, result);
+        result.recomputeStatus();
+
+        asserter.assertIncrement(2);            // assuming 50 + 20
+
+        assertTrue(result.isSuccess());
+        assertObjects(objects, 70);
+        assertOrderedByOid(objects);
+    }
+
+    @Test
+    public void test108PrefetchingSequentialIterationStopped() throws Exception {
+        OperationResult result = new OperationResult("test108PrefetchingSequentialIterationStopped");
+
+        final List<PrismObject<UserType>> objects = new ArrayList<>();
+
+        ResultHandler<UserType> handler = (object, parentResult) -> {
+            objects.add(object);
+            return objects.size() < BATCH + 10;
+        };
+
+        repositoryService.searchObjectsIterative(UserType.class, null, handler,
+                createIterationMethodOptions(IterationMethodType.PREFETCHING_SEQUENTIAL_PAGING), true, result);
+        result.recomputeStatus();
+
+        assertTrue(result.isSuccess());
+        assertObjects(objects, BATCH + 10);
+        assertOrderedByOid(objects);
+    }
+
+    private Collection<SelectorOptions<GetOperationOptions>> createIterationMethodOptions(IterationMethodType method) {
+        return SelectorOptions.createCollection(GetOperationOptions.createIterationMethod(method));
+    }
+
+    private void assertOrderedByOid(List<PrismObject<UserType>> objects) {
+        for (int i = 1; i < objects.size(); i++) {
+            assertTrue("Objects not ordered by OID: " + objects.get(i - 1).getOid() + ", " + objects.get(i).getOid(),
+                    objects.get(i - 1).getOid().compareTo(objects.get(i).getOid()) < 0);
+        }
+    }
+
     private boolean[] assertObjects(List<PrismObject<UserType>> objects, Integer count) {
         if (count != null) {
             assertEquals("Wrong # of objects", count.intValue(), objects.size());
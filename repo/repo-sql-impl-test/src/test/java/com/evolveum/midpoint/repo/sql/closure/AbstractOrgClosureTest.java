@@ -768,6 +768,21 @@ public abstract class AbstractOrgClosureTest extends BaseSQLRepoTest {
         checkClosureUnconditional(getVertices());
     }
 
+    /**
+     * Compares the incrementally maintained closure with the one computed in memory from parentOrgRefs,
+     * then rebuilds the table and checks the rebuilt closure against the graph.
+     */
+    protected void _test160CompareWithRebuiltClosure() throws Exception {
+        OperationResult result = new OperationResult("===[ test160CompareWithRebuiltClosure ]===");
+        closureManager.checkAndOrRebuild(true, false, false, false, result);
+        assertTrue("Incremental closure differs from the rebuilt one: " + result, result.isSuccess());
+
+        OperationResult rebuildResult = new OperationResult("===[ test160CompareWithRebuiltClosure.rebuild ]===");
+        closureManager.checkAndOrRebuild(false, true, true, false, rebuildResult);
+        assertTrue("Closure rebuild failed: " + rebuildResult, rebuildResult.isSuccess());
+        checkClosureUnconditional(getVertices());
+    }
+
     protected synchronized Set<String> getVertices() {
         return new HashSet<>(orgGraph.vertexSet());
     }
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.sql.closure;
+
+import com.evolveum.midpoint.repo.sql.helpers.OrgClosureManager;
+
+/**
+ * Same as {@link OrgClosureConcurrencyTest} but with orgClosureLockingMode=subtree.
+ */
+public class OrgClosureConcurrencySubtreeLockingTest extends OrgClosureConcurrencyTest {
+
+    @Override
+    public void initSystem() throws Exception {
+        super.initSystem();
+        sqlRepositoryService.sqlConfiguration().setOrgClosureLockingMode(OrgClosureManager.LockingMode.SUBTREE);
+    }
+}
@@ -47,9 +47,11 @@ public class OrgClosureCorrectnessTest extends AbstractOrgClosureTest {
 
     @Test public void test100LoadOrgStructure() throws Exception { _test100LoadOrgStructure(); }
     @Test public void test150CheckClosure() throws Exception { _test150CheckClosure(); }
+    @Test public void test160CompareWithRebuiltClosure() throws Exception { _test160CompareWithRebuiltClosure(); }
     @Test public void test200AddRemoveLinks() throws Exception { _test200AddRemoveLinks(); }
     @Test public void test200AddRemoveLinksUsingReplace() throws Exception { _test200AddRemoveLinks(true); }
     @Test public void test300AddRemoveOrgs() throws Exception { _test300AddRemoveOrgs(); }
+    @Test public void test350CompareWithRebuiltClosure() throws Exception { _test160CompareWithRebuiltClosure(); }
     @Test public void test390CyclePrevention() throws Exception { _test390CyclePrevention(); }
     @Test public void test410RandomUnloadOrgStructure() throws Exception { _test410RandomUnloadOrgStructure(); }
 
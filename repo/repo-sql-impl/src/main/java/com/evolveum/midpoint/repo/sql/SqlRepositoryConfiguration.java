@@ -264,6 +264,7 @@ public class SqlRepositoryConfiguration {
     private static final int DEFAULT_MIN_POOL_SIZE = 8;
     private static final int DEFAULT_MAX_POOL_SIZE = 20;
     private static final int DEFAULT_MAX_OBJECTS_FOR_IMPLICIT_FETCH_ALL_ITERATION_METHOD = 500;
+    private static final int DEFAULT_ITERATIVE_SEARCH_PARSING_THREADS = 2;
 
     public static final String PROPERTY_DATABASE = "database";
     public static final String PROPERTY_BASE_DIR = "baseDir";
@@ -286,9 +287,17 @@ public class SqlRepositoryConfiguration {
 
     /**
      * Specifies language used for writing fullObject attribute.
-     * See LANG constants in {@link com.evolveum.midpoint.prism.PrismContext} for supported values.
+     * See LANG constants in {@link com.evolveum.midpoint.prism.PrismContext} for supported values;
+     * in addition to them, {@link #FULL_OBJECT_FORMAT_BINARY} can be used.
+     * Rows written in any format can be read regardless of this setting.
      */
     public static final String PROPERTY_FULL_OBJECT_FORMAT = "fullObjectFormat";
+
+    /**
+     * Compact binary format of fullObject (see {@link com.evolveum.midpoint.prism.PrismContext#binarySerializer()}).
+     * It is much cheaper to parse than XML or JSON, but it is not human readable.
+     */
+    public static final String FULL_OBJECT_FORMAT_BINARY = "binary";
     public static final String PROPERTY_MIN_POOL_SIZE = "minPoolSize";
     public static final String PROPERTY_MAX_POOL_SIZE = "maxPoolSize";
     public static final String PROPERTY_MAX_LIFETIME = "maxLifetime";
@@ -306,6 +315,8 @@ public class SqlRepositoryConfiguration {
     public static final String PROPERTY_ITERATIVE_SEARCH_BY_PAGING = "iterativeSearchByPaging";
     public static final String PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE = "iterativeSearchByPagingBatchSize";
     public static final String PROPERTY_MAX_OBJECTS_FOR_IMPLICIT_FETCH_ALL_ITERATION_METHOD = "maxObjectsForImplicitFetchAllIterationMethod";
+    public static final String PROPERTY_ITERATIVE_SEARCH_BY_PAGING_PREFETCH = "iterativeSearchByPagingPrefetch";
+    public static final String PROPERTY_ITERATIVE_SEARCH_PARSING_THREADS = "iterativeSearchParsingThreads";
 
     //closure
     public static final String PROPERTY_IGNORE_ORG_CLOSURE = "ignoreOrgClosure";
@@ -313,6 +324,12 @@ public class SqlRepositoryConfiguration {
     public static final String PROPERTY_SKIP_ORG_CLOSURE_STRUCTURE_CHECK = "skipOrgClosureStructureCheck";
     public static final String PROPERTY_STOP_ON_ORG_CLOSURE_STARTUP_FAILURE = "stopOnOrgClosureStartupFailure";
 
+    /**
+     * How the closure table is protected against concurrent updates.
+     * See {@link OrgClosureManager.LockingMode} for supported values.
+     */
+    public static final String PROPERTY_ORG_CLOSURE_LOCKING_MODE = "orgClosureLockingMode";
+
     public static final String PROPERTY_SKIP_EXPLICIT_SCHEMA_VALIDATION = "skipExplicitSchemaValidation";
     public static final String PROPERTY_MISSING_SCHEMA_ACTION = "missingSchemaAction";
     public static final String PROPERTY_UPGRADEABLE_SCHEMA_ACTION = "upgradeableSchemaAction";
@@ -391,11 +408,14 @@ public class SqlRepositoryConfiguration {
 
     private final boolean iterativeSearchByPaging;
     private int iterativeSearchByPagingBatchSize;               // not final only because of testing
+    private final boolean iterativeSearchByPagingPrefetch;
+    private final int iterativeSearchParsingThreads;
 
     private final boolean ignoreOrgClosure;
     private final OrgClosureManager.StartupAction orgClosureStartupAction;
     private final boolean skipOrgClosureStructureCheck;
     private final boolean stopOnOrgClosureStartupFailure;
+    private OrgClosureManager.LockingMode orgClosureLockingMode;
 
     private final boolean createMissingCustomColumns;
 
@@ -514,6 +534,9 @@ public class SqlRepositoryConfiguration {
         iterativeSearchByPagingBatchSize = configuration.getInt(PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, defaultIterativeSearchByPagingBatchSize);
         maxObjectsForImplicitFetchAllIterationMethod = configuration.getInt(PROPERTY_MAX_OBJECTS_FOR_IMPLICIT_FETCH_ALL_ITERATION_METHOD,
                 DEFAULT_MAX_OBJECTS_FOR_IMPLICIT_FETCH_ALL_ITERATION_METHOD);
+        iterativeSearchByPagingPrefetch = configuration.getBoolean(PROPERTY_ITERATIVE_SEARCH_BY_PAGING_PREFETCH, false);
+        iterativeSearchParsingThreads = configuration.getInt(PROPERTY_ITERATIVE_SEARCH_PARSING_THREADS,
+                DEFAULT_ITERATIVE_SEARCH_PARSING_THREADS);
 
         ignoreOrgClosure = configuration.getBoolean(PROPERTY_IGNORE_ORG_CLOSURE, false);
         orgClosureStartupAction = OrgClosureManager.StartupAction.fromValue(
@@ -521,6 +544,9 @@ public class SqlRepositoryConfiguration {
                         OrgClosureManager.StartupAction.REBUILD_IF_NEEDED.toString()));
         skipOrgClosureStructureCheck = configuration.getBoolean(PROPERTY_SKIP_ORG_CLOSURE_STRUCTURE_CHECK, false);
         stopOnOrgClosureStartupFailure = configuration.getBoolean(PROPERTY_STOP_ON_ORG_CLOSURE_STARTUP_FAILURE, true);
+        orgClosureLockingMode = OrgClosureManager.LockingMode.fromValue(
+                configuration.getString(PROPERTY_ORG_CLOSURE_LOCKING_MODE,
+                        OrgClosureManager.LockingMode.TABLE.toString()));
 
         skipExplicitSchemaValidation = configuration.getBoolean(PROPERTY_SKIP_EXPLICIT_SCHEMA_VALIDATION,
                 isAutoUpdate(hibernateHbm2ddl) || isValidate(hibernateHbm2ddl));
@@ -892,6 +918,23 @@ public class SqlRepositoryConfiguration {
         this.iterativeSearchByPagingBatchSize = iterativeSearchByPagingBatchSize;
     }
 
+    /**
+     * If true, strictly sequential paging (used e.g. for recomputation or export tasks) is replaced
+     * by its prefetching variant: the next page is fetched while the current one is being processed.
+     */
+    public boolean isIterativeSearchByPagingPrefetch() {
+        return iterativeSearchByPagingPrefetch;
+    }
+
+    /**
+     * Number of threads that parse objects fetched by prefetching paged iterative search.
+     * The threads are shared by all such searches running on this node.
+     * Zero means that objects are parsed by the thread that fetches them.
+     */
+    public int getIterativeSearchParsingThreads() {
+        return iterativeSearchParsingThreads;
+    }
+
     public int getMaxObjectsForImplicitFetchAllIterationMethod() {
         return maxObjectsForImplicitFetchAllIterationMethod;
     }
@@ -935,6 +978,10 @@ public class SqlRepositoryConfiguration {
         return fullObjectFormat;
     }
 
+    public boolean isFullObjectFormatBinary() {
+        return FULL_OBJECT_FORMAT_BINARY.equals(fullObjectFormat);
+    }
+
     public boolean isIgnoreOrgClosure() {
         return ignoreOrgClosure;
     }
@@ -983,6 +1030,10 @@ public class SqlRepositoryConfiguration {
         return stopOnOrgClosureStartupFailure;
     }
 
+    public OrgClosureManager.LockingMode getOrgClosureLockingMode() {
+        return orgClosureLockingMode;
+    }
+
     public boolean isSkipOrgClosureStructureCheck() {
         return skipOrgClosureStructureCheck;
     }
@@ -1046,6 +1097,12 @@ public class SqlRepositoryConfiguration {
         return textInfoColumnSize;
     }
 
+    // for testing only
+    @SuppressWarnings("SameParameterValue")
+    public void setOrgClosureLockingMode(OrgClosureManager.LockingMode orgClosureLockingMode) {
+        this.orgClosureLockingMode = orgClosureLockingMode;
+    }
+
     // for testing only
     @SuppressWarnings("SameParameterValue")
     public void setEnableNoFetchExtensionValuesInsertion(boolean enableNoFetchExtensionValuesInsertion) {
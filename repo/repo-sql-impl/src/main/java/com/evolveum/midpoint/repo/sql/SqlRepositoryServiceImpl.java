@@ -13,6 +13,11 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -39,6 +44,7 @@ import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.*;
 import com.evolveum.midpoint.repo.api.query.ObjectFilterExpressionEvaluator;
 import com.evolveum.midpoint.repo.sql.helpers.*;
+import com.evolveum.midpoint.repo.sql.perf.PerformanceInformationImpl;
 import com.evolveum.midpoint.repo.sql.perf.SqlPerformanceMonitorImpl;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
@@ -73,6 +79,11 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
 
     private static final Trace LOGGER = TraceManager.getTrace(SqlRepositoryServiceImpl.class);
 
+    /**
+     * Maximal number of OIDs in a single IN-list query issued by getObjects.
+     */
+    private static final int MAX_OIDS_IN_GET_OBJECTS = 500;
+
     private static final int MAX_CONFLICT_WATCHERS = 10; // just a safeguard (watchers per thread should be at most 1-2)
     public static final int MAX_CONSTRAINT_NAME_LENGTH = 40;
     private static final String IMPLEMENTATION_SHORT_NAME = "SQL";
@@ -98,11 +109,68 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
 
     private FullTextSearchConfigurationType fullTextSearchConfiguration;
 
+    /**
+     * Threads fetching the next pages for prefetching sequential paging. Shared by all such searches; created when needed.
+     */
+    private ExecutorService iterativeSearchPrefetchExecutor;
+
+    /**
+     * Threads parsing objects for prefetching sequential paging. Shared by all such searches; created when needed.
+     */
+    private ExecutorService iterativeSearchParsingExecutor;
+
     @Override
     public SqlRepositoryConfiguration sqlConfiguration() {
         return baseHelper.getConfiguration();
     }
 
+    /**
+     * Each search has at most one page being fetched at any time, and each fetch needs a DB connection.
+     * So there is no point in having more threads than connections: the excess page fetches wait in the queue.
+     */
+    private synchronized ExecutorService getIterativeSearchPrefetchExecutor() {
+        if (iterativeSearchPrefetchExecutor == null) {
+            iterativeSearchPrefetchExecutor = createIterativeSearchExecutor(sqlConfiguration().getMaxPoolSize(),
+                    "repo-search-prefetch");
+        }
+        return iterativeSearchPrefetchExecutor;
+    }
+
+    /**
+     * @return null if objects should be parsed by the fetching thread
+     */
+    private synchronized ExecutorService getIterativeSearchParsingExecutor() {
+        int threads = sqlConfiguration().getIterativeSearchParsingThreads();
+        if (iterativeSearchParsingExecutor == null && threads > 0) {
+            iterativeSearchParsingExecutor = createIterativeSearchExecutor(threads, "repo-search-parser");
+        }
+        return iterativeSearchParsingExecutor;
+    }
+
+    private static ExecutorService createIterativeSearchExecutor(int threads, String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Prefetching searches are used by long-running tasks only, so idle threads should not be kept.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (iterativeSearchPrefetchExecutor != null) {
+            iterativeSearchPrefetchExecutor.shutdownNow();
+        }
+        if (iterativeSearchParsingExecutor != null) {
+            iterativeSearchParsingExecutor.shutdownNow();
+        }
+        super.destroy();
+    }
+
     // public because of testing
     public OrgClosureManager getClosureManager() {
         return closureManager;
@@ -151,6 +219,43 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
         return object;
     }
 
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result) throws SchemaException {
+        Validate.notNull(type, "Object type must not be null.");
+        Validate.notNull(oids, "OIDs must not be null.");
+        Validate.notNull(result, "Operation result must not be null.");
+
+        LOGGER.debug("Getting {} object(s) of type '{}': {}", oids.size(), type.getSimpleName(), result.getOperation());
+
+        OperationResult subResult = result.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .setMinor()
+                .addParam("type", type.getName())
+                .addParam("oidsCount", oids.size())
+                .build();
+
+        // Objects are fetched using (possibly multiple) "oid IN (...)" queries.
+        List<String> distinctOids = new ArrayList<>(new LinkedHashSet<>(oids));
+        SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(distinctOids.size()));
+        for (int i = 0; i < distinctOids.size(); i += MAX_OIDS_IN_GET_OBJECTS) {
+            List<String> chunk = distinctOids.subList(i, Math.min(i + MAX_OIDS_IN_GET_OBJECTS, distinctOids.size()));
+            chunk.forEach(oid -> InternalMonitor.recordRepositoryRead(type, oid));
+            ObjectQuery query = prismContext.queryFor(type)
+                    .id(chunk.toArray(new String[0]))
+                    .build();
+            objects.addAll(
+                    executeQueryAttempts(query, OP_GET_OBJECTS, type, "getting", subResult,
+                            () -> new SearchResultList<>(new ArrayList<>(0)),
+                            (q) -> objectRetriever.searchObjectsAttempt(type, q, options, subResult)));
+        }
+        for (PrismObject<T> object : objects) {
+            invokeConflictWatchers((w) -> w.afterGetObject(object));
+        }
+        return objects;
+    }
+
     private <RV> RV executeAttempts(String oid, String operationName, Class<?> type, String operationVerb, OperationResult subResult,
             ResultSupplier<RV> supplier) throws ObjectNotFoundException, SchemaException {
         SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
@@ -793,7 +898,9 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
             if (sqlConfiguration().isIterativeSearchByPaging()) {
                 if (strictlySequential) {
                     if (isCustomPagingOkWithPagedSeqIteration(query)) {
-                        iterationMethod = IterationMethodType.STRICTLY_SEQUENTIAL_PAGING;
+                        iterationMethod = sqlConfiguration().isIterativeSearchByPagingPrefetch()
+                                ? IterationMethodType.PREFETCHING_SEQUENTIAL_PAGING
+                                : IterationMethodType.STRICTLY_SEQUENTIAL_PAGING;
                     } else if (isCustomPagingOkWithFetchAllIteration(query)) {
                         LOGGER.debug("Iterative search by paging was defined in the repository configuration, and strict sequentiality "
                                 + "was requested. However, a custom paging precludes its application. Therefore switching to "
@@ -840,12 +947,35 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
             case FETCH_ALL:
                 objectRetriever.searchObjectsIterativeByFetchAll(type, query, handler, options, subResult);
                 break;
+            case PREFETCHING_SEQUENTIAL_PAGING:
+                searchObjectsIterativeByPagingWithPrefetch(type, query, handler, options, subResult);
+                break;
             default:
                 throw new AssertionError("iterationMethod: " + iterationMethod);
         }
         return rv;
     }
 
+    private <T extends ObjectType> void searchObjectsIterativeByPagingWithPrefetch(Class<T> type, ObjectQuery query,
+            ResultHandler<T> handler, Collection<SelectorOptions<GetOperationOptions>> options, OperationResult subResult)
+            throws SchemaException {
+        // Pages are fetched by the prefetching thread, but their statistics belong to the caller.
+        SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
+        PerformanceInformationImpl callerPerformanceInformation = pm.getThreadLocalPerformanceInformation();
+        objectRetriever.searchObjectsIterativeByPagingWithPrefetch(type, query, handler,
+                getIterativeSearchPrefetchExecutor(), getIterativeSearchParsingExecutor(),
+                (pageQuery, parsingExecutor, pageResult) -> {
+                    pm.setThreadLocalPerformanceInformation(callerPerformanceInformation);
+                    try {
+                        return executeQueryAttempts(pageQuery, OP_SEARCH_OBJECTS, type, "searching", pageResult,
+                                () -> new SearchResultList<>(new ArrayList<>(0)),
+                                (q) -> objectRetriever.searchObjectsAttempt(type, q, options, parsingExecutor, pageResult));
+                    } finally {
+                        pm.stopThreadLocalPerformanceInformationCollection();
+                    }
+                }, subResult);
+    }
+
     private boolean isCustomPagingOkWithFetchAllIteration(ObjectQuery query) {
         return query != null
                 && query.getPaging() != null
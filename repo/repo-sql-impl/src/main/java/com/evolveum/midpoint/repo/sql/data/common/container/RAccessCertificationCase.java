@@ -362,16 +362,22 @@ public class RAccessCertificationCase implements Container<RAccessCertificationC
         rCase.setStageNumber(case1.getStageNumber());
         rCase.setOutcome(case1.getOutcome());
         PrismContainerValue<AccessCertificationCaseType> cvalue = case1.asPrismContainerValue();
-        String serializedForm;
+        byte[] fullObject;
         try {
-            serializedForm = context.prismContext
-                    .serializerFor(context.configuration.getFullObjectFormat())
-                    .serialize(cvalue, SchemaConstantsGenerated.C_VALUE);
+            if (context.configuration.isFullObjectFormatBinary()) {
+                fullObject = context.prismContext.binarySerializer()
+                        .serialize(cvalue, SchemaConstantsGenerated.C_VALUE);
+                LOGGER.trace("RAccessCertificationCase full object: binary data, {} bytes", fullObject.length);
+            } else {
+                String serializedForm = context.prismContext
+                        .serializerFor(context.configuration.getFullObjectFormat())
+                        .serialize(cvalue, SchemaConstantsGenerated.C_VALUE);
+                LOGGER.trace("RAccessCertificationCase full object\n{}", serializedForm);
+                fullObject = RUtil.getBytesFromSerializedForm(serializedForm, false);
+            }
         } catch (SchemaException e) {
-            throw new IllegalStateException("Couldn't serialize certification case to string", e);
+            throw new IllegalStateException("Couldn't serialize certification case", e);
         }
-        LOGGER.trace("RAccessCertificationCase full object\n{}", serializedForm);
-        byte[] fullObject = RUtil.getBytesFromSerializedForm(serializedForm, false);
         rCase.setFullObject(fullObject);
 
         return rCase;
@@ -383,16 +389,20 @@ public class RAccessCertificationCase implements Container<RAccessCertificationC
 
     public static AccessCertificationCaseType createJaxb(
             byte[] fullObject, PrismContext prismContext) throws SchemaException {
-        String serializedFrom = RUtil.getSerializedFormFromBytes(fullObject);
-        LOGGER.trace("RAccessCertificationCase full object to be parsed\n{}", serializedFrom);
+        byte[] data = RUtil.getUncompressedBytes(fullObject);
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("RAccessCertificationCase full object to be parsed\n{}", RUtil.getFullObjectDiagnosticForm(data, prismContext));
+        }
         try {
-            return prismContext.parserFor(serializedFrom)
+            return prismContext.parserFor(data)
                     .compat().parseRealValue(AccessCertificationCaseType.class);
         } catch (SchemaException e) {
-            LOGGER.debug("Couldn't parse certification case because of schema exception ({}):\nData: {}", e, serializedFrom);
+            LOGGER.debug("Couldn't parse certification case because of schema exception ({}):\nData: {}", e,
+                    RUtil.getFullObjectDiagnosticForm(data, prismContext));
             throw e;
         } catch (RuntimeException e) {
-            LOGGER.debug("Couldn't parse certification case because of unexpected exception ({}):\nData: {}", e, serializedFrom);
+            LOGGER.debug("Couldn't parse certification case because of unexpected exception ({}):\nData: {}", e,
+                    RUtil.getFullObjectDiagnosticForm(data, prismContext));
             throw e;
         }
     }
@@ -11,6 +11,9 @@ import static org.apache.commons.lang3.ArrayUtils.getLength;
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -73,6 +76,8 @@ public class ObjectRetriever {
 
     public static final String NULL_OID_MARKER = "###null-oid###";     // brutal hack (TODO)
 
+    private static final String OP_SEARCH_OBJECTS_PAGE = CLASS_DOT + "searchObjectsPage";
+
     @Autowired private LookupTableHelper lookupTableHelper;
     @Autowired private CertificationCaseHelper caseHelper;
     @Autowired private CaseManagementHelper caseManagementHelper;
@@ -380,6 +385,16 @@ public class ObjectRetriever {
     @NotNull
     public <T extends ObjectType> SearchResultList<PrismObject<T>> searchObjectsAttempt(Class<T> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result) throws SchemaException {
+        return searchObjectsAttempt(type, query, options, null, result);
+    }
+
+    /**
+     * @param parsingExecutor If not null, objects are decompressed and parsed using this executor.
+     * The rest of the processing (i.e. things that need the session) is done in the current thread.
+     */
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> searchObjectsAttempt(Class<T> type, ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, ExecutorService parsingExecutor, OperationResult result)
+            throws SchemaException {
         LOGGER_PERFORMANCE.debug("> search objects {}", type.getSimpleName());
         Session session = null;
         try {
@@ -393,7 +408,7 @@ public class ObjectRetriever {
             List<GetObjectResult> queryResult = rQuery.list();
             LOGGER.trace("Found {} objects, translating to JAXB.", queryResult != null ? queryResult.size() : 0);
 
-            List<PrismObject<T>> list = queryResultToPrismObjects(queryResult, type, options, session, result);
+            List<PrismObject<T>> list = queryResultToPrismObjects(queryResult, type, options, parsingExecutor, session, result);
             session.getTransaction().commit();
             return new SearchResultList<>(list);
 
@@ -409,31 +424,85 @@ public class ObjectRetriever {
     private <T extends ObjectType> List<PrismObject<T>> queryResultToPrismObjects(List<GetObjectResult> objects, Class<T> type,
             Collection<SelectorOptions<GetOperationOptions>> options,
             Session session, OperationResult result) throws SchemaException {
+        return queryResultToPrismObjects(objects, type, options, null, session, result);
+    }
+
+    @NotNull
+    private <T extends ObjectType> List<PrismObject<T>> queryResultToPrismObjects(List<GetObjectResult> objects, Class<T> type,
+            Collection<SelectorOptions<GetOperationOptions>> options, ExecutorService parsingExecutor,
+            Session session, OperationResult result) throws SchemaException {
         List<PrismObject<T>> rv = new ArrayList<>();
         if (objects != null) {
-            for (GetObjectResult object : objects) {
-                String oid = object.getOid();
-                Holder<PrismObject<T>> partialValueHolder = new Holder<>();
-                PrismObject<T> prismObject;
-                try {
-                    prismObject = updateLoadedObject(object, type, oid, options, partialValueHolder, session);
-                } catch (Throwable t) {
-                    if (!partialValueHolder.isEmpty()) {
-                        prismObject = partialValueHolder.getValue();
-                    } else {
-                        prismObject = prismContext.createObject(type);
-                        prismObject.setOid(oid);
-                        prismObject.asObjectable().setName(PolyStringType.fromOrig("Unreadable object"));
+            List<Future<PrismObject<T>>> parsedObjects = parsingExecutor != null && objects.size() > 1
+                    ? submitParsing(objects, type, options, parsingExecutor)
+                    : null;
+            try {
+                for (int i = 0; i < objects.size(); i++) {
+                    GetObjectResult object = objects.get(i);
+                    String oid = object.getOid();
+                    Holder<PrismObject<T>> partialValueHolder = new Holder<>();
+                    PrismObject<T> prismObject;
+                    try {
+                        PrismObject<T> parsedObject = parsedObjects != null
+                                ? getParsedObject(parsedObjects.get(i))
+                                : parseLoadedObject(object, type, oid, options);
+                        prismObject = updateParsedObject(parsedObject, type, options, partialValueHolder, session);
+                    } catch (Throwable t) {
+                        if (!partialValueHolder.isEmpty()) {
+                            prismObject = partialValueHolder.getValue();
+                        } else {
+                            prismObject = prismContext.createObject(type);
+                            prismObject.setOid(oid);
+                            prismObject.asObjectable().setName(PolyStringType.fromOrig("Unreadable object"));
+                        }
+                        result.recordFatalError("Couldn't retrieve " + type + " " + oid + ": " + t.getMessage(), t);
+                        prismObject.asObjectable().setFetchResult(result.createOperationResultType());
                     }
-                    result.recordFatalError("Couldn't retrieve " + type + " " + oid + ": " + t.getMessage(), t);
-                    prismObject.asObjectable().setFetchResult(result.createOperationResultType());
+                    rv.add(prismObject);
+                }
+            } finally {
+                if (parsedObjects != null) {
+                    // The executor is shared, so objects that are no longer needed (e.g. after an interruption) are not left there.
+                    parsedObjects.forEach(future -> future.cancel(false));
                 }
-                rv.add(prismObject);
             }
         }
         return rv;
     }
 
+    private <T extends ObjectType> List<Future<PrismObject<T>>> submitParsing(List<GetObjectResult> objects, Class<T> type,
+            Collection<SelectorOptions<GetOperationOptions>> options, ExecutorService parsingExecutor) {
+        List<Future<PrismObject<T>>> futures = new ArrayList<>(objects.size());
+        for (GetObjectResult object : objects) {
+            futures.add(parsingExecutor.submit(() -> parseLoadedObject(object, type, object.getOid(), options)));
+        }
+        return futures;
+    }
+
+    private <T extends ObjectType> PrismObject<T> getParsedObject(Future<PrismObject<T>> future) throws SchemaException {
+        return getFutureResult(future, "object to be parsed");
+    }
+
+    private static <X> X getFutureResult(Future<X> future, String waitingFor) throws SchemaException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for " + waitingFor, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SchemaException) {
+                throw (SchemaException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new SystemException(cause);
+            }
+        }
+    }
+
     public <C extends Containerable> SearchResultList<C> searchContainersAttempt(Class<C> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result) throws SchemaException {
 
@@ -512,17 +581,23 @@ public class ObjectRetriever {
     private <T extends ObjectType> PrismObject<T> updateLoadedObject(GetObjectResult result,
             Class<T> type, String oid, Collection<SelectorOptions<GetOperationOptions>> options,
             Holder<PrismObject<T>> partialValueHolder, Session session) throws SchemaException {
+        PrismObject<T> prismObject = parseLoadedObject(result, type, oid, options);
+        return updateParsedObject(prismObject, type, options, partialValueHolder, session);
+    }
 
-        GetOperationOptions rootOptions = SelectorOptions.findRootOptions(options);
-        boolean raw = GetOperationOptions.isRaw(rootOptions);
-
+    /**
+     * Decompresses and parses the full object. Does not need the session, so it can be executed in any thread.
+     */
+    private <T extends ObjectType> PrismObject<T> parseLoadedObject(GetObjectResult result,
+            Class<T> type, String oid, Collection<SelectorOptions<GetOperationOptions>> options) throws SchemaException {
         byte[] fullObject = result.getFullObject();
-        String serializedForm = RUtil.getSerializedFormFromBytes(fullObject);
+        byte[] fullObjectData = RUtil.getUncompressedBytes(fullObject);
         PrismObject<T> prismObject;
         try {
             // "Postel mode": be tolerant what you read. We need this to tolerate (custom) schema changes
             ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode();
-            prismObject = prismContext.parserFor(serializedForm)
+            // Both textual (XML/JSON/YAML) and binary data are accepted here, regardless of the configured format.
+            prismObject = prismContext.parserFor(fullObjectData)
                     .context(parsingContext).parse();
             if (parsingContext.hasWarnings()) {
                 LOGGER.warn("Object {} parsed with {} warnings", ObjectTypeUtil.toShortString(prismObject), parsingContext.getWarnings().size());
@@ -531,10 +606,24 @@ public class ObjectRetriever {
             // This is a serious thing. We have corrupted XML in the repo. This may happen even
             // during system init. We want really loud and detailed error here.
             LOGGER.error("Couldn't parse object {} {}: {}: {}\n{}",
-                    type.getSimpleName(), oid, e.getClass().getName(), e.getMessage(), serializedForm, e);
+                    type.getSimpleName(), oid, e.getClass().getName(), e.getMessage(),
+                    RUtil.getFullObjectDiagnosticForm(fullObjectData, prismContext), e);
             throw e;
         }
         attachDiagDataIfRequested(prismObject, fullObject, options);
+        return prismObject;
+    }
+
+    /**
+     * Completes the parsed object using data stored outside of the full object, and validates it.
+     */
+    private <T extends ObjectType> PrismObject<T> updateParsedObject(PrismObject<T> prismObject,
+            Class<T> type, Collection<SelectorOptions<GetOperationOptions>> options,
+            Holder<PrismObject<T>> partialValueHolder, Session session) throws SchemaException {
+
+        GetOperationOptions rootOptions = SelectorOptions.findRootOptions(options);
+        boolean raw = GetOperationOptions.isRaw(rootOptions);
+
         if (prismObject.getCompileTimeClass() != null && FocusType.class.isAssignableFrom(prismObject.getCompileTimeClass())) {
             if (SelectorOptions.hasToLoadPath(FocusType.F_JPEG_PHOTO, options)) {
                 Query query = session.getNamedQuery("get.focusPhoto");
@@ -1010,6 +1099,114 @@ public class ObjectRetriever {
         }
     }
 
+    /**
+     * Prefetching version of strictly-sequential paged search. The guarantees and constraints are the same
+     * as for {@link #searchObjectsIterativeByPagingStrictlySequential(Class, ObjectQuery, ResultHandler, Collection, OperationResult)}.
+     * <p>
+     * Because the OID of the last object on a page is known as soon as the page is fetched, the next page can be
+     * requested immediately: it is fetched by a separate thread while the handler processes objects from the current page.
+     * Objects on each page are decompressed and parsed by a small pool of threads (see iterativeSearchParsingThreads
+     * configuration property), but they are delivered to the handler in the order of their OIDs.
+     * <p>
+     * Each page is fetched in its own (short) transaction. At most one page is being fetched at any time.
+     * <p>
+     * The executors are provided (and shut down) by the repository, as they are shared by all such searches.
+     *
+     * @param prefetchExecutor Executor used to fetch the pages.
+     * @param parsingExecutor Executor used to parse the objects; null if they should be parsed by the fetching thread.
+     */
+    public <T extends ObjectType> void searchObjectsIterativeByPagingWithPrefetch(Class<T> type, ObjectQuery query,
+            ResultHandler<T> handler, @NotNull ExecutorService prefetchExecutor, ExecutorService parsingExecutor,
+            PageSearcher<T> pageSearcher, OperationResult result) throws SchemaException {
+
+        Future<PrefetchedPage<T>> nextPage = null;
+        try {
+            if (!SqlRepositoryServiceImpl.isCustomPagingOkWithPagedSeqIteration(query)) {
+                throw new IllegalArgumentException("Externally specified paging is not supported on prefetching sequential "
+                        + "iterative search. Query = " + query);
+            }
+            Integer remaining = query != null && query.getPaging() != null ? query.getPaging().getMaxSize() : null;
+            ObjectQuery baseQuery = query != null ? query : prismContext.queryFactory().createQuery();
+            int batchSize = getConfiguration().getIterativeSearchByPagingBatchSize();
+            result.setSummarizeSuccesses(true);
+
+            nextPage = submitPageSearch(prefetchExecutor, baseQuery, null, pageSize(batchSize, remaining),
+                    pageSearcher, parsingExecutor);
+            main:
+            while (nextPage != null) {
+                PrefetchedPage<T> page = getFutureResult(nextPage, "next page of objects");
+                nextPage = null;
+                result.addSubresult(page.result);
+                result.summarize();
+
+                List<PrismObject<T>> objects = page.objects;
+                if (remaining != null) {
+                    remaining -= objects.size();
+                }
+                if (!objects.isEmpty() && objects.size() >= page.maxSize && (remaining == null || remaining > 0)) {
+                    String lastOid = objects.get(objects.size() - 1).getOid();
+                    nextPage = submitPageSearch(prefetchExecutor, baseQuery, lastOid, pageSize(batchSize, remaining),
+                            pageSearcher, parsingExecutor);
+                }
+                for (PrismObject<T> object : objects) {
+                    if (!handler.handle(object, result)) {
+                        break main;
+                    }
+                }
+            }
+        } finally {
+            if (nextPage != null) {
+                nextPage.cancel(true);
+            }
+            if (result.isUnknown()) {
+                result.computeStatus();
+            }
+        }
+    }
+
+    private int pageSize(int batchSize, Integer remaining) {
+        return Math.min(batchSize, defaultIfNull(remaining, Integer.MAX_VALUE));
+    }
+
+    private <T extends ObjectType> Future<PrefetchedPage<T>> submitPageSearch(ExecutorService prefetchExecutor,
+            ObjectQuery baseQuery, String lastOid, int maxSize, PageSearcher<T> pageSearcher, ExecutorService parsingExecutor) {
+        ObjectQuery pageQuery = baseQuery.clone();
+        ObjectPaging paging = prismContext.queryFactory().createPaging();
+        paging.setCookie(lastOid != null ? lastOid : NULL_OID_MARKER);
+        paging.setMaxSize(maxSize);
+        pageQuery.setPaging(paging);
+        return prefetchExecutor.submit(() -> {
+            // Operation result is not thread safe, so the page has its own one; it is attached to the parent by the caller.
+            OperationResult pageResult = new OperationResult(OP_SEARCH_OBJECTS_PAGE);
+            try {
+                return new PrefetchedPage<>(pageSearcher.search(pageQuery, parsingExecutor, pageResult), maxSize, pageResult);
+            } finally {
+                pageResult.computeStatusIfUnknown();
+            }
+        });
+    }
+
+    /**
+     * Searches for a single page of objects; typically by calling {@link #searchObjectsAttempt} with appropriate retries.
+     */
+    @FunctionalInterface
+    public interface PageSearcher<T extends ObjectType> {
+        SearchResultList<PrismObject<T>> search(ObjectQuery pageQuery, ExecutorService parsingExecutor, OperationResult result)
+                throws SchemaException;
+    }
+
+    private static class PrefetchedPage<T extends ObjectType> {
+        @NotNull private final List<PrismObject<T>> objects;
+        private final int maxSize;
+        @NotNull private final OperationResult result;
+
+        private PrefetchedPage(@NotNull List<PrismObject<T>> objects, int maxSize, @NotNull OperationResult result) {
+            this.objects = objects;
+            this.maxSize = maxSize;
+            this.result = result;
+        }
+    }
+
     public <T extends ObjectType> void searchObjectsIterativeByFetchAll(Class<T> type, ObjectQuery query,
             ResultHandler<T> handler, Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result)
             throws SchemaException {
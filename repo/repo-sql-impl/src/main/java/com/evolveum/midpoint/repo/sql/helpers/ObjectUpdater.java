@@ -244,11 +244,22 @@ public class ObjectUpdater {
             itemsToSkip.add(TaskType.F_RESULT);
         }
 
+        SerializationOptions options = SerializationOptions
+                .createSerializeReferenceNamesForNullOids()
+                .skipIndexOnly(true);
+        if (getConfiguration().isFullObjectFormatBinary()) {
+            byte[] data = prismContext.binarySerializer()
+                    .itemsToSkip(itemsToSkip)
+                    .options(options)
+                    .serialize(savedObject);
+            object.setFullObject(RUtil.getBytesFromBinaryForm(data, getConfiguration().isUseZip()));
+            LOGGER.trace("Updating full object column finished. Binary data: {} bytes", data.length);
+            return;
+        }
+
         String xml = prismContext.serializerFor(getConfiguration().getFullObjectFormat())
                 .itemsToSkip(itemsToSkip)
-                .options(SerializationOptions
-                        .createSerializeReferenceNamesForNullOids()
-                        .skipIndexOnly(true))
+                .options(options)
                 .serialize(savedObject);
         byte[] fullObject = RUtil.getBytesFromSerializedForm(xml, getConfiguration().isUseZip());
 
@@ -339,7 +350,7 @@ public class ObjectUpdater {
 
             session.getTransaction().commit();
             return new DeleteObjectResult(
-                    RUtil.getSerializedFormFromBytes(object.getFullObject()));
+                    RUtil.getSerializedFormFromFullObject(object.getFullObject(), prismContext));
         } catch (ObjectNotFoundException ex) {
             baseHelper.rollbackTransaction(session, ex, result, true);
             throw ex;
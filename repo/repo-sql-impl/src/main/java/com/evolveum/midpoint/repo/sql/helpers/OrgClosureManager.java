@@ -8,7 +8,9 @@ package com.evolveum.midpoint.repo.sql.helpers;
 
 import static java.util.Collections.singletonList;
 
+import java.sql.PreparedStatement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -18,7 +20,6 @@ import org.hibernate.query.Query;
 import org.hibernate.type.IntegerType;
 import org.hibernate.type.StringType;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
@@ -26,12 +27,10 @@ import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.PrismReferenceValue;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.delta.ReferenceDelta;
-import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sql.SqlRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sql.data.common.ROrgClosure;
 import com.evolveum.midpoint.repo.sql.data.common.other.RObjectType;
 import com.evolveum.midpoint.repo.sql.util.RUtil;
-import com.evolveum.midpoint.schema.ResultHandler;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.util.QNameUtil;
@@ -68,10 +67,6 @@ public class OrgClosureManager {
 
     private static final Trace LOGGER = TraceManager.getTrace(OrgClosureManager.class);
 
-    @Autowired
-    @Qualifier("repositoryService")
-    private RepositoryService repositoryService;
-
     @Autowired
     private BaseHelper baseHelper;
 
@@ -79,6 +74,8 @@ public class OrgClosureManager {
     private static final boolean COUNT_CLOSURE_RECORDS = false;
     private static final String CLOSURE_TABLE_NAME = "m_org_closure";
     private static final String TEMP_DELTA_TABLE_NAME_FOR_ORACLE = "m_org_closure_temp_delta";
+    private static final int MAX_OIDS_IN_QUERY = 500;           // Oracle does not allow more than 1000
+    private static final int REBUILD_BATCH_SIZE = 1000;
 
     // only for single-thread performance testing
     private long lastOperationDuration;
@@ -113,6 +110,10 @@ public class OrgClosureManager {
 
         List<ReferenceDelta> deltas = filterParentRefDeltas(modifications);
 
+        if (getLockingMode() == LockingMode.SUBTREE) {
+            lockAffectedOrgs(oid, operation, deltas, originalObject, session);
+        }
+
         switch (operation) {
             case ADD:
                 handleAdd(oid, deltas, closureContext, session);
@@ -166,8 +167,8 @@ public class OrgClosureManager {
     }
 
     private Context onBeginTransaction(Session session) {
-        // table locking
-        if (isH2() || isOracle() || isSQLServer()) {
+        // table locking (in SUBTREE mode the rows are locked later, when we know what part of the structure is affected)
+        if ((isH2() || isOracle() || isSQLServer()) && getLockingMode() == LockingMode.TABLE) {
             lockClosureTable(session);
         }
         // other
@@ -353,23 +354,9 @@ public class OrgClosureManager {
         deleteQuery.executeUpdate();
         LOGGER.trace("Closure table content deleted");
 
-        final int orgsTotal = repositoryService.countObjects(OrgType.class, null, null, result);
-        final MutableInt orgsProcessed = new MutableInt(0);
-
-        ResultHandler<OrgType> handler = new ResultHandler<OrgType>() {
-            @Override
-            public boolean handle(PrismObject<OrgType> object, OperationResult parentResult) {
-                LOGGER.trace("Processing {}", object);
-                handleAdd(object.getOid(), getParentOidsFromObject(object), context, session);
-                orgsProcessed.add(1);
-                int currentState = orgsProcessed.intValue();
-                if (currentState % 100 == 0) {
-                    LOGGER.info("{} organizations processed (out of {})", currentState, orgsTotal);
-                }
-                return true;
-            }
-        };
-        repositoryService.searchObjectsIterative(OrgType.class, null, handler, null, true, result);
+        Map<String, Set<String>> parentsMap = getAllOrgParents(session);
+        int orgsTotal = parentsMap.size();
+        insertClosureEntries(computeClosure(parentsMap), session);
 
         LOGGER.info("Org closure table was successfully recomputed (not committed yet); all {} organizations processed", orgsTotal);
 
@@ -387,6 +374,102 @@ public class OrgClosureManager {
         }
     }
 
+    /**
+     * Returns all orgs with their (existing) parent orgs. Parent references pointing to non-existing objects or to objects
+     * other than orgs are ignored, because they do not contribute to the closure.
+     */
+    private Map<String, Set<String>> getAllOrgParents(Session session) {
+        Map<String, Set<String>> parentsMap = new HashMap<>();
+        List<String> orgOids = session.createNativeQuery("select oid from m_org")
+                .addScalar("oid", StringType.INSTANCE)
+                .list();
+        for (String orgOid : orgOids) {
+            parentsMap.put(orgOid, new HashSet<>());
+        }
+        List<Object[]> references = session.createNativeQuery(
+                "select ref.owner_oid, ref.targetOid from m_reference ref " +
+                        "join m_org o on o.oid = ref.owner_oid where ref.reference_type = 0")
+                .addScalar("owner_oid", StringType.INSTANCE)
+                .addScalar("targetOid", StringType.INSTANCE)
+                .list();
+        for (Object[] reference : references) {
+            String child = (String) reference[0];
+            String parent = (String) reference[1];
+            if (parentsMap.containsKey(parent)) {
+                parentsMap.get(child).add(parent);
+            }
+        }
+        LOGGER.info("{} organizations with {} parent references read", parentsMap.size(), references.size());
+        return parentsMap;
+    }
+
+    /**
+     * Computes the closure (descendant -> ancestor -> number of paths) in memory.
+     *
+     * Orgs are processed level by level: an org gets to a level when all its parents were processed in the previous ones.
+     * Closures of orgs at the same level are independent of each other, so they are computed in parallel.
+     */
+    private Map<String, Map<String, Integer>> computeClosure(Map<String, Set<String>> parentsMap) {
+        Map<String, Map<String, Integer>> closure = new ConcurrentHashMap<>();
+        Set<String> remaining = new HashSet<>(parentsMap.keySet());
+        int level = 0;
+        while (!remaining.isEmpty()) {
+            List<String> currentLevel = new ArrayList<>();
+            for (String oid : remaining) {
+                if (closure.keySet().containsAll(parentsMap.get(oid))) {
+                    currentLevel.add(oid);
+                }
+            }
+            if (currentLevel.isEmpty()) {
+                throw new IllegalStateException("Org structure contains a cycle; involved organizations (or their descendants): "
+                        + remaining.size() + ", e.g. " + remaining.iterator().next());
+            }
+            currentLevel.parallelStream().forEach(oid -> {
+                Map<String, Integer> ancestors = new HashMap<>();
+                ancestors.put(oid, 1);
+                for (String parent : parentsMap.get(oid)) {
+                    closure.get(parent).forEach((ancestor, paths) -> ancestors.merge(ancestor, paths, Integer::sum));
+                }
+                closure.put(oid, ancestors);
+            });
+            remaining.removeAll(currentLevel);
+            LOGGER.debug("Closure computed for level {} ({} organizations), {} organizations remaining", level,
+                    currentLevel.size(), remaining.size());
+            level++;
+        }
+        return closure;
+    }
+
+    private void insertClosureEntries(Map<String, Map<String, Integer>> closure, Session session) {
+        long start = System.currentTimeMillis();
+        MutableInt inserted = new MutableInt(0);
+        session.doWork(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement("insert into " + CLOSURE_TABLE_NAME +
+                    " (descendant_oid, ancestor_oid, val) values (?, ?, ?)")) {
+                int inBatch = 0;
+                for (Map.Entry<String, Map<String, Integer>> descendantEntry : closure.entrySet()) {
+                    for (Map.Entry<String, Integer> ancestorEntry : descendantEntry.getValue().entrySet()) {
+                        stmt.setString(1, descendantEntry.getKey());
+                        stmt.setString(2, ancestorEntry.getKey());
+                        stmt.setInt(3, ancestorEntry.getValue());
+                        stmt.addBatch();
+                        if (++inBatch == REBUILD_BATCH_SIZE) {
+                            stmt.executeBatch();
+                            inserted.add(inBatch);
+                            inBatch = 0;
+                            LOGGER.info("{} closure entries inserted", inserted.intValue());
+                        }
+                    }
+                }
+                if (inBatch > 0) {
+                    stmt.executeBatch();
+                    inserted.add(inBatch);
+                }
+            }
+        });
+        LOGGER.info("{} closure entries inserted in {} ms", inserted.intValue(), System.currentTimeMillis() - start);
+    }
+
     private void compareOrgClosureTables(List existingEntries, List recomputedEntries, boolean rebuild, OperationResult result) {
         Set<List> existing = convertEntries(existingEntries);
         Set<List> recomputed = convertEntries(recomputedEntries);
@@ -902,6 +985,109 @@ public class OrgClosureManager {
 
     //endregion
 
+    //region Subtree locking
+
+    /*
+     * Instead of locking the whole closure table, we lock rows (in m_org) of all orgs whose closure records are read
+     * or written by the operation: the org itself, its children (for ADD and DELETE), all descendants of these
+     * (their closure records get or lose ancestors), parents being added or removed, and all ancestors of these parents.
+     * Two operations that could interfere always share at least one of these orgs, so they are serialized; operations
+     * on unrelated parts of the org structure can proceed in parallel.
+     *
+     * Parents that do not exist (yet) are a special case: the parent can be being added by a concurrent transaction
+     * that does not see our reference to it. So we fall back to locking the whole table in such cases.
+     */
+    private void lockAffectedOrgs(String oid, Operation operation, List<ReferenceDelta> deltas,
+            PrismObject<? extends ObjectType> originalObject, Session session) {
+        long start = System.currentTimeMillis();
+        Set<String> parents = new HashSet<>();
+        Set<String> subtreeRoots = new HashSet<>();
+        subtreeRoots.add(oid);
+        switch (operation) {
+            case ADD:
+                parents.addAll(getParentOidsToAdd(deltas, null));
+                subtreeRoots.addAll(getChildren(oid, session));
+                break;
+            case DELETE:
+                parents.addAll(getParents(oid, session));
+                subtreeRoots.addAll(getChildren(oid, session));
+                break;
+            case MODIFY:
+                if (!deltas.isEmpty()) {
+                    parents.addAll(getParentOidsToDelete(deltas, originalObject));
+                    parents.addAll(getParentOidsToAdd(deltas, originalObject));
+                }
+                break;
+        }
+        // If parents are not changed (MODIFY without parentRef deltas), no closure records are written.
+        boolean lockDescendants = operation != Operation.MODIFY || !parents.isEmpty();
+
+        if (operation != Operation.DELETE && !parents.isEmpty()
+                && retainExistingOids(parents, session).size() < parents.size()
+                && (isH2() || isOracle() || isSQLServer())) {
+            LOGGER.trace("Some of the parents of {} do not exist, locking the whole closure table", oid);
+            lockClosureTable(session);
+            return;
+        }
+
+        // Ancestors of the parents and descendants of the subtree roots can change until they are locked,
+        // so we repeat until there is nothing new to lock.
+        Set<String> toLock = new HashSet<>(subtreeRoots);
+        toLock.addAll(parents);
+        Set<String> locked = new HashSet<>();
+        while (!toLock.isEmpty()) {
+            lockOrgRows(toLock, session);
+            locked.addAll(toLock);
+            toLock = new HashSet<>();
+            if (!parents.isEmpty()) {
+                toLock.addAll(getAncestors(parents, session));
+            }
+            if (lockDescendants) {
+                toLock.addAll(getDescendants(subtreeRoots, session));
+            }
+            toLock.removeAll(locked);
+        }
+        LOGGER.trace("Locked {} org(s) for {} of {} in {} ms", locked.size(), operation, oid, System.currentTimeMillis() - start);
+    }
+
+    private void lockOrgRows(Collection<String> oids, Session session) {
+        // consistent ordering makes deadlocks less probable
+        List<String> sorted = new ArrayList<>(oids);
+        Collections.sort(sorted);
+        String queryText = isSQLServer()
+                ? "select oid from m_org with (updlock, rowlock, holdlock) where oid in (:oids)"
+                : "select oid from m_org where oid in (:oids) for update";
+        for (int i = 0; i < sorted.size(); i += MAX_OIDS_IN_QUERY) {
+            NativeQuery q = session.createNativeQuery(queryText);
+            q.setParameterList("oids", sorted.subList(i, Math.min(i + MAX_OIDS_IN_QUERY, sorted.size())));
+            q.list();
+        }
+    }
+
+    private Set<String> getAncestors(Collection<String> oids, Session session) {
+        return selectRelatives(oids, "ancestor_oid", "descendant_oid", session);
+    }
+
+    private Set<String> getDescendants(Collection<String> oids, Session session) {
+        return selectRelatives(oids, "descendant_oid", "ancestor_oid", session);
+    }
+
+    private Set<String> selectRelatives(Collection<String> oids, String selectedColumn, String givenColumn, Session session) {
+        Set<String> relatives = new HashSet<>();
+        List<String> list = new ArrayList<>(oids);
+        for (int i = 0; i < list.size(); i += MAX_OIDS_IN_QUERY) {
+            NativeQuery q = session.createNativeQuery("select distinct " + selectedColumn + " from " + CLOSURE_TABLE_NAME +
+                    " where " + givenColumn + " in (:oids)")
+                    .addScalar(selectedColumn, StringType.INSTANCE);
+            q.setParameterList("oids", list.subList(i, Math.min(i + MAX_OIDS_IN_QUERY, list.size())));
+            //noinspection unchecked
+            relatives.addAll(q.list());
+        }
+        return relatives;
+    }
+
+    //endregion
+
     //region Misc
 
     private void lockClosureTable(Session session) {
@@ -1241,6 +1427,10 @@ public class OrgClosureManager {
         }
     }
 
+    private LockingMode getLockingMode() {
+        return baseHelper.getConfiguration().getOrgClosureLockingMode();
+    }
+
     private boolean isMySqlCompatible() {
         return baseHelper.getConfiguration().isUsingMySqlCompatible();
     }
@@ -1342,6 +1532,42 @@ public class OrgClosureManager {
         }
     }
 
+    public enum LockingMode {
+
+        /**
+         * The whole closure table is locked for each operation touching the org structure (H2, Oracle, SQL Server).
+         * Other databases rely on the transaction isolation.
+         */
+        TABLE("table"),
+
+        /**
+         * Only orgs affected by the operation (the org, its children, their descendants, parents and their ancestors)
+         * are locked.
+         * Allows concurrent changes in unrelated parts of the org structure.
+         */
+        SUBTREE("subtree");
+
+        private String value;
+
+        LockingMode(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+        public static LockingMode fromValue(String v) {
+            for (LockingMode m : LockingMode.values()) {
+                if (m.value.equals(v)) {
+                    return m;
+                }
+            }
+            throw new IllegalArgumentException(v);
+        }
+    }
+
     public static class Context {
         String temporaryTableName;
     }
@@ -96,6 +96,14 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
         return threadLocalPerformanceInformation.get();
     }
 
+    /**
+     * Lets the current thread register its operations into (possibly shared) performance information.
+     * Used for helper threads that execute repository operations on behalf of another thread.
+     */
+    public void setThreadLocalPerformanceInformation(PerformanceInformationImpl information) {
+        threadLocalPerformanceInformation.set(information);
+    }
+
     @Override
     public void stopThreadLocalPerformanceInformationCollection() {
         threadLocalPerformanceInformation.remove();
@@ -362,15 +362,21 @@ public final class RUtil {
         if (serializedForm == null) {
             return null;
         }
+        return getBytesFromBinaryForm(serializedForm.getBytes(StandardCharsets.UTF_8), compress);
+    }
 
-        try {
-            if (!compress) {
-                return serializedForm.getBytes(StandardCharsets.UTF_8);
-            }
+    /**
+     * Stores already serialized data (e.g. in prism binary format), optionally compressing them.
+     */
+    public static byte[] getBytesFromBinaryForm(byte[] data, boolean compress) {
+        if (data == null || !compress) {
+            return data;
+        }
 
+        try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
             try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-                gzip.write(serializedForm.getBytes(StandardCharsets.UTF_8));
+                gzip.write(data);
                 gzip.close(); // explicit close writes any remaining data
                 return out.toByteArray();
             }
@@ -379,6 +385,62 @@ public final class RUtil {
         }
     }
 
+    /**
+     * Returns the data stored by {@link #getBytesFromSerializedForm(String, boolean)} or
+     * {@link #getBytesFromBinaryForm(byte[], boolean)}, uncompressed if needed.
+     */
+    public static byte[] getUncompressedBytes(byte[] array) {
+        if (array == null || !isGzipped(array)) {
+            return array;
+        }
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(array))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(gzip, out);
+            return out.toByteArray();
+        } catch (Exception ex) {
+            throw new SystemException("Couldn't read data from full object column, reason: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Returns the textual form of full object column content. Data in prism binary format are converted to XML.
+     */
+    public static String getSerializedFormFromFullObject(byte[] array, PrismContext prismContext) {
+        byte[] data = getUncompressedBytes(array);
+        if (data != null && prismContext.isBinaryFormat(data)) {
+            try {
+                return prismContext.xmlSerializer().serialize(prismContext.parserFor(data).parseToXNode());
+            } catch (SchemaException ex) {
+                throw new SystemException("Couldn't convert binary data from full object column to XML, reason: "
+                        + ex.getMessage(), ex);
+            }
+        } else {
+            return getSerializedFormFromBytes(data);
+        }
+    }
+
+    /**
+     * Describes full object column content for diagnostic purposes (e.g. when it cannot be parsed).
+     */
+    public static String getFullObjectDiagnosticForm(byte[] data, PrismContext prismContext) {
+        if (data == null) {
+            return null;
+        } else if (prismContext.isBinaryFormat(data)) {
+            return "(binary data, " + data.length + " bytes)";
+        } else {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean isGzipped(byte[] array) {
+        if (array.length < 2) {
+            return false;
+        }
+        final int head = (array[0] & 0xff) | ((array[1] << 8) & 0xff00);
+        return GZIPInputStream.GZIP_MAGIC == head;
+    }
+
     public static String getSerializedFormFromBytes(byte[] array) {
         return getSerializedFormFromBytes(array, false);
     }
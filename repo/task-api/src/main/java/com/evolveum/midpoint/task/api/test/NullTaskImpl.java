@@ -682,7 +682,8 @@ public class NullTaskImpl implements Task {
     }
 
     @Override
-    public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration) {
+    public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration,
+            long valueCombinations) {
     }
 
     @Override
@@ -2435,8 +2435,8 @@ public class TaskQuartzImpl implements InternalTaskInterface {
 
     @Override
     public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName,
-            long duration) {
-        statistics.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration);
+            long duration, long valueCombinations) {
+        statistics.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration, valueCombinations);
     }
 
     @Override
@@ -277,8 +277,9 @@ public class Statistics implements WorkBucketStatisticsCollector {
     }
 
     public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName,
-            long duration) {
-        environmentalPerformanceInformation.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration);
+            long duration, long valueCombinations) {
+        environmentalPerformanceInformation.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration,
+                valueCombinations);
     }
 
     public synchronized void recordSynchronizationOperationEnd(String objectName, String objectDisplayName, QName objectType,
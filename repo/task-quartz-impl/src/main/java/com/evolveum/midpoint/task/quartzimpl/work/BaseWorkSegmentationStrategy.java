@@ -100,13 +100,12 @@ public abstract class BaseWorkSegmentationStrategy implements WorkSegmentationSt
         return configuration != null && configuration.getBuckets() != null ? configuration.getBuckets().getAllocation() : null;
     }
 
+    // we create at least as many buckets as can be allocated at once
     private int getBucketCreationBatch() {
         WorkAllocationConfigurationType ac = getAllocationConfiguration();
-        if (ac != null && ac.getBucketCreationBatch() != null) {
-            return ac.getBucketCreationBatch();
-        } else {
-            return 1;
-        }
+        int creationBatch = ac != null && ac.getBucketCreationBatch() != null ? ac.getBucketCreationBatch() : 1;
+        int allocationBatch = ac != null && ac.getBucketAllocationBatch() != null ? ac.getBucketAllocationBatch() : 1;
+        return Math.max(creationBatch, allocationBatch);
     }
 
     private boolean isAllocateFirst() {
@@ -224,6 +224,7 @@ public class WorkStateManager {
         TaskWorkManagementType workManagement = ctx.coordinatorTask.getWorkManagement();
         WorkSegmentationStrategy workStateStrategy = strategyFactory.createStrategy(workManagement);
         setOrUpdateEstimatedNumberOfBuckets(ctx.coordinatorTask, workStateStrategy, result);
+        int allocationBatch = getBucketAllocationBatch(workManagement);
 
 waitForAvailableBucket:    // this cycle exits when something is found OR when a definite 'no more buckets' answer is received
         for (;;) {
@@ -238,36 +239,49 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
                 try {
                     if (response instanceof NewBuckets) {
                         NewBuckets newBucketsResponse = (NewBuckets) response;
-                        int selected = newBucketsResponse.selected;
-                        List<WorkBucketType> newCoordinatorBuckets = new ArrayList<>(coordinatorWorkState.getBucket());
-                        for (int i = 0; i < newBucketsResponse.newBuckets.size(); i++) {
-                            if (i == selected) {
-                                newCoordinatorBuckets.add(newBucketsResponse.newBuckets.get(i).clone()
+                        List<WorkBucketType> allocated = selectBucketsToAllocate(newBucketsResponse.newBuckets,
+                                newBucketsResponse.newBuckets.get(newBucketsResponse.selected), allocationBatch);
+                        List<WorkBucketType> newCoordinatorBuckets = new ArrayList<>(newBucketsResponse.newBuckets.size());
+                        for (WorkBucketType newBucket : newBucketsResponse.newBuckets) {
+                            if (allocated.contains(newBucket)) {
+                                newCoordinatorBuckets.add(newBucket.clone()
                                         .state(WorkBucketStateType.DELEGATED)
                                         .workerRef(ctx.workerTask.getOid(), TaskType.COMPLEX_TYPE));
                             } else {
-                                newCoordinatorBuckets.add(newBucketsResponse.newBuckets.get(i).clone());
+                                newCoordinatorBuckets.add(newBucket.clone());
                             }
                         }
+                        // We only add the new buckets (instead of rewriting all of them), so the only conflict that matters
+                        // is someone else creating the buckets with the same sequential numbers.
                         repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(),
-                                bucketsReplaceDeltas(newCoordinatorBuckets),
-                                bucketsReplacePrecondition(coordinatorWorkState.getBucket()), null, result);
+                                bucketsAddDeltas(newCoordinatorBuckets),
+                                lastBucketUnchangedPrecondition(coordinatorWorkState.getBucket()), null, result);
                         repositoryService.modifyObject(TaskType.class, ctx.workerTask.getOid(),
-                                bucketsAddDeltas(newBucketsResponse.newBuckets.subList(selected, selected+1)), null, result);
-                        CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (conflicts: {}) in {}", System.currentTimeMillis() - ctx.start, ctx.conflictCount, ctx.workerTask);
+                                bucketsAddDeltas(allocated), null, result);
+                        CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (conflicts: {}, allocated: {}) in {}",
+                                System.currentTimeMillis() - ctx.start, ctx.conflictCount, allocated.size(), ctx.workerTask);
                         ctx.register(GET_WORK_BUCKET_CREATED_NEW);
-                        return newBucketsResponse.newBuckets.get(selected);
+                        return allocated.get(0);
                     } else if (response instanceof FoundExisting) {
                         FoundExisting existingResponse = (FoundExisting) response;
-                        repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(),
-                                bucketStateChangeDeltas(existingResponse.bucket, WorkBucketStateType.DELEGATED, ctx.workerTask.getOid()),
-                                bucketUnchangedPrecondition(existingResponse.bucket), null, result);
-                        WorkBucketType foundBucket = existingResponse.bucket.clone();
+                        List<WorkBucketType> ready = coordinatorWorkState.getBucket().stream()
+                                .filter(b -> b.getState() == WorkBucketStateType.READY)
+                                .collect(Collectors.toList());
+                        List<WorkBucketType> allocated = selectBucketsToAllocate(ready, existingResponse.bucket, allocationBatch);
+                        List<ItemDelta<?, ?>> coordinatorModifications = new ArrayList<>();
+                        for (WorkBucketType bucket : allocated) {
+                            coordinatorModifications.addAll(
+                                    bucketStateChangeDeltas(bucket, WorkBucketStateType.DELEGATED, ctx.workerTask.getOid()));
+                        }
+                        repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(), coordinatorModifications,
+                                bucketsUnchangedPrecondition(allocated), null, result);
+                        List<WorkBucketType> foundBuckets = CloneUtil.cloneCollectionMembers(allocated);
                         repositoryService.modifyObject(TaskType.class, ctx.workerTask.getOid(),
-                                bucketsAddDeltas(singletonList(foundBucket)), null, result);
-                        CONTENTION_LOGGER.trace("Existing bucket acquired after {} ms (conflicts: {}) in {}", System.currentTimeMillis() - ctx.start, ctx.conflictCount, ctx.workerTask);
+                                bucketsAddDeltas(foundBuckets), null, result);
+                        CONTENTION_LOGGER.trace("Existing bucket(s) acquired after {} ms (conflicts: {}, allocated: {}) in {}",
+                                System.currentTimeMillis() - ctx.start, ctx.conflictCount, allocated.size(), ctx.workerTask);
                         ctx.register(GET_WORK_BUCKET_DELEGATED);
-                        return foundBucket;
+                        return foundBuckets.get(0);
                     } else if (response instanceof NothingFound) {
                         if (!ctx.workerTask.isScavenger()) {
                             CONTENTION_LOGGER.trace("'No bucket' found (and not a scavenger) after {} ms (conflicts: {}) in {}", System.currentTimeMillis() - ctx.start, ctx.conflictCount, ctx.workerTask);
@@ -331,6 +345,29 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
         }
     }
 
+    /**
+     * Selects the buckets to be allocated to the worker at once: the one chosen by the strategy goes first,
+     * followed by other candidates (in the order of sequential numbers) up to the allocation batch size.
+     */
+    private List<WorkBucketType> selectBucketsToAllocate(List<WorkBucketType> candidates, WorkBucketType selected,
+            int allocationBatch) {
+        List<WorkBucketType> allocated = new ArrayList<>(allocationBatch);
+        allocated.add(selected);
+        if (allocationBatch > 1) {
+            List<WorkBucketType> others = new ArrayList<>(candidates);
+            others.remove(selected);
+            TaskWorkStateTypeUtil.sortBucketsBySequentialNumber(others);
+            allocated.addAll(others.subList(0, Math.min(others.size(), allocationBatch - 1)));
+        }
+        return allocated;
+    }
+
+    private int getBucketAllocationBatch(TaskWorkManagementType workManagement) {
+        WorkAllocationConfigurationType ac = workManagement != null && workManagement.getBuckets() != null ?
+                workManagement.getBuckets().getAllocation() : null;
+        return ac != null && ac.getBucketAllocationBatch() != null ? Math.max(1, ac.getBucketAllocationBatch()) : 1;
+    }
+
     private BackoffComputer createBackoffComputer(TaskWorkManagementType workManagement) {
         WorkAllocationConfigurationType ac = workManagement != null && workManagement.getBuckets() != null ?
                 workManagement.getBuckets().getAllocation() : null;
@@ -672,11 +709,6 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
                 .addRealValues(CloneUtil.cloneCollectionMembers(buckets)).asItemDeltas();
     }
 
-    private ModificationPrecondition<TaskType> bucketsReplacePrecondition(List<WorkBucketType> originalBuckets) {
-        // performance is not optimal but OK for precondition checking
-        return taskObject -> cloneNoId(originalBuckets).equals(cloneNoId(getWorkStateOrNew(taskObject.asObjectable()).getBucket()));
-    }
-
     @SuppressWarnings("SameParameterValue")
     private Collection<ItemDelta<?, ?>> bucketStateChangeDeltas(WorkBucketType bucket, WorkBucketStateType newState) throws SchemaException {
         return prismContext.deltaFor(TaskType.class)
@@ -700,6 +732,34 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
                 .delete(bucket.clone()).asItemDeltas();
     }
 
+    private ModificationPrecondition<TaskType> bucketsUnchangedPrecondition(List<WorkBucketType> originalBuckets) {
+        return taskObject -> {
+            for (WorkBucketType originalBucket : originalBuckets) {
+                if (!bucketUnchangedPrecondition(originalBucket).holds(taskObject)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * New buckets are derived from the last one, so it is sufficient to check that the last bucket is still the same.
+     * (Completed buckets are compressed, but the last one of them is always kept.)
+     */
+    private ModificationPrecondition<TaskType> lastBucketUnchangedPrecondition(List<WorkBucketType> originalBuckets) {
+        WorkBucketType originalLast = TaskWorkStateTypeUtil.getLastBucket(originalBuckets);
+        return taskObject -> {
+            WorkBucketType currentLast = TaskWorkStateTypeUtil.getLastBucket(getWorkStateOrNew(taskObject.asObjectable()).getBucket());
+            if (originalLast == null || currentLast == null) {
+                return originalLast == null && currentLast == null;
+            } else {
+                return Objects.equals(originalLast.getSequentialNumber(), currentLast.getSequentialNumber())
+                        && Objects.equals(originalLast.getContent(), currentLast.getContent());
+            }
+        };
+    }
+
     private ModificationPrecondition<TaskType> bucketUnchangedPrecondition(WorkBucketType originalBucket) {
         return taskObject -> {
             WorkBucketType currentBucket = findBucketByNumber(getWorkStateOrNew(taskObject.asObjectable()).getBucket(),
@@ -713,11 +773,6 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
         return bucket.clone().id(null);
     }
 
-    private List<WorkBucketType> cloneNoId(List<WorkBucketType> buckets) {
-        return buckets.stream().map(this::cloneNoId)
-                .collect(Collectors.toCollection(() -> new ArrayList<>(buckets.size())));
-    }
-
     @NotNull
     private TaskWorkStateType getWorkStateOrNew(Task task) {
         if (task.getWorkState() != null) {
@@ -500,6 +500,87 @@ public class TestWorkDistribution extends AbstractTaskManagerTest {
         }
     }
 
+    @Test
+    public void test140AllocateBatched() throws Exception {
+        OperationResult result = createOperationResult();
+        addObjectFromFile(coordinatorTaskFilename());
+        addObjectFromFile(taskFilename("1"));
+        addObjectFromFile(taskFilename("2"));
+
+        try {
+            TaskQuartzImpl worker1 = taskManager.getTaskPlain(taskOid("1"), result);
+            TaskQuartzImpl worker2 = taskManager.getTaskPlain(taskOid("2"), result);
+
+            // WHEN
+            WorkBucketType bucket1 = workStateManager.getWorkBucket(worker1.getOid(), 0, null, null, result);
+            WorkBucketType bucket2 = workStateManager.getWorkBucket(worker2.getOid(), 0, null, null, result);
+
+            // THEN
+            displayValue("1st allocated bucket", bucket1);
+            displayValue("2nd allocated bucket", bucket2);
+            worker1 = taskManager.getTaskPlain(worker1.getOid(), result);
+            worker2 = taskManager.getTaskPlain(worker2.getOid(), result);
+            Task coordinator = taskManager.getTaskPlain(coordinatorTaskOid(), result);
+            displayDumpable("coordinator task after 2x allocation", coordinator);
+            displayDumpable("worker1 task after 2x allocation", worker1);
+            displayDumpable("worker2 task after 2x allocation", worker2);
+
+            assertNumericBucket(bucket1, null, 1, 0, 1);
+            assertNumericBucket(bucket2, null, 3, 2, 3);
+            List<WorkBucketType> buckets = new ArrayList<>(coordinator.getWorkState().getBucket());
+            sortBucketsBySequentialNumber(buckets);
+            assertEquals(4, buckets.size());
+            assertNumericBucket(buckets.get(0), WorkBucketStateType.DELEGATED, 1, 0, 1);
+            assertNumericBucket(buckets.get(1), WorkBucketStateType.DELEGATED, 2, 1, 2);
+            assertNumericBucket(buckets.get(2), WorkBucketStateType.DELEGATED, 3, 2, 3);
+            assertNumericBucket(buckets.get(3), WorkBucketStateType.DELEGATED, 4, 3, 4);
+
+            buckets = new ArrayList<>(worker1.getWorkState().getBucket());
+            sortBucketsBySequentialNumber(buckets);
+            assertEquals(2, buckets.size());
+            assertNumericBucket(buckets.get(0), WorkBucketStateType.READY, 1, 0, 1);
+            assertNumericBucket(buckets.get(1), WorkBucketStateType.READY, 2, 1, 2);
+            buckets = new ArrayList<>(worker2.getWorkState().getBucket());
+            sortBucketsBySequentialNumber(buckets);
+            assertEquals(2, buckets.size());
+            assertNumericBucket(buckets.get(0), WorkBucketStateType.READY, 3, 2, 3);
+            assertNumericBucket(buckets.get(1), WorkBucketStateType.READY, 4, 3, 4);
+
+            // WHEN
+            workStateManager.completeWorkBucket(worker1.getOid(), 1, null, result);
+            WorkBucketType bucket = workStateManager.getWorkBucket(worker1.getOid(), 0, null, null, result);
+
+            // THEN (the pre-allocated bucket is used)
+            assertNumericBucket(bucket, null, 2, 1, 2);
+
+            // WHEN
+            workStateManager.completeWorkBucket(worker1.getOid(), 2, null, result);
+            bucket = workStateManager.getWorkBucket(worker1.getOid(), 0, null, null, result);
+
+            // THEN (only one bucket remained to be created)
+            worker1 = taskManager.getTaskPlain(worker1.getOid(), result);
+            displayDumpable("worker1 after completion of 2nd bucket and fetching next one", worker1);
+            coordinator = taskManager.getTaskPlain(coordinator.getOid(), result);
+            displayDumpable("coordinator after completion of 2nd bucket and fetching next one", coordinator);
+
+            assertNumericBucket(bucket, null, 5, 4, 5);
+
+            buckets = new ArrayList<>(coordinator.getWorkState().getBucket());
+            sortBucketsBySequentialNumber(buckets);
+            assertEquals(4, buckets.size());
+            assertNumericBucket(buckets.get(0), WorkBucketStateType.COMPLETE, 2, 1, 2);
+            assertNumericBucket(buckets.get(1), WorkBucketStateType.DELEGATED, 3, 2, 3);
+            assertNumericBucket(buckets.get(2), WorkBucketStateType.DELEGATED, 4, 3, 4);
+            assertNumericBucket(buckets.get(3), WorkBucketStateType.DELEGATED, 5, 4, 5);
+
+            buckets = new ArrayList<>(worker1.getWorkState().getBucket());
+            assertEquals(1, buckets.size());
+            assertNumericBucket(buckets.get(0), WorkBucketStateType.READY, 5, 4, 5);
+        } finally {
+            suspendAndDeleteTasks(coordinatorTaskOid());
+        }
+    }
+
     @Test
     public void test200OneWorkerTask() throws Exception {
         OperationResult result = createOperationResult();
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.evolveum.midpoint.task.api.LightweightIdentifier;
+import com.evolveum.midpoint.task.api.LightweightIdentifierGenerator;
+
+/**
+ * Minimal identifier generator for the repository-only Spring context.
+ */
+public class BasicLightweightIdentifierGenerator implements LightweightIdentifierGenerator {
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public LightweightIdentifier generate() {
+        return new LightweightIdentifier(System.currentTimeMillis(), 0, sequence.incrementAndGet());
+    }
+}
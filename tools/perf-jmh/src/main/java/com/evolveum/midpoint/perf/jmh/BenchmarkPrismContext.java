@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Prism context and sample data shared by the prism-level benchmarks.
+ * The context is created once per JVM (i.e. once per fork).
+ */
+class BenchmarkPrismContext {
+
+    static final String USER_JACK_RESOURCE = "perf-jmh/user-jack.xml";
+
+    private static PrismContext prismContext;
+
+    static synchronized PrismContext get() throws SchemaException, SAXException, IOException {
+        if (prismContext == null) {
+            PrismContext ctx = MidPointPrismContextFactory.FACTORY.createInitializedPrismContext();
+            ctx.setExtraValidation(false);
+            prismContext = ctx;
+        }
+        return prismContext;
+    }
+
+    static String getUserJackXml() throws IOException {
+        try (InputStream stream = BenchmarkPrismContext.class.getClassLoader().getResourceAsStream(USER_JACK_RESOURCE)) {
+            if (stream == null) {
+                throw new IllegalStateException("No resource " + USER_JACK_RESOURCE + " on the classpath");
+            }
+            return IOUtils.toString(stream, StandardCharsets.UTF_8);
+        }
+    }
+
+    static PrismObject<UserType> parseUserJack() throws SchemaException, SAXException, IOException {
+        return get().parserFor(getUserJackXml()).xml().parse();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationStatusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Application of a typical "recompute-like" modify delta (ObjectDeltaImpl.applyTo).
+ *
+ * The delta is applied to a fresh clone of the object each time, so {@link #cloneOnly()}
+ * is provided as a baseline to be subtracted from {@link #cloneAndApply()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeltaApplyBenchmark {
+
+    private PrismObject<UserType> user;
+    private ObjectDelta<UserType> delta;
+
+    @Setup
+    public void setup() throws Exception {
+        PrismContext prismContext = BenchmarkPrismContext.get();
+        user = BenchmarkPrismContext.parseUserJack();
+        user.freeze();
+
+        delta = prismContext.deltaFor(UserType.class)
+                .item(UserType.F_FULL_NAME).replace(PolyString.fromOrig("Jack Sparrow"))
+                .item(UserType.F_DESCRIPTION).replace("Captain of the Black Pearl")
+                .item(UserType.F_ORGANIZATION).add(PolyString.fromOrig("Pirates"), PolyString.fromOrig("Brethren Court"))
+                .item(UserType.F_SUBTYPE).add("captain")
+                .item(SchemaConstants.PATH_ACTIVATION_ADMINISTRATIVE_STATUS).replace(ActivationStatusType.ENABLED)
+                .item(UserType.F_ASSIGNMENT).add(new AssignmentType(prismContext)
+                        .targetRef(new ObjectReferenceType().oid("6d8b5a36-0a9a-4a48-a1bb-f8c8b5c7c3a1").type(RoleType.COMPLEX_TYPE)))
+                .asObjectDelta(user.getOid());
+        delta.freeze();
+    }
+
+    @Benchmark
+    public PrismObject<UserType> cloneOnly() {
+        return user.clone();
+    }
+
+    @Benchmark
+    public PrismObject<UserType> cloneAndApply() throws Exception {
+        PrismObject<UserType> clone = user.clone();
+        delta.applyTo(clone);
+        return clone;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Item lookup in container values (PrismContainerValueImpl.findItem) and building of large
+ * multi-valued items (ItemImpl.add), e.g. roleMembershipRef of users with many roles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrismItemBenchmark {
+
+    private static final ItemPath EXTENSION_ITEM_PATH = ItemPath.create(UserType.F_EXTENSION, "bar23");
+
+    /**
+     * Number of values in the multi-valued item.
+     */
+    @Param({ "100", "1000", "10000" })
+    public int values;
+
+    private PrismContext prismContext;
+    private PrismContainerValue<UserType> userValue;
+    private PrismReferenceDefinition roleMembershipRefDefinition;
+    private List<String> oids;
+    private PrismReference fullReference;
+    private PrismReferenceValue lastValue;
+
+    @Setup
+    public void setup() throws Exception {
+        prismContext = BenchmarkPrismContext.get();
+        PrismObject<UserType> user = BenchmarkPrismContext.parseUserJack();
+        user.freeze();
+        userValue = user.getValue();
+
+        roleMembershipRefDefinition = user.getDefinition().findReferenceDefinition(AssignmentHolderType.F_ROLE_MEMBERSHIP_REF);
+        oids = new ArrayList<>(values);
+        for (int i = 0; i < values; i++) {
+            oids.add(UUID.randomUUID().toString());
+        }
+        fullReference = buildReference();
+        lastValue = createValue(oids.get(values - 1));
+    }
+
+    @Benchmark
+    public Item<?, ?> findItemName() {
+        return userValue.findItem(UserType.F_NAME);
+    }
+
+    @Benchmark
+    public Item<?, ?> findItemAssignment() {
+        return userValue.findItem(UserType.F_ASSIGNMENT);
+    }
+
+    @Benchmark
+    public Item<?, ?> findItemInExtension() {
+        return userValue.findItem(EXTENSION_ITEM_PATH);
+    }
+
+    /**
+     * Adds all values one by one, with the default (equivalence-checking) semantics.
+     */
+    @Benchmark
+    public PrismReference addValues() throws Exception {
+        return buildReference();
+    }
+
+    @Benchmark
+    public boolean containsLastValue() {
+        return fullReference.contains(lastValue);
+    }
+
+    private PrismReference buildReference() throws Exception {
+        PrismReference reference = roleMembershipRefDefinition.instantiate();
+        for (String oid : oids) {
+            reference.add(createValue(oid));
+        }
+        return reference;
+    }
+
+    private PrismReferenceValue createValue(String oid) {
+        return prismContext.itemFactory().createReferenceValue(oid, RoleType.COMPLEX_TYPE);
+    }
+}
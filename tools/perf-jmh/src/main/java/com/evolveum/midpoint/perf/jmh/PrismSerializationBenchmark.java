@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Parsing and serialization of a reasonably rich user object in all supported languages.
+ * Successor of the ad-hoc parse/serialize tests in TestBasicPerformance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrismSerializationBenchmark {
+
+    @Param({ PrismContext.LANG_XML, PrismContext.LANG_JSON, PrismContext.LANG_YAML })
+    public String language;
+
+    private PrismContext prismContext;
+    private PrismObject<UserType> user;
+    private String serialized;
+
+    @Setup
+    public void setup() throws Exception {
+        prismContext = BenchmarkPrismContext.get();
+        user = BenchmarkPrismContext.parseUserJack();
+        serialized = prismContext.serializerFor(language).serialize(user);
+    }
+
+    @Benchmark
+    public PrismObject<UserType> parse() throws Exception {
+        return prismContext.parserFor(serialized).language(language).parse();
+    }
+
+    @Benchmark
+    public RootXNode parseToXNode() throws Exception {
+        return prismContext.parserFor(serialized).language(language).parseToXNode();
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return prismContext.serializerFor(language).serialize(user);
+    }
+}
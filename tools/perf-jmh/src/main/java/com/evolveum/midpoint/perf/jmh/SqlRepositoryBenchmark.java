@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2010-2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.perf.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericXmlApplicationContext;
+
+import com.evolveum.midpoint.common.configuration.api.MidpointConfiguration;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Round-trips of the SQL repository (SqlRepositoryServiceImpl) running on embedded H2.
+ *
+ * The repository is started using the same Spring contexts as ninja uses, with a configuration
+ * taken from perf-jmh/config.xml. The database is recreated and filled with {@link #users}
+ * users for each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlRepositoryBenchmark {
+
+    private static final String REPOSITORY_SERVICE_BEAN = "repositoryService";
+    private static final String PRISM_CONTEXT_BEAN = "prismContext";
+
+    private static final String[] CONTEXTS = new String[] {
+            "classpath:ctx-perf-jmh.xml",
+            "classpath:ctx-common.xml",
+            "classpath:ctx-configuration.xml",
+            "classpath:ctx-repository.xml",
+            "classpath:ctx-repo-cache.xml",
+            "classpath:ctx-audit.xml"
+    };
+
+    private static final String CONFIG_RESOURCE = "perf-jmh/config.xml";
+    private static final File MIDPOINT_HOME = new File("target/perf-jmh-home");
+
+    private static final int SUBTYPES = 20;
+    private static final int SEARCH_PAGE_SIZE = 50;
+
+    /**
+     * Number of users in the repository.
+     */
+    @Param({ "1000", "10000" })
+    public int users;
+
+    private GenericXmlApplicationContext context;
+    private RepositoryService repositoryService;
+    private PrismContext prismContext;
+    private final List<String> oids = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        prepareMidPointHome();
+
+        System.setProperty(MidpointConfiguration.MIDPOINT_SILENT_PROPERTY, "true");
+        System.setProperty(MidpointConfiguration.MIDPOINT_HOME_PROPERTY, MIDPOINT_HOME.getAbsolutePath());
+
+        context = new GenericXmlApplicationContext();
+        context.load(CONTEXTS);
+        context.refresh();
+
+        repositoryService = context.getBean(REPOSITORY_SERVICE_BEAN, RepositoryService.class);
+        prismContext = context.getBean(PRISM_CONTEXT_BEAN, PrismContext.class);
+
+        OperationResult result = new OperationResult("setup");
+        oids.clear();
+        for (int i = 0; i < users; i++) {
+            UserType user = new UserType(prismContext)
+                    .name(getUserName(i))
+                    .fullName("User number " + i)
+                    .description("Benchmark user")
+                    .subtype(getSubtype(i));
+            oids.add(repositoryService.addObject(user.asPrismObject(), null, result));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public PrismObject<UserType> getObject() throws Exception {
+        return repositoryService.getObject(UserType.class, randomOid(), null, new OperationResult("getObject"));
+    }
+
+    @Benchmark
+    public SearchResultList<PrismObject<UserType>> searchByName() throws Exception {
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly(getUserName(ThreadLocalRandom.current().nextInt(users))).matchingOrig()
+                .build();
+        return repositoryService.searchObjects(UserType.class, query, null, new OperationResult("searchByName"));
+    }
+
+    @Benchmark
+    public SearchResultList<PrismObject<UserType>> searchBySubtypePaged() throws Exception {
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_SUBTYPE).eq(getSubtype(ThreadLocalRandom.current().nextInt(SUBTYPES)))
+                .asc(UserType.F_NAME)
+                .maxSize(SEARCH_PAGE_SIZE)
+                .build();
+        return repositoryService.searchObjects(UserType.class, query, null, new OperationResult("searchBySubtypePaged"));
+    }
+
+    @Benchmark
+    public Object modifyObject() throws Exception {
+        Collection<? extends ItemDelta<?, ?>> modifications = prismContext.deltaFor(UserType.class)
+                .item(UserType.F_DESCRIPTION).replace("Modified " + System.nanoTime())
+                .item(UserType.F_ORGANIZATION).replace(PolyString.fromOrig("org-" + ThreadLocalRandom.current().nextInt(100)))
+                .asItemDeltas();
+        return repositoryService.modifyObject(UserType.class, randomOid(), modifications, new OperationResult("modifyObject"));
+    }
+
+    private String randomOid() {
+        return oids.get(ThreadLocalRandom.current().nextInt(oids.size()));
+    }
+
+    private static String getUserName(int i) {
+        return String.format("user-%08d", i);
+    }
+
+    private static String getSubtype(int i) {
+        return "subtype-" + (i % SUBTYPES);
+    }
+
+    private void prepareMidPointHome() throws IOException {
+        FileUtils.deleteDirectory(MIDPOINT_HOME);
+        //noinspection ResultOfMethodCallIgnored
+        MIDPOINT_HOME.mkdirs();
+        try (InputStream config = getClass().getClassLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+            if (config == null) {
+                throw new IllegalStateException("No resource " + CONFIG_RESOURCE + " on the classpath");
+            }
+            FileUtils.copyInputStreamToFile(config, new File(MIDPOINT_HOME, "config.xml"));
+        }
+    }
+}